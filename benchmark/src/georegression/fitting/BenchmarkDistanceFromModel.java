@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.fitting;
+
+import georegression.fitting.plane.DistanceFromModelPlaneGeneral3D_F64;
+import georegression.fitting.sphere.DistanceFromModelSphere3D_F64;
+import georegression.metric.Distance3D_F64;
+import georegression.struct.plane.PlaneGeneral3D_F64;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.point.PointCloud3D_F64;
+import georegression.struct.shapes.Sphere3D_F64;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks scoring of RANSAC hypotheses using {@link DistanceFromModelPacked_F64} against a per-point loop
+ * over {@link Distance3D_F64}.
+ *
+ * @author Peter Abeles
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@Fork(value = 1)
+public class BenchmarkDistanceFromModel {
+	@Param({"1000", "100000"})
+	public int size;
+
+	// fraction of points which are inliers
+	public double inlierFraction = 0.5;
+	public double threshold = 0.05;
+
+	List<Point3D_F64> list = new ArrayList<>();
+	PointCloud3D_F64 cloud = new PointCloud3D_F64();
+	double[] distance;
+
+	PlaneGeneral3D_F64 plane = new PlaneGeneral3D_F64(0.1, -0.2, 1.0, 3.0);
+	Sphere3D_F64 sphere = new Sphere3D_F64(0.5, 0.2, -0.1, 2.0);
+
+	DistanceFromModelPlaneGeneral3D_F64 distPlane = new DistanceFromModelPlaneGeneral3D_F64();
+	DistanceFromModelSphere3D_F64 distSphere = new DistanceFromModelSphere3D_F64();
+
+	// number of inliers the best hypothesis has
+	int bestScore;
+
+	@Setup
+	public void setup() {
+		Random rand = new Random(234);
+		list.clear();
+		cloud.reset();
+		// points near the plane z = 3 - 0.1*x + 0.2*y with outliers spread uniformly
+		for (int i = 0; i < size; i++) {
+			double x = rand.nextGaussian();
+			double y = rand.nextGaussian();
+			double z = 3 - 0.1*x + 0.2*y;
+			if( rand.nextDouble() < inlierFraction )
+				z += rand.nextGaussian()*0.01;
+			else
+				z += (rand.nextDouble() - 0.5)*10;
+			list.add(new Point3D_F64(x, y, z));
+			cloud.add(x, y, z);
+		}
+		distance = new double[size];
+		distPlane.setModel(plane);
+		distSphere.setModel(sphere);
+		bestScore = (int)(size*inlierFraction*0.9);
+	}
+
+	@Benchmark
+	public int plane_Distance3D() {
+		int count = 0;
+		for (int i = 0; i < list.size(); i++) {
+			if( Math.abs(Distance3D_F64.distance(plane, list.get(i))) <= threshold )
+				count++;
+		}
+		return count;
+	}
+
+	@Benchmark
+	public double[] plane_computeDistance() {
+		distPlane.computeDistance(cloud.data, cloud.size, distance);
+		return distance;
+	}
+
+	@Benchmark
+	public int plane_countInliers() {
+		return distPlane.countInliers(cloud.data, cloud.size, threshold, -1);
+	}
+
+	@Benchmark
+	public int sphere_countInliers_preemptive() {
+		// the sphere is a poor hypothesis for this data and is compared against a good score
+		return distSphere.countInliers(cloud.data, cloud.size, threshold, bestScore);
+	}
+
+	@Benchmark
+	public int sphere_Distance3D() {
+		int count = 0;
+		for (int i = 0; i < list.size(); i++) {
+			if( Math.abs(Distance3D_F64.distance(sphere, list.get(i))) <= threshold )
+				count++;
+		}
+		return count;
+	}
+
+	@Benchmark
+	public double[] sphere_computeDistance() {
+		distSphere.computeDistance(cloud.data, cloud.size, distance);
+		return distance;
+	}
+
+	@Benchmark
+	public int sphere_countInliers() {
+		return distSphere.countInliers(cloud.data, cloud.size, threshold, -1);
+	}
+
+	public static void main( String[] args ) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(BenchmarkDistanceFromModel.class.getSimpleName())
+				.build();
+
+		new Runner(opt).run();
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.fitting.cloud;
+
+import georegression.fitting.plane.FitPlane3D_F64;
+import georegression.index.KdTreePoint3D_F64;
+import georegression.index.PointIndex3D_F64;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.point.PointCloud3D_F64;
+import georegression.struct.point.Vector3D_F64;
+import org.ddogleg.struct.GrowQueue_F64;
+import org.ddogleg.struct.GrowQueue_I32;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Normal estimation on a noisy cylinder. Compares {@link EstimatePointCloudNormals_F64} against fitting each
+ * neighborhood with {@link FitPlane3D_F64#svd}, which requires the neighborhood to be copied into a list.
+ *
+ * @author Peter Abeles
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@Fork(value = 1)
+public class BenchmarkEstimatePointCloudNormals {
+	@Param({"100000"})
+	public int size;
+
+	int numNeighbors = 10;
+
+	PointCloud3D_F64 cloud = new PointCloud3D_F64();
+	GrowQueue_F64 normals = new GrowQueue_F64();
+	GrowQueue_F64 curvature = new GrowQueue_F64();
+
+	EstimatePointCloudNormals_F64 estimator = new EstimatePointCloudNormals_F64();
+
+	@Setup
+	public void setup() {
+		Random rand = new Random(234);
+		cloud.reset();
+		for (int i = 0; i < size; i++) {
+			double theta = rand.nextDouble()*2.0*Math.PI;
+			double r = 0.5 + rand.nextGaussian()*0.002;
+			cloud.add(r*Math.cos(theta), r*Math.sin(theta), rand.nextDouble()*4.0);
+		}
+		estimator.setNeighborsKNearest(numNeighbors, Double.MAX_VALUE);
+	}
+
+	@Benchmark
+	public void estimate() {
+		estimator.process(cloud, normals, curvature);
+	}
+
+	@Benchmark
+	public void estimateParallel() {
+		estimator.processParallel(cloud, normals, curvature);
+	}
+
+	@Benchmark
+	public void fitPlaneSvd() {
+		PointIndex3D_F64 index = new KdTreePoint3D_F64();
+		index.setPoints(cloud);
+		PointIndex3D_F64.Search search = index.createSearch();
+		GrowQueue_I32 indexes = new GrowQueue_I32();
+		GrowQueue_F64 distances = new GrowQueue_F64();
+		FitPlane3D_F64 fitter = new FitPlane3D_F64();
+		Point3D_F64 center = new Point3D_F64();
+		Vector3D_F64 normal = new Vector3D_F64();
+
+		normals.resize(cloud.size*3);
+		for (int i = 0; i < cloud.size; i++) {
+			search.findNearest(cloud.getX(i), cloud.getY(i), cloud.getZ(i), Double.MAX_VALUE, numNeighbors,
+					indexes, distances);
+			List<Point3D_F64> neighborhood = new ArrayList<>();
+			for (int j = 0; j < indexes.size; j++) {
+				neighborhood.add(cloud.get(indexes.get(j), null));
+			}
+			fitter.svd(neighborhood, center, normal);
+			normals.data[i*3  ] = normal.x;
+			normals.data[i*3+1] = normal.y;
+			normals.data[i*3+2] = normal.z;
+		}
+	}
+
+	public static void main( String[] args ) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(BenchmarkEstimatePointCloudNormals.class.getSimpleName())
+				.build();
+
+		new Runner(opt).run();
+	}
+}
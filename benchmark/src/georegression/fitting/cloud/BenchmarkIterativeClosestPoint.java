@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.fitting.cloud;
+
+import georegression.fitting.cloud.IterativeClosestPoint_F64.Metric;
+import georegression.struct.point.PointCloud3D_F64;
+import georegression.struct.se.Se3_F64;
+import georegression.struct.se.SpecialEuclideanOps_F64;
+import georegression.transform.se.SePointOps_F64;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scan-to-map registration with {@link IterativeClosestPoint_F64}. The map and scan are sampled independently
+ * from the walls of a noisy room. The map is indexed once in setup.
+ *
+ * @author Peter Abeles
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@Fork(value = 1)
+public class BenchmarkIterativeClosestPoint {
+	@Param({"100000"})
+	public int size;
+
+	@Param({"POINT_TO_POINT", "POINT_TO_PLANE"})
+	public Metric metric;
+
+	PointCloud3D_F64 map = new PointCloud3D_F64();
+	PointCloud3D_F64 scan = new PointCloud3D_F64();
+
+	IterativeClosestPoint_F64 icp;
+	IterativeClosestPoint_F64 icpLevels;
+
+	@Setup
+	public void setup() {
+		Random rand = new Random(234);
+		createRoom(rand, size*3, map);
+		createRoom(rand, size, scan);
+		Se3_F64 mapToScan = SpecialEuclideanOps_F64.eulerXyz(0.05, -0.03, 0.02, 0.01, -0.02, 0.03, null);
+		SePointOps_F64.transform(mapToScan, scan, scan);
+
+		icp = new IterativeClosestPoint_F64(metric);
+		icp.setMaxDistance(0.3);
+		icp.setConvergence(1e-5, 1e-5);
+		icp.setDestination(map);
+
+		icpLevels = new IterativeClosestPoint_F64(metric);
+		icpLevels.addLevel(0.2, 0.3);
+		icpLevels.addLevel(0.05, 0.1);
+		icpLevels.addLevel(0, 0.05);
+		icpLevels.setConvergence(1e-5, 1e-5);
+		icpLevels.setDestination(map);
+	}
+
+	/**
+	 * Points on the floor and walls of a 10x10x3 room with a bit of noise
+	 */
+	static void createRoom( Random rand, int count, PointCloud3D_F64 cloud ) {
+		cloud.reset();
+		for (int i = 0; i < count; i++) {
+			double a = rand.nextDouble()*10.0;
+			double b = rand.nextDouble()*3.0;
+			double noise = rand.nextGaussian()*0.005;
+			switch( i%4 ) {
+				case 0: cloud.add(a, rand.nextDouble()*10.0, noise); break;
+				case 1: cloud.add(noise, a, b); break;
+				case 2: cloud.add(a, noise, b); break;
+				default: cloud.add(10.0 + noise, a, b); break;
+			}
+		}
+	}
+
+	@Benchmark
+	public void register() {
+		icp.process(scan, null);
+	}
+
+	@Benchmark
+	public void registerParallel() {
+		icp.processParallel(scan, null);
+	}
+
+	@Benchmark
+	public void registerLevels() {
+		icpLevels.process(scan, null);
+	}
+
+	@Benchmark
+	public void registerLevelsParallel() {
+		icpLevels.processParallel(scan, null);
+	}
+
+	public static void main( String[] args ) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(BenchmarkIterativeClosestPoint.class.getSimpleName())
+				.build();
+
+		new Runner(opt).run();
+	}
+}
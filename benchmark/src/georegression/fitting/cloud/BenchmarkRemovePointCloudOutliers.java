@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.fitting.cloud;
+
+import georegression.struct.point.PointCloud3D_F64;
+import org.ddogleg.struct.GrowQueue_B;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outlier removal on a noisy sphere with randomly scattered outliers.
+ *
+ * @author Peter Abeles
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@Fork(value = 1)
+public class BenchmarkRemovePointCloudOutliers {
+	@Param({"100000"})
+	public int size;
+
+	PointCloud3D_F64 cloud = new PointCloud3D_F64();
+	GrowQueue_B inliers = new GrowQueue_B();
+
+	RemovePointCloudOutliers_F64 statistical = new RemovePointCloudOutliers_F64();
+	RemovePointCloudOutliers_F64 radius = new RemovePointCloudOutliers_F64();
+
+	@Setup
+	public void setup() {
+		Random rand = new Random(234);
+		cloud.reset();
+		for (int i = 0; i < size; i++) {
+			if( i%100 == 0 ) {
+				cloud.add(rand.nextDouble()*4 - 2, rand.nextDouble()*4 - 2, rand.nextDouble()*4 - 2);
+				continue;
+			}
+			double x = rand.nextGaussian(), y = rand.nextGaussian(), z = rand.nextGaussian();
+			double r = (1.0 + rand.nextGaussian()*0.002)/Math.sqrt(x*x + y*y + z*z);
+			cloud.add(r*x, r*y, r*z);
+		}
+		statistical.setStatistical(10, 1.0);
+		radius.setRadius(0.02, 3);
+	}
+
+	@Benchmark
+	public int statistical() {
+		return statistical.process(cloud, inliers);
+	}
+
+	@Benchmark
+	public int statisticalParallel() {
+		return statistical.processParallel(cloud, inliers);
+	}
+
+	@Benchmark
+	public int radius() {
+		return radius.process(cloud, inliers);
+	}
+
+	@Benchmark
+	public int radiusParallel() {
+		return radius.processParallel(cloud, inliers);
+	}
+
+	public static void main( String[] args ) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(BenchmarkRemovePointCloudOutliers.class.getSimpleName())
+				.build();
+
+		new Runner(opt).run();
+	}
+}
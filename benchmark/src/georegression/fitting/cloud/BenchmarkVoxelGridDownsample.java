@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.fitting.cloud;
+
+import georegression.struct.point.PointCloud3D_F64;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Voxel grid downsampling of a noisy cylindrical scan. Compares {@link VoxelGridDownsample_F64} against the same
+ * algorithm implemented with a {@link HashMap} that has boxed {@link Long} keys.
+ *
+ * @author Peter Abeles
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@Fork(value = 1)
+public class BenchmarkVoxelGridDownsample {
+	@Param({"200000", "2000000"})
+	public int size;
+
+	double voxelSize = 0.02;
+
+	PointCloud3D_F64 cloud = new PointCloud3D_F64();
+	PointCloud3D_F64 output = new PointCloud3D_F64();
+
+	VoxelGridDownsample_F64 centroid = new VoxelGridDownsample_F64(voxelSize, VoxelGridDownsample_F64.Mode.CENTROID);
+	VoxelGridDownsample_F64 first = new VoxelGridDownsample_F64(voxelSize, VoxelGridDownsample_F64.Mode.FIRST);
+
+	@Setup
+	public void setup() {
+		Random rand = new Random(234);
+		cloud.reset();
+		for (int i = 0; i < size; i++) {
+			double theta = rand.nextDouble()*2.0*Math.PI;
+			double r = 0.5 + rand.nextGaussian()*0.002;
+			cloud.add(r*Math.cos(theta), r*Math.sin(theta), rand.nextDouble()*4.0);
+		}
+	}
+
+	@Benchmark
+	public int centroid() {
+		centroid.process(cloud, output);
+		return output.size;
+	}
+
+	@Benchmark
+	public int centroidParallel() {
+		centroid.processParallel(cloud, output);
+		return output.size;
+	}
+
+	@Benchmark
+	public int first() {
+		first.process(cloud, output);
+		return output.size;
+	}
+
+	@Benchmark
+	public int boxedHashMap() {
+		Map<Long, double[]> voxels = new HashMap<>();
+		double scale = 1.0/voxelSize;
+		for (int i = 0; i < cloud.size; i++) {
+			double x = cloud.data[i*3], y = cloud.data[i*3+1], z = cloud.data[i*3+2];
+			long key = ((long)(int)Math.floor(x*scale) << 42) ^ ((long)(int)Math.floor(y*scale) << 21) ^
+					(int)Math.floor(z*scale);
+			double[] sum = voxels.computeIfAbsent(key, k -> new double[4]);
+			sum[0] += x;
+			sum[1] += y;
+			sum[2] += z;
+			sum[3] += 1;
+		}
+		output.reset();
+		for (double[] sum : voxels.values()) {
+			output.add(sum[0]/sum[3], sum[1]/sum[3], sum[2]/sum[3]);
+		}
+		return output.size;
+	}
+
+	public static void main( String[] args ) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(BenchmarkVoxelGridDownsample.class.getSimpleName())
+				.build();
+
+		new Runner(opt).run();
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package georegression.fitting.curves;
+
+import georegression.geometry.UtilEllipse_F64;
+import georegression.struct.curve.EllipseRotated_F64;
+import georegression.struct.point.Point2D_F64;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link RefineEllipseEuclideanLeastSquares_F64} starting from a perturbed initial estimate.
+ *
+ * @author Peter Abeles
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@Fork(value = 1)
+public class BenchmarkRefineEllipseEuclideanLeastSquares {
+	@Param({"20", "50", "100"})
+	public int size;
+
+	List<Point2D_F64> points = new ArrayList<>();
+	EllipseRotated_F64 initial = new EllipseRotated_F64(1, 2, 3, 2, 0.2);
+
+	RefineEllipseEuclideanLeastSquares_F64 alg = new RefineEllipseEuclideanLeastSquares_F64();
+
+	@Setup
+	public void setup() {
+		Random rand = new Random(234);
+		EllipseRotated_F64 truth = new EllipseRotated_F64(1.1, 2.05, 3.2, 1.9, 0.25);
+
+		points.clear();
+		for (int i = 0; i < size; i++) {
+			double theta = 2.0*Math.PI*i/size;
+			Point2D_F64 p = UtilEllipse_F64.computePoint(theta, truth, null);
+			p.x += rand.nextGaussian()*0.01;
+			p.y += rand.nextGaussian()*0.01;
+			points.add(p);
+		}
+	}
+
+	@Benchmark
+	public boolean refine() {
+		return alg.refine(initial, points);
+	}
+
+	public static void main( String[] args ) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(BenchmarkRefineEllipseEuclideanLeastSquares.class.getSimpleName())
+				.build();
+
+		new Runner(opt).run();
+	}
+}
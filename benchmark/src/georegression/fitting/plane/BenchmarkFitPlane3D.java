@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package georegression.fitting.plane;
+
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.point.Vector3D_F64;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link FitPlane3D_F64}
+ *
+ * @author Peter Abeles
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@Fork(value = 1)
+public class BenchmarkFitPlane3D {
+	@Param({"10", "1000", "100000"})
+	public int size;
+
+	List<Point3D_F64> points = new ArrayList<>();
+
+	FitPlane3D_F64 alg = new FitPlane3D_F64();
+	Point3D_F64 center = new Point3D_F64();
+	Vector3D_F64 normal = new Vector3D_F64();
+
+	@Setup
+	public void setup() {
+		Random rand = new Random(234);
+		points.clear();
+		// noisy points on the plane z = 0.1*x - 0.2*y + 3
+		for (int i = 0; i < size; i++) {
+			double x = rand.nextGaussian();
+			double y = rand.nextGaussian();
+			double z = 0.1*x - 0.2*y + 3 + rand.nextGaussian()*0.01;
+			points.add(new Point3D_F64(x, y, z));
+		}
+	}
+
+	@Benchmark
+	public boolean svd() {
+		return alg.svd(points, center, normal);
+	}
+
+	public static void main( String[] args ) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(BenchmarkFitPlane3D.class.getSimpleName())
+				.build();
+
+		new Runner(opt).run();
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package georegression.fitting.se;
+
+import georegression.struct.point.Point2D_F64;
+import georegression.struct.se.Se2_F64;
+import georegression.transform.se.SePointOps_F64;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link MotionSe2PointSVD_F64}. The minimal case of 3 points is what RANSAC sees. Run with
+ * "-prof gc" to verify that no memory is allocated per call.
+ *
+ * @author Peter Abeles
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@Fork(value = 1)
+public class BenchmarkMotionSe2PointSVD {
+	@Param({"3", "100", "10000"})
+	public int size;
+
+	List<Point2D_F64> src = new ArrayList<>();
+	List<Point2D_F64> dst = new ArrayList<>();
+
+	MotionSe2PointSVD_F64 alg = new MotionSe2PointSVD_F64();
+
+	@Setup
+	public void setup() {
+		Random rand = new Random(234);
+		Se2_F64 motion = new Se2_F64(0.1, -0.2, 0.3);
+
+		src.clear();
+		dst.clear();
+		for (int i = 0; i < size; i++) {
+			Point2D_F64 p = new Point2D_F64(rand.nextGaussian(), rand.nextGaussian());
+			src.add(p);
+			dst.add(SePointOps_F64.transform(motion, p, null));
+		}
+	}
+
+	@Benchmark
+	public boolean process() {
+		return alg.process(src, dst);
+	}
+
+	public static void main( String[] args ) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(BenchmarkMotionSe2PointSVD.class.getSimpleName())
+				.build();
+
+		new Runner(opt).run();
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package georegression.fitting.se;
+
+import georegression.struct.EulerType;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.se.Se3_F64;
+import georegression.transform.se.SePointOps_F64;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link MotionSe3PointSVD_F64}. The minimal case of 3 points is what RANSAC sees. Run with
+ * "-prof gc" to verify that no memory is allocated per call.
+ *
+ * @author Peter Abeles
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@Fork(value = 1)
+public class BenchmarkMotionSe3PointSVD {
+	@Param({"3", "100", "10000"})
+	public int size;
+
+	List<Point3D_F64> src = new ArrayList<>();
+	List<Point3D_F64> dst = new ArrayList<>();
+
+	MotionSe3PointSVD_F64 alg = new MotionSe3PointSVD_F64();
+
+	// minimal sets for a batch of RANSAC hypotheses
+	static final int NUM_HYPOTHESES = 1000;
+	int[] samples = new int[3*NUM_HYPOTHESES];
+	Se3_F64[] models = new Se3_F64[NUM_HYPOTHESES];
+	boolean[] success = new boolean[NUM_HYPOTHESES];
+
+	@Setup
+	public void setup() {
+		Random rand = new Random(234);
+		Se3_F64 motion = new Se3_F64();
+		motion.set(0.1, -0.2, 0.05, EulerType.XYZ, 0.1, -0.05, 0.2);
+
+		src.clear();
+		dst.clear();
+		for (int i = 0; i < size; i++) {
+			Point3D_F64 p = new Point3D_F64(rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian());
+			src.add(p);
+			dst.add(SePointOps_F64.transform(motion, p, null));
+		}
+
+		for (int i = 0; i < samples.length; i++) {
+			samples[i] = rand.nextInt(size);
+		}
+		for (int i = 0; i < NUM_HYPOTHESES; i++) {
+			models[i] = new Se3_F64();
+		}
+	}
+
+	@Benchmark
+	public boolean process() {
+		return alg.process(src, dst);
+	}
+
+	@Benchmark
+	public boolean[] processBatch() {
+		alg.processBatch(src, dst, samples, 3, NUM_HYPOTHESES, models, success);
+		return success;
+	}
+
+	@Benchmark
+	public boolean[] processBatchParallel() {
+		alg.processBatchParallel(src, dst, samples, 3, NUM_HYPOTHESES, models, success);
+		return success;
+	}
+
+	public static void main( String[] args ) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(BenchmarkMotionSe3PointSVD.class.getSimpleName())
+				.build();
+
+		new Runner(opt).run();
+	}
+}
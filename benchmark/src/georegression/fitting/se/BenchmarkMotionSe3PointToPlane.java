@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.fitting.se;
+
+import georegression.struct.EulerType;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.point.PointCloud3D_F64;
+import georegression.struct.point.Vector3D_F64;
+import georegression.struct.se.Se3_F64;
+import georegression.transform.se.SePointOps_F64;
+import org.ddogleg.struct.GrowQueue_F64;
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.dense.row.CommonOps_DDRM;
+import org.ejml.dense.row.factory.LinearSolverFactory_DDRM;
+import org.ejml.interfaces.linsol.LinearSolverDense;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link MotionSe3PointToPlane_F64} against building the Jacobian as a dense matrix and solving the
+ * normal equations with EJML, and against the point-to-point {@link MotionSe3PointSVD_F64}.
+ *
+ * @author Peter Abeles
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@Fork(value = 1)
+public class BenchmarkMotionSe3PointToPlane {
+	@Param({"1000", "100000"})
+	public int size;
+
+	List<Point3D_F64> src = new ArrayList<>();
+	List<Point3D_F64> dst = new ArrayList<>();
+	List<Vector3D_F64> normals = new ArrayList<>();
+
+	PointCloud3D_F64 cloudSrc = new PointCloud3D_F64();
+	PointCloud3D_F64 cloudDst = new PointCloud3D_F64();
+	GrowQueue_F64 packedNormals = new GrowQueue_F64();
+
+	MotionSe3PointToPlane_F64 alg = new MotionSe3PointToPlane_F64();
+	MotionSe3PointSVD_F64 svd = new MotionSe3PointSVD_F64();
+
+	@Setup
+	public void setup() {
+		Random rand = new Random(234);
+		Se3_F64 motion = new Se3_F64();
+		motion.set(0.1, -0.2, 0.05, EulerType.XYZ, 0.01, -0.02, 0.015);
+
+		src.clear();
+		dst.clear();
+		normals.clear();
+		packedNormals.reset();
+		for (int i = 0; i < size; i++) {
+			Point3D_F64 p = new Point3D_F64(rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian());
+			Vector3D_F64 n = new Vector3D_F64(rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian());
+			n.normalize();
+			src.add(p);
+			dst.add(SePointOps_F64.transform(motion, p, null));
+			normals.add(n);
+			packedNormals.add(n.x);
+			packedNormals.add(n.y);
+			packedNormals.add(n.z);
+		}
+		cloudSrc.setTo(src);
+		cloudDst.setTo(dst);
+	}
+
+	@Benchmark
+	public boolean list() {
+		return alg.process(src, dst, normals);
+	}
+
+	@Benchmark
+	public boolean listParallel() {
+		return alg.processParallel(src, dst, normals);
+	}
+
+	@Benchmark
+	public boolean packed() {
+		return alg.process(cloudSrc, cloudDst, packedNormals);
+	}
+
+	@Benchmark
+	public boolean packedParallel() {
+		return alg.processParallel(cloudSrc, cloudDst, packedNormals);
+	}
+
+	@Benchmark
+	public boolean pointToPointSvd() {
+		return svd.process(src, dst);
+	}
+
+	/**
+	 * Builds the N by 6 Jacobian and solves (J'J)x = -J'r using generic dense matrices
+	 */
+	@Benchmark
+	public boolean denseEjml() {
+		DMatrixRMaj J = new DMatrixRMaj(size, 6);
+		DMatrixRMaj r = new DMatrixRMaj(size, 1);
+		for (int i = 0; i < size; i++) {
+			Point3D_F64 p = src.get(i);
+			Point3D_F64 q = dst.get(i);
+			Vector3D_F64 n = normals.get(i);
+			J.set(i, 0, p.y*n.z - p.z*n.y);
+			J.set(i, 1, p.z*n.x - p.x*n.z);
+			J.set(i, 2, p.x*n.y - p.y*n.x);
+			J.set(i, 3, n.x);
+			J.set(i, 4, n.y);
+			J.set(i, 5, n.z);
+			r.data[i] = -(n.x*(p.x - q.x) + n.y*(p.y - q.y) + n.z*(p.z - q.z));
+		}
+		DMatrixRMaj A = new DMatrixRMaj(6, 6);
+		DMatrixRMaj b = new DMatrixRMaj(6, 1);
+		DMatrixRMaj x = new DMatrixRMaj(6, 1);
+		CommonOps_DDRM.multTransA(J, J, A);
+		CommonOps_DDRM.multTransA(J, r, b);
+		LinearSolverDense<DMatrixRMaj> solver = LinearSolverFactory_DDRM.chol(6);
+		if( !solver.setA(A) )
+			return false;
+		solver.solve(b, x);
+		return true;
+	}
+
+	public static void main( String[] args ) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(BenchmarkMotionSe3PointToPlane.class.getSimpleName())
+				.build();
+
+		new Runner(opt).run();
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.fitting.sphere;
+
+import georegression.fitting.sphere.AlgebraicHypersphere_F64.Method;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.shapes.Sphere3D_F64;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fitting many small spheres, each with a few noisy points on one side. Compares the algebraic fits against
+ * {@link FitSphereToPoints_F64} started from a rough guess and from the algebraic fit.
+ *
+ * @author Peter Abeles
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@Fork(value = 1)
+public class BenchmarkFitSphere {
+	@Param({"1000"})
+	public int numSpheres;
+
+	int numPoints = 50;
+
+	List<List<Point3D_F64>> spheres = new ArrayList<>();
+	List<Sphere3D_F64> guesses = new ArrayList<>();
+
+	FitSphereAlgebraic_F64 kasa = new FitSphereAlgebraic_F64(Method.KASA);
+	FitSphereAlgebraic_F64 pratt = new FitSphereAlgebraic_F64(Method.PRATT);
+	FitSphereAlgebraic_F64 taubin = new FitSphereAlgebraic_F64(Method.TAUBIN);
+	FitSphereToPoints_F64 nonlinear = new FitSphereToPoints_F64(100);
+
+	Sphere3D_F64 found = new Sphere3D_F64();
+
+	@Setup
+	public void setup() {
+		Random rand = new Random(234);
+		spheres.clear();
+		guesses.clear();
+		for (int i = 0; i < numSpheres; i++) {
+			double cx = rand.nextDouble()*20, cy = rand.nextDouble()*20, cz = rand.nextDouble()*20;
+			double r = 0.05 + rand.nextDouble()*0.1;
+
+			List<Point3D_F64> points = new ArrayList<>();
+			for (int j = 0; j < numPoints; j++) {
+				// the half facing the sensor
+				double x = rand.nextGaussian(), y = rand.nextGaussian(), z = -Math.abs(rand.nextGaussian());
+				double n = Math.sqrt(x*x + y*y + z*z);
+				points.add(new Point3D_F64(
+						cx + r*x/n + rand.nextGaussian()*0.001,
+						cy + r*y/n + rand.nextGaussian()*0.001,
+						cz + r*z/n + rand.nextGaussian()*0.001));
+			}
+			spheres.add(points);
+			// what a caller without an algebraic fit might use, the mean shifted back by the typical radius
+			guesses.add(new Sphere3D_F64(cx + r*0.3, cy - r*0.3, cz + r*0.5, 0.1));
+		}
+	}
+
+	@Benchmark
+	public void kasa() {
+		for (int i = 0; i < spheres.size(); i++) {
+			kasa.process(spheres.get(i), found);
+		}
+	}
+
+	@Benchmark
+	public void pratt() {
+		for (int i = 0; i < spheres.size(); i++) {
+			pratt.process(spheres.get(i), found);
+		}
+	}
+
+	@Benchmark
+	public void taubin() {
+		for (int i = 0; i < spheres.size(); i++) {
+			taubin.process(spheres.get(i), found);
+		}
+	}
+
+	@Benchmark
+	public void nonlinearRoughGuess() {
+		for (int i = 0; i < spheres.size(); i++) {
+			nonlinear.fitModel(spheres.get(i), guesses.get(i), found);
+		}
+	}
+
+	@Benchmark
+	public void nonlinearAlgebraicGuess() {
+		for (int i = 0; i < spheres.size(); i++) {
+			nonlinear.fitModel(spheres.get(i), null, found);
+		}
+	}
+
+	public static void main( String[] args ) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(BenchmarkFitSphere.class.getSimpleName())
+				.build();
+
+		new Runner(opt).run();
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.geometry;
+
+import georegression.struct.EulerType;
+import georegression.struct.so.Quaternion_F64;
+import org.ejml.data.DMatrixRMaj;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares batch conversions in {@link ConvertRotation3DArray_F64} against calling {@link ConvertRotation3D_F64}
+ * once for each rotation
+ *
+ * @author Peter Abeles
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@Fork(value = 1)
+public class BenchmarkConvertRotation3DArray {
+	@Param({"100000"})
+	public int size;
+
+	EulerType type = EulerType.XYZ;
+
+	double[] euler;
+	double[] quats;
+	double[] matrices;
+
+	DMatrixRMaj R = new DMatrixRMaj(3, 3);
+	Quaternion_F64 quat = new Quaternion_F64();
+	double[] angles = new double[3];
+
+	@Setup
+	public void setup() {
+		Random rand = new Random(234);
+		euler = new double[size*3];
+		quats = new double[size*4];
+		matrices = new double[size*9];
+		for (int i = 0; i < euler.length; i++) {
+			euler[i] = (rand.nextDouble() - 0.5)*3;
+		}
+		ConvertRotation3DArray_F64.eulerToQuaternion(type, euler, size, quats);
+		ConvertRotation3DArray_F64.eulerToMatrix(type, euler, size, matrices);
+	}
+
+	@Benchmark
+	public void eulerToMatrix_single() {
+		for (int i = 0; i < size; i++) {
+			ConvertRotation3D_F64.eulerToMatrix(type, euler[i*3], euler[i*3 + 1], euler[i*3 + 2], R);
+			System.arraycopy(R.data, 0, matrices, i*9, 9);
+		}
+	}
+
+	@Benchmark
+	public void eulerToMatrix_batch() {
+		ConvertRotation3DArray_F64.eulerToMatrix(type, euler, size, matrices);
+	}
+
+	@Benchmark
+	public void matrixToEuler_single() {
+		for (int i = 0; i < size; i++) {
+			System.arraycopy(matrices, i*9, R.data, 0, 9);
+			ConvertRotation3D_F64.matrixToEuler(R, type, angles);
+			System.arraycopy(angles, 0, euler, i*3, 3);
+		}
+	}
+
+	@Benchmark
+	public void matrixToEuler_batch() {
+		ConvertRotation3DArray_F64.matrixToEuler(matrices, size, type, euler);
+	}
+
+	@Benchmark
+	public void quaternionToMatrix_single() {
+		for (int i = 0; i < size; i++) {
+			ConvertRotation3D_F64.quaternionToMatrix(quats[i*4], quats[i*4 + 1], quats[i*4 + 2], quats[i*4 + 3], R);
+			System.arraycopy(R.data, 0, matrices, i*9, 9);
+		}
+	}
+
+	@Benchmark
+	public void quaternionToMatrix_batch() {
+		ConvertRotation3DArray_F64.quaternionToMatrix(quats, size, matrices);
+	}
+
+	@Benchmark
+	public void matrixToQuaternion_single() {
+		for (int i = 0; i < size; i++) {
+			System.arraycopy(matrices, i*9, R.data, 0, 9);
+			ConvertRotation3D_F64.matrixToQuaternion(R, quat);
+			quats[i*4] = quat.w; quats[i*4 + 1] = quat.x; quats[i*4 + 2] = quat.y; quats[i*4 + 3] = quat.z;
+		}
+	}
+
+	@Benchmark
+	public void matrixToQuaternion_batch() {
+		ConvertRotation3DArray_F64.matrixToQuaternion(matrices, size, quats);
+	}
+
+	public static void main( String[] args ) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(BenchmarkConvertRotation3DArray.class.getSimpleName())
+				.build();
+
+		new Runner(opt).run();
+	}
+}
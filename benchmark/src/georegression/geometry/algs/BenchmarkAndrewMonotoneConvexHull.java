@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package georegression.geometry.algs;
+
+import georegression.struct.point.Point2D_F64;
+import georegression.struct.shapes.Polygon2D_F64;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link AndrewMonotoneConvexHull_F64}
+ *
+ * @author Peter Abeles
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@Fork(value = 1)
+public class BenchmarkAndrewMonotoneConvexHull {
+	@Param({"100", "10000", "100000"})
+	public int size;
+
+	// Points in their original order. The algorithm sorts its input so it's copied each time
+	Point2D_F64[] original;
+	Point2D_F64[] input;
+
+	AndrewMonotoneConvexHull_F64 alg = new AndrewMonotoneConvexHull_F64();
+	Polygon2D_F64 hull = new Polygon2D_F64();
+
+	@Setup
+	public void setup() {
+		Random rand = new Random(234);
+		original = new Point2D_F64[size];
+		input = new Point2D_F64[size];
+		for (int i = 0; i < size; i++) {
+			original[i] = new Point2D_F64(rand.nextGaussian()*10, rand.nextGaussian()*10);
+		}
+	}
+
+	@Benchmark
+	public Polygon2D_F64 process() {
+		System.arraycopy(original, 0, input, 0, size);
+		alg.process(input, size, hull);
+		return hull;
+	}
+
+	public static void main( String[] args ) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(BenchmarkAndrewMonotoneConvexHull.class.getSimpleName())
+				.build();
+
+		new Runner(opt).run();
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.geometry.algs;
+
+import georegression.struct.shapes.Polygon2D_F64;
+import org.ejml.data.DMatrixRMaj;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link AreaIntersectionPolygon2D_F64} for IoU scoring between two sets of detections, which are
+ * rotated rectangles. Run with "-prof gc" to verify that no memory is allocated per call.
+ *
+ * @author Peter Abeles
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@Fork(value = 1)
+public class BenchmarkAreaIntersectionPolygon2D {
+	/** Number of polygons in each set */
+	@Param({"100", "1000"})
+	public int size;
+
+	List<Polygon2D_F64> setA = new ArrayList<>();
+	List<Polygon2D_F64> setB = new ArrayList<>();
+	DMatrixRMaj iou = new DMatrixRMaj(1, 1);
+
+	AreaIntersectionPolygon2D_F64 alg = new AreaIntersectionPolygon2D_F64();
+
+	@Setup
+	public void setup() {
+		Random rand = new Random(234);
+		setA.clear();
+		setB.clear();
+		for (int i = 0; i < size; i++) {
+			setA.add(createRectangle(rand));
+			setB.add(createRectangle(rand));
+		}
+	}
+
+	private static Polygon2D_F64 createRectangle( Random rand ) {
+		double cx = rand.nextDouble()*500, cy = rand.nextDouble()*500;
+		double w = 10 + rand.nextDouble()*20, h = 10 + rand.nextDouble()*20;
+		double theta = rand.nextDouble()*Math.PI;
+		double c = Math.cos(theta), s = Math.sin(theta);
+
+		Polygon2D_F64 p = new Polygon2D_F64(4);
+		double[][] corners = {{-w, -h}, {w, -h}, {w, h}, {-w, h}};
+		for (int i = 0; i < 4; i++) {
+			double x = corners[i][0]/2, y = corners[i][1]/2;
+			p.set(i, cx + c*x - s*y, cy + s*x + c*y);
+		}
+		return p;
+	}
+
+	@Benchmark
+	public double computeArea() {
+		double total = 0;
+		for (int i = 0; i < size; i++) {
+			total += alg.computeArea(setA.get(i), setB.get(i));
+		}
+		return total;
+	}
+
+	@Benchmark
+	public DMatrixRMaj computeIoU() {
+		alg.computeIoU(setA, setB, iou);
+		return iou;
+	}
+
+	@Benchmark
+	public DMatrixRMaj computeIoUParallel() {
+		alg.computeIoUParallel(setA, setB, iou);
+		return iou;
+	}
+
+	public static void main( String[] args ) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(BenchmarkAreaIntersectionPolygon2D.class.getSimpleName())
+				.build();
+
+		new Runner(opt).run();
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.index;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks ray casting against a height field mesh. Each operation is a batch of {@link #NUM_RAYS} rays.
+ *
+ * @author Peter Abeles
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@Fork(value = 1)
+public class BenchmarkBvhTriangle3D {
+	static final int NUM_RAYS = 10_000;
+
+	// approximate number of triangles in the mesh
+	@Param({"10000", "500000"})
+	public int size;
+
+	double[] vertices;
+	int numTriangles;
+	double[] rays = new double[NUM_RAYS*6];
+	int[] hitIndexes = new int[NUM_RAYS];
+	double[] hitT = new double[NUM_RAYS];
+	boolean[] hits = new boolean[NUM_RAYS];
+
+	BvhTriangle3D_F64 bvh = new BvhTriangle3D_F64();
+
+	@Setup
+	public void setup() {
+		Random rand = new Random(234);
+
+		// grid of squares with random heights. Each square is two triangles
+		int width = (int)Math.sqrt(size/2);
+		double[] heights = new double[(width + 1)*(width + 1)];
+		for (int i = 0; i < heights.length; i++) {
+			heights[i] = rand.nextDouble();
+		}
+		numTriangles = width*width*2;
+		vertices = new double[numTriangles*9];
+		int idx = 0;
+		for (int y = 0; y < width; y++) {
+			for (int x = 0; x < width; x++) {
+				double h00 = heights[y*(width + 1) + x], h10 = heights[y*(width + 1) + x + 1];
+				double h01 = heights[(y + 1)*(width + 1) + x], h11 = heights[(y + 1)*(width + 1) + x + 1];
+				double[] triangles = {
+						x, y, h00, x + 1, y, h10, x, y + 1, h01,
+						x + 1, y, h10, x + 1, y + 1, h11, x, y + 1, h01};
+				System.arraycopy(triangles, 0, vertices, idx, 18);
+				idx += 18;
+			}
+		}
+
+		// rays start above the height field and point downwards at an angle
+		for (int i = 0; i < NUM_RAYS; i++) {
+			rays[i*6    ] = rand.nextDouble()*width;
+			rays[i*6 + 1] = rand.nextDouble()*width;
+			rays[i*6 + 2] = 2;
+			rays[i*6 + 3] = rand.nextGaussian()*0.2;
+			rays[i*6 + 4] = rand.nextGaussian()*0.2;
+			rays[i*6 + 5] = -1;
+		}
+
+		bvh.setTriangles(vertices, numTriangles);
+	}
+
+	@Benchmark
+	public int[] castRays() {
+		bvh.castRays(rays, NUM_RAYS, Double.MAX_VALUE, hitIndexes, hitT);
+		return hitIndexes;
+	}
+
+	@Benchmark
+	public int[] castRaysParallel() {
+		bvh.castRaysParallel(rays, NUM_RAYS, Double.MAX_VALUE, hitIndexes, hitT);
+		return hitIndexes;
+	}
+
+	@Benchmark
+	public boolean[] anyHits() {
+		bvh.anyHits(rays, NUM_RAYS, Double.MAX_VALUE, hits);
+		return hits;
+	}
+
+	@Benchmark
+	public Object build() {
+		bvh.setTriangles(vertices, numTriangles);
+		return bvh;
+	}
+
+	public static void main( String[] args ) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(BenchmarkBvhTriangle3D.class.getSimpleName())
+				.build();
+
+		new Runner(opt).run();
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.index;
+
+import georegression.struct.point.PointCloud3D_F64;
+import georegression.struct.shapes.Box3D_F64;
+import org.ddogleg.struct.FastQueue;
+import org.ddogleg.struct.GrowQueue_F64;
+import org.ddogleg.struct.GrowQueue_I32;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction and queries of {@link PointIndex3D_F64} implementations on a scan of a room, compared against
+ * a brute force search. Every point in a second scan is searched for.
+ *
+ * @author Peter Abeles
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@Fork(value = 1)
+public class BenchmarkPointIndex3D {
+	@Param({"KDTREE", "OCTREE"})
+	public String type;
+
+	@Param({"1000000"})
+	public int size;
+
+	// number of query points
+	int numQueries = 100_000;
+
+	PointCloud3D_F64 cloud = new PointCloud3D_F64();
+	PointCloud3D_F64 queries = new PointCloud3D_F64();
+	PointIndex3D_F64 index;
+
+	GrowQueue_I32 matches = new GrowQueue_I32();
+	GrowQueue_F64 distances = new GrowQueue_F64();
+	FastQueue<GrowQueue_I32> neighbors = new FastQueue<>(GrowQueue_I32::new);
+	Box3D_F64 box = new Box3D_F64(1, 1, 0.5, 3, 2, 1.5);
+
+	@Setup
+	public void setup() {
+		Random rand = new Random(234);
+		createRoom(rand, cloud, size);
+		createRoom(rand, queries, numQueries);
+		index = type.equals("KDTREE") ? new KdTreePoint3D_F64() : new OctreePoint3D_F64();
+		index.setPoints(cloud);
+	}
+
+	/**
+	 * Points on the walls, floor, and ceiling of a 4x3x2.5 room
+	 */
+	private static void createRoom( Random rand, PointCloud3D_F64 cloud, int N ) {
+		cloud.reset();
+		for (int i = 0; i < N; i++) {
+			double u = rand.nextDouble(), v = rand.nextDouble(), noise = rand.nextGaussian()*0.005;
+			switch( rand.nextInt(3) ) {
+				case 0: cloud.add(u*4, v*3, rand.nextBoolean() ? noise : 2.5 + noise); break;
+				case 1: cloud.add(u*4, rand.nextBoolean() ? noise : 3 + noise, v*2.5); break;
+				default: cloud.add(rand.nextBoolean() ? noise : 4 + noise, u*3, v*2.5); break;
+			}
+		}
+	}
+
+	@Benchmark
+	public void build() {
+		index.setPoints(cloud);
+	}
+
+	@Benchmark
+	public void buildParallel() {
+		index.setPointsParallel(cloud);
+	}
+
+	@Benchmark
+	public void nearest() {
+		PointIndex3DOps_F64.findNearest(index, queries, Double.MAX_VALUE, matches, distances);
+	}
+
+	@Benchmark
+	public void nearestParallel() {
+		PointIndex3DOps_F64.findNearestParallel(index, queries, Double.MAX_VALUE, matches, distances);
+	}
+
+	@Benchmark
+	public void nearestK() {
+		PointIndex3DOps_F64.findNearest(index, queries, Double.MAX_VALUE, 10, matches, distances);
+	}
+
+	@Benchmark
+	public void radius() {
+		PointIndex3DOps_F64.findWithinRadius(index, queries, 0.02, neighbors);
+	}
+
+	@Benchmark
+	public int box() {
+		PointIndex3D_F64.Search search = index.createSearch();
+		search.findInsideBox(box, matches);
+		return matches.size;
+	}
+
+	@Benchmark
+	public int bruteForceNearest() {
+		// only a fraction of the queries since it's so slow
+		int total = 0;
+		for (int i = 0; i < 10; i++) {
+			double x = queries.getX(i), y = queries.getY(i), z = queries.getZ(i);
+			double best = Double.MAX_VALUE;
+			int bestIndex = -1;
+			for (int j = 0; j < cloud.size; j++) {
+				double dx = cloud.data[j*3] - x, dy = cloud.data[j*3+1] - y, dz = cloud.data[j*3+2] - z;
+				double d = dx*dx + dy*dy + dz*dz;
+				if( d < best ) {
+					best = d;
+					bestIndex = j;
+				}
+			}
+			total += bestIndex;
+		}
+		return total;
+	}
+
+	public static void main( String[] args ) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(BenchmarkPointIndex3D.class.getSimpleName())
+				.build();
+
+		new Runner(opt).run();
+	}
+}
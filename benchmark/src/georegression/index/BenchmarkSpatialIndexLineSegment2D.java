@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.index;
+
+import georegression.struct.line.LineSegment2D_F64;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks nearest line segment queries against a map made up of short line segments. Each operation is
+ * a batch of {@link #NUM_QUERIES} queries.
+ *
+ * @author Peter Abeles
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@Fork(value = 1)
+public class BenchmarkSpatialIndexLineSegment2D {
+	static final int NUM_QUERIES = 1000;
+
+	@Param({"10000", "1000000"})
+	public int size;
+
+	List<LineSegment2D_F64> segments = new ArrayList<>();
+	double[] queries = new double[NUM_QUERIES*2];
+
+	KdTreeLineSegment2D_F64 kdtree = new KdTreeLineSegment2D_F64();
+	GridIndexLineSegment2D_F64 grid = new GridIndexLineSegment2D_F64();
+	SpatialIndex2D_F64.Search kdtreeSearch;
+	SpatialIndex2D_F64.Search gridSearch;
+
+	@Setup
+	public void setup() {
+		Random rand = new Random(234);
+		double width = Math.sqrt(size)*10;
+
+		segments.clear();
+		for (int i = 0; i < size; i++) {
+			double x = rand.nextDouble()*width;
+			double y = rand.nextDouble()*width;
+			segments.add(new LineSegment2D_F64(x, y, x + rand.nextGaussian()*5, y + rand.nextGaussian()*5));
+		}
+		for (int i = 0; i < queries.length; i++) {
+			queries[i] = rand.nextDouble()*width;
+		}
+
+		kdtree.setItems(segments);
+		grid.setItems(segments);
+		kdtreeSearch = kdtree.createSearch();
+		gridSearch = grid.createSearch();
+	}
+
+	@Benchmark
+	public int nearest_kdtree() {
+		int total = 0;
+		for (int i = 0; i < NUM_QUERIES; i++) {
+			total += kdtreeSearch.findNearest(queries[i*2], queries[i*2+1], Double.MAX_VALUE);
+		}
+		return total;
+	}
+
+	@Benchmark
+	public int nearest_grid() {
+		int total = 0;
+		for (int i = 0; i < NUM_QUERIES; i++) {
+			total += gridSearch.findNearest(queries[i*2], queries[i*2+1], Double.MAX_VALUE);
+		}
+		return total;
+	}
+
+	@Benchmark
+	public Object build_kdtree() {
+		kdtree.setItems(segments);
+		return kdtree;
+	}
+
+	@Benchmark
+	public Object build_grid() {
+		grid.setItems(segments);
+		return grid;
+	}
+
+	public static void main( String[] args ) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(BenchmarkSpatialIndexLineSegment2D.class.getSimpleName())
+				.build();
+
+		new Runner(opt).run();
+	}
+}
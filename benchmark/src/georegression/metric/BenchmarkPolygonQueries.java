@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package georegression.metric;
+
+import georegression.struct.line.LineSegment2D_F64;
+import georegression.struct.point.Point2D_F64;
+import georegression.struct.shapes.Polygon2D_F64;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks point queries against a concave polygon using {@link Intersection2D_F64}, {@link PreparedPolygon2D_F64},
+ * and {@link Distance2D_F64}.
+ * Each invocation processes a fixed number of query points.
+ *
+ * @author Peter Abeles
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@Fork(value = 1)
+public class BenchmarkPolygonQueries {
+	/** Number of vertexes in the polygon */
+	@Param({"10", "100", "1000", "10000"})
+	public int size;
+
+	static final int NUM_QUERIES = 1000;
+
+	Polygon2D_F64 polygon;
+	Point2D_F64[] queries = new Point2D_F64[NUM_QUERIES];
+	LineSegment2D_F64 storage = new LineSegment2D_F64();
+	PreparedPolygon2D_F64 prepared = new PreparedPolygon2D_F64();
+	double[] queriesPacked = new double[NUM_QUERIES*2];
+	boolean[] inside = new boolean[NUM_QUERIES];
+
+	@Setup
+	public void setup() {
+		Random rand = new Random(234);
+
+		// star shaped polygon, which is concave
+		polygon = new Polygon2D_F64(size);
+		for (int i = 0; i < size; i++) {
+			double theta = 2.0*Math.PI*i/size;
+			double r = i%2 == 0 ? 10 : 5;
+			polygon.set(i, r*Math.cos(theta), r*Math.sin(theta));
+		}
+
+		for (int i = 0; i < NUM_QUERIES; i++) {
+			queries[i] = new Point2D_F64((rand.nextDouble() - 0.5)*24, (rand.nextDouble() - 0.5)*24);
+			queriesPacked[i*2  ] = queries[i].x;
+			queriesPacked[i*2+1] = queries[i].y;
+		}
+		prepared.setPolygon(polygon);
+	}
+
+	@Benchmark
+	public int containConcave() {
+		int total = 0;
+		for (int i = 0; i < NUM_QUERIES; i++) {
+			if (Intersection2D_F64.containConcave(polygon, queries[i]))
+				total++;
+		}
+		return total;
+	}
+
+	@Benchmark
+	public int containPrepared() {
+		int total = 0;
+		for (int i = 0; i < NUM_QUERIES; i++) {
+			if (prepared.contains(queries[i]))
+				total++;
+		}
+		return total;
+	}
+
+	@Benchmark
+	public boolean[] containPrepared_batch() {
+		prepared.contains(queriesPacked, inside);
+		return inside;
+	}
+
+	@Benchmark
+	public Object preparePolygon() {
+		prepared.setPolygon(polygon);
+		return prepared;
+	}
+
+	@Benchmark
+	public double distanceSq() {
+		double total = 0;
+		for (int i = 0; i < NUM_QUERIES; i++) {
+			total += Distance2D_F64.distanceSq(polygon, queries[i], storage);
+		}
+		return total;
+	}
+
+	public static void main( String[] args ) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(BenchmarkPolygonQueries.class.getSimpleName())
+				.build();
+
+		new Runner(opt).run();
+	}
+}
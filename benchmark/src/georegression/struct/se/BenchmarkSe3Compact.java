@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.struct.se;
+
+import georegression.struct.EulerType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares concat and invert in {@link Se3Compact_F64} against {@link Se3_F64} when processing a trajectory
+ *
+ * @author Peter Abeles
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@Fork(value = 1)
+public class BenchmarkSe3Compact {
+	@Param({"1000", "100000"})
+	public int size;
+
+	// motion between each pose
+	Se3_F64[] motions;
+	Se3Compact_F64[] motionsCompact;
+
+	// output storage
+	Se3_F64[] poses;
+	Se3Compact_F64[] posesCompact;
+
+	@Setup
+	public void setup() {
+		Random rand = new Random(234);
+		motions = new Se3_F64[size];
+		motionsCompact = new Se3Compact_F64[size];
+		poses = new Se3_F64[size];
+		posesCompact = new Se3Compact_F64[size];
+		for (int i = 0; i < size; i++) {
+			motions[i] = new Se3_F64();
+			motions[i].set(rand.nextGaussian()*0.1, rand.nextGaussian()*0.1, rand.nextGaussian()*0.1,
+					EulerType.XYZ, rand.nextGaussian()*0.02, rand.nextGaussian()*0.02, rand.nextGaussian()*0.02);
+			motionsCompact[i] = new Se3Compact_F64(motions[i]);
+			poses[i] = new Se3_F64();
+			posesCompact[i] = new Se3Compact_F64();
+		}
+	}
+
+	/**
+	 * Integrates the motions into a trajectory
+	 */
+	@Benchmark
+	public Se3_F64[] concat() {
+		poses[0].set(motions[0]);
+		for (int i = 1; i < size; i++) {
+			poses[i-1].concat(motions[i], poses[i]);
+		}
+		return poses;
+	}
+
+	@Benchmark
+	public Se3Compact_F64[] concat_compact() {
+		posesCompact[0].set(motionsCompact[0]);
+		for (int i = 1; i < size; i++) {
+			posesCompact[i-1].concat(motionsCompact[i], posesCompact[i]);
+		}
+		return posesCompact;
+	}
+
+	@Benchmark
+	public Se3_F64[] invert() {
+		for (int i = 0; i < size; i++) {
+			motions[i].invert(poses[i]);
+		}
+		return poses;
+	}
+
+	@Benchmark
+	public Se3Compact_F64[] invert_compact() {
+		for (int i = 0; i < size; i++) {
+			motionsCompact[i].invert(posesCompact[i]);
+		}
+		return posesCompact;
+	}
+
+	public static void main( String[] args ) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(BenchmarkSe3Compact.class.getSimpleName())
+				.build();
+
+		new Runner(opt).run();
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.transform;
+
+import georegression.struct.EulerType;
+import georegression.struct.se.Se3_F64;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks up the transform between pairs of frames in two chains which share a root. {@link TransformTree}
+ * is compared against composing the path with {@link InvertibleTransformSequence} for every look up.
+ *
+ * @author Peter Abeles
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@Fork(value = 1)
+public class BenchmarkTransformTree {
+	// number of frames in each chain
+	@Param({"5", "20"})
+	public int depth;
+
+	// number of look ups in each tick
+	int numLookups = 200;
+
+	TransformTree<Se3_F64> tree = new TransformTree<>();
+	List<Se3_F64> chainA = new ArrayList<>();
+	List<Se3_F64> chainB = new ArrayList<>();
+
+	int[] pairs;
+	String[] namesA, namesB;
+	Se3_F64 found = new Se3_F64();
+
+	@Setup
+	public void setup() {
+		Random rand = new Random(234);
+		tree = new TransformTree<>();
+		chainA.clear();
+		chainB.clear();
+		namesA = new String[depth];
+		namesB = new String[depth];
+		for (int i = 0; i < depth; i++) {
+			chainA.add(random(rand));
+			chainB.add(random(rand));
+			namesA[i] = "a"+i;
+			namesB[i] = "b"+i;
+			tree.setTransform("a"+i, i == 0 ? "root" : "a"+(i-1), chainA.get(i));
+			tree.setTransform("b"+i, i == 0 ? "root" : "b"+(i-1), chainB.get(i));
+		}
+		pairs = new int[numLookups*2];
+		for (int i = 0; i < pairs.length; i++) {
+			pairs[i] = rand.nextInt(depth);
+		}
+	}
+
+	private static Se3_F64 random( Random rand ) {
+		Se3_F64 se = new Se3_F64();
+		se.set(rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian(), EulerType.XYZ,
+				rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian());
+		return se;
+	}
+
+	@Benchmark
+	public void tree() {
+		for (int i = 0; i < numLookups; i++) {
+			tree.lookup(namesA[pairs[i*2]], namesB[pairs[i*2+1]], found);
+		}
+	}
+
+	@Benchmark
+	public void treeModified() {
+		// an edge near the root is modified each tick, invalidating most of one chain
+		tree.setTransform("a1", "a0", chainA.get(1));
+		tree();
+	}
+
+	@Benchmark
+	public void sequence() {
+		InvertibleTransformSequence<Se3_F64> path = new InvertibleTransformSequence<>();
+		for (int i = 0; i < numLookups; i++) {
+			path.clear();
+			for (int j = pairs[i*2]; j >= 0; j--) {
+				path.addTransform(true, chainA.get(j));
+			}
+			for (int j = 0; j <= pairs[i*2+1]; j++) {
+				path.addTransform(false, chainB.get(j));
+			}
+			path.computeTransform(found);
+		}
+	}
+
+	public static void main( String[] args ) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(BenchmarkTransformTree.class.getSimpleName())
+				.build();
+
+		new Runner(opt).run();
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.transform.se;
+
+import georegression.geometry.ConvertRotation3D_F64;
+import georegression.struct.EulerType;
+import georegression.struct.so.Quaternion_F64;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sliding window average of quaternions. Compares {@link IncrementalAverageQuaternion_F64} against
+ * running {@link AverageQuaternion_F64} on the entire window for every new sample.
+ *
+ * @author Peter Abeles
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@Fork(value = 1)
+public class BenchmarkIncrementalAverageQuaternion {
+	@Param({"10", "200"})
+	public int window;
+
+	// number of samples in the sequence
+	int size = 2000;
+
+	List<Quaternion_F64> samples = new ArrayList<>();
+	Quaternion_F64 average = new Quaternion_F64();
+
+	AverageQuaternion_F64 batch = new AverageQuaternion_F64();
+	IncrementalAverageQuaternion_F64 incremental = new IncrementalAverageQuaternion_F64();
+
+	@Setup
+	public void setup() {
+		Random rand = new Random(234);
+		samples.clear();
+		for (int i = 0; i < size; i++) {
+			samples.add(ConvertRotation3D_F64.eulerToQuaternion(EulerType.XYZ,
+					rand.nextGaussian()*0.1, rand.nextGaussian()*0.1, 1 + rand.nextGaussian()*0.1, null));
+		}
+	}
+
+	@Benchmark
+	public void batch() {
+		for (int i = window; i <= size; i++) {
+			batch.process(samples.subList(i - window, i), average);
+		}
+	}
+
+	@Benchmark
+	public void incremental() {
+		incremental.reset();
+		for (int i = 0; i < size; i++) {
+			incremental.add(samples.get(i));
+			if( i >= window )
+				incremental.remove(samples.get(i - window));
+			if( i + 1 >= window )
+				incremental.computeAverage(average);
+		}
+	}
+
+	public static void main( String[] args ) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(BenchmarkIncrementalAverageQuaternion.class.getSimpleName())
+				.build();
+
+		new Runner(opt).run();
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.transform.se;
+
+import georegression.struct.EulerType;
+import georegression.struct.se.Se3Array_F64;
+import georegression.struct.se.Se3_F64;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares looking up poses with {@link InterpolateLinearSe3Trajectory_F64} against calling
+ * {@link InterpolateLinearSe3_F64} for every look up. The look ups are sorted, like the time stamps of points
+ * in a LiDAR scan.
+ *
+ * @author Peter Abeles
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@Fork(value = 1)
+public class BenchmarkInterpolateLinearSe3Trajectory {
+	@Param({"10000", "1000000"})
+	public int size;
+
+	// number of poses in the trajectory
+	public int numPoses = 100;
+
+	Se3_F64[] poses;
+	double[] times;
+	double[] queries;
+
+	InterpolateLinearSe3Trajectory_F64 trajectory = new InterpolateLinearSe3Trajectory_F64();
+	InterpolateLinearSe3_F64 pair = new InterpolateLinearSe3_F64();
+
+	Se3_F64 output = new Se3_F64();
+	Se3Array_F64 outputArray = new Se3Array_F64();
+
+	@Setup
+	public void setup() {
+		Random rand = new Random(234);
+		poses = new Se3_F64[numPoses];
+		times = new double[numPoses];
+		trajectory.reset();
+		for (int i = 0; i < numPoses; i++) {
+			poses[i] = new Se3_F64();
+			poses[i].set(i*0.1, 0.2, -0.1*i, EulerType.XYZ, 0.01*i, rand.nextGaussian()*0.05, 0.2);
+			times[i] = i*0.01;
+			trajectory.add(times[i], poses[i]);
+		}
+
+		queries = new double[size];
+		for (int i = 0; i < size; i++) {
+			queries[i] = times[numPoses-1]*i/(size-1);
+		}
+	}
+
+	@Benchmark
+	public Se3_F64 pairPerQuery() {
+		int k = 0;
+		for (int i = 0; i < size; i++) {
+			double time = queries[i];
+			while( k+2 < numPoses && times[k+1] < time )
+				k++;
+			pair.setTransforms(poses[k], poses[k+1]);
+			pair.interpolate((time - times[k])/(times[k+1] - times[k]), output);
+		}
+		return output;
+	}
+
+	@Benchmark
+	public Se3_F64 single() {
+		for (int i = 0; i < size; i++) {
+			trajectory.interpolate(queries[i], output);
+		}
+		return output;
+	}
+
+	@Benchmark
+	public Se3Array_F64 batch() {
+		trajectory.interpolate(queries, size, outputArray);
+		return outputArray;
+	}
+
+	@Benchmark
+	public Se3Array_F64 batchParallel() {
+		trajectory.interpolateParallel(queries, size, outputArray);
+		return outputArray;
+	}
+
+	public static void main( String[] args ) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(BenchmarkInterpolateLinearSe3Trajectory.class.getSimpleName())
+				.build();
+
+		new Runner(opt).run();
+	}
+}
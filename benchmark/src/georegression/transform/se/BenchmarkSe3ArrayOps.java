@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.transform.se;
+
+import georegression.struct.EulerType;
+import georegression.struct.se.Se3Array_F64;
+import georegression.struct.se.Se3_F64;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares bulk operations in {@link Se3ArrayOps_F64} against looping over a list of {@link Se3_F64}
+ *
+ * @author Peter Abeles
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@Fork(value = 1)
+public class BenchmarkSe3ArrayOps {
+	@Param({"1000", "1000000"})
+	public int size;
+
+	Se3_F64 offset = new Se3_F64();
+
+	List<Se3_F64> list = new ArrayList<>();
+	List<Se3_F64> listOut = new ArrayList<>();
+	Se3Array_F64 array = new Se3Array_F64();
+	Se3Array_F64 arrayOut = new Se3Array_F64();
+
+	// work space for relative poses
+	Se3_F64 work = new Se3_F64();
+
+	@Setup
+	public void setup() {
+		Random rand = new Random(234);
+		offset.set(0.1, -0.2, 0.05, EulerType.XYZ, 0.1, -0.05, 0.2);
+		list.clear();
+		listOut.clear();
+		for (int i = 0; i < size; i++) {
+			Se3_F64 se = new Se3_F64();
+			se.set(rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian(), EulerType.XYZ,
+					rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian());
+			list.add(se);
+			listOut.add(new Se3_F64());
+		}
+		array.setTo(list);
+		arrayOut.reserve(size);
+	}
+
+	@Benchmark
+	public void concat_list() {
+		for (int i = 0; i < size; i++) {
+			offset.concat(list.get(i), listOut.get(i));
+		}
+	}
+
+	@Benchmark
+	public void concat_array() {
+		Se3ArrayOps_F64.concat(offset, array, arrayOut);
+	}
+
+	@Benchmark
+	public void invert_list() {
+		for (int i = 0; i < size; i++) {
+			list.get(i).invert(listOut.get(i));
+		}
+	}
+
+	@Benchmark
+	public void invert_array() {
+		Se3ArrayOps_F64.invert(array, arrayOut);
+	}
+
+	@Benchmark
+	public void relative_list() {
+		for (int i = 1; i < size; i++) {
+			list.get(i-1).invert(work);
+			work.concat(list.get(i), listOut.get(i-1));
+		}
+	}
+
+	@Benchmark
+	public void relative_array() {
+		Se3ArrayOps_F64.relative(array, arrayOut);
+	}
+
+	public static void main( String[] args ) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(BenchmarkSe3ArrayOps.class.getSimpleName())
+				.build();
+
+		new Runner(opt).run();
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package georegression.transform.se;
+
+import georegression.struct.EulerType;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.point.PointCloud3D_F64;
+import georegression.struct.se.Se3Compact_F64;
+import georegression.struct.se.Se3_F64;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for applying a {@link Se3_F64} or {@link Se3Compact_F64} to many points with {@link SePointOps_F64}
+ *
+ * @author Peter Abeles
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@Fork(value = 1)
+public class BenchmarkSePointOps {
+	@Param({"100", "10000", "1000000"})
+	public int size;
+
+	Se3_F64 se = new Se3_F64();
+	Se3Compact_F64 compact = new Se3Compact_F64();
+
+	Point3D_F64[] array;
+	List<Point3D_F64> list;
+	Point3D_F64[] output;
+	PointCloud3D_F64 cloud = new PointCloud3D_F64();
+	PointCloud3D_F64 cloudOut = new PointCloud3D_F64();
+
+	@Setup
+	public void setup() {
+		Random rand = new Random(234);
+		se.set(0.1, -0.2, 0.05, EulerType.XYZ, 0.1, -0.05, 0.2);
+
+		array = new Point3D_F64[size];
+		output = new Point3D_F64[size];
+		list = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			array[i] = new Point3D_F64(rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian());
+			output[i] = new Point3D_F64();
+			list.add(array[i].copy());
+		}
+		cloud.setTo(list);
+		compact.set(se);
+	}
+
+	@Benchmark
+	public void transform_src_dst() {
+		for (int i = 0; i < size; i++) {
+			SePointOps_F64.transform(se, array[i], output[i]);
+		}
+	}
+
+	@Benchmark
+	public void transform_src_dst_compact() {
+		for (int i = 0; i < size; i++) {
+			SePointOps_F64.transform(compact, array[i], output[i]);
+		}
+	}
+
+	@Benchmark
+	public void transform_array() {
+		SePointOps_F64.transform(se, array, 0, size);
+	}
+
+	@Benchmark
+	public void transform_list() {
+		SePointOps_F64.transform(se, list);
+	}
+
+	@Benchmark
+	public void transform_cloud() {
+		SePointOps_F64.transform(se, cloud, cloudOut);
+	}
+
+	@Benchmark
+	public void transform_cloud_compact() {
+		SePointOps_F64.transform(compact, cloud, cloudOut);
+	}
+
+	@Benchmark
+	public void transformParallel_cloud() {
+		SePointOps_F64.transformParallel(se, cloud, cloudOut);
+	}
+
+	@Benchmark
+	public void transformReverse() {
+		for (int i = 0; i < size; i++) {
+			SePointOps_F64.transformReverse(se, array[i], output[i]);
+		}
+	}
+
+	@Benchmark
+	public void transformReverse_compact() {
+		for (int i = 0; i < size; i++) {
+			SePointOps_F64.transformReverse(compact, array[i], output[i]);
+		}
+	}
+
+	@Benchmark
+	public void transformReverse_cloud() {
+		SePointOps_F64.transformReverse(se, cloud, cloudOut);
+	}
+
+	public static void main( String[] args ) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(BenchmarkSePointOps.class.getSimpleName())
+				.build();
+
+		new Runner(opt).run();
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.transform.twist;
+
+import georegression.geometry.ConvertRotation3D_F64;
+import georegression.struct.point.Vector3D_F64;
+import georegression.struct.se.Se3Array_F64;
+import georegression.struct.se.Se3_F64;
+import georegression.struct.so.Rodrigues_F64;
+import org.ejml.data.DMatrix3x3;
+import org.ejml.data.DMatrixRMaj;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link LieGroupOps_F64} against {@link TwistOps_F64} and {@link ConvertRotation3D_F64}
+ *
+ * @author Peter Abeles
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@Fork(value = 1)
+public class BenchmarkLieGroupOps {
+	@Param({"10000"})
+	public int size;
+
+	double[] twists;
+	TwistCoordinate_F64[] twistList;
+	Se3_F64[] motionList;
+	Se3Array_F64 motions = new Se3Array_F64();
+	double[] found;
+
+	Se3_F64 se = new Se3_F64();
+	TwistCoordinate_F64 twist = new TwistCoordinate_F64();
+	DMatrix3x3 R3 = new DMatrix3x3();
+	DMatrixRMaj R = new DMatrixRMaj(3, 3);
+	Rodrigues_F64 rod = new Rodrigues_F64();
+	Vector3D_F64 w = new Vector3D_F64();
+
+	@Setup
+	public void setup() {
+		Random rand = new Random(234);
+		twists = new double[size*6];
+		found = new double[size*6];
+		twistList = new TwistCoordinate_F64[size];
+		motionList = new Se3_F64[size];
+		for (int i = 0; i < twists.length; i++) {
+			twists[i] = rand.nextGaussian();
+		}
+		for (int i = 0; i < size; i++) {
+			int idx = i*6;
+			twistList[i] = new TwistCoordinate_F64(
+					twists[idx + 3], twists[idx + 4], twists[idx + 5], twists[idx], twists[idx + 1], twists[idx + 2]);
+			motionList[i] = LieGroupOps_F64.expSE3(twistList[i], null);
+		}
+		LieGroupOps_F64.expSE3(twists, size, motions);
+	}
+
+	@Benchmark
+	public void expSO3_rodrigues() {
+		for (int i = 0; i < size; i++) {
+			Vector3D_F64 w = twistList[i].w;
+			double theta = w.norm();
+			ConvertRotation3D_F64.rodriguesToMatrix(w.x/theta, w.y/theta, w.z/theta, theta, R);
+		}
+	}
+
+	@Benchmark
+	public void expSO3_lie() {
+		for (int i = 0; i < size; i++) {
+			Vector3D_F64 w = twistList[i].w;
+			LieGroupOps_F64.expSO3(w.x, w.y, w.z, R3);
+		}
+	}
+
+	@Benchmark
+	public void logSO3_rodrigues() {
+		for (int i = 0; i < size; i++) {
+			ConvertRotation3D_F64.matrixToRodrigues(motionList[i].R, rod);
+		}
+	}
+
+	@Benchmark
+	public void logSO3_lie() {
+		for (int i = 0; i < size; i++) {
+			double[] d = motionList[i].R.data;
+			R3.set(d[0], d[1], d[2], d[3], d[4], d[5], d[6], d[7], d[8]);
+			LieGroupOps_F64.logSO3(R3, w);
+		}
+	}
+
+	@Benchmark
+	public void expSE3_twistOps() {
+		for (int i = 0; i < size; i++) {
+			TwistOps_F64.exponential(twistList[i], 1.0, se);
+		}
+	}
+
+	@Benchmark
+	public void expSE3_lie() {
+		for (int i = 0; i < size; i++) {
+			LieGroupOps_F64.expSE3(twistList[i], se);
+		}
+	}
+
+	@Benchmark
+	public void expSE3_batch() {
+		LieGroupOps_F64.expSE3(twists, size, motions);
+	}
+
+	@Benchmark
+	public void logSE3_twistOps() {
+		for (int i = 0; i < size; i++) {
+			TwistOps_F64.twist(motionList[i], twist);
+		}
+	}
+
+	@Benchmark
+	public void logSE3_lie() {
+		for (int i = 0; i < size; i++) {
+			LieGroupOps_F64.logSE3(motionList[i], twist);
+		}
+	}
+
+	@Benchmark
+	public void logSE3_batch() {
+		LieGroupOps_F64.logSE3(motions, found);
+	}
+
+	public static void main( String[] args ) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(BenchmarkLieGroupOps.class.getSimpleName())
+				.build();
+
+		new Runner(opt).run();
+	}
+}
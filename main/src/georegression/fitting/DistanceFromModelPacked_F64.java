@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.fitting;
+
+import org.ddogleg.fitting.modelset.DistanceFromModel;
+
+/**
+ * <p>
+ * Extension of {@link DistanceFromModel} which can also score points stored in a packed array of doubles, e.g.
+ * {@link georegression.struct.point.PointCloud3D_F64#data}. Point 'i' is stored at
+ * points[i*L] to points[(i+1)*L-1], where L is {@link #getPackedLength()}. All functions are allocation free.
+ * </p>
+ *
+ * <p>
+ * Distances are always non-negative so that they can be compared directly against an inlier threshold.
+ * {@link #countInliers} is intended for scoring hypotheses inside of RANSAC. It avoids the square root when
+ * possible and stops as soon as the hypothesis can no longer beat the best hypothesis found so far.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public interface DistanceFromModelPacked_F64<Model,Point> extends DistanceFromModel<Model,Point> {
+
+	/**
+	 * Computes the distance of each point in the packed array from the model
+	 *
+	 * @param points (Input) Packed array of points. Not modified.
+	 * @param numPoints (Input) Number of points in the array
+	 * @param distance (Output) Distance of each point from the model. Must have at least numPoints elements.
+	 */
+	void computeDistance( double[] points, int numPoints, double[] distance );
+
+	/**
+	 * Counts the number of points whose distance from the model is &le; threshold. If at some point it becomes
+	 * impossible for the count to be more than 'mustBeat' then the function stops early. When that happens the
+	 * returned value will be &le; mustBeat and is only a partial count. Pass in -1 to always get the full count.
+	 *
+	 * @param points (Input) Packed array of points. Not modified.
+	 * @param numPoints (Input) Number of points in the array
+	 * @param threshold (Input) Maximum distance for a point to be an inlier
+	 * @param mustBeat (Input) Number of inliers the model must exceed, e.g. the best score so far.
+	 * @return Number of inliers. If &le; mustBeat then it might be a partial count.
+	 */
+	int countInliers( double[] points, int numPoints, double threshold, int mustBeat );
+
+	/**
+	 * Number of elements in the packed array used to store a single point
+	 */
+	int getPackedLength();
+}
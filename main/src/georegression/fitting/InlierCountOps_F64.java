@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.fitting;
+
+/**
+ * Early termination logic for {@link DistanceFromModelPacked_F64#countInliers}. Points are processed in blocks
+ * and after each block the count is checked to see if the model can still beat the best model found so far.
+ * Implementations only need to provide the number of outliers inside a block of points.
+ *
+ * @author Peter Abeles
+ */
+public class InlierCountOps_F64 {
+	/**
+	 * Number of points between checks for early termination. Checking after every point would add an unpredictable
+	 * branch to the inner loop
+	 */
+	public static final int BLOCK = 64;
+
+	/**
+	 * Counts the number of outliers in a block of points
+	 */
+	@FunctionalInterface
+	public interface BlockOutliers {
+		/**
+		 * Counts the number of outliers from point 'start' to 'end - 1', inclusive. Implementations should update
+		 * the counter without an if-else since inliers and outliers are often unpredictable.
+		 *
+		 * @param points (Input) Packed array of points. Not modified.
+		 * @param start (Input) Index of the first point
+		 * @param end (Input) Index one past the last point
+		 * @return Number of outliers in the block
+		 */
+		int countOutliers( double[] points, int start, int end );
+	}
+
+	/**
+	 * Implementation of {@link DistanceFromModelPacked_F64#countInliers} using the provided outlier counter.
+	 *
+	 * @param points (Input) Packed array of points. Not modified.
+	 * @param numPoints (Input) Number of points in the array
+	 * @param mustBeat (Input) Number of inliers the model must exceed. -1 to always get the full count.
+	 * @param counter (Input) Counts outliers inside a block of points
+	 * @return Number of inliers. If &le; mustBeat then it might be a partial count.
+	 */
+	public static int countInliers( double[] points, int numPoints, int mustBeat, BlockOutliers counter ) {
+		// once there are more outliers than this the model can't beat the best
+		final int maxOutliers = numPoints - mustBeat - 1;
+		int outliers = 0;
+		for (int i = 0; i < numPoints; ) {
+			int end = i + BLOCK < numPoints ? i + BLOCK : numPoints;
+			outliers += counter.countOutliers(points, i, end);
+			i = end;
+			if( outliers > maxOutliers )
+				return i - outliers;
+		}
+		return numPoints - outliers;
+	}
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package georegression.fitting;
+
+import georegression.struct.GeoTuple;
+import georegression.struct.InvertibleTransform;
+
+import java.util.List;
+
+/**
+ * Extension of {@link MotionTransformPoint} which fits many models in a single call. Each model is fit to a
+ * different subset of the same set of associated points, which is how hypotheses are generated inside of RANSAC
+ * from minimal sets. The points in each subset are specified by their indexes, so no lists need to be created.
+ *
+ * @author Peter Abeles
+ */
+public interface MotionTransformPointBatch<T extends InvertibleTransform, P extends GeoTuple>
+		extends MotionTransformPoint<T, P> {
+
+	/**
+	 * Fits a model to each sample. The indexes of the points in sample 'i' are stored in
+	 * samples[i*sampleSize] to samples[(i+1)*sampleSize-1].
+	 *
+	 * @param srcPts The points which are to be transformed.  Not modified.
+	 * @param dstPts The points that are being compared against. Not modified.
+	 * @param samples Indexes of the points in each sample. Not modified.
+	 * @param sampleSize Number of points in each sample. Must be at least {@link #getMinimumPoints()}.
+	 * @param numSamples Number of samples
+	 * @param models (Output) The model fit to each sample. Modified.
+	 * @param success (Output) true if the model for the sample was successfully computed. Modified.
+	 */
+	void processBatch( List<P> srcPts, List<P> dstPts, int[] samples, int sampleSize, int numSamples,
+					   T[] models, boolean[] success );
+
+	/**
+	 * Concurrent version of {@link #processBatch}. Samples are split between threads using
+	 * {@link georegression.misc.GrlConcurrency}.
+	 */
+	void processBatchParallel( List<P> srcPts, List<P> dstPts, int[] samples, int sampleSize, int numSamples,
+							   T[] models, boolean[] success );
+}
@@ -18,13 +18,15 @@
 
 package georegression.fitting.affine;
 
-import georegression.fitting.MotionTransformPoint;
+import georegression.fitting.MotionTransformPointBatch;
+import georegression.misc.GrlConcurrency;
 import georegression.struct.affine.Affine2D_F64;
 import georegression.struct.point.Point2D_F64;
 import org.ejml.data.DMatrixRMaj;
 import org.ejml.dense.row.factory.LinearSolverFactory_DDRM;
 import org.ejml.interfaces.linsol.LinearSolverDense;
 
+import javax.annotation.Nullable;
 import java.util.List;
 
 
@@ -34,7 +36,10 @@ import java.util.List;
  *
  * @author Peter Abeles
  */
-public class MotionAffinePoint2D_F64 implements MotionTransformPoint<Affine2D_F64, Point2D_F64> {
+public class MotionAffinePoint2D_F64 implements MotionTransformPointBatch<Affine2D_F64, Point2D_F64> {
+
+	// Minimum number of samples processed by a thread in a batch
+	static final int BATCH_BLOCK_SIZE = 50;
 
 	private LinearSolverDense<DMatrixRMaj> solver;
 	private DMatrixRMaj A;
@@ -66,6 +71,54 @@ public class MotionAffinePoint2D_F64 implements MotionTransformPoint<Affine2D_F6
 			throw new IllegalArgumentException( "Must be at least 3 points" );
 		}
 
+		return process(srcPts, dstPts, null, 0, N);
+	}
+
+	@Override
+	public void processBatch( List<Point2D_F64> srcPts, List<Point2D_F64> dstPts,
+							  int[] samples, int sampleSize, int numSamples,
+							  Affine2D_F64[] models, boolean[] success ) {
+		checkBatchArguments(srcPts, dstPts, sampleSize);
+		processBatch(srcPts, dstPts, samples, sampleSize, 0, numSamples, models, success);
+	}
+
+	@Override
+	public void processBatchParallel( List<Point2D_F64> srcPts, List<Point2D_F64> dstPts,
+									  int[] samples, int sampleSize, int numSamples,
+									  Affine2D_F64[] models, boolean[] success ) {
+		checkBatchArguments(srcPts, dstPts, sampleSize);
+		GrlConcurrency.loopBlocks(0, numSamples, BATCH_BLOCK_SIZE, ( idx0, idx1 ) ->
+				new MotionAffinePoint2D_F64().processBatch(srcPts, dstPts, samples, sampleSize, idx0, idx1, models, success));
+	}
+
+	private void checkBatchArguments( List<Point2D_F64> srcPts, List<Point2D_F64> dstPts, int sampleSize ) {
+		if( srcPts.size() != dstPts.size() )
+			throw new IllegalArgumentException( "From and to lists must be the same size" );
+		if( sampleSize < getMinimumPoints() )
+			throw new IllegalArgumentException( "Sample size must be at least "+getMinimumPoints() );
+	}
+
+	/**
+	 * Fits a model to samples in the range [sample0, sample1)
+	 */
+	void processBatch( List<Point2D_F64> srcPts, List<Point2D_F64> dstPts,
+					   int[] samples, int sampleSize, int sample0, int sample1,
+					   Affine2D_F64[] models, boolean[] success ) {
+		for (int i = sample0; i < sample1; i++) {
+			success[i] = process(srcPts, dstPts, samples, i*sampleSize, sampleSize);
+			if( success[i] )
+				models[i].set(model);
+		}
+	}
+
+	/**
+	 * Computes the model using a subset of the points
+	 *
+	 * @param indexes Indexes of points that are used. If null then points are used in sequential order.
+	 * @param offset Index of the first element in indexes or the first point if indexes is null
+	 * @param N Number of points used
+	 */
+	boolean process( List<Point2D_F64> srcPts, List<Point2D_F64> dstPts, @Nullable int[] indexes, int offset, int N ) {
 		if( A.data.length < N * 3 ) {
 			A.reshape( N, 3, true );
 			y.reshape( N, 2, true );
@@ -79,8 +132,9 @@ public class MotionAffinePoint2D_F64 implements MotionTransformPoint<Affine2D_F6
 
 		// put the data into the matrices
 		for( int i = 0; i < N; i++ ) {
-			Point2D_F64 pt2 = srcPts.get( i );
-			Point2D_F64 pt1 = dstPts.get( i );
+			int index = indexes == null ? offset + i : indexes[offset + i];
+			Point2D_F64 pt2 = srcPts.get( index );
+			Point2D_F64 pt1 = dstPts.get( index );
 
 
 			A.set( i, 0, pt2.x );
@@ -0,0 +1,296 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.fitting.cloud;
+
+import georegression.geometry.UtilEigen3x3_F64;
+import georegression.index.KdTreePoint3D_F64;
+import georegression.index.PointIndex3D_F64;
+import georegression.misc.GrlConcurrency;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.point.PointCloud3D_F64;
+import georegression.struct.point.Vector3D_F64;
+import org.ddogleg.struct.FastQueue;
+import org.ddogleg.struct.GrowQueue_F64;
+import org.ddogleg.struct.GrowQueue_I32;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * <p>
+ * Estimates the surface normal and curvature at every point in a point cloud. A plane is fit to the neighborhood
+ * of each point, found using a {@link PointIndex3D_F64}, by computing the covariance matrix of the neighborhood.
+ * The normal is the eigenvector of the smallest eigenvalue, which is found in closed form using
+ * {@link UtilEigen3x3_F64}. Curvature is the surface variation, &lambda;<sub>0</sub>/(&lambda;<sub>0</sub> +
+ * &lambda;<sub>1</sub> + &lambda;<sub>2</sub>), which is 0 for a plane and 1/3 for isotropic noise.
+ * </p>
+ *
+ * <p>
+ * The neighborhood is either the k-nearest neighbors, optionally limited to a maximum distance, or all the points
+ * within a radius. The sign of a normal is ambiguous. If a view point is specified then normals are flipped so
+ * that they point towards it. If a neighborhood has fewer than three points or the normal isn't unique then
+ * the normal and curvature are set to NaN.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class EstimatePointCloudNormals_F64 {
+	// minimum number of points processed by a thread. Each point requires a neighborhood search
+	private static final int BLOCK_SIZE = 500;
+
+	// spatial index used to find neighbors
+	PointIndex3D_F64 index;
+
+	// number of neighbors. If zero then all points within the radius are used
+	int numNeighbors = 10;
+	// maximum distance of a neighbor
+	double radius = Double.MAX_VALUE;
+
+	// If not null, normals are flipped to point towards this point
+	@Nullable Point3D_F64 viewPoint;
+
+	// storage for when the input is a list
+	PointCloud3D_F64 work = new PointCloud3D_F64();
+	GrowQueue_F64 workNormals = new GrowQueue_F64();
+
+	// neighborhood search for each thread
+	final GrlConcurrency.WorkspacePool<Workspace> workspaces =
+			new GrlConcurrency.WorkspacePool<>(() -> new Workspace(index.createSearch()));
+
+	/**
+	 * @param index Spatial index used to find the neighborhood of each point
+	 */
+	public EstimatePointCloudNormals_F64( PointIndex3D_F64 index ) {
+		this.index = index;
+	}
+
+	public EstimatePointCloudNormals_F64() {
+		this(new KdTreePoint3D_F64());
+	}
+
+	/**
+	 * The neighborhood is the k-nearest points, including the point itself
+	 *
+	 * @param numNeighbors Number of neighbors. Must be at least 3.
+	 * @param maxDistance Maximum distance of a neighbor. Use Double.MAX_VALUE for no limit.
+	 */
+	public void setNeighborsKNearest( int numNeighbors, double maxDistance ) {
+		if( numNeighbors < 3 )
+			throw new IllegalArgumentException("At least 3 neighbors are required to fit a plane");
+		this.numNeighbors = numNeighbors;
+		this.radius = maxDistance;
+	}
+
+	/**
+	 * The neighborhood is all the points within the radius, including the point itself
+	 */
+	public void setNeighborsRadius( double radius ) {
+		if( !(radius > 0) )
+			throw new IllegalArgumentException("Radius must be positive");
+		this.numNeighbors = 0;
+		this.radius = radius;
+	}
+
+	/**
+	 * Estimates the normal of every point in a list
+	 *
+	 * @param points (Input) Points. Not modified.
+	 * @param normals (Output) Unit normal of each point. Modified.
+	 * @param curvature (Output) Optional storage for the curvature of each point. Modified.
+	 */
+	public void process( List<Point3D_F64> points, FastQueue<Vector3D_F64> normals,
+						 @Nullable GrowQueue_F64 curvature ) {
+		work.setTo(points);
+		process(work, workNormals, curvature);
+		copyToList(workNormals, normals);
+	}
+
+	/**
+	 * Estimates the normal of every point in a cloud. The spatial index is built from the cloud. Points are
+	 * visited in the index's order, see {@link PointIndex3D_F64#getOrder()}.
+	 *
+	 * @param cloud (Input) Points. Not modified.
+	 * @param normals (Output) Unit normal of each point, packed (x,y,z). Modified.
+	 * @param curvature (Output) Optional storage for the curvature of each point. Modified.
+	 */
+	public void process( PointCloud3D_F64 cloud, GrowQueue_F64 normals, @Nullable GrowQueue_F64 curvature ) {
+		index.setPoints(cloud);
+		resizeOutput(cloud, normals, curvature);
+		final int[] order = index.getOrder();
+		Workspace w = workspaces.acquire();
+		for (int i = 0; i < cloud.size; i++) {
+			estimate(w, cloud, order[i], normals.data, curvature);
+		}
+		workspaces.release(w);
+	}
+
+	/**
+	 * Concurrent version of {@link #process(List, FastQueue, GrowQueue_F64)}
+	 */
+	public void processParallel( List<Point3D_F64> points, FastQueue<Vector3D_F64> normals,
+								 @Nullable GrowQueue_F64 curvature ) {
+		work.setTo(points);
+		processParallel(work, workNormals, curvature);
+		copyToList(workNormals, normals);
+	}
+
+	/**
+	 * Concurrent version of {@link #process(PointCloud3D_F64, GrowQueue_F64, GrowQueue_F64)}. The index is built
+	 * in parallel, then points are split into blocks and each thread has its own search workspace. Results are
+	 * identical to the single threaded version.
+	 */
+	public void processParallel( PointCloud3D_F64 cloud, GrowQueue_F64 normals, @Nullable GrowQueue_F64 curvature ) {
+		index.setPointsParallel(cloud);
+		resizeOutput(cloud, normals, curvature);
+		final int[] order = index.getOrder();
+		GrlConcurrency.loopBlocks(0, cloud.size, BLOCK_SIZE, workspaces, ( w, idx0, idx1 ) -> {
+			for (int i = idx0; i < idx1; i++) {
+				estimate(w, cloud, order[i], normals.data, curvature);
+			}
+		});
+	}
+
+	private static void resizeOutput( PointCloud3D_F64 cloud, GrowQueue_F64 normals, @Nullable GrowQueue_F64 curvature ) {
+		normals.resize(cloud.size*3);
+		if( curvature != null )
+			curvature.resize(cloud.size);
+	}
+
+	/**
+	 * Fits a plane to the neighborhood of a single point
+	 */
+	void estimate( Workspace w, PointCloud3D_F64 cloud, int pointIndex, double[] normals,
+				   @Nullable GrowQueue_F64 curvature ) {
+		final double[] data = cloud.data;
+		final double x = data[pointIndex*3], y = data[pointIndex*3+1], z = data[pointIndex*3+2];
+
+		if( numNeighbors > 0 )
+			w.search.findNearest(x, y, z, radius, numNeighbors, w.indexes, w.distancesSq);
+		else
+			w.search.findWithinRadius(x, y, z, radius, w.indexes);
+
+		final int N = w.indexes.size;
+		final int[] indexes = w.indexes.data;
+		double surfaceVariation = Double.NaN;
+		Vector3D_F64 normal = w.normal;
+		normal.set(Double.NaN, Double.NaN, Double.NaN);
+
+		if( N >= 3 ) {
+			double meanX = 0, meanY = 0, meanZ = 0;
+			for (int i = 0; i < N; i++) {
+				int idx = indexes[i]*3;
+				meanX += data[idx];
+				meanY += data[idx+1];
+				meanZ += data[idx+2];
+			}
+			meanX /= N;
+			meanY /= N;
+			meanZ /= N;
+
+			double xx = 0, xy = 0, xz = 0, yy = 0, yz = 0, zz = 0;
+			for (int i = 0; i < N; i++) {
+				int idx = indexes[i]*3;
+				double dx = data[idx] - meanX, dy = data[idx+1] - meanY, dz = data[idx+2] - meanZ;
+				xx += dx*dx;
+				xy += dx*dy;
+				xz += dx*dz;
+				yy += dy*dy;
+				yz += dy*dz;
+				zz += dz*dz;
+			}
+
+			final double[] eigenvalues = w.eigenvalues;
+			UtilEigen3x3_F64.eigenvaluesSymmetric(xx, xy, xz, yy, yz, zz, eigenvalues);
+			if( UtilEigen3x3_F64.eigenvectorSymmetric(xx, xy, xz, yy, yz, zz, eigenvalues[0], normal) ) {
+				// the smallest eigenvalue can be slightly negative due to round off errors
+				double smallest = Math.max(0.0, eigenvalues[0]);
+				surfaceVariation = smallest/(eigenvalues[0] + eigenvalues[1] + eigenvalues[2]);
+
+				if( viewPoint != null ) {
+					double dot = normal.x*(viewPoint.x - x) + normal.y*(viewPoint.y - y) + normal.z*(viewPoint.z - z);
+					if( dot < 0 )
+						normal.scale(-1);
+				}
+			} else {
+				normal.set(Double.NaN, Double.NaN, Double.NaN);
+			}
+		}
+
+		normals[pointIndex*3  ] = normal.x;
+		normals[pointIndex*3+1] = normal.y;
+		normals[pointIndex*3+2] = normal.z;
+		if( curvature != null )
+			curvature.data[pointIndex] = surfaceVariation;
+	}
+
+	private static void copyToList( GrowQueue_F64 packed, FastQueue<Vector3D_F64> normals ) {
+		normals.reset();
+		for (int i = 0; i < packed.size; i += 3) {
+			normals.grow().set(packed.data[i], packed.data[i+1], packed.data[i+2]);
+		}
+	}
+
+	public PointIndex3D_F64 getIndex() {
+		return index;
+	}
+
+	/**
+	 * Changes the spatial index. Any search workspaces for the previous index are discarded.
+	 */
+	public void setIndex( PointIndex3D_F64 index ) {
+		this.index = index;
+		workspaces.clear();
+	}
+
+	public int getNumNeighbors() {
+		return numNeighbors;
+	}
+
+	public double getRadius() {
+		return radius;
+	}
+
+	@Nullable
+	public Point3D_F64 getViewPoint() {
+		return viewPoint;
+	}
+
+	/**
+	 * If not null then normals are flipped so that they point towards the view point
+	 */
+	public void setViewPoint( @Nullable Point3D_F64 viewPoint ) {
+		this.viewPoint = viewPoint;
+	}
+
+	/**
+	 * Everything a thread needs to estimate normals
+	 */
+	static class Workspace {
+		PointIndex3D_F64.Search search;
+		GrowQueue_I32 indexes = new GrowQueue_I32();
+		GrowQueue_F64 distancesSq = new GrowQueue_F64();
+		Vector3D_F64 normal = new Vector3D_F64();
+		double[] eigenvalues = new double[3];
+
+		Workspace( PointIndex3D_F64.Search search ) {
+			this.search = search;
+		}
+	}
+}
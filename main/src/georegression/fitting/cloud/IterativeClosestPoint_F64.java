@@ -0,0 +1,743 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.fitting.cloud;
+
+import georegression.fitting.se.MotionSe3PointAccumulator_F64;
+import georegression.fitting.se.MotionSe3PointToPlane_F64;
+import georegression.index.KdTreePoint3D_F64;
+import georegression.index.PointIndex3D_F64;
+import georegression.misc.GrlConcurrency;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.point.PointCloud3D_F64;
+import georegression.struct.se.Se3_F64;
+import org.ddogleg.sorting.QuickSelect;
+import org.ddogleg.struct.FastQueue;
+import org.ddogleg.struct.GrowQueue_F64;
+import org.ddogleg.struct.GrowQueue_I32;
+import org.ejml.data.DMatrixRMaj;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Iterative Closest Point (ICP) registration of a source point cloud to a destination point cloud. Each iteration
+ * the source is transformed by the current estimate, every source point is associated with the closest
+ * destination point, outliers are rejected, and the rigid body motion is refined. The destination is indexed
+ * once, see {@link #setDestination(PointCloud3D_F64)}, and can then be registered against many source clouds.
+ * </p>
+ *
+ * <p>
+ * Two error metrics are supported. {@link Metric#POINT_TO_POINT} minimizes the Euclidean distance between
+ * associated points using {@link MotionSe3PointAccumulator_F64}. {@link Metric#POINT_TO_PLANE} minimizes the
+ * distance along the destination's surface normal using {@link MotionSe3PointToPlane_F64} and often converges
+ * in fewer iterations on structured scenes. Normals are estimated with {@link EstimatePointCloudNormals_F64} unless
+ * provided. Associations which are farther than the maximum distance are always rejected. If the trim fraction
+ * is less than one then only that fraction of the closest associations are used.
+ * </p>
+ *
+ * <p>
+ * To speed up convergence and increase the basin of attraction, registration can be done coarse-to-fine.
+ * Each level, see {@link #addLevel(double, double)}, downsamples the source with {@link VoxelGridDownsample_F64}
+ * and uses its own maximum association distance. If no levels are specified then the full resolution source
+ * is used. Statistics for every iteration, including how long it took, are saved in {@link #getStatistics()}.
+ * </p>
+ *
+ * <p>
+ * Source points are sorted along a Z-order curve at the start of each level, so consecutive closest point
+ * searches visit the same part of the index. Workspace is recycled between iterations and calls, so after the
+ * first call no memory is allocated per point.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class IterativeClosestPoint_F64 {
+	// minimum number of source points processed by a thread. Each point requires a nearest neighbor search
+	private static final int BLOCK_SIZE = 500;
+	// number of grid cells along each axis when sorting the source
+	private static final int SORT_CELLS = 64;
+
+	/** Error metric which is minimized */
+	Metric metric;
+
+	/** Maximum number of iterations at each level */
+	int maxIterations = 30;
+	/** Converged when the change in translation is less than this */
+	double convergenceTranslation = (double)1e-6;
+	/** Converged when the change in rotation, in radians, is less than this */
+	double convergenceAngle = (double)1e-6;
+	/** Associations which are farther apart than this are rejected when there are no levels */
+	double maxDistance = Double.MAX_VALUE;
+	/** Fraction of associations, sorted by distance, which are used */
+	double trimFraction = 1.0;
+
+	// coarse-to-fine levels
+	final List<Level> levels = new ArrayList<>();
+
+	// spatial index of the destination
+	PointIndex3D_F64 index;
+	// estimates destination normals with the same index
+	EstimatePointCloudNormals_F64 normalEstimator;
+	// normals of destination points, packed (x,y,z)
+	GrowQueue_F64 normals = new GrowQueue_F64();
+
+	// downsamples the source at each level
+	VoxelGridDownsample_F64 downsample = new VoxelGridDownsample_F64(1.0, VoxelGridDownsample_F64.Mode.CENTROID);
+
+	// Estimated motion from source to destination
+	Se3_F64 srcToDst = new Se3_F64();
+	// change in motion found in a single iteration
+	Se3_F64 delta = new Se3_F64();
+	Se3_F64 tmp = new Se3_F64();
+
+	// source at the current level
+	PointCloud3D_F64 levelCloud = new PointCloud3D_F64();
+	// source at the current level sorted so that points next to each other are close in space
+	PointCloud3D_F64 sortedCloud = new PointCloud3D_F64();
+	// work space for sorting
+	GrowQueue_I32 cellStart = new GrowQueue_I32();
+	GrowQueue_I32 pointCell = new GrowQueue_I32();
+	// source transformed by the current estimate
+	PointCloud3D_F64 transformed = new PointCloud3D_F64();
+	// index of the matching destination point, or -1 if there is none
+	GrowQueue_I32 matches = new GrowQueue_I32();
+	// distance squared to the matching destination point
+	GrowQueue_F64 distancesSq = new GrowQueue_F64();
+	// work space for selecting the trimmed distance
+	GrowQueue_F64 sorted = new GrowQueue_F64();
+
+	// copies of the input when it's a list
+	PointCloud3D_F64 workSrc = new PointCloud3D_F64();
+	PointCloud3D_F64 workDst = new PointCloud3D_F64();
+
+	// search and partial sums for each thread
+	final GrlConcurrency.WorkspacePool<Workspace> workspaces =
+			new GrlConcurrency.WorkspacePool<>(() -> new Workspace(index.createSearch()));
+	// workspace used to merge the results from all the threads
+	Workspace merged;
+
+	// statistics for each iteration
+	FastQueue<IterationStats> statistics = new FastQueue<>(IterationStats::new);
+	// true if the last level converged
+	boolean converged;
+
+	// if true then the current operation is performed concurrently
+	boolean concurrent;
+
+	/**
+	 * @param metric Error metric which is minimized
+	 * @param index Spatial index used to search the destination
+	 */
+	public IterativeClosestPoint_F64( Metric metric, PointIndex3D_F64 index ) {
+		this.metric = metric;
+		setIndex(index);
+	}
+
+	public IterativeClosestPoint_F64( Metric metric ) {
+		this(metric, new KdTreePoint3D_F64());
+	}
+
+	/**
+	 * Adds a level to the end of the coarse-to-fine schedule. Levels are processed in the order they were added,
+	 * so coarse levels should be added first.
+	 *
+	 * @param voxelSize Size of the voxel the source is downsampled with. If &le; 0 then it's not downsampled.
+	 * @param maxDistance Associations which are farther apart than this are rejected.
+	 */
+	public void addLevel( double voxelSize, double maxDistance ) {
+		if( !(maxDistance > 0) )
+			throw new IllegalArgumentException("Maximum distance must be positive");
+		levels.add(new Level(voxelSize, maxDistance));
+	}
+
+	/**
+	 * Removes all the levels. The full resolution source will be used.
+	 */
+	public void clearLevels() {
+		levels.clear();
+	}
+
+	/**
+	 * Specifies the destination point cloud and builds the spatial index. If the metric is point-to-plane then
+	 * normals are estimated.
+	 *
+	 * @param dst Destination point cloud. A reference is saved and it must not be modified. Not modified.
+	 */
+	public void setDestination( PointCloud3D_F64 dst ) {
+		buildDestination(dst, false);
+	}
+
+	/**
+	 * Concurrent version of {@link #setDestination(PointCloud3D_F64)}
+	 */
+	public void setDestinationParallel( PointCloud3D_F64 dst ) {
+		buildDestination(dst, true);
+	}
+
+	private void buildDestination( PointCloud3D_F64 dst, boolean concurrent ) {
+		if( metric == Metric.POINT_TO_PLANE ) {
+			if( concurrent )
+				normalEstimator.processParallel(dst, normals, null);
+			else
+				normalEstimator.process(dst, normals, null);
+		} else if( concurrent ) {
+			index.setPointsParallel(dst);
+		} else {
+			index.setPoints(dst);
+		}
+	}
+
+	/**
+	 * Specifies the destination point cloud and its normals then builds the spatial index.
+	 *
+	 * @param dst Destination point cloud. A reference is saved and it must not be modified. Not modified.
+	 * @param normals Packed normals (x,y,z) of each destination point. Points with NaN normals are never
+	 * associated with. Not modified.
+	 */
+	public void setDestination( PointCloud3D_F64 dst, GrowQueue_F64 normals ) {
+		checkNormals(dst, normals);
+		this.normals.setTo(normals);
+		index.setPoints(dst);
+	}
+
+	/**
+	 * Concurrent version of {@link #setDestination(PointCloud3D_F64, GrowQueue_F64)}
+	 */
+	public void setDestinationParallel( PointCloud3D_F64 dst, GrowQueue_F64 normals ) {
+		checkNormals(dst, normals);
+		this.normals.setTo(normals);
+		index.setPointsParallel(dst);
+	}
+
+	private static void checkNormals( PointCloud3D_F64 dst, GrowQueue_F64 normals ) {
+		if( normals.size != dst.size*3 )
+			throw new IllegalArgumentException("Expected 3 normal values for each point");
+	}
+
+	/**
+	 * Specifies the destination points and builds the spatial index. The points are copied.
+	 *
+	 * @param dst Destination points. Not modified.
+	 */
+	public void setDestination( List<Point3D_F64> dst ) {
+		workDst.setTo(dst);
+		setDestination(workDst);
+	}
+
+	/**
+	 * Finds the motion which aligns the source with the destination
+	 *
+	 * @param src Source points. Not modified.
+	 * @param initialSrcToDst Initial estimate of the motion. If null the identity is used. Not modified.
+	 * @return true if a motion was found or false if there were too few associations
+	 */
+	public boolean process( List<Point3D_F64> src, @Nullable Se3_F64 initialSrcToDst ) {
+		workSrc.setTo(src);
+		return process(workSrc, initialSrcToDst);
+	}
+
+	/**
+	 * Concurrent version of {@link #process(List, Se3_F64)}
+	 */
+	public boolean processParallel( List<Point3D_F64> src, @Nullable Se3_F64 initialSrcToDst ) {
+		workSrc.setTo(src);
+		return processParallel(workSrc, initialSrcToDst);
+	}
+
+	/**
+	 * Finds the motion which aligns the source with the destination. The estimate is returned by
+	 * {@link #getSrcToDst()}.
+	 *
+	 * @param src Source point cloud. Not modified.
+	 * @param initialSrcToDst Initial estimate of the motion. If null the identity is used. Not modified.
+	 * @return true if a motion was found or false if there were too few associations
+	 */
+	public boolean process( PointCloud3D_F64 src, @Nullable Se3_F64 initialSrcToDst ) {
+		concurrent = false;
+		return register(src, initialSrcToDst);
+	}
+
+	/**
+	 * Concurrent version of {@link #process(PointCloud3D_F64, Se3_F64)}. Downsampling, association, and
+	 * accumulation are done in parallel. Results are the same as the single threaded version up to round off
+	 * errors from summing in a different order.
+	 */
+	public boolean processParallel( PointCloud3D_F64 src, @Nullable Se3_F64 initialSrcToDst ) {
+		concurrent = true;
+		return register(src, initialSrcToDst);
+	}
+
+	private boolean register( PointCloud3D_F64 src, @Nullable Se3_F64 initialSrcToDst ) {
+		if( metric == Metric.POINT_TO_PLANE && normals.size != index.getPoints().size*3 )
+			throw new IllegalArgumentException("Destination normals are not known. Specify the destination again.");
+		if( initialSrcToDst == null )
+			srcToDst.reset();
+		else
+			srcToDst.set(initialSrcToDst);
+		statistics.reset();
+		converged = false;
+
+		if( levels.isEmpty() )
+			return processLevel(0, src, maxDistance);
+
+		for (int level = 0; level < levels.size(); level++) {
+			Level l = levels.get(level);
+			PointCloud3D_F64 cloud = src;
+			if( l.voxelSize > 0 ) {
+				downsample.setVoxelSize(l.voxelSize);
+				if( concurrent )
+					downsample.processParallel(src, levelCloud);
+				else
+					downsample.process(src, levelCloud);
+				cloud = levelCloud;
+			}
+			converged = false;
+			if( !processLevel(level, cloud, l.maxDistance) )
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Runs ICP at a single level until it converges or the maximum number of iterations has been exceeded
+	 */
+	boolean processLevel( int level, PointCloud3D_F64 input, double maxDistance ) {
+		sortSpatially(input, sortedCloud);
+		PointCloud3D_F64 cloud = sortedCloud;
+		for (int iteration = 0; iteration < maxIterations; iteration++) {
+			IterationStats stats = statistics.grow();
+			stats.reset();
+			stats.level = level;
+			stats.iteration = iteration;
+
+			long time0 = System.nanoTime();
+			findAssociations(cloud, maxDistance);
+			double thresholdSq = selectThreshold(stats);
+			long time1 = System.nanoTime();
+			boolean success = computeMotion(thresholdSq, stats);
+			long time2 = System.nanoTime();
+
+			stats.timeAssociate = (time1 - time0)/1000000.0;
+			stats.timeMotion = (time2 - time1)/1000000.0;
+			if( !success )
+				return false;
+
+			// apply the change after the current estimate
+			srcToDst.concat(delta, tmp);
+			srcToDst.set(tmp);
+
+			stats.changeTranslation = delta.T.norm();
+			stats.changeAngle = rotationAngle(delta.R);
+			if( stats.changeTranslation <= convergenceTranslation && stats.changeAngle <= convergenceAngle ) {
+				converged = true;
+				break;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Copies the points into the output sorted along a Z-order curve through a coarse grid. Consecutive nearest
+	 * neighbor searches are then close to each other in space, which is much more cache friendly than searching
+	 * in an arbitrary order.
+	 */
+	void sortSpatially( PointCloud3D_F64 input, PointCloud3D_F64 output ) {
+		final int N = input.size;
+		final double[] data = input.data;
+		output.resize(N);
+		if( N == 0 )
+			return;
+
+		double x0 = Double.MAX_VALUE, y0 = Double.MAX_VALUE, z0 = Double.MAX_VALUE;
+		double x1 = -Double.MAX_VALUE, y1 = -Double.MAX_VALUE, z1 = -Double.MAX_VALUE;
+		for (int i = 0; i < N*3; i += 3) {
+			x0 = Math.min(x0, data[i]); x1 = Math.max(x1, data[i]);
+			y0 = Math.min(y0, data[i+1]); y1 = Math.max(y1, data[i+1]);
+			z0 = Math.min(z0, data[i+2]); z1 = Math.max(z1, data[i+2]);
+		}
+		double extent = Math.max(x1 - x0, Math.max(y1 - y0, z1 - z0));
+		double scale = extent > 0 ? SORT_CELLS/extent : 0;
+
+		// counting sort by the cell's position along the Z-order curve
+		cellStart.resize(SORT_CELLS*SORT_CELLS*SORT_CELLS + 1);
+		cellStart.fill(0);
+		pointCell.resize(N);
+		for (int i = 0; i < N; i++) {
+			int ix = (int)((data[i*3] - x0)*scale);
+			int iy = (int)((data[i*3+1] - y0)*scale);
+			int iz = (int)((data[i*3+2] - z0)*scale);
+			ix = ix < SORT_CELLS ? ix : SORT_CELLS - 1;
+			iy = iy < SORT_CELLS ? iy : SORT_CELLS - 1;
+			iz = iz < SORT_CELLS ? iz : SORT_CELLS - 1;
+			int cell = interleave(ix) | (interleave(iy) << 1) | (interleave(iz) << 2);
+			pointCell.data[i] = cell;
+			cellStart.data[cell + 1]++;
+		}
+		for (int i = 1; i < cellStart.size; i++) {
+			cellStart.data[i] += cellStart.data[i - 1];
+		}
+		final double[] out = output.data;
+		for (int i = 0; i < N; i++) {
+			int dst = cellStart.data[pointCell.data[i]]++;
+			out[dst*3] = data[i*3];
+			out[dst*3+1] = data[i*3+1];
+			out[dst*3+2] = data[i*3+2];
+		}
+	}
+
+	/**
+	 * Spreads out the lower bits so that there are two zeros between each bit
+	 */
+	static int interleave( int v ) {
+		v = (v | (v << 8)) & 0x0300F00F;
+		v = (v | (v << 4)) & 0x030C30C3;
+		v = (v | (v << 2)) & 0x09249249;
+		return v;
+	}
+
+	/**
+	 * Transforms the source by the current estimate and finds the closest destination point
+	 */
+	void findAssociations( PointCloud3D_F64 cloud, double maxDistance ) {
+		transformed.resize(cloud.size);
+		matches.resize(cloud.size);
+		distancesSq.resize(cloud.size);
+		if( concurrent ) {
+			GrlConcurrency.loopBlocks(0, cloud.size, BLOCK_SIZE, workspaces,
+					( w, idx0, idx1 ) -> findAssociations(w, cloud, maxDistance, idx0, idx1));
+		} else {
+			Workspace w = workspaces.acquire();
+			findAssociations(w, cloud, maxDistance, 0, cloud.size);
+			workspaces.release(w);
+		}
+	}
+
+	void findAssociations( Workspace w, PointCloud3D_F64 cloud, double maxDistance, int idx0, int idx1 ) {
+		final double[] R = srcToDst.R.data;
+		final double tx = srcToDst.T.x, ty = srcToDst.T.y, tz = srcToDst.T.z;
+		final double[] src = cloud.data;
+		final double[] dst = transformed.data;
+		final double[] dstNormals = normals.data;
+		final boolean planar = metric == Metric.POINT_TO_PLANE;
+
+		for (int i = idx0, idx = idx0*3; i < idx1; i++, idx += 3) {
+			double x = src[idx], y = src[idx+1], z = src[idx+2];
+			double px = R[0]*x + R[1]*y + R[2]*z + tx;
+			double py = R[3]*x + R[4]*y + R[5]*z + ty;
+			double pz = R[6]*x + R[7]*y + R[8]*z + tz;
+			dst[idx] = px;
+			dst[idx+1] = py;
+			dst[idx+2] = pz;
+
+			int match = w.search.findNearest(px, py, pz, maxDistance);
+			if( match >= 0 && planar && Double.isNaN(dstNormals[match*3]) )
+				match = -1;
+			matches.data[i] = match;
+			distancesSq.data[i] = match >= 0 ? w.search.getDistanceSq() : Double.NaN;
+		}
+	}
+
+	/**
+	 * Selects the maximum distance squared of an inlier. If all associations are used then this is infinite,
+	 * otherwise it's the distance of the farthest association which has not been trimmed.
+	 */
+	double selectThreshold( IterationStats stats ) {
+		sorted.reset();
+		for (int i = 0; i < matches.size; i++) {
+			if( matches.data[i] >= 0 )
+				sorted.add(distancesSq.data[i]);
+		}
+		stats.associated = sorted.size;
+
+		int keep = (int)(trimFraction*sorted.size);
+		if( keep >= sorted.size || sorted.size == 0 )
+			return Double.MAX_VALUE;
+		if( keep <= 0 )
+			return -1;
+		return QuickSelect.select(sorted.data, keep - 1, sorted.size);
+	}
+
+	/**
+	 * Computes the change in motion which best aligns the transformed source with the destination
+	 */
+	boolean computeMotion( double thresholdSq, IterationStats stats ) {
+		List<Workspace> all = workspaces.getAll();
+		for (int i = 0; i < all.size(); i++) {
+			all.get(i).reset();
+		}
+		if( concurrent ) {
+			GrlConcurrency.loopBlocks(0, matches.size, BLOCK_SIZE, workspaces,
+					( w, idx0, idx1 ) -> accumulate(w, thresholdSq, idx0, idx1));
+		} else {
+			Workspace w = workspaces.acquire();
+			accumulate(w, thresholdSq, 0, matches.size);
+			workspaces.release(w);
+		}
+
+		// combine the results from each thread. Workspaces created while accumulating are included
+		merged.reset();
+		for (int i = 0; i < all.size(); i++) {
+			merged.merge(all.get(i));
+		}
+		stats.inliers = merged.count;
+		double errorSq = metric == Metric.POINT_TO_POINT ? merged.sumErrorSq : merged.pointToPlane.getErrorSq();
+		stats.errorRms = merged.count > 0 ? Math.sqrt(errorSq/merged.count) : Double.NaN;
+
+		if( metric == Metric.POINT_TO_POINT ) {
+			if( !merged.pointToPoint.process() )
+				return false;
+			delta.set(merged.pointToPoint.getTransformSrcToDst());
+			return true;
+		} else {
+			if( !merged.pointToPlane.process() )
+				return false;
+			delta.set(merged.pointToPlane.getTransformSrcToDst());
+			return true;
+		}
+	}
+
+	void accumulate( Workspace w, double thresholdSq, int idx0, int idx1 ) {
+		final double[] src = transformed.data;
+		final double[] dst = index.getPoints().data;
+		final double[] dstNormals = normals.data;
+
+		for (int i = idx0; i < idx1; i++) {
+			int match = matches.data[i];
+			if( match < 0 || distancesSq.data[i] > thresholdSq )
+				continue;
+			double px = src[i*3], py = src[i*3+1], pz = src[i*3+2];
+			double qx = dst[match*3], qy = dst[match*3+1], qz = dst[match*3+2];
+			w.count++;
+
+			if( metric == Metric.POINT_TO_POINT ) {
+				w.pointToPoint.add(px, py, pz, qx, qy, qz);
+				w.sumErrorSq += distancesSq.data[i];
+			} else {
+				w.pointToPlane.add(px, py, pz, qx, qy, qz,
+						dstNormals[match*3], dstNormals[match*3+1], dstNormals[match*3+2]);
+			}
+		}
+	}
+
+	/**
+	 * Angle of the rotation encoded in the rotation matrix
+	 */
+	static double rotationAngle( DMatrixRMaj R ) {
+		double cos = (R.data[0] + R.data[4] + R.data[8] - 1.0)/2.0;
+		cos = Math.max(-1.0, Math.min(1.0, cos));
+		double angle = Math.acos(cos);
+		return angle;
+	}
+
+	/**
+	 * Estimated motion from the source to the destination
+	 */
+	public Se3_F64 getSrcToDst() {
+		return srcToDst;
+	}
+
+	/**
+	 * True if the motion converged at the last level before the maximum number of iterations was reached
+	 */
+	public boolean isConverged() {
+		return converged;
+	}
+
+	/**
+	 * Statistics for each iteration in the last call to process
+	 */
+	public FastQueue<IterationStats> getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Normals of the destination points, packed (x,y,z). Only used by point-to-plane.
+	 */
+	public GrowQueue_F64 getNormals() {
+		return normals;
+	}
+
+	/**
+	 * Used to estimate normals of the destination. Configure the neighborhood here.
+	 */
+	public EstimatePointCloudNormals_F64 getNormalEstimator() {
+		return normalEstimator;
+	}
+
+	public PointIndex3D_F64 getIndex() {
+		return index;
+	}
+
+	/**
+	 * Changes the spatial index. The destination must be specified again.
+	 */
+	public void setIndex( PointIndex3D_F64 index ) {
+		this.index = index;
+		this.normalEstimator = new EstimatePointCloudNormals_F64(index);
+		this.merged = new Workspace(index.createSearch());
+		workspaces.clear();
+	}
+
+	public Metric getMetric() {
+		return metric;
+	}
+
+	public void setMetric( Metric metric ) {
+		this.metric = metric;
+	}
+
+	public int getMaxIterations() {
+		return maxIterations;
+	}
+
+	public void setMaxIterations( int maxIterations ) {
+		this.maxIterations = maxIterations;
+	}
+
+	public double getConvergenceTranslation() {
+		return convergenceTranslation;
+	}
+
+	public double getConvergenceAngle() {
+		return convergenceAngle;
+	}
+
+	/**
+	 * Iterations stop when the change in translation and rotation are both less than these values
+	 *
+	 * @param translation Change in translation
+	 * @param angle Change in rotation in radians
+	 */
+	public void setConvergence( double translation, double angle ) {
+		this.convergenceTranslation = translation;
+		this.convergenceAngle = angle;
+	}
+
+	public double getMaxDistance() {
+		return maxDistance;
+	}
+
+	/**
+	 * Associations which are farther apart than this are rejected. Only used when no levels have been added.
+	 */
+	public void setMaxDistance( double maxDistance ) {
+		if( !(maxDistance > 0) )
+			throw new IllegalArgumentException("Maximum distance must be positive");
+		this.maxDistance = maxDistance;
+	}
+
+	public double getTrimFraction() {
+		return trimFraction;
+	}
+
+	/**
+	 * Only this fraction of the associations, the ones with the smallest distance, are used to estimate the motion.
+	 *
+	 * @param trimFraction Value from 0 to 1. Set to 1 to use all associations.
+	 */
+	public void setTrimFraction( double trimFraction ) {
+		if( !(trimFraction > 0 && trimFraction <= 1.0) )
+			throw new IllegalArgumentException("Trim fraction must be more than 0 and at most 1");
+		this.trimFraction = trimFraction;
+	}
+
+	/** Error metric which is minimized */
+	public enum Metric {
+		/** Distance between associated points */
+		POINT_TO_POINT,
+		/** Distance from the source point to the plane tangent to the destination point */
+		POINT_TO_PLANE
+	}
+
+	/**
+	 * A level in the coarse-to-fine schedule
+	 */
+	static class Level {
+		double voxelSize;
+		double maxDistance;
+
+		Level( double voxelSize, double maxDistance ) {
+			this.voxelSize = voxelSize;
+			this.maxDistance = maxDistance;
+		}
+	}
+
+	/**
+	 * Information on a single iteration
+	 */
+	public static class IterationStats {
+		/** Level in the coarse-to-fine schedule */
+		public int level;
+		/** Iteration inside the level */
+		public int iteration;
+		/** Number of source points which were associated with a destination point */
+		public int associated;
+		/** Number of associations which were used to estimate the motion */
+		public int inliers;
+		/** Root mean square error of inliers before the motion was updated */
+		public double errorRms;
+		/** Change in translation */
+		public double changeTranslation;
+		/** Change in rotation, radians */
+		public double changeAngle;
+		/** Time to transform the source, associate, and reject outliers in milliseconds */
+		public double timeAssociate;
+		/** Time to estimate the motion in milliseconds */
+		public double timeMotion;
+
+		public void reset() {
+			level = iteration = associated = inliers = 0;
+			errorRms = changeTranslation = changeAngle = Double.NaN;
+			timeAssociate = timeMotion = 0;
+		}
+	}
+
+	/**
+	 * Everything a thread needs to associate points and accumulate the motion
+	 */
+	static class Workspace {
+		PointIndex3D_F64.Search search;
+		MotionSe3PointAccumulator_F64 pointToPoint = new MotionSe3PointAccumulator_F64();
+		MotionSe3PointToPlane_F64 pointToPlane = new MotionSe3PointToPlane_F64();
+		// number of inliers
+		int count;
+		// sum of the point-to-point error squared of inliers
+		double sumErrorSq;
+
+		Workspace( PointIndex3D_F64.Search search ) {
+			this.search = search;
+		}
+
+		void reset() {
+			pointToPoint.reset();
+			pointToPlane.reset();
+			count = 0;
+			sumErrorSq = 0;
+		}
+
+		void merge( Workspace w ) {
+			pointToPoint.merge(w.pointToPoint);
+			pointToPlane.merge(w.pointToPlane);
+			count += w.count;
+			sumErrorSq += w.sumErrorSq;
+		}
+	}
+}
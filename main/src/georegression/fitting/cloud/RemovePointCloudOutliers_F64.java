@@ -0,0 +1,333 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.fitting.cloud;
+
+import georegression.index.KdTreePoint3D_F64;
+import georegression.index.PointIndex3D_F64;
+import georegression.misc.GrlConcurrency;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.point.PointCloud3D_F64;
+import org.ddogleg.struct.GrowQueue_B;
+import org.ddogleg.struct.GrowQueue_F64;
+import org.ddogleg.struct.GrowQueue_I32;
+
+import java.util.List;
+
+/**
+ * <p>
+ * Finds isolated points in a point cloud, which are typically caused by sensor noise, so that they can be removed
+ * before a model is fit. Instead of copying the points which are kept a mask is returned which indicates if each
+ * point is an inlier. Neighbors are found using a {@link PointIndex3D_F64} which is built from the cloud.
+ * </p>
+ *
+ * <p>
+ * Two criteria are supported:
+ * <dl>
+ * <dt>Statistical</dt>
+ * <dd>The mean distance of each point to its k-nearest neighbors is computed. A point is an outlier if its mean
+ * distance is more than the mean of all the points' mean distances plus a multiple of their standard
+ * deviation.</dd>
+ * <dt>Radius</dt>
+ * <dd>A point is an outlier if fewer than a minimum number of other points are inside a sphere centered
+ * around it.</dd>
+ * </dl>
+ * A point is never its own neighbor. Points are visited in the index's order, see
+ * {@link PointIndex3D_F64#getOrder()}, and the concurrent versions produce identical results.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class RemovePointCloudOutliers_F64 {
+	// minimum number of points processed by a thread. Each point requires a neighborhood search
+	private static final int BLOCK_SIZE = 500;
+
+	// spatial index used to find neighbors
+	PointIndex3D_F64 index;
+
+	// if true the statistical criteria is used, otherwise the radius criteria
+	boolean statistical = true;
+	// number of neighbors used to compute the mean distance
+	int numNeighbors = 10;
+	// number of standard deviations a point's mean distance can be from the mean
+	double stdevMultiplier = 1.0;
+	// radius of the sphere neighbors are counted inside of
+	double radius;
+	// minimum number of neighbors inside the sphere
+	int minNeighbors;
+
+	// mean distance to neighbors for each point
+	GrowQueue_F64 meanDistances = new GrowQueue_F64();
+	// number of neighbors inside the radius for each point
+	GrowQueue_I32 neighborCounts = new GrowQueue_I32();
+	// maximum mean distance of an inlier found by the statistical criteria
+	double threshold;
+
+	// the list of points is copied into this cloud
+	PointCloud3D_F64 work = new PointCloud3D_F64();
+
+	// neighborhood search for each thread
+	final GrlConcurrency.WorkspacePool<Workspace> workspaces =
+			new GrlConcurrency.WorkspacePool<>(() -> new Workspace(index.createSearch()));
+
+	/**
+	 * @param index Spatial index used to find the neighborhood of each point
+	 */
+	public RemovePointCloudOutliers_F64( PointIndex3D_F64 index ) {
+		this.index = index;
+	}
+
+	public RemovePointCloudOutliers_F64() {
+		this(new KdTreePoint3D_F64());
+	}
+
+	/**
+	 * Use the statistical criteria. Points with a mean distance to their neighbors greater than
+	 * mean + stdevMultiplier*stdev are outliers.
+	 *
+	 * @param numNeighbors Number of neighbors the mean distance is computed from. Must be at least 1.
+	 * @param stdevMultiplier Number of standard deviations. Smaller values remove more points.
+	 */
+	public void setStatistical( int numNeighbors, double stdevMultiplier ) {
+		if( numNeighbors < 1 )
+			throw new IllegalArgumentException("At least one neighbor is required");
+		this.statistical = true;
+		this.numNeighbors = numNeighbors;
+		this.stdevMultiplier = stdevMultiplier;
+	}
+
+	/**
+	 * Use the radius criteria. Points with fewer than the minimum number of neighbors inside the radius are
+	 * outliers.
+	 *
+	 * @param radius Radius of the sphere around each point
+	 * @param minNeighbors Minimum number of neighbors, not including the point itself
+	 */
+	public void setRadius( double radius, int minNeighbors ) {
+		if( !(radius > 0) )
+			throw new IllegalArgumentException("Radius must be positive");
+		if( minNeighbors < 0 )
+			throw new IllegalArgumentException("Minimum number of neighbors can't be negative");
+		this.statistical = false;
+		this.radius = radius;
+		this.minNeighbors = minNeighbors;
+	}
+
+	/**
+	 * Finds the outliers in a list of points
+	 *
+	 * @param points (Input) Points. Not modified.
+	 * @param inliers (Output) true if the point at the same index is an inlier. Modified.
+	 * @return Number of inliers
+	 */
+	public int process( List<Point3D_F64> points, GrowQueue_B inliers ) {
+		work.setTo(points);
+		return process(work, inliers);
+	}
+
+	/**
+	 * Finds the outliers in a point cloud. The spatial index is built from the cloud.
+	 *
+	 * @param cloud (Input) Points. Not modified.
+	 * @param inliers (Output) true if the point at the same index is an inlier. Modified.
+	 * @return Number of inliers
+	 */
+	public int process( PointCloud3D_F64 cloud, GrowQueue_B inliers ) {
+		index.setPoints(cloud);
+		resizeOutput(cloud.size);
+		final int[] order = index.getOrder();
+		Workspace w = workspaces.acquire();
+		for (int i = 0; i < cloud.size; i++) {
+			score(w, cloud, order[i]);
+		}
+		workspaces.release(w);
+		return selectInliers(inliers);
+	}
+
+	/**
+	 * Concurrent version of {@link #process(List, GrowQueue_B)}
+	 */
+	public int processParallel( List<Point3D_F64> points, GrowQueue_B inliers ) {
+		work.setTo(points);
+		return processParallel(work, inliers);
+	}
+
+	/**
+	 * Concurrent version of {@link #process(PointCloud3D_F64, GrowQueue_B)}. The index is built in parallel, then
+	 * points are split into blocks and each thread has its own search workspace.
+	 */
+	public int processParallel( PointCloud3D_F64 cloud, GrowQueue_B inliers ) {
+		index.setPointsParallel(cloud);
+		resizeOutput(cloud.size);
+		final int[] order = index.getOrder();
+		GrlConcurrency.loopBlocks(0, cloud.size, BLOCK_SIZE, workspaces, ( w, idx0, idx1 ) -> {
+			for (int i = idx0; i < idx1; i++) {
+				score(w, cloud, order[i]);
+			}
+		});
+		return selectInliers(inliers);
+	}
+
+	private void resizeOutput( int size ) {
+		if( statistical )
+			meanDistances.resize(size);
+		else
+			neighborCounts.resize(size);
+	}
+
+	/**
+	 * Computes the mean distance or number of neighbors for a single point
+	 */
+	void score( Workspace w, PointCloud3D_F64 cloud, int pointIndex ) {
+		final double[] data = cloud.data;
+		final double x = data[pointIndex*3], y = data[pointIndex*3+1], z = data[pointIndex*3+2];
+
+		if( statistical ) {
+			// the closest point is the point itself, or an identical point, so skip it
+			w.search.findNearest(x, y, z, Double.MAX_VALUE, numNeighbors + 1, w.indexes, w.distancesSq);
+			double sum = 0;
+			for (int i = 1; i < w.distancesSq.size; i++) {
+				sum += Math.sqrt(w.distancesSq.data[i]);
+			}
+			int count = w.distancesSq.size - 1;
+			meanDistances.data[pointIndex] = count > 0 ? sum/count : Double.NaN;
+		} else {
+			w.search.findWithinRadius(x, y, z, radius, w.indexes);
+			neighborCounts.data[pointIndex] = w.indexes.size - 1;
+		}
+	}
+
+	/**
+	 * Applies the criteria to the scores of every point
+	 */
+	int selectInliers( GrowQueue_B inliers ) {
+		int total = 0;
+		if( statistical ) {
+			final int N = meanDistances.size;
+			final double[] distances = meanDistances.data;
+
+			// mean and standard deviation of the mean distances. Points without neighbors are skipped
+			double sum = 0;
+			int count = 0;
+			for (int i = 0; i < N; i++) {
+				if( !Double.isNaN(distances[i]) ) {
+					sum += distances[i];
+					count++;
+				}
+			}
+			double mean = count > 0 ? sum/count : 0;
+			double variance = 0;
+			for (int i = 0; i < N; i++) {
+				if( !Double.isNaN(distances[i]) ) {
+					double d = distances[i] - mean;
+					variance += d*d;
+				}
+			}
+			double stdev = count > 0 ? Math.sqrt(variance/count) : 0;
+			threshold = mean + stdevMultiplier*stdev;
+
+			inliers.resize(N);
+			for (int i = 0; i < N; i++) {
+				// NaN will fail this test
+				boolean inlier = distances[i] <= threshold;
+				inliers.data[i] = inlier;
+				if( inlier )
+					total++;
+			}
+		} else {
+			final int N = neighborCounts.size;
+			inliers.resize(N);
+			for (int i = 0; i < N; i++) {
+				boolean inlier = neighborCounts.data[i] >= minNeighbors;
+				inliers.data[i] = inlier;
+				if( inlier )
+					total++;
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Mean distance of each point to its neighbors from the last call. NaN if a point has no neighbors.
+	 * Only computed by the statistical criteria.
+	 */
+	public GrowQueue_F64 getMeanDistances() {
+		return meanDistances;
+	}
+
+	/**
+	 * Number of neighbors inside the radius of each point from the last call. Only computed by the radius
+	 * criteria.
+	 */
+	public GrowQueue_I32 getNeighborCounts() {
+		return neighborCounts;
+	}
+
+	/**
+	 * Maximum mean distance of an inlier from the last call. Only computed by the statistical criteria.
+	 */
+	public double getThreshold() {
+		return threshold;
+	}
+
+	public PointIndex3D_F64 getIndex() {
+		return index;
+	}
+
+	/**
+	 * Changes the spatial index. Any search workspaces for the previous index are discarded.
+	 */
+	public void setIndex( PointIndex3D_F64 index ) {
+		this.index = index;
+		workspaces.clear();
+	}
+
+	public boolean isStatistical() {
+		return statistical;
+	}
+
+	public int getNumNeighbors() {
+		return numNeighbors;
+	}
+
+	public double getStdevMultiplier() {
+		return stdevMultiplier;
+	}
+
+	public double getRadius() {
+		return radius;
+	}
+
+	public int getMinNeighbors() {
+		return minNeighbors;
+	}
+
+	/**
+	 * Everything a thread needs to search the neighborhood of a point
+	 */
+	static class Workspace {
+		PointIndex3D_F64.Search search;
+		GrowQueue_I32 indexes = new GrowQueue_I32();
+		GrowQueue_F64 distancesSq = new GrowQueue_F64();
+
+		Workspace( PointIndex3D_F64.Search search ) {
+			this.search = search;
+		}
+	}
+}
@@ -0,0 +1,355 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.fitting.cloud;
+
+import georegression.index.VoxelHashMap;
+import georegression.misc.GrlConcurrency;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.point.PointCloud3D_F64;
+import org.ddogleg.struct.FastQueue;
+import org.ddogleg.struct.GrowQueue_F64;
+import org.ddogleg.struct.GrowQueue_I32;
+
+import java.util.List;
+
+/**
+ * <p>
+ * Reduces the density of a point cloud by dividing space into cubic voxels and replacing all the points
+ * inside a voxel with a single point. Depending on the {@link Mode} the output point is the centroid of
+ * the points in the voxel or the first point which landed in the voxel. Output points are ordered by the
+ * first input point in each voxel.
+ * </p>
+ *
+ * <p>
+ * Voxels are found with a {@link VoxelHashMap} so no memory is allocated per point. The grid starts at the
+ * lower corner of the cloud's bounding box and must have fewer than {@link VoxelHashMap#MAX_COORDINATE}
+ * voxels along each axis. All points must have finite coordinates.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class VoxelGridDownsample_F64 {
+	// minimum number of points processed by a thread
+	private static final int BLOCK_SIZE = 5_000;
+
+	/** Length of a side of a voxel */
+	double voxelSize;
+	/** How the output point for a voxel is selected */
+	Mode mode;
+
+	// look up table from voxel key to voxel index
+	VoxelHashMap map = new VoxelHashMap();
+
+	// index of the first input point in each voxel
+	GrowQueue_I32 firstPoint = new GrowQueue_I32();
+	// index of the voxel each input point belongs to
+	GrowQueue_I32 pointToVoxel = new GrowQueue_I32();
+	// sum of x,y,z for each voxel
+	GrowQueue_F64 sums = new GrowQueue_F64();
+	// number of points in each voxel
+	GrowQueue_I32 counts = new GrowQueue_I32();
+
+	// work space for the concurrent implementation
+	long[] keys = new long[0];
+	GrowQueue_I32 voxelStart = new GrowQueue_I32();
+	GrowQueue_I32 voxelPoints = new GrowQueue_I32();
+
+	// storage for when the input is a list
+	PointCloud3D_F64 work = new PointCloud3D_F64();
+
+	// lower corner of the grid
+	double x0, y0, z0;
+
+	public VoxelGridDownsample_F64( double voxelSize , Mode mode ) {
+		setVoxelSize(voxelSize);
+		this.mode = mode;
+	}
+
+	/**
+	 * Downsamples a list of points
+	 *
+	 * @param input Input points. Not modified.
+	 * @param output Storage for the downsampled points. Modified.
+	 */
+	public void process( List<Point3D_F64> input , FastQueue<Point3D_F64> output ) {
+		work.setTo(input);
+		process(work, work);
+		copyToList(work, output);
+	}
+
+	/**
+	 * Downsamples a packed point cloud
+	 *
+	 * @param input Input point cloud. Not modified unless it's the same instance as output.
+	 * @param output Storage for the downsampled cloud. Can be the same instance as the input. Modified.
+	 */
+	public void process( PointCloud3D_F64 input , PointCloud3D_F64 output ) {
+		final int N = input.size;
+		final double[] data = input.data;
+		initialize(input);
+		if( N == 0 ) {
+			output.reset();
+			return;
+		}
+		final double scale = 1.0/voxelSize;
+
+		sums.reset();
+		counts.reset();
+		pointToVoxel.resize(N);
+		for (int i = 0, idx = 0; i < N; i++, idx += 3) {
+			double x = data[idx], y = data[idx+1], z = data[idx+2];
+			long key = VoxelHashMap.key((int)((x - x0)*scale), (int)((y - y0)*scale), (int)((z - z0)*scale));
+			int voxel = map.putIfAbsent(key, firstPoint.size);
+			if( voxel == -1 ) {
+				voxel = firstPoint.size;
+				firstPoint.add(i);
+				if( mode == Mode.CENTROID ) {
+					sums.add(x);
+					sums.add(y);
+					sums.add(z);
+					counts.add(1);
+				}
+			} else if( mode == Mode.CENTROID ) {
+				sums.data[voxel*3  ] += x;
+				sums.data[voxel*3+1] += y;
+				sums.data[voxel*3+2] += z;
+				counts.data[voxel]++;
+			}
+			pointToVoxel.data[i] = voxel;
+		}
+
+		createOutput(input, output);
+	}
+
+	/**
+	 * Concurrent version of {@link #process(List, FastQueue)}.
+	 */
+	public void processParallel( List<Point3D_F64> input , FastQueue<Point3D_F64> output ) {
+		work.setTo(input);
+		processParallel(work, work);
+		copyToList(work, output);
+	}
+
+	/**
+	 * <p>
+	 * Concurrent version of {@link #process(PointCloud3D_F64, PointCloud3D_F64)}. The output is identical to
+	 * the single threaded version.
+	 * </p>
+	 *
+	 * <p>
+	 * Voxel keys are computed in parallel, then voxels are assigned in the calling thread since the order of
+	 * the output depends on the order of the input. Points are then sorted by voxel and the centroids are
+	 * computed in parallel, summing points in the same order as the single threaded version.
+	 * </p>
+	 */
+	public void processParallel( PointCloud3D_F64 input , PointCloud3D_F64 output ) {
+		final int N = input.size;
+		final double[] data = input.data;
+		initialize(input);
+		if( N == 0 ) {
+			output.reset();
+			return;
+		}
+		final double scale = 1.0/voxelSize;
+
+		if( keys.length < N )
+			keys = new long[N];
+		final long[] keys = this.keys;
+		GrlConcurrency.loopBlocks(0, N, BLOCK_SIZE, ( idx0, idx1 ) -> {
+			for (int i = idx0, idx = idx0*3; i < idx1; i++, idx += 3) {
+				keys[i] = VoxelHashMap.key((int)((data[idx  ] - x0)*scale),
+						(int)((data[idx+1] - y0)*scale), (int)((data[idx+2] - z0)*scale));
+			}
+		});
+
+		pointToVoxel.resize(N);
+		for (int i = 0; i < N; i++) {
+			int voxel = map.putIfAbsent(keys[i], firstPoint.size);
+			if( voxel == -1 ) {
+				voxel = firstPoint.size;
+				firstPoint.add(i);
+			}
+			pointToVoxel.data[i] = voxel;
+		}
+
+		if( mode == Mode.CENTROID )
+			computeCentroidsParallel(data, N);
+
+		createOutput(input, output);
+	}
+
+	/**
+	 * Sorts points by voxel using a counting sort then computes the sum of each voxel in parallel
+	 */
+	private void computeCentroidsParallel( double[] data , int N ) {
+		final int numVoxels = firstPoint.size;
+		counts.resize(numVoxels);
+		counts.fill(0);
+		for (int i = 0; i < N; i++) {
+			counts.data[pointToVoxel.data[i]]++;
+		}
+		voxelStart.resize(numVoxels + 1);
+		voxelStart.data[0] = 0;
+		for (int i = 0; i < numVoxels; i++) {
+			voxelStart.data[i + 1] = voxelStart.data[i] + counts.data[i];
+		}
+		// fill in the sorted list. voxelStart is shifted by one while filling and restored afterwards
+		voxelPoints.resize(N);
+		for (int i = 0; i < N; i++) {
+			voxelPoints.data[voxelStart.data[pointToVoxel.data[i]]++] = i;
+		}
+		for (int i = numVoxels; i > 0; i--) {
+			voxelStart.data[i] = voxelStart.data[i - 1];
+		}
+		voxelStart.data[0] = 0;
+
+		sums.resize(numVoxels*3);
+		final int[] start = voxelStart.data;
+		final int[] points = voxelPoints.data;
+		final double[] sums = this.sums.data;
+		GrlConcurrency.loopBlocks(0, numVoxels, BLOCK_SIZE/8, ( idx0, idx1 ) -> {
+			for (int voxel = idx0; voxel < idx1; voxel++) {
+				double sx = 0, sy = 0, sz = 0;
+				for (int i = start[voxel]; i < start[voxel + 1]; i++) {
+					int idx = points[i]*3;
+					sx += data[idx];
+					sy += data[idx+1];
+					sz += data[idx+2];
+				}
+				sums[voxel*3  ] = sx;
+				sums[voxel*3+1] = sy;
+				sums[voxel*3+2] = sz;
+			}
+		});
+	}
+
+	/**
+	 * Finds the lower corner of the grid and resets data structures
+	 */
+	private void initialize( PointCloud3D_F64 input ) {
+		map.reset();
+		firstPoint.reset();
+		final int N = input.size;
+		if( N == 0 ) {
+			pointToVoxel.reset();
+			return;
+		}
+		final double[] data = input.data;
+		double minX = data[0], minY = data[1], minZ = data[2];
+		double maxX = minX, maxY = minY, maxZ = minZ;
+		for (int i = 3; i < N*3; i += 3) {
+			double x = data[i], y = data[i+1], z = data[i+2];
+			if( x < minX ) minX = x; else if( x > maxX ) maxX = x;
+			if( y < minY ) minY = y; else if( y > maxY ) maxY = y;
+			if( z < minZ ) minZ = z; else if( z > maxZ ) maxZ = z;
+		}
+		double maxLength = Math.max(maxX - minX, Math.max(maxY - minY, maxZ - minZ));
+		if( !(maxLength/voxelSize < VoxelHashMap.MAX_COORDINATE - 1) )
+			throw new IllegalArgumentException("Too many voxels along an axis. Increase the voxel size.");
+		x0 = minX;
+		y0 = minY;
+		z0 = minZ;
+	}
+
+	/**
+	 * Writes the point selected for each voxel into the output. This is safe when the input and output
+	 * are the same instance since voxel i's first point has an index &ge; i.
+	 */
+	private void createOutput( PointCloud3D_F64 input , PointCloud3D_F64 output ) {
+		final int numVoxels = firstPoint.size;
+		final double[] src = input.data;
+		if( output != input )
+			output.reserve(numVoxels);
+		final double[] dst = output.data;
+		if( mode == Mode.CENTROID ) {
+			for (int i = 0; i < numVoxels; i++) {
+				double n = counts.data[i];
+				dst[i*3  ] = sums.data[i*3  ]/n;
+				dst[i*3+1] = sums.data[i*3+1]/n;
+				dst[i*3+2] = sums.data[i*3+2]/n;
+			}
+		} else {
+			for (int i = 0; i < numVoxels; i++) {
+				int idx = firstPoint.data[i]*3;
+				dst[i*3  ] = src[idx];
+				dst[i*3+1] = src[idx+1];
+				dst[i*3+2] = src[idx+2];
+			}
+		}
+		output.size = numVoxels;
+	}
+
+	private static void copyToList( PointCloud3D_F64 cloud , FastQueue<Point3D_F64> output ) {
+		output.reset();
+		for (int i = 0; i < cloud.size; i++) {
+			int idx = i*3;
+			output.grow().set(cloud.data[idx], cloud.data[idx+1], cloud.data[idx+2]);
+		}
+	}
+
+	/**
+	 * Number of voxels which contained at least one point in the most recently processed cloud
+	 */
+	public int getVoxelCount() {
+		return firstPoint.size;
+	}
+
+	/**
+	 * Index of the first input point in each occupied voxel. Ordered the same as the output.
+	 */
+	public GrowQueue_I32 getFirstPoint() {
+		return firstPoint;
+	}
+
+	/**
+	 * Index of the output point which each input point was assigned to
+	 */
+	public GrowQueue_I32 getPointToVoxel() {
+		return pointToVoxel;
+	}
+
+	public double getVoxelSize() {
+		return voxelSize;
+	}
+
+	public void setVoxelSize( double voxelSize ) {
+		if( !(voxelSize > 0) )
+			throw new IllegalArgumentException("Voxel size must be positive");
+		this.voxelSize = voxelSize;
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	public void setMode( Mode mode ) {
+		this.mode = mode;
+	}
+
+	/**
+	 * Specifies which point is used to represent a voxel
+	 */
+	public enum Mode {
+		/** Mean of all the points inside the voxel */
+		CENTROID,
+		/** The first point in the input which is inside the voxel */
+		FIRST
+	}
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.fitting.curves;
+
+import georegression.fitting.sphere.AlgebraicHypersphere_F64;
+import georegression.struct.point.Point2D_F64;
+import georegression.struct.trig.Circle2D_F64;
+import org.ejml.data.DMatrixRMaj;
+
+import java.util.List;
+
+/**
+ * <p>
+ * Closed form algebraic fit of a circle to 2D points. Moments of the points are accumulated in a single pass
+ * and the circle is then found from the moments using {@link AlgebraicHypersphere_F64}. Unlike
+ * {@link georegression.geometry.UtilCircle2D_F64#circle} it can use any number of points. Partial sums computed from
+ * different subsets of the points, e.g. by different threads, can be combined using {@link #merge}.
+ * </p>
+ *
+ * <p>
+ * To avoid loss of precision the moments are computed relative to an origin which is initially the first point.
+ * When a circle is fit the origin is moved to the mean of the points. Neither affects the points which have been
+ * accumulated.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class FitCircleAlgebraic_F64 {
+	// origin the sums are relative to
+	double originX, originY;
+
+	// number of points
+	int N;
+	// sum of p
+	double sx, sy;
+	// sum of p*p'
+	double sxx, sxy, syy;
+	// sum of |p|^2*p
+	double rx, ry;
+	// sum of |p|^4
+	double w;
+
+	// used to compute the circle from moments
+	AlgebraicHypersphere_F64 solver;
+
+	// centered moments
+	DMatrixRMaj covariance = new DMatrixRMaj(2, 2);
+	double[] moment3 = new double[2];
+
+	/**
+	 * @param method Which algebraic constraint is used
+	 */
+	public FitCircleAlgebraic_F64( AlgebraicHypersphere_F64.Method method ) {
+		solver = new AlgebraicHypersphere_F64(method, 2);
+	}
+
+	/**
+	 * Uses {@link AlgebraicHypersphere_F64.Method#TAUBIN}
+	 */
+	public FitCircleAlgebraic_F64() {
+		this(AlgebraicHypersphere_F64.Method.TAUBIN);
+	}
+
+	/**
+	 * Discards all the points
+	 */
+	public void reset() {
+		N = 0;
+		originX = originY = 0;
+		sx = sy = 0;
+		sxx = sxy = syy = 0;
+		rx = ry = 0;
+		w = 0;
+	}
+
+	/**
+	 * Adds a point to the sums
+	 */
+	public void add( double x, double y ) {
+		if( N == 0 ) {
+			originX = x;
+			originY = y;
+		}
+		x -= originX;
+		y -= originY;
+
+		double xx = x*x, yy = y*y;
+		double r2 = xx + yy;
+
+		N++;
+		sx += x;
+		sy += y;
+		sxx += xx;
+		sxy += x*y;
+		syy += yy;
+		rx += r2*x;
+		ry += r2*y;
+		w += r2*r2;
+	}
+
+	public void add( Point2D_F64 p ) {
+		add(p.x, p.y);
+	}
+
+	public void addAll( List<Point2D_F64> points ) {
+		for (int i = 0; i < points.size(); i++) {
+			Point2D_F64 p = points.get(i);
+			add(p.x, p.y);
+		}
+	}
+
+	/**
+	 * Adds points from a packed array, e.g. (x0,y0,x1,y1,...)
+	 *
+	 * @param points Packed array of points. Not modified.
+	 * @param offset Index of the first element in the array
+	 * @param numPoints Number of points which are to be added
+	 */
+	public void addAll( double[] points, int offset, int numPoints ) {
+		final int end = offset + numPoints*2;
+		for (int i = offset; i < end; i += 2) {
+			add(points[i], points[i + 1]);
+		}
+	}
+
+	/**
+	 * Adds all the points in 'src' to this. The two can have been computed using different origins.
+	 *
+	 * @param src Sums which are to be added. Not modified.
+	 */
+	public void merge( FitCircleAlgebraic_F64 src ) {
+		if( src.N == 0 )
+			return;
+		if( N == 0 ) {
+			setTo(src);
+			return;
+		}
+
+		moveOrigin(src.originX, src.originY);
+
+		N += src.N;
+		sx += src.sx;
+		sy += src.sy;
+		sxx += src.sxx;
+		sxy += src.sxy;
+		syy += src.syy;
+		rx += src.rx;
+		ry += src.ry;
+		w += src.w;
+	}
+
+	/**
+	 * Copies the sums from 'src'. The fitting method is not copied.
+	 */
+	public void setTo( FitCircleAlgebraic_F64 src ) {
+		originX = src.originX;
+		originY = src.originY;
+		N = src.N;
+		sx = src.sx;
+		sy = src.sy;
+		sxx = src.sxx;
+		sxy = src.sxy;
+		syy = src.syy;
+		rx = src.rx;
+		ry = src.ry;
+		w = src.w;
+	}
+
+	/**
+	 * Changes the origin the sums are relative to without changing the points they describe.
+	 */
+	void moveOrigin( double x, double y ) {
+		// translation in the current coordinate system
+		double dx = x - originX, dy = y - originY;
+		double c = dx*dx + dy*dy;
+
+		// Q*d, d'*P, trace(Q)
+		double qdx = sxx*dx + sxy*dy;
+		double qdy = sxy*dx + syy*dy;
+		double dP = dx*sx + dy*sy;
+		double trace = sxx + syy;
+
+		// each update only depends on sums of equal or lower order, so update the highest order first
+		w += 4.0*(dx*qdx + dy*qdy) + N*c*c - 4.0*(dx*rx + dy*ry) + 2.0*c*trace - 4.0*c*dP;
+
+		rx += -trace*dx - 2.0*qdx + 2.0*dP*dx + c*sx - N*c*dx;
+		ry += -trace*dy - 2.0*qdy + 2.0*dP*dy + c*sy - N*c*dy;
+
+		sxx += -2.0*sx*dx + N*dx*dx;
+		sxy += -sx*dy - dx*sy + N*dx*dy;
+		syy += -2.0*sy*dy + N*dy*dy;
+
+		sx -= N*dx;
+		sy -= N*dy;
+
+		originX = x;
+		originY = y;
+	}
+
+	/**
+	 * Fits a circle to all the points which have been added.
+	 *
+	 * @param found (Output) the found circle. Modified.
+	 * @return true if successful or false if there are too few points or they are degenerate
+	 */
+	public boolean process( Circle2D_F64 found ) {
+		if( N < 3 )
+			return false;
+
+		// Move the origin to the mean so that the moments are centered
+		moveOrigin(originX + sx/N, originY + sy/N);
+
+		covariance.data[0] = sxx/N;
+		covariance.data[1] = covariance.data[2] = sxy/N;
+		covariance.data[3] = syy/N;
+		moment3[0] = rx/N;
+		moment3[1] = ry/N;
+
+		if( !solver.process(covariance, moment3, w/N) )
+			return false;
+
+		double[] center = solver.getCenter();
+		found.center.set(originX + center[0], originY + center[1]);
+		found.radius = solver.getRadius();
+		return true;
+	}
+
+	/**
+	 * Fits a circle to a list of points. Any previously added points are discarded.
+	 */
+	public boolean process( List<Point2D_F64> points, Circle2D_F64 found ) {
+		reset();
+		addAll(points);
+		return process(found);
+	}
+
+	/**
+	 * Number of points which have been added
+	 */
+	public int size() {
+		return N;
+	}
+
+	public AlgebraicHypersphere_F64.Method getMethod() {
+		return solver.getMethod();
+	}
+
+	public void setMethod( AlgebraicHypersphere_F64.Method method ) {
+		solver.setMethod(method);
+	}
+}
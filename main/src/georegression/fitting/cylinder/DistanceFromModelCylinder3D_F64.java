@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.fitting.cylinder;
+
+import georegression.fitting.DistanceFromModelPacked_F64;
+import georegression.fitting.InlierCountOps_F64;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.shapes.Cylinder3D_F64;
+
+import java.util.List;
+
+/**
+ * Computes the absolute Euclidean distance of 3D points from the surface of a {@link Cylinder3D_F64}, i.e.
+ * the difference between the point's distance from the axis and the radius. The axis' slope is normalized once
+ * in {@link #setModel}. When counting inliers the threshold is converted into bounds on the squared distance
+ * from the axis, so no square root is needed.
+ *
+ * @author Peter Abeles
+ */
+public class DistanceFromModelCylinder3D_F64
+		implements DistanceFromModelPacked_F64<Cylinder3D_F64,Point3D_F64> {
+
+	// point on the axis
+	private double px,py,pz;
+	// unit vector along the axis
+	private double sx,sy,sz;
+	private double radius;
+
+	// bounds on the squared distance of an inlier, used by countOutliers()
+	private double middleSq, halfSq;
+	private final InlierCountOps_F64.BlockOutliers blockOutliers = this::countOutliers;
+
+	@Override
+	public void setModel( Cylinder3D_F64 cylinder ) {
+		px = cylinder.line.p.x;
+		py = cylinder.line.p.y;
+		pz = cylinder.line.p.z;
+		double n = cylinder.line.slope.norm();
+		sx = cylinder.line.slope.x/n;
+		sy = cylinder.line.slope.y/n;
+		sz = cylinder.line.slope.z/n;
+		radius = cylinder.radius;
+	}
+
+	/**
+	 * Squared distance of the point from the cylinder's axis
+	 */
+	private double axisDistanceSq( double x, double y, double z ) {
+		double dx = x - px, dy = y - py, dz = z - pz;
+		double b = dx*sx + dy*sy + dz*sz;
+		double d2 = dx*dx + dy*dy + dz*dz - b*b;
+		// round off error can make it go negative when very close to zero
+		return d2 < 0 ? 0 : d2;
+	}
+
+	@Override
+	public /**/double computeDistance( Point3D_F64 p ) {
+		return Math.abs(Math.sqrt(axisDistanceSq(p.x, p.y, p.z)) - radius);
+	}
+
+	@Override
+	public void computeDistance( List<Point3D_F64> points, /**/double[] distance ) {
+		for (int i = 0; i < points.size(); i++) {
+			distance[i] = computeDistance(points.get(i));
+		}
+	}
+
+	@Override
+	public void computeDistance( double[] points, int numPoints, double[] distance ) {
+		for (int i = 0, j = 0; i < numPoints; i++, j += 3) {
+			double d2 = axisDistanceSq(points[j], points[j+1], points[j+2]);
+			distance[i] = Math.abs(Math.sqrt(d2) - radius);
+		}
+	}
+
+	@Override
+	public int countInliers( double[] points, int numPoints, double threshold, int mustBeat ) {
+		// |d - r| <= t  is the same as  max(0,r-t)^2 <= d^2 <= (r+t)^2
+		final double lower = radius - threshold;
+		final double upper = radius + threshold;
+		final double lowerSq = lower > 0 ? lower*lower : 0;
+		final double upperSq = upper*upper;
+		// the range check is done with a single comparison against the interval's center
+		middleSq = (lowerSq + upperSq)/2;
+		halfSq = (upperSq - lowerSq)/2;
+
+		return InlierCountOps_F64.countInliers(points, numPoints, mustBeat, blockOutliers);
+	}
+
+	private int countOutliers( double[] points, int start, int end ) {
+		final double middleSq = this.middleSq, halfSq = this.halfSq;
+		int outliers = 0;
+		for (int i = start, j = start*3; i < end; i++, j += 3) {
+			double d2 = axisDistanceSq(points[j], points[j+1], points[j+2]);
+			outliers += Math.abs(d2 - middleSq) <= halfSq ? 0 : 1;
+		}
+		return outliers;
+	}
+
+	@Override
+	public int getPackedLength() {
+		return 3;
+	}
+
+	@Override
+	public Class<Point3D_F64> getPointType() {
+		return Point3D_F64.class;
+	}
+
+	@Override
+	public Class<Cylinder3D_F64> getModelType() {
+		return Cylinder3D_F64.class;
+	}
+}
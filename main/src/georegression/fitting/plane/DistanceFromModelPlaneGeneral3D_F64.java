@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.fitting.plane;
+
+import georegression.fitting.DistanceFromModelPacked_F64;
+import georegression.fitting.InlierCountOps_F64;
+import georegression.struct.plane.PlaneGeneral3D_F64;
+import georegression.struct.point.Point3D_F64;
+
+import java.util.List;
+
+/**
+ * Computes the absolute Euclidean distance of 3D points from a {@link PlaneGeneral3D_F64}. The plane's normal
+ * is normalized once in {@link #setModel} so that each point only requires a dot product.
+ *
+ * @author Peter Abeles
+ */
+public class DistanceFromModelPlaneGeneral3D_F64
+		implements DistanceFromModelPacked_F64<PlaneGeneral3D_F64,Point3D_F64> {
+
+	// plane with a unit normal
+	private double A,B,C,D;
+
+	// inlier threshold used by countOutliers()
+	private double threshold;
+	private final InlierCountOps_F64.BlockOutliers blockOutliers = this::countOutliers;
+
+	@Override
+	public void setModel( PlaneGeneral3D_F64 plane ) {
+		double norm = Math.sqrt(plane.A*plane.A + plane.B*plane.B + plane.C*plane.C);
+		A = plane.A/norm;
+		B = plane.B/norm;
+		C = plane.C/norm;
+		D = plane.D/norm;
+	}
+
+	@Override
+	public /**/double computeDistance( Point3D_F64 p ) {
+		return Math.abs(A*p.x + B*p.y + C*p.z - D);
+	}
+
+	@Override
+	public void computeDistance( List<Point3D_F64> points, /**/double[] distance ) {
+		for (int i = 0; i < points.size(); i++) {
+			Point3D_F64 p = points.get(i);
+			distance[i] = Math.abs(A*p.x + B*p.y + C*p.z - D);
+		}
+	}
+
+	@Override
+	public void computeDistance( double[] points, int numPoints, double[] distance ) {
+		final double A = this.A, B = this.B, C = this.C, D = this.D;
+		for (int i = 0, j = 0; i < numPoints; i++, j += 3) {
+			distance[i] = Math.abs(A*points[j] + B*points[j+1] + C*points[j+2] - D);
+		}
+	}
+
+	@Override
+	public int countInliers( double[] points, int numPoints, double threshold, int mustBeat ) {
+		this.threshold = threshold;
+		return InlierCountOps_F64.countInliers(points, numPoints, mustBeat, blockOutliers);
+	}
+
+	private int countOutliers( double[] points, int start, int end ) {
+		final double A = this.A, B = this.B, C = this.C, D = this.D, threshold = this.threshold;
+		int outliers = 0;
+		for (int i = start, j = start*3; i < end; i++, j += 3) {
+			double d = A*points[j] + B*points[j+1] + C*points[j+2] - D;
+			outliers += Math.abs(d) <= threshold ? 0 : 1;
+		}
+		return outliers;
+	}
+
+	@Override
+	public int getPackedLength() {
+		return 3;
+	}
+
+	@Override
+	public Class<Point3D_F64> getPointType() {
+		return Point3D_F64.class;
+	}
+
+	@Override
+	public Class<PlaneGeneral3D_F64> getModelType() {
+		return PlaneGeneral3D_F64.class;
+	}
+}
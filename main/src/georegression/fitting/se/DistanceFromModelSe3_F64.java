@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.fitting.se;
+
+import georegression.fitting.DistanceFromModelPacked_F64;
+import georegression.fitting.InlierCountOps_F64;
+import georegression.struct.point.AssociatedPair3D_F64;
+import georegression.struct.se.Se3_F64;
+import org.ejml.data.DMatrixRMaj;
+
+import java.util.List;
+
+/**
+ * Computes the Euclidean distance between the 'dst' point and the 'src' point after it has been transformed
+ * by the motion model, i.e. ||dst - (R*src + T)||. In the packed format each pair is stored as 6 elements,
+ * (src.x,src.y,src.z,dst.x,dst.y,dst.z). Inliers are counted using the squared distance.
+ *
+ * @author Peter Abeles
+ */
+public class DistanceFromModelSe3_F64
+		implements DistanceFromModelPacked_F64<Se3_F64,AssociatedPair3D_F64> {
+
+	// local copy of the motion to avoid going through the matrix object
+	private double r11,r12,r13,r21,r22,r23,r31,r32,r33;
+	private double tx,ty,tz;
+
+	// squared inlier threshold used by countOutliers()
+	private double thresholdSq;
+	private final InlierCountOps_F64.BlockOutliers blockOutliers = this::countOutliers;
+
+	@Override
+	public void setModel( Se3_F64 motion ) {
+		DMatrixRMaj R = motion.R;
+		r11 = R.data[0]; r12 = R.data[1]; r13 = R.data[2];
+		r21 = R.data[3]; r22 = R.data[4]; r23 = R.data[5];
+		r31 = R.data[6]; r32 = R.data[7]; r33 = R.data[8];
+		tx = motion.T.x;
+		ty = motion.T.y;
+		tz = motion.T.z;
+	}
+
+	/**
+	 * Squared distance between dst and the transformed src
+	 */
+	private double distanceSq( double x, double y, double z, double dstX, double dstY, double dstZ ) {
+		double dx = dstX - (r11*x + r12*y + r13*z + tx);
+		double dy = dstY - (r21*x + r22*y + r23*z + ty);
+		double dz = dstZ - (r31*x + r32*y + r33*z + tz);
+		return dx*dx + dy*dy + dz*dz;
+	}
+
+	@Override
+	public /**/double computeDistance( AssociatedPair3D_F64 pair ) {
+		return Math.sqrt(distanceSq(pair.src.x, pair.src.y, pair.src.z, pair.dst.x, pair.dst.y, pair.dst.z));
+	}
+
+	@Override
+	public void computeDistance( List<AssociatedPair3D_F64> pairs, /**/double[] distance ) {
+		for (int i = 0; i < pairs.size(); i++) {
+			distance[i] = computeDistance(pairs.get(i));
+		}
+	}
+
+	@Override
+	public void computeDistance( double[] points, int numPoints, double[] distance ) {
+		for (int i = 0, j = 0; i < numPoints; i++, j += 6) {
+			distance[i] = Math.sqrt(distanceSq(
+					points[j  ], points[j+1], points[j+2],
+					points[j+3], points[j+4], points[j+5]));
+		}
+	}
+
+	@Override
+	public int countInliers( double[] points, int numPoints, double threshold, int mustBeat ) {
+		thresholdSq = threshold*threshold;
+		return InlierCountOps_F64.countInliers(points, numPoints, mustBeat, blockOutliers);
+	}
+
+	private int countOutliers( double[] points, int start, int end ) {
+		final double thresholdSq = this.thresholdSq;
+		int outliers = 0;
+		for (int i = start, j = start*6; i < end; i++, j += 6) {
+			double d2 = distanceSq(
+					points[j  ], points[j+1], points[j+2],
+					points[j+3], points[j+4], points[j+5]);
+			outliers += d2 <= thresholdSq ? 0 : 1;
+		}
+		return outliers;
+	}
+
+	@Override
+	public int getPackedLength() {
+		return 6;
+	}
+
+	@Override
+	public Class<AssociatedPair3D_F64> getPointType() {
+		return AssociatedPair3D_F64.class;
+	}
+
+	@Override
+	public Class<Se3_F64> getModelType() {
+		return Se3_F64.class;
+	}
+}
@@ -18,22 +18,19 @@
 
 package georegression.fitting.se;
 
-import georegression.fitting.MotionTransformPoint;
+import georegression.fitting.MotionTransformPointBatch;
 import georegression.geometry.GeometryMath_F64;
-import georegression.geometry.UtilPoint2D_F64;
+import georegression.misc.GrlConcurrency;
 import georegression.struct.point.Point2D_F64;
 import georegression.struct.se.Se2_F64;
-import org.ejml.data.DMatrixRMaj;
-import org.ejml.dense.row.CommonOps_DDRM;
-import org.ejml.dense.row.factory.DecompositionFactory_DDRM;
-import org.ejml.interfaces.decomposition.SingularValueDecomposition;
 
+import javax.annotation.Nullable;
 import java.util.List;
 
 /**
  * <p>
  * Finds the rigid body motion which minimizes the different between the two sets of associated points in 2D.  The
- * rotation is computed from the SVD of a cross correlation matrix.
+ * rotation is computed from the SVD of a cross correlation matrix, which for a 2x2 matrix is found in closed form.
  * </p>
  * <p>
  * The mean square error function that is minimized is:<br>
@@ -48,19 +45,16 @@ import java.util.List;
  *
  * @author Peter Abeles
  */
-public class MotionSe2PointSVD_F64 implements MotionTransformPoint<Se2_F64, Point2D_F64> {
+public class MotionSe2PointSVD_F64 implements MotionTransformPointBatch<Se2_F64, Point2D_F64> {
+
+	// Minimum number of samples processed by a thread in a batch
+	static final int BATCH_BLOCK_SIZE = 200;
 
 	Se2_F64 motion = new Se2_F64();
 
 	Point2D_F64 meanFrom = new Point2D_F64();
 	Point2D_F64 meanTo = new Point2D_F64();
 
-	SingularValueDecomposition<DMatrixRMaj> svd = DecompositionFactory_DDRM.svd(2,2,true,true,false);
-	DMatrixRMaj Sigma = new DMatrixRMaj(2,2);
-	DMatrixRMaj U = new DMatrixRMaj(2,2);
-	DMatrixRMaj V = new DMatrixRMaj(2,2);
-	DMatrixRMaj R = new DMatrixRMaj(2,2);
-
 	@Override
 	public Se2_F64 getTransformSrcToDst() {
 		return motion;
@@ -71,11 +65,70 @@ public class MotionSe2PointSVD_F64 implements MotionTransformPoint<Se2_F64, Poin
 		if( srcPts.size() != dstPts.size() )
 			throw new IllegalArgumentException( "There must be a 1 to 1 correspondence between the two sets of points" );
 
-		// find the mean of both sets of points
-		UtilPoint2D_F64.mean(srcPts, meanFrom );
-		UtilPoint2D_F64.mean(dstPts, meanTo );
+		return process(srcPts, dstPts, null, 0, srcPts.size());
+	}
+
+	@Override
+	public void processBatch( List<Point2D_F64> srcPts, List<Point2D_F64> dstPts,
+							  int[] samples, int sampleSize, int numSamples,
+							  Se2_F64[] models, boolean[] success ) {
+		checkBatchArguments(srcPts, dstPts, sampleSize);
+		processBatch(srcPts, dstPts, samples, sampleSize, 0, numSamples, models, success);
+	}
+
+	@Override
+	public void processBatchParallel( List<Point2D_F64> srcPts, List<Point2D_F64> dstPts,
+									  int[] samples, int sampleSize, int numSamples,
+									  Se2_F64[] models, boolean[] success ) {
+		checkBatchArguments(srcPts, dstPts, sampleSize);
+		GrlConcurrency.loopBlocks(0, numSamples, BATCH_BLOCK_SIZE, ( idx0, idx1 ) ->
+				new MotionSe2PointSVD_F64().processBatch(srcPts, dstPts, samples, sampleSize, idx0, idx1, models, success));
+	}
+
+	private void checkBatchArguments( List<Point2D_F64> srcPts, List<Point2D_F64> dstPts, int sampleSize ) {
+		if( srcPts.size() != dstPts.size() )
+			throw new IllegalArgumentException( "There must be a 1 to 1 correspondence between the two sets of points" );
+		if( sampleSize < getMinimumPoints() )
+			throw new IllegalArgumentException( "Sample size must be at least "+getMinimumPoints() );
+	}
 
-		final int N = srcPts.size();
+	/**
+	 * Fits a model to samples in the range [sample0, sample1)
+	 */
+	void processBatch( List<Point2D_F64> srcPts, List<Point2D_F64> dstPts,
+					   int[] samples, int sampleSize, int sample0, int sample1,
+					   Se2_F64[] models, boolean[] success ) {
+		for (int i = sample0; i < sample1; i++) {
+			success[i] = process(srcPts, dstPts, samples, i*sampleSize, sampleSize);
+			if( success[i] )
+				models[i].set(motion);
+		}
+	}
+
+	/**
+	 * Computes the motion using a subset of the points
+	 *
+	 * @param indexes Indexes of points that are used. If null then points are used in sequential order.
+	 * @param offset Index of the first element in indexes or the first point if indexes is null
+	 * @param N Number of points used
+	 */
+	boolean process( List<Point2D_F64> srcPts, List<Point2D_F64> dstPts, @Nullable int[] indexes, int offset, int N ) {
+		// find the mean of both sets of points
+		meanFrom.set(0,0);
+		meanTo.set(0,0);
+		for( int i = 0; i < N; i++ ) {
+			int index = indexes == null ? offset + i : indexes[offset + i];
+			Point2D_F64 f = srcPts.get( index );
+			Point2D_F64 t = dstPts.get( index );
+			meanFrom.x += f.x;
+			meanFrom.y += f.y;
+			meanTo.x += t.x;
+			meanTo.y += t.y;
+		}
+		meanFrom.x /= N;
+		meanFrom.y /= N;
+		meanTo.x /= N;
+		meanTo.y /= N;
 
 		// compute the cross-covariance matrix Sigma of the two sets of points
 		// Sigma = (1/N)*sum(i=1:N,[p*x^T]) + mu_p*mu_x^T
@@ -88,8 +141,9 @@ public class MotionSe2PointSVD_F64 implements MotionTransformPoint<Se2_F64, Poin
 		double m21 = meanFrom.y * meanTo.x, m22 = meanFrom.y * meanTo.y;
 
 		for( int i = 0; i < N; i++ ) {
-			Point2D_F64 f = srcPts.get( i );
-			Point2D_F64 t = dstPts.get( i );
+			int index = indexes == null ? offset + i : indexes[offset + i];
+			Point2D_F64 f = srcPts.get( index );
+			Point2D_F64 t = dstPts.get( index );
 
 			s11 += f.x * t.x;
 			s12 += f.x * t.y;
@@ -102,34 +156,10 @@ public class MotionSe2PointSVD_F64 implements MotionTransformPoint<Se2_F64, Poin
 		s21 = s21 / N - m21;
 		s22 = s22 / N - m22;
 
-		Sigma.data[0] = s11;Sigma.data[1] = s12;
-		Sigma.data[2] = s21;Sigma.data[3] = s22;
-		// Compute the SVD of the cross correlation matrix
-		// The rotation matrix is R = V*U^T
-
-		if( !svd.decompose(Sigma) )
-			return false;
-
-		svd.getU(U,false);
-		svd.getV(V, false);
-
-		CommonOps_DDRM.multTransB(V,U,R);
-
-		// There are situations where R might not have a determinant of one and is instead
-		// a reflection is returned
-		double det = CommonOps_DDRM.det(R);
-		if( det < 0 ) {
-			for( int i = 0; i < 2; i++ )
-				V.set( i, 1, -V.get( i, 1 ) );
-			CommonOps_DDRM.multTransB(V,U,R);
-			det = CommonOps_DDRM.det(R);
-			if( det < 0 ) {
-				throw new RuntimeException( "Crap" );
-			}
-		}
-
-		// extract the yaw from the rotation matrix
-		double yaw = Math.atan2( R.get( 1, 0 ), R.get( 0, 0 ) );
+		// The rotation which minimizes the error is found from the SVD of the cross correlation matrix, R = V*U^T.
+		// In 2D this has a closed form solution which is computed directly. It always produces a rotation
+		// and not a reflection, and no memory is declared.
+		double yaw = Math.atan2( s12 - s21, s11 + s22 );
 
 		// save the results
 		GeometryMath_F64.rotate( yaw, meanFrom, meanFrom );
@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package georegression.fitting.se;
+
+import georegression.fitting.MotionTransformPoint;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.se.Se3_F64;
+import org.ejml.data.DMatrixRMaj;
+
+import java.util.List;
+
+/**
+ * <p>
+ * Incrementally computes the rigid body motion between two sets of associated 3D points. Instead of requiring
+ * all the points at once, as {@link MotionSe3PointSVD_F64} does, associated pairs are added and removed one at a
+ * time. Only the mean of each set and the cross-covariance co-moment are stored, which are updated in a single
+ * pass using Welford's numerically stable algorithm. The motion can be solved for at any time by calling
+ * {@link #process()}.
+ * </p>
+ *
+ * <p>
+ * Two accumulators can be merged, e.g. partial sums computed in different threads, using the pairwise
+ * update from Chan, Golub, and LeVeque, "Updating Formulae and a Pairwise Algorithm for Computing Sample
+ * Variances" 1979.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class MotionSe3PointAccumulator_F64 implements MotionTransformPoint<Se3_F64, Point3D_F64> {
+
+	// number of associated pairs
+	int size;
+
+	// mean of the src and dst points
+	final Point3D_F64 meanSrc = new Point3D_F64();
+	final Point3D_F64 meanDst = new Point3D_F64();
+
+	// co-moment, sum( (dst - mu_dst)*(src - mu_src)^T ), row-major
+	double c11, c12, c13;
+	double c21, c22, c23;
+	double c31, c32, c33;
+
+	// used to solve for the motion
+	final MotionSe3PointSVD_F64 alg = new MotionSe3PointSVD_F64();
+	final DMatrixRMaj Sigma = new DMatrixRMaj(3, 3);
+
+	/**
+	 * Discards all the points which have been added
+	 */
+	public void reset() {
+		size = 0;
+		meanSrc.set(0, 0, 0);
+		meanDst.set(0, 0, 0);
+		c11 = c12 = c13 = 0;
+		c21 = c22 = c23 = 0;
+		c31 = c32 = c33 = 0;
+	}
+
+	public void add( Point3D_F64 src, Point3D_F64 dst ) {
+		add(src.x, src.y, src.z, dst.x, dst.y, dst.z);
+	}
+
+	/**
+	 * Adds an associated pair of points
+	 *
+	 * @param sx src point x-coordinate
+	 * @param sy src point y-coordinate
+	 * @param sz src point z-coordinate
+	 * @param dx dst point x-coordinate
+	 * @param dy dst point y-coordinate
+	 * @param dz dst point z-coordinate
+	 */
+	public void add( double sx, double sy, double sz, double dx, double dy, double dz ) {
+		size++;
+
+		// difference from the dst mean before it's updated
+		double tx = dx - meanDst.x;
+		double ty = dy - meanDst.y;
+		double tz = dz - meanDst.z;
+
+		meanSrc.x += (sx - meanSrc.x)/size;
+		meanSrc.y += (sy - meanSrc.y)/size;
+		meanSrc.z += (sz - meanSrc.z)/size;
+		meanDst.x += tx/size;
+		meanDst.y += ty/size;
+		meanDst.z += tz/size;
+
+		// difference from the src mean after it's updated
+		double fx = sx - meanSrc.x;
+		double fy = sy - meanSrc.y;
+		double fz = sz - meanSrc.z;
+
+		c11 += tx*fx; c12 += tx*fy; c13 += tx*fz;
+		c21 += ty*fx; c22 += ty*fy; c23 += ty*fz;
+		c31 += tz*fx; c32 += tz*fy; c33 += tz*fz;
+	}
+
+	public void remove( Point3D_F64 src, Point3D_F64 dst ) {
+		remove(src.x, src.y, src.z, dst.x, dst.y, dst.z);
+	}
+
+	/**
+	 * Removes an associated pair of points which was previously added. This is the inverse of
+	 * {@link #add(double, double, double, double, double, double)}.
+	 */
+	public void remove( double sx, double sy, double sz, double dx, double dy, double dz ) {
+		if( size <= 1 ) {
+			reset();
+			return;
+		}
+
+		// difference from the src mean while the point is still included
+		double fx = sx - meanSrc.x;
+		double fy = sy - meanSrc.y;
+		double fz = sz - meanSrc.z;
+
+		size--;
+
+		meanSrc.x -= fx/size;
+		meanSrc.y -= fy/size;
+		meanSrc.z -= fz/size;
+		meanDst.x -= (dx - meanDst.x)/size;
+		meanDst.y -= (dy - meanDst.y)/size;
+		meanDst.z -= (dz - meanDst.z)/size;
+
+		// difference from the dst mean after the point has been removed
+		double tx = dx - meanDst.x;
+		double ty = dy - meanDst.y;
+		double tz = dz - meanDst.z;
+
+		c11 -= tx*fx; c12 -= tx*fy; c13 -= tx*fz;
+		c21 -= ty*fx; c22 -= ty*fy; c23 -= ty*fz;
+		c31 -= tz*fx; c32 -= tz*fy; c33 -= tz*fz;
+	}
+
+	/**
+	 * Adds all the points which were added to 'other' into this accumulator. 'other' is not modified.
+	 */
+	public void merge( MotionSe3PointAccumulator_F64 other ) {
+		if( other.size == 0 )
+			return;
+		if( size == 0 ) {
+			setTo(other);
+			return;
+		}
+
+		int total = size + other.size;
+		double scale = size*(double)other.size/total;
+
+		double fx = other.meanSrc.x - meanSrc.x;
+		double fy = other.meanSrc.y - meanSrc.y;
+		double fz = other.meanSrc.z - meanSrc.z;
+		double tx = other.meanDst.x - meanDst.x;
+		double ty = other.meanDst.y - meanDst.y;
+		double tz = other.meanDst.z - meanDst.z;
+
+		c11 += other.c11 + tx*fx*scale; c12 += other.c12 + tx*fy*scale; c13 += other.c13 + tx*fz*scale;
+		c21 += other.c21 + ty*fx*scale; c22 += other.c22 + ty*fy*scale; c23 += other.c23 + ty*fz*scale;
+		c31 += other.c31 + tz*fx*scale; c32 += other.c32 + tz*fy*scale; c33 += other.c33 + tz*fz*scale;
+
+		double w = other.size/(double)total;
+		meanSrc.x += fx*w;
+		meanSrc.y += fy*w;
+		meanSrc.z += fz*w;
+		meanDst.x += tx*w;
+		meanDst.y += ty*w;
+		meanDst.z += tz*w;
+
+		size = total;
+	}
+
+	/**
+	 * Turns this into a copy of 'src'
+	 */
+	public void setTo( MotionSe3PointAccumulator_F64 src ) {
+		size = src.size;
+		meanSrc.set(src.meanSrc);
+		meanDst.set(src.meanDst);
+		c11 = src.c11; c12 = src.c12; c13 = src.c13;
+		c21 = src.c21; c22 = src.c22; c23 = src.c23;
+		c31 = src.c31; c32 = src.c32; c33 = src.c33;
+	}
+
+	/**
+	 * Solves for the motion using all the points which have been added
+	 *
+	 * @return true if successful or false if it failed
+	 */
+	public boolean process() {
+		if( size < getMinimumPoints() )
+			return false;
+
+		double[] d = Sigma.data;
+		d[0] = c11; d[1] = c12; d[2] = c13;
+		d[3] = c21; d[4] = c22; d[5] = c23;
+		d[6] = c31; d[7] = c32; d[8] = c33;
+
+		return alg.process(Sigma, meanSrc, meanDst);
+	}
+
+	/**
+	 * Discards all previously added points, adds the passed in points, then solves for the motion.
+	 */
+	@Override
+	public boolean process( List<Point3D_F64> srcPts, List<Point3D_F64> dstPts ) {
+		if( srcPts.size() != dstPts.size() )
+			throw new IllegalArgumentException( "There must be a 1 to 1 correspondence between the two sets of points" );
+
+		reset();
+		for (int i = 0; i < srcPts.size(); i++) {
+			add(srcPts.get(i), dstPts.get(i));
+		}
+		return process();
+	}
+
+	@Override
+	public Se3_F64 getTransformSrcToDst() {
+		return alg.getTransformSrcToDst();
+	}
+
+	@Override
+	public int getMinimumPoints() {
+		return 3;
+	}
+
+	/**
+	 * Number of associated pairs which have been added
+	 */
+	public int size() {
+		return size;
+	}
+
+	public Point3D_F64 getMeanSrc() {
+		return meanSrc;
+	}
+
+	public Point3D_F64 getMeanDst() {
+		return meanDst;
+	}
+}
@@ -18,9 +18,9 @@
 
 package georegression.fitting.se;
 
-import georegression.fitting.MotionTransformPoint;
+import georegression.fitting.MotionTransformPointBatch;
 import georegression.geometry.GeometryMath_F64;
-import georegression.geometry.UtilPoint3D_F64;
+import georegression.misc.GrlConcurrency;
 import georegression.struct.point.Point3D_F64;
 import georegression.struct.se.Se3_F64;
 import org.ejml.data.DMatrixRMaj;
@@ -29,6 +29,7 @@ import org.ejml.dense.row.SingularOps_DDRM;
 import org.ejml.dense.row.factory.DecompositionFactory_DDRM;
 import org.ejml.interfaces.decomposition.SingularValueDecomposition_F64;
 
+import javax.annotation.Nullable;
 import java.util.List;
 
 /**
@@ -43,13 +44,24 @@ import java.util.List;
  *
  * @author Peter Abeles
  */
-public class MotionSe3PointSVD_F64 implements MotionTransformPoint<Se3_F64, Point3D_F64> {
+public class MotionSe3PointSVD_F64 implements MotionTransformPointBatch<Se3_F64, Point3D_F64> {
+
+	// Minimum number of samples processed by a thread in a batch
+	static final int BATCH_BLOCK_SIZE = 50;
 
 	// rigid body motion
 	private Se3_F64 motion = new Se3_F64();
 
 	SingularValueDecomposition_F64<DMatrixRMaj> svd = DecompositionFactory_DDRM.svd(3, 3,true,true,false);
 
+	// internal work space. Predeclared to avoid creating new memory each call
+	Point3D_F64 meanSrc = new Point3D_F64();
+	Point3D_F64 meanDst = new Point3D_F64();
+	Point3D_F64 temp = new Point3D_F64();
+	DMatrixRMaj Sigma = new DMatrixRMaj(3,3);
+	DMatrixRMaj U = new DMatrixRMaj(3,3);
+	DMatrixRMaj V = new DMatrixRMaj(3,3);
+
 	@Override
 	public Se3_F64 getTransformSrcToDst() {
 		return motion;
@@ -60,11 +72,66 @@ public class MotionSe3PointSVD_F64 implements MotionTransformPoint<Se3_F64, Poin
 		if( srcPts.size() != dstPts.size() )
 			throw new IllegalArgumentException( "There must be a 1 to 1 correspondence between the two sets of points" );
 
-		// find the mean of both sets of points
-		Point3D_F64 meanSrc = UtilPoint3D_F64.mean(srcPts, null );
-		Point3D_F64 meanDst = UtilPoint3D_F64.mean(dstPts, null );
+		return process(srcPts, dstPts, null, 0, srcPts.size());
+	}
+
+	@Override
+	public void processBatch( List<Point3D_F64> srcPts, List<Point3D_F64> dstPts,
+							  int[] samples, int sampleSize, int numSamples,
+							  Se3_F64[] models, boolean[] success ) {
+		checkBatchArguments(srcPts, dstPts, sampleSize);
+		processBatch(srcPts, dstPts, samples, sampleSize, 0, numSamples, models, success);
+	}
+
+	@Override
+	public void processBatchParallel( List<Point3D_F64> srcPts, List<Point3D_F64> dstPts,
+									  int[] samples, int sampleSize, int numSamples,
+									  Se3_F64[] models, boolean[] success ) {
+		checkBatchArguments(srcPts, dstPts, sampleSize);
+		GrlConcurrency.loopBlocks(0, numSamples, BATCH_BLOCK_SIZE, ( idx0, idx1 ) ->
+				new MotionSe3PointSVD_F64().processBatch(srcPts, dstPts, samples, sampleSize, idx0, idx1, models, success));
+	}
+
+	private void checkBatchArguments( List<Point3D_F64> srcPts, List<Point3D_F64> dstPts, int sampleSize ) {
+		if( srcPts.size() != dstPts.size() )
+			throw new IllegalArgumentException( "There must be a 1 to 1 correspondence between the two sets of points" );
+		if( sampleSize < getMinimumPoints() )
+			throw new IllegalArgumentException( "Sample size must be at least "+getMinimumPoints() );
+	}
 
-		final int N = srcPts.size();
+	/**
+	 * Fits a model to samples in the range [sample0, sample1)
+	 */
+	void processBatch( List<Point3D_F64> srcPts, List<Point3D_F64> dstPts,
+					   int[] samples, int sampleSize, int sample0, int sample1,
+					   Se3_F64[] models, boolean[] success ) {
+		for (int i = sample0; i < sample1; i++) {
+			success[i] = process(srcPts, dstPts, samples, i*sampleSize, sampleSize);
+			if( success[i] )
+				models[i].set(motion);
+		}
+	}
+
+	/**
+	 * Computes the motion using a subset of the points
+	 *
+	 * @param indexes Indexes of points that are used. If null then points are used in sequential order.
+	 * @param offset Index of the first element in indexes or the first point if indexes is null
+	 * @param N Number of points used
+	 */
+	boolean process( List<Point3D_F64> srcPts, List<Point3D_F64> dstPts, @Nullable int[] indexes, int offset, int N ) {
+		// find the mean of both sets of points
+		double msx = 0, msy = 0, msz = 0;
+		double mdx = 0, mdy = 0, mdz = 0;
+		for( int i = 0; i < N; i++ ) {
+			int index = indexes == null ? offset + i : indexes[offset + i];
+			Point3D_F64 f = srcPts.get( index );
+			Point3D_F64 t = dstPts.get( index );
+			msx += f.x; msy += f.y; msz += f.z;
+			mdx += t.x; mdy += t.y; mdz += t.z;
+		}
+		meanSrc.set(msx/N, msy/N, msz/N);
+		meanDst.set(mdx/N, mdy/N, mdz/N);
 
 		// compute the cross-covariance matrix Sigma of the two sets of points
 		// Sigma = (1/N)*sum(i=1:N,[p*x^T]) + mu_p*mu_x^T
@@ -74,8 +141,9 @@ public class MotionSe3PointSVD_F64 implements MotionTransformPoint<Se3_F64, Poin
 		double s31 = 0, s32 = 0, s33 = 0;
 
 		for( int i = 0; i < N; i++ ) {
-			Point3D_F64 f = srcPts.get( i );
-			Point3D_F64 t = dstPts.get( i );
+			int index = indexes == null ? offset + i : indexes[offset + i];
+			Point3D_F64 f = srcPts.get( index );
+			Point3D_F64 t = dstPts.get( index );
 
 			double dfx = f.x - meanSrc.x;
 			double dfy = f.y - meanSrc.y;
@@ -96,13 +164,30 @@ public class MotionSe3PointSVD_F64 implements MotionTransformPoint<Se3_F64, Poin
 			s33 += dtz*dfz;
 		}
 
-		DMatrixRMaj Sigma = new DMatrixRMaj( 3, 3, true, s11, s12, s13, s21, s22, s23, s31, s32, s33 );
+		double[] d = Sigma.data;
+		d[0] = s11; d[1] = s12; d[2] = s13;
+		d[3] = s21; d[4] = s22; d[5] = s23;
+		d[6] = s31; d[7] = s32; d[8] = s33;
+
+		return process(Sigma, meanSrc, meanDst);
+	}
 
+	/**
+	 * Computes the motion from the cross-covariance matrix and the mean of each set of points. The cross-covariance
+	 * is Sigma = sum(i=1:N, (t_i - mu_t)*(f_i - mu_f)^T) where 'f' is a src point and 't' a dst point. It can be
+	 * scaled by any positive number.
+	 *
+	 * @param Sigma 3x3 cross-covariance matrix. Modified.
+	 * @param meanSrc Mean of the src points. Not modified.
+	 * @param meanDst Mean of the dst points. Not modified.
+	 * @return true if successful or false if it failed
+	 */
+	public boolean process( DMatrixRMaj Sigma, Point3D_F64 meanSrc, Point3D_F64 meanDst ) {
 		if( !svd.decompose(Sigma) )
 			return false;
 
-		DMatrixRMaj U = svd.getU(null,false);
-		DMatrixRMaj V = svd.getV(null,false);
+		svd.getU(U,false);
+		svd.getV(V,false);
 
 		SingularOps_DDRM.descendingOrder(U,false,svd.getSingularValues(),3,V,false);
 		
@@ -116,7 +201,6 @@ public class MotionSe3PointSVD_F64 implements MotionTransformPoint<Se3_F64, Poin
 
 		CommonOps_DDRM.multTransB(U, V, motion.getR());
 
-		Point3D_F64 temp = new Point3D_F64();
 		GeometryMath_F64.mult(motion.getR(),meanSrc,temp);
 
 		motion.getT().set(meanDst.x - temp.x,meanDst.y - temp.y,meanDst.z - temp.z);
@@ -0,0 +1,361 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.fitting.se;
+
+import georegression.misc.GrlConcurrency;
+import georegression.misc.GrlConstants;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.point.PointCloud3D_F64;
+import georegression.struct.point.Vector3D_F64;
+import georegression.struct.se.Se3_F64;
+import georegression.transform.twist.TwistCoordinate_F64;
+import georegression.transform.twist.TwistOps_F64;
+import org.ddogleg.struct.GrowQueue_F64;
+
+import java.util.List;
+
+/**
+ * <p>
+ * Finds the rigid body motion which minimizes the distance of 'src' points from the planes tangent to the
+ * associated 'dst' points. Each plane is specified by the 'dst' point and its unit normal. The rotation is
+ * linearized, which makes the problem linear least-squares in the rotation vector &omega; and translation v.
+ * For a single association the residual is:
+ * </p>
+ * <pre>
+ * r = n<sup>T</sup>(p - q) + (p &times; n)<sup>T</sup>&omega; + n<sup>T</sup>v
+ * </pre>
+ * <p>
+ * where p is the 'src' point, q the 'dst' point, and n the normal. The 6x6 normal equations are accumulated in
+ * a single pass then solved with a Cholesky decomposition. The solution is converted into {@link Se3_F64} with
+ * {@link TwistOps_F64#exponential}, so the rotation is always a valid rotation matrix. Since the rotation is
+ * linearized the solution is only exact when the motion is small. Iterating, as is done in ICP, converges to the
+ * exact solution. At least six associations with normals pointing in different directions are required.
+ * </p>
+ *
+ * <p>
+ * The normal equations are sums, so partial sums from different threads can be merged. The concurrent functions
+ * do this automatically.
+ * </p>
+ *
+ * <p>
+ * Low, Kok-Lim. "Linear least-squares optimization for point-to-plane ICP surface registration."
+ * Chapel Hill, University of North Carolina 4.10 (2004)
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class MotionSe3PointToPlane_F64 {
+	// minimum number of associations processed by a thread
+	private static final int BLOCK_SIZE = 5_000;
+
+	// number of associations
+	int size;
+	// upper triangle of J'*J, row-major
+	final double[] JtJ = new double[21];
+	// J'*r
+	final double[] Jtr = new double[6];
+	// sum of residuals squared
+	double errorSq;
+
+	// work space for solving
+	final double[] L = new double[36];
+	final double[] x = new double[6];
+	final TwistCoordinate_F64 twist = new TwistCoordinate_F64();
+
+	// rigid body motion
+	final Se3_F64 motion = new Se3_F64();
+
+	// partial sums for each thread
+	final GrlConcurrency.WorkspacePool<MotionSe3PointToPlane_F64> partials =
+			new GrlConcurrency.WorkspacePool<>(MotionSe3PointToPlane_F64::new);
+
+	/**
+	 * Discards all the associations which have been added
+	 */
+	public void reset() {
+		size = 0;
+		for (int i = 0; i < JtJ.length; i++) {
+			JtJ[i] = 0;
+		}
+		for (int i = 0; i < Jtr.length; i++) {
+			Jtr[i] = 0;
+		}
+		errorSq = 0;
+	}
+
+	public void add( Point3D_F64 src, Point3D_F64 dst, Vector3D_F64 normal ) {
+		add(src.x, src.y, src.z, dst.x, dst.y, dst.z, normal.x, normal.y, normal.z);
+	}
+
+	/**
+	 * Adds an associated point and plane
+	 *
+	 * @param sx src point x-coordinate
+	 * @param sy src point y-coordinate
+	 * @param sz src point z-coordinate
+	 * @param dx dst point x-coordinate
+	 * @param dy dst point y-coordinate
+	 * @param dz dst point z-coordinate
+	 * @param nx dst normal x-coordinate
+	 * @param ny dst normal y-coordinate
+	 * @param nz dst normal z-coordinate
+	 */
+	public void add( double sx, double sy, double sz, double dx, double dy, double dz,
+					 double nx, double ny, double nz ) {
+		size++;
+
+		// residual is the distance from the plane
+		double r = nx*(sx - dx) + ny*(sy - dy) + nz*(sz - dz);
+		// Jacobian, J = [p x n, n]
+		double j0 = sy*nz - sz*ny;
+		double j1 = sz*nx - sx*nz;
+		double j2 = sx*ny - sy*nx;
+
+		final double[] A = JtJ;
+		A[0] += j0*j0; A[1] += j0*j1; A[2] += j0*j2; A[3] += j0*nx; A[4] += j0*ny; A[5] += j0*nz;
+		A[6] += j1*j1; A[7] += j1*j2; A[8] += j1*nx; A[9] += j1*ny; A[10] += j1*nz;
+		A[11] += j2*j2; A[12] += j2*nx; A[13] += j2*ny; A[14] += j2*nz;
+		A[15] += nx*nx; A[16] += nx*ny; A[17] += nx*nz;
+		A[18] += ny*ny; A[19] += ny*nz;
+		A[20] += nz*nz;
+
+		final double[] b = Jtr;
+		b[0] += j0*r; b[1] += j1*r; b[2] += j2*r;
+		b[3] += nx*r; b[4] += ny*r; b[5] += nz*r;
+
+		errorSq += r*r;
+	}
+
+	/**
+	 * Adds all the associations which were added to 'other' into this. 'other' is not modified.
+	 */
+	public void merge( MotionSe3PointToPlane_F64 other ) {
+		size += other.size;
+		for (int i = 0; i < JtJ.length; i++) {
+			JtJ[i] += other.JtJ[i];
+		}
+		for (int i = 0; i < Jtr.length; i++) {
+			Jtr[i] += other.Jtr[i];
+		}
+		errorSq += other.errorSq;
+	}
+
+	/**
+	 * Turns this into a copy of the sums in 'src'
+	 */
+	public void setTo( MotionSe3PointToPlane_F64 src ) {
+		reset();
+		merge(src);
+	}
+
+	/**
+	 * Solves for the motion using all the associations which have been added
+	 *
+	 * @return true if successful or false if there are too few associations or they don't constrain the motion
+	 */
+	public boolean process() {
+		if( size < getMinimumPoints() )
+			return false;
+
+		// copy the upper triangle into a full matrix
+		for (int row = 0, k = 0; row < 6; row++) {
+			for (int col = row; col < 6; col++, k++) {
+				L[row*6 + col] = JtJ[k];
+				L[col*6 + row] = JtJ[k];
+			}
+			x[row] = -Jtr[row];
+		}
+		if( !solveCholesky6(L, x) )
+			return false;
+
+		twist.w.set(x[0], x[1], x[2]);
+		twist.v.set(x[3], x[4], x[5]);
+		TwistOps_F64.exponential(twist, 1.0, motion);
+		return true;
+	}
+
+	/**
+	 * Discards previously added associations, adds the passed in ones, then solves for the motion.
+	 *
+	 * @param srcPts Points which are to be transformed. Not modified.
+	 * @param dstPts Points on the planes. Not modified.
+	 * @param dstNormals Unit normals of the planes. Not modified.
+	 * @return true if successful
+	 */
+	public boolean process( List<Point3D_F64> srcPts, List<Point3D_F64> dstPts, List<Vector3D_F64> dstNormals ) {
+		checkSize(srcPts.size(), dstPts.size(), dstNormals.size());
+		reset();
+		add(srcPts, dstPts, dstNormals, 0, srcPts.size());
+		return process();
+	}
+
+	/**
+	 * Concurrent version of {@link #process(List, List, List)}. Each thread accumulates a partial sum.
+	 */
+	public boolean processParallel( List<Point3D_F64> srcPts, List<Point3D_F64> dstPts,
+									List<Vector3D_F64> dstNormals ) {
+		checkSize(srcPts.size(), dstPts.size(), dstNormals.size());
+		resetPartials();
+		GrlConcurrency.loopBlocks(0, srcPts.size(), BLOCK_SIZE, partials,
+				( partial, idx0, idx1 ) -> partial.add(srcPts, dstPts, dstNormals, idx0, idx1));
+		mergePartials();
+		return process();
+	}
+
+	/**
+	 * Discards previously added associations, adds the passed in ones, then solves for the motion.
+	 *
+	 * @param src Points which are to be transformed. Not modified.
+	 * @param dst Points on the planes. Not modified.
+	 * @param dstNormals Unit normals of the planes, packed (x,y,z). Not modified.
+	 * @return true if successful
+	 */
+	public boolean process( PointCloud3D_F64 src, PointCloud3D_F64 dst, GrowQueue_F64 dstNormals ) {
+		checkSize(src.size, dst.size, dstNormals.size/3);
+		reset();
+		add(src.data, dst.data, dstNormals.data, 0, src.size);
+		return process();
+	}
+
+	/**
+	 * Concurrent version of {@link #process(PointCloud3D_F64, PointCloud3D_F64, GrowQueue_F64)}. Each thread
+	 * accumulates a partial sum.
+	 */
+	public boolean processParallel( PointCloud3D_F64 src, PointCloud3D_F64 dst, GrowQueue_F64 dstNormals ) {
+		checkSize(src.size, dst.size, dstNormals.size/3);
+		resetPartials();
+		GrlConcurrency.loopBlocks(0, src.size, BLOCK_SIZE, partials,
+				( partial, idx0, idx1 ) -> partial.add(src.data, dst.data, dstNormals.data, idx0, idx1));
+		mergePartials();
+		return process();
+	}
+
+	private static void checkSize( int src, int dst, int normals ) {
+		if( src != dst || src != normals )
+			throw new IllegalArgumentException("There must be a 1 to 1 correspondence between points and normals");
+	}
+
+	void add( List<Point3D_F64> srcPts, List<Point3D_F64> dstPts, List<Vector3D_F64> dstNormals,
+			  int idx0, int idx1 ) {
+		for (int i = idx0; i < idx1; i++) {
+			add(srcPts.get(i), dstPts.get(i), dstNormals.get(i));
+		}
+	}
+
+	void add( double[] src, double[] dst, double[] normals, int idx0, int idx1 ) {
+		for (int i = idx0*3; i < idx1*3; i += 3) {
+			add(src[i], src[i+1], src[i+2], dst[i], dst[i+1], dst[i+2], normals[i], normals[i+1], normals[i+2]);
+		}
+	}
+
+	private void resetPartials() {
+		List<MotionSe3PointToPlane_F64> all = partials.getAll();
+		for (int i = 0; i < all.size(); i++) {
+			all.get(i).reset();
+		}
+	}
+
+	private void mergePartials() {
+		reset();
+		List<MotionSe3PointToPlane_F64> all = partials.getAll();
+		for (int i = 0; i < all.size(); i++) {
+			merge(all.get(i));
+		}
+	}
+
+	/**
+	 * Solves A*x = b in place for a 6x6 symmetric positive definite matrix using a Cholesky decomposition.
+	 * The lower triangle of A is overwritten by L, where A = L*L<sup>T</sup>.
+	 *
+	 * @param A (Input) 6x6 row-major matrix. (Output) L in the lower triangle. Modified.
+	 * @param b (Input) right hand side. (Output) solution x. Modified.
+	 * @return false if the matrix isn't positive definite, i.e. the motion isn't fully constrained
+	 */
+	static boolean solveCholesky6( double[] A, double[] b ) {
+		// pivots smaller than this, relative to the largest diagonal element, are treated as zero
+		double maxDiagonal = 0;
+		for (int i = 0; i < 6; i++) {
+			maxDiagonal = Math.max(maxDiagonal, A[i*7]);
+		}
+		double tol = maxDiagonal*GrlConstants.EPS*100;
+
+		for (int i = 0; i < 6; i++) {
+			for (int j = 0; j <= i; j++) {
+				double sum = A[i*6 + j];
+				for (int k = 0; k < j; k++) {
+					sum -= A[i*6 + k]*A[j*6 + k];
+				}
+				if( i == j ) {
+					if( !(sum > tol) )
+						return false;
+					A[i*6 + i] = Math.sqrt(sum);
+				} else {
+					A[i*6 + j] = sum/A[j*6 + j];
+				}
+			}
+		}
+
+		// forward substitution, L*y = b
+		for (int i = 0; i < 6; i++) {
+			double sum = b[i];
+			for (int k = 0; k < i; k++) {
+				sum -= A[i*6 + k]*b[k];
+			}
+			b[i] = sum/A[i*6 + i];
+		}
+		// back substitution, L'*x = y
+		for (int i = 5; i >= 0; i--) {
+			double sum = b[i];
+			for (int k = i + 1; k < 6; k++) {
+				sum -= A[k*6 + i]*b[k];
+			}
+			b[i] = sum/A[i*6 + i];
+		}
+		return true;
+	}
+
+	/**
+	 * Estimated motion from 'src' to 'dst'
+	 */
+	public Se3_F64 getTransformSrcToDst() {
+		return motion;
+	}
+
+	/**
+	 * Minimum number of associations needed to solve for the motion
+	 */
+	public int getMinimumPoints() {
+		return 6;
+	}
+
+	/**
+	 * Number of associations which have been added
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Sum of the point-to-plane distance squared of all the associations before the motion is applied
+	 */
+	public double getErrorSq() {
+		return errorSq;
+	}
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.fitting.sphere;
+
+import georegression.misc.GrlConstants;
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.dense.row.CommonOps_DDRM;
+import org.ejml.dense.row.factory.DecompositionFactory_DDRM;
+import org.ejml.dense.row.factory.LinearSolverFactory_DDRM;
+import org.ejml.interfaces.decomposition.EigenDecomposition_F64;
+import org.ejml.interfaces.linsol.LinearSolverDense;
+
+/**
+ * <p>
+ * Closed form algebraic fit of a circle (2D) or sphere (3D) from moments of the points about their mean.
+ * The hypersphere is described by {@code A*|p|^2 + b'*p + E = 0}, where the algebraic error of each point is
+ * minimized subject to a constraint that removes the scale ambiguity. Three constraints are supported:
+ * </p>
+ * <dl>
+ * <dt>Kasa</dt><dd>A = 1. Fastest, but biased towards smaller radii when only an arc is observed.</dd>
+ * <dt>Pratt</dt><dd>|b|^2 - 4*A*E = 1. See [2].</dd>
+ * <dt>Taubin</dt><dd>mean squared gradient = 1. Statistically the most accurate of the three. See [3].</dd>
+ * </dl>
+ *
+ * <p>
+ * Input moments are computed from points which have been translated so that their mean is at the origin. Internally
+ * the points are also scaled so that their mean squared distance from the origin is one, which keeps the moment
+ * matrices well conditioned. Pratt is solved using the SVD approach in [1], applied to the moment matrix.
+ * </p>
+ *
+ * <ul>
+ * <li>[1] N. Chernov, "Circular and Linear Regression: Fitting Circles and Lines by Least Squares" 2010</li>
+ * <li>[2] V. Pratt, "Direct least-squares fitting of algebraic surfaces" SIGGRAPH 1987</li>
+ * <li>[3] G. Taubin, "Estimation Of Planar Curves, Surfaces And Nonplanar Space Curves Defined By Implicit
+ * Equations, With Applications To Edge And Range Image Segmentation" 1991</li>
+ * </ul>
+ *
+ * @author Peter Abeles
+ */
+public class AlgebraicHypersphere_F64 {
+
+	/**
+	 * Constraint used to select the solution
+	 */
+	public enum Method {
+		KASA,
+		PRATT,
+		TAUBIN
+	}
+
+	// relative size of the smallest eigenvalue for the points to be considered a perfect fit
+	private static final double TOL_EXACT = GrlConstants.EPS*1000;
+	// If the radius is more than 1/TOL_DEGENERATE times the spread of the points it is a line or plane
+	private static final double TOL_DEGENERATE = Math.sqrt(GrlConstants.EPS);
+
+	Method method;
+	// number of dimensions. 2 = circle, 3 = sphere
+	int dimension;
+
+	// Found hypersphere relative to the mean of the points
+	double[] center;
+	double radius;
+
+	// scaled moments
+	DMatrixRMaj C, u;
+
+	// storage for Kasa
+	DMatrixRMaj b;
+	LinearSolverDense<DMatrixRMaj> solver;
+
+	// storage for Taubin and Pratt
+	DMatrixRMaj M, Y, Q, tmp, a0, a;
+	EigenDecomposition_F64<DMatrixRMaj> eigM;
+	EigenDecomposition_F64<DMatrixRMaj> eigQ;
+
+	/**
+	 * @param method Which algebraic constraint is used
+	 * @param dimension Number of dimensions. 2 for a circle and 3 for a sphere
+	 */
+	public AlgebraicHypersphere_F64( Method method, int dimension ) {
+		if( dimension < 2 )
+			throw new IllegalArgumentException("Dimension must be at least 2");
+		this.method = method;
+		this.dimension = dimension;
+
+		center = new double[dimension];
+		C = new DMatrixRMaj(dimension, dimension);
+		u = new DMatrixRMaj(dimension, 1);
+		b = new DMatrixRMaj(dimension, 1);
+		solver = LinearSolverFactory_DDRM.symmPosDef(dimension);
+
+		int N = dimension + 2;
+		M = new DMatrixRMaj(N, N);
+		Y = new DMatrixRMaj(N, N);
+		Q = new DMatrixRMaj(N, N);
+		tmp = new DMatrixRMaj(N, N);
+		a0 = new DMatrixRMaj(N, 1);
+		a = new DMatrixRMaj(N, 1);
+		eigM = DecompositionFactory_DDRM.eig(N, true, true);
+		eigQ = DecompositionFactory_DDRM.eig(N, true, true);
+	}
+
+	/**
+	 * Fits the hypersphere to points with a mean of zero.
+	 *
+	 * @param covariance mean of p*p'. dimension x dimension. Not modified.
+	 * @param moment3 mean of |p|^2*p. Array of length dimension. Not modified.
+	 * @param moment4 mean of |p|^4
+	 * @return true if successful or false if the points are degenerate, e.g. they lie on a line or plane
+	 */
+	public boolean process( DMatrixRMaj covariance, double[] moment3, double moment4 ) {
+		final int d = dimension;
+
+		// mean squared distance from the origin, used to scale the points
+		double z = 0;
+		for (int i = 0; i < d; i++) {
+			z += covariance.unsafe_get(i, i);
+		}
+		if( !(z > 0) )
+			return false;
+		double scale = Math.sqrt(z);
+
+		// moments of the scaled points. The scaled mean of |p|^2 is one
+		for (int i = 0; i < d; i++) {
+			for (int j = 0; j < d; j++) {
+				C.unsafe_set(i, j, covariance.unsafe_get(i, j)/z);
+			}
+			u.data[i] = moment3[i]/(z*scale);
+		}
+		double w = moment4/(z*z);
+
+		// coefficients of the algebraic hypersphere (A, b, E) are written into 'a'
+		boolean success;
+		switch( method ) {
+			case KASA: success = solveKasa(); break;
+			case PRATT: success = solvePratt(w); break;
+			case TAUBIN: success = solveTaubin(w); break;
+			default: throw new IllegalArgumentException("Unknown method " + method);
+		}
+		if( !success )
+			return false;
+
+		// Convert into center and radius
+		double A = a.data[0];
+		double E = a.data[d + 1];
+		double normB = 0;
+		for (int i = 0; i < d; i++) {
+			normB += a.data[1 + i]*a.data[1 + i];
+		}
+		normB = Math.sqrt(normB);
+		// A line or plane is the limit as A goes to zero. The points have been scaled so the radius is about |b|/(2*A)
+		if( Math.abs(A) <= TOL_DEGENERATE*normB )
+			return false;
+
+		double r2 = -E/A;
+		for (int i = 0; i < d; i++) {
+			center[i] = -a.data[1 + i]/(2.0*A);
+			r2 += center[i]*center[i];
+		}
+		if( !(r2 > 0) )
+			return false;
+
+		for (int i = 0; i < d; i++) {
+			center[i] *= scale;
+		}
+		radius = Math.sqrt(r2)*scale;
+		return true;
+	}
+
+	/**
+	 * A = 1, which becomes a linear system since the points have zero mean
+	 */
+	private boolean solveKasa() {
+		// quality is about the ratio of the points' spread along their thinnest and widest directions. Round off
+		// error when computing the moments gives collinear or coplanar points a thickness close to TOL_DEGENERATE
+		if( !solver.setA(C) || solver.quality() <= TOL_DEGENERATE*10 )
+			return false;
+		solver.solve(u, b);
+
+		a.data[0] = 1;
+		for (int i = 0; i < dimension; i++) {
+			a.data[1 + i] = -b.data[i];
+		}
+		a.data[dimension + 1] = -1;
+		return true;
+	}
+
+	/**
+	 * Since the points have zero mean, E = -A. What's left is the eigenvector with the smallest eigenvalue of
+	 * the covariance of (|p|^2 - 1, p) after A has been scaled so that the constraint is the identity matrix.
+	 */
+	private boolean solveTaubin( double w ) {
+		final int d = dimension;
+		final int N = d + 1;
+		M.reshape(N, N);
+		M.unsafe_set(0, 0, (w - 1.0)/4.0);
+		for (int i = 0; i < d; i++) {
+			M.unsafe_set(0, 1 + i, u.data[i]/2.0);
+			M.unsafe_set(1 + i, 0, u.data[i]/2.0);
+			for (int j = 0; j < d; j++) {
+				M.unsafe_set(1 + i, 1 + j, C.unsafe_get(i, j));
+			}
+		}
+
+		if( !eigM.decompose(M) )
+			return false;
+
+		DMatrixRMaj v = eigM.getEigenVector(selectSmallest(eigM));
+		if( v == null )
+			return false;
+
+		a.data[0] = v.data[0]/2.0;
+		for (int i = 0; i < d; i++) {
+			a.data[1 + i] = v.data[1 + i];
+		}
+		a.data[d + 1] = -a.data[0];
+		return true;
+	}
+
+	/**
+	 * Finds the eigenvector of M*a = n*N*a with the smallest positive eigenvalue, where M is the moment matrix
+	 * and N the Pratt constraint. If M is singular then the points lie perfectly on a hypersphere and its null
+	 * space is the solution.
+	 */
+	private boolean solvePratt( double w ) {
+		final int d = dimension;
+		final int N = d + 2;
+
+		// moment matrix of (|p|^2, p, 1)
+		M.reshape(N, N);
+		M.zero();
+		M.unsafe_set(0, 0, w);
+		M.unsafe_set(0, N - 1, 1);
+		M.unsafe_set(N - 1, 0, 1);
+		M.unsafe_set(N - 1, N - 1, 1);
+		for (int i = 0; i < d; i++) {
+			M.unsafe_set(0, 1 + i, u.data[i]);
+			M.unsafe_set(1 + i, 0, u.data[i]);
+			for (int j = 0; j < d; j++) {
+				M.unsafe_set(1 + i, 1 + j, C.unsafe_get(i, j));
+			}
+		}
+
+		if( !eigM.decompose(M) )
+			return false;
+
+		int smallest = selectSmallest(eigM);
+		double largestValue = 0;
+		for (int i = 0; i < N; i++) {
+			largestValue = Math.max(largestValue, eigM.getEigenvalue(i).getReal());
+		}
+		double smallestValue = eigM.getEigenvalue(smallest).getReal();
+
+		if( smallestValue <= TOL_EXACT*largestValue ) {
+			DMatrixRMaj v = eigM.getEigenVector(smallest);
+			if( v == null )
+				return false;
+			a.set(v);
+			return true;
+		}
+
+		// Y = V*sqrt(L)*V' and tmp = V*inv(sqrt(L))*V'
+		Y.zero();
+		tmp.zero();
+		for (int k = 0; k < N; k++) {
+			DMatrixRMaj v = eigM.getEigenVector(k);
+			if( v == null )
+				return false;
+			double s = Math.sqrt(eigM.getEigenvalue(k).getReal());
+			for (int i = 0; i < N; i++) {
+				for (int j = 0; j < N; j++) {
+					double vv = v.data[i]*v.data[j];
+					Y.data[i*N + j] += s*vv;
+					tmp.data[i*N + j] += vv/s;
+				}
+			}
+		}
+
+		// Q = Y*inv(N)*Y. inv(N) swaps and scales the first and last columns
+		Q.reshape(N, N);
+		for (int i = 0; i < N; i++) {
+			for (int j = 0; j < N; j++) {
+				double sum = -0.5*(Y.unsafe_get(i, 0)*Y.unsafe_get(N - 1, j) + Y.unsafe_get(i, N - 1)*Y.unsafe_get(0, j));
+				for (int k = 1; k < N - 1; k++) {
+					sum += Y.unsafe_get(i, k)*Y.unsafe_get(k, j);
+				}
+				Q.unsafe_set(i, j, sum);
+			}
+		}
+
+		if( !eigQ.decompose(Q) )
+			return false;
+
+		// Q has the same eigenvalues as the generalized problem. Select the smallest positive one
+		int best = -1;
+		double bestValue = Double.MAX_VALUE;
+		for (int i = 0; i < N; i++) {
+			double value = eigQ.getEigenvalue(i).getReal();
+			if( value > 0 && value < bestValue ) {
+				bestValue = value;
+				best = i;
+			}
+		}
+		if( best < 0 )
+			return false;
+		DMatrixRMaj v = eigQ.getEigenVector(best);
+		if( v == null )
+			return false;
+
+		// undo the change in variables
+		a0.set(v);
+		CommonOps_DDRM.mult(tmp, a0, a);
+		return true;
+	}
+
+	private static int selectSmallest( EigenDecomposition_F64<DMatrixRMaj> eig ) {
+		int best = 0;
+		double bestValue = eig.getEigenvalue(0).getReal();
+		for (int i = 1; i < eig.getNumberOfEigenvalues(); i++) {
+			double value = eig.getEigenvalue(i).getReal();
+			if( value < bestValue ) {
+				bestValue = value;
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Center of the found hypersphere relative to the mean of the points
+	 */
+	public double[] getCenter() {
+		return center;
+	}
+
+	public double getRadius() {
+		return radius;
+	}
+
+	public Method getMethod() {
+		return method;
+	}
+
+	public void setMethod( Method method ) {
+		this.method = method;
+	}
+
+	public int getDimension() {
+		return dimension;
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.fitting.sphere;
+
+import georegression.fitting.DistanceFromModelPacked_F64;
+import georegression.fitting.InlierCountOps_F64;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.shapes.Sphere3D_F64;
+
+import java.util.List;
+
+/**
+ * Computes the absolute Euclidean distance of 3D points from the surface of a {@link Sphere3D_F64}, i.e.
+ * abs(||p - center|| - radius). When counting inliers the threshold is converted into bounds on the
+ * squared distance from the center, so no square root is needed.
+ *
+ * @author Peter Abeles
+ */
+public class DistanceFromModelSphere3D_F64
+		implements DistanceFromModelPacked_F64<Sphere3D_F64,Point3D_F64> {
+
+	private double cx,cy,cz,radius;
+
+	// bounds on the squared distance of an inlier, used by countOutliers()
+	private double middleSq, halfSq;
+	private final InlierCountOps_F64.BlockOutliers blockOutliers = this::countOutliers;
+
+	@Override
+	public void setModel( Sphere3D_F64 sphere ) {
+		cx = sphere.center.x;
+		cy = sphere.center.y;
+		cz = sphere.center.z;
+		radius = sphere.radius;
+	}
+
+	@Override
+	public /**/double computeDistance( Point3D_F64 p ) {
+		double dx = p.x - cx, dy = p.y - cy, dz = p.z - cz;
+		return Math.abs(Math.sqrt(dx*dx + dy*dy + dz*dz) - radius);
+	}
+
+	@Override
+	public void computeDistance( List<Point3D_F64> points, /**/double[] distance ) {
+		for (int i = 0; i < points.size(); i++) {
+			distance[i] = computeDistance(points.get(i));
+		}
+	}
+
+	@Override
+	public void computeDistance( double[] points, int numPoints, double[] distance ) {
+		final double cx = this.cx, cy = this.cy, cz = this.cz, radius = this.radius;
+		for (int i = 0, j = 0; i < numPoints; i++, j += 3) {
+			double dx = points[j] - cx, dy = points[j+1] - cy, dz = points[j+2] - cz;
+			distance[i] = Math.abs(Math.sqrt(dx*dx + dy*dy + dz*dz) - radius);
+		}
+	}
+
+	@Override
+	public int countInliers( double[] points, int numPoints, double threshold, int mustBeat ) {
+		// |d - r| <= t  is the same as  max(0,r-t)^2 <= d^2 <= (r+t)^2
+		final double lower = radius - threshold;
+		final double upper = radius + threshold;
+		final double lowerSq = lower > 0 ? lower*lower : 0;
+		final double upperSq = upper*upper;
+		// the range check is done with a single comparison against the interval's center
+		middleSq = (lowerSq + upperSq)/2;
+		halfSq = (upperSq - lowerSq)/2;
+
+		return InlierCountOps_F64.countInliers(points, numPoints, mustBeat, blockOutliers);
+	}
+
+	private int countOutliers( double[] points, int start, int end ) {
+		final double cx = this.cx, cy = this.cy, cz = this.cz, middleSq = this.middleSq, halfSq = this.halfSq;
+		int outliers = 0;
+		for (int i = start, j = start*3; i < end; i++, j += 3) {
+			double dx = points[j] - cx, dy = points[j+1] - cy, dz = points[j+2] - cz;
+			double d2 = dx*dx + dy*dy + dz*dz;
+			outliers += Math.abs(d2 - middleSq) <= halfSq ? 0 : 1;
+		}
+		return outliers;
+	}
+
+	@Override
+	public int getPackedLength() {
+		return 3;
+	}
+
+	@Override
+	public Class<Point3D_F64> getPointType() {
+		return Point3D_F64.class;
+	}
+
+	@Override
+	public Class<Sphere3D_F64> getModelType() {
+		return Sphere3D_F64.class;
+	}
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.fitting.sphere;
+
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.point.PointCloud3D_F64;
+import georegression.struct.shapes.Sphere3D_F64;
+import org.ejml.data.DMatrixRMaj;
+
+import java.util.List;
+
+/**
+ * <p>
+ * Closed form algebraic fit of a sphere to 3D points. Moments of the points are accumulated in a single pass
+ * and the sphere is then found from the moments using {@link AlgebraicHypersphere_F64}. Cost of fitting is
+ * independent of the number of points after they have been accumulated. Partial sums computed from different
+ * subsets of the points, e.g. by different threads, can be combined using {@link #merge}.
+ * </p>
+ *
+ * <p>
+ * The solution minimizes algebraic error, not geometric error. With noise free points it is exact and often it is
+ * close enough to be used directly. Otherwise it's a good initial estimate for {@link FitSphereToPoints_F64}.
+ * </p>
+ *
+ * <p>
+ * To avoid loss of precision the moments are computed relative to an origin which is initially the first point.
+ * When a sphere is fit the origin is moved to the mean of the points. Neither affects the points which have been
+ * accumulated.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class FitSphereAlgebraic_F64 {
+	// origin the sums are relative to
+	double originX, originY, originZ;
+
+	// number of points
+	int N;
+	// sum of p
+	double sx, sy, sz;
+	// sum of p*p'
+	double sxx, sxy, sxz, syy, syz, szz;
+	// sum of |p|^2*p
+	double rx, ry, rz;
+	// sum of |p|^4
+	double w;
+
+	// used to compute the sphere from moments
+	AlgebraicHypersphere_F64 solver;
+
+	// centered moments
+	DMatrixRMaj covariance = new DMatrixRMaj(3, 3);
+	double[] moment3 = new double[3];
+
+	/**
+	 * @param method Which algebraic constraint is used
+	 */
+	public FitSphereAlgebraic_F64( AlgebraicHypersphere_F64.Method method ) {
+		solver = new AlgebraicHypersphere_F64(method, 3);
+	}
+
+	/**
+	 * Uses {@link AlgebraicHypersphere_F64.Method#TAUBIN}
+	 */
+	public FitSphereAlgebraic_F64() {
+		this(AlgebraicHypersphere_F64.Method.TAUBIN);
+	}
+
+	/**
+	 * Discards all the points
+	 */
+	public void reset() {
+		N = 0;
+		originX = originY = originZ = 0;
+		sx = sy = sz = 0;
+		sxx = sxy = sxz = syy = syz = szz = 0;
+		rx = ry = rz = 0;
+		w = 0;
+	}
+
+	/**
+	 * Adds a point to the sums
+	 */
+	public void add( double x, double y, double z ) {
+		if( N == 0 ) {
+			originX = x;
+			originY = y;
+			originZ = z;
+		}
+		x -= originX;
+		y -= originY;
+		z -= originZ;
+
+		double xx = x*x, yy = y*y, zz = z*z;
+		double r2 = xx + yy + zz;
+
+		N++;
+		sx += x;
+		sy += y;
+		sz += z;
+		sxx += xx;
+		sxy += x*y;
+		sxz += x*z;
+		syy += yy;
+		syz += y*z;
+		szz += zz;
+		rx += r2*x;
+		ry += r2*y;
+		rz += r2*z;
+		w += r2*r2;
+	}
+
+	public void add( Point3D_F64 p ) {
+		add(p.x, p.y, p.z);
+	}
+
+	public void addAll( List<Point3D_F64> points ) {
+		for (int i = 0; i < points.size(); i++) {
+			Point3D_F64 p = points.get(i);
+			add(p.x, p.y, p.z);
+		}
+	}
+
+	public void addAll( PointCloud3D_F64 cloud ) {
+		addAll(cloud.data, 0, cloud.size);
+	}
+
+	/**
+	 * Adds points from a packed array, e.g. (x0,y0,z0,x1,y1,z1,...)
+	 *
+	 * @param points Packed array of points. Not modified.
+	 * @param offset Index of the first element in the array
+	 * @param numPoints Number of points which are to be added
+	 */
+	public void addAll( double[] points, int offset, int numPoints ) {
+		final int end = offset + numPoints*3;
+		for (int i = offset; i < end; i += 3) {
+			add(points[i], points[i + 1], points[i + 2]);
+		}
+	}
+
+	/**
+	 * Adds all the points in 'src' to this. The two can have been computed using different origins.
+	 *
+	 * @param src Sums which are to be added. Not modified.
+	 */
+	public void merge( FitSphereAlgebraic_F64 src ) {
+		if( src.N == 0 )
+			return;
+		if( N == 0 ) {
+			setTo(src);
+			return;
+		}
+
+		moveOrigin(src.originX, src.originY, src.originZ);
+
+		N += src.N;
+		sx += src.sx;
+		sy += src.sy;
+		sz += src.sz;
+		sxx += src.sxx;
+		sxy += src.sxy;
+		sxz += src.sxz;
+		syy += src.syy;
+		syz += src.syz;
+		szz += src.szz;
+		rx += src.rx;
+		ry += src.ry;
+		rz += src.rz;
+		w += src.w;
+	}
+
+	/**
+	 * Copies the sums from 'src'. The fitting method is not copied.
+	 */
+	public void setTo( FitSphereAlgebraic_F64 src ) {
+		originX = src.originX;
+		originY = src.originY;
+		originZ = src.originZ;
+		N = src.N;
+		sx = src.sx;
+		sy = src.sy;
+		sz = src.sz;
+		sxx = src.sxx;
+		sxy = src.sxy;
+		sxz = src.sxz;
+		syy = src.syy;
+		syz = src.syz;
+		szz = src.szz;
+		rx = src.rx;
+		ry = src.ry;
+		rz = src.rz;
+		w = src.w;
+	}
+
+	/**
+	 * Changes the origin the sums are relative to without changing the points they describe.
+	 */
+	void moveOrigin( double x, double y, double z ) {
+		// translation in the current coordinate system
+		double dx = x - originX, dy = y - originY, dz = z - originZ;
+		double c = dx*dx + dy*dy + dz*dz;
+
+		// Q*d, d'*P, trace(Q)
+		double qdx = sxx*dx + sxy*dy + sxz*dz;
+		double qdy = sxy*dx + syy*dy + syz*dz;
+		double qdz = sxz*dx + syz*dy + szz*dz;
+		double dP = dx*sx + dy*sy + dz*sz;
+		double trace = sxx + syy + szz;
+
+		// each update only depends on sums of equal or lower order, so update the highest order first
+		w += 4.0*(dx*qdx + dy*qdy + dz*qdz) + N*c*c - 4.0*(dx*rx + dy*ry + dz*rz) + 2.0*c*trace - 4.0*c*dP;
+
+		rx += -trace*dx - 2.0*qdx + 2.0*dP*dx + c*sx - N*c*dx;
+		ry += -trace*dy - 2.0*qdy + 2.0*dP*dy + c*sy - N*c*dy;
+		rz += -trace*dz - 2.0*qdz + 2.0*dP*dz + c*sz - N*c*dz;
+
+		sxx += -2.0*sx*dx + N*dx*dx;
+		sxy += -sx*dy - dx*sy + N*dx*dy;
+		sxz += -sx*dz - dx*sz + N*dx*dz;
+		syy += -2.0*sy*dy + N*dy*dy;
+		syz += -sy*dz - dy*sz + N*dy*dz;
+		szz += -2.0*sz*dz + N*dz*dz;
+
+		sx -= N*dx;
+		sy -= N*dy;
+		sz -= N*dz;
+
+		originX = x;
+		originY = y;
+		originZ = z;
+	}
+
+	/**
+	 * Fits a sphere to all the points which have been added.
+	 *
+	 * @param found (Output) the found sphere. Modified.
+	 * @return true if successful or false if there are too few points or they are degenerate
+	 */
+	public boolean process( Sphere3D_F64 found ) {
+		if( N < 4 )
+			return false;
+
+		// Move the origin to the mean so that the moments are centered
+		moveOrigin(originX + sx/N, originY + sy/N, originZ + sz/N);
+
+		covariance.data[0] = sxx/N;
+		covariance.data[1] = covariance.data[3] = sxy/N;
+		covariance.data[2] = covariance.data[6] = sxz/N;
+		covariance.data[4] = syy/N;
+		covariance.data[5] = covariance.data[7] = syz/N;
+		covariance.data[8] = szz/N;
+		moment3[0] = rx/N;
+		moment3[1] = ry/N;
+		moment3[2] = rz/N;
+
+		if( !solver.process(covariance, moment3, w/N) )
+			return false;
+
+		double[] center = solver.getCenter();
+		found.center.set(originX + center[0], originY + center[1], originZ + center[2]);
+		found.radius = solver.getRadius();
+		return true;
+	}
+
+	/**
+	 * Fits a sphere to a list of points. Any previously added points are discarded.
+	 */
+	public boolean process( List<Point3D_F64> points, Sphere3D_F64 found ) {
+		reset();
+		addAll(points);
+		return process(found);
+	}
+
+	/**
+	 * Fits a sphere to a point cloud. Any previously added points are discarded.
+	 */
+	public boolean process( PointCloud3D_F64 cloud, Sphere3D_F64 found ) {
+		reset();
+		addAll(cloud);
+		return process(found);
+	}
+
+	/**
+	 * Number of points which have been added
+	 */
+	public int size() {
+		return N;
+	}
+
+	public AlgebraicHypersphere_F64.Method getMethod() {
+		return solver.getMethod();
+	}
+
+	public void setMethod( AlgebraicHypersphere_F64.Method method ) {
+		solver.setMethod(method);
+	}
+}
@@ -25,10 +25,12 @@ import org.ddogleg.fitting.modelset.ModelFitter;
 import org.ddogleg.optimization.FactoryOptimization;
 import org.ddogleg.optimization.UnconstrainedLeastSquares;
 
+import javax.annotation.Nullable;
 import java.util.List;
 
 /**
- * {@link UnconstrainedLeastSquares} fitting of 3D points to a sphere.
+ * {@link UnconstrainedLeastSquares} fitting of 3D points to a sphere. If no initial estimate is provided then
+ * one is found using {@link FitSphereAlgebraic_F64}.
  *
  * @author Peter Abeles
  */
@@ -54,6 +56,9 @@ public class FitSphereToPoints_F64 implements ModelFitter<Sphere3D_F64,Point3D_F
 	// used to convert double[] into shape parameters
 	private CodecSphere3D_F64 codec = new CodecSphere3D_F64();
 
+	// provides the initial estimate when one isn't given
+	private FitSphereAlgebraic_F64 algebraic = new FitSphereAlgebraic_F64();
+
 	/**
 	 * Constructor which provides access to all tuning parameters
 	 *
@@ -78,8 +83,22 @@ public class FitSphereToPoints_F64 implements ModelFitter<Sphere3D_F64,Point3D_F
 		this(FactoryOptimization.levenbergMarquardt(null,false),maxIterations, GrlConstants.DCONV_TOL_B,0);
 	}
 
+	/**
+	 * Fits a sphere to the points
+	 *
+	 * @param dataSet Points. Not modified.
+	 * @param initial Initial estimate. If null then the algebraic fit is used.
+	 * @param found (Output) found sphere. Modified.
+	 * @return true if successful. Can only fail if initial is null and the algebraic fit fails.
+	 */
 	@Override
-	public boolean fitModel(List<Point3D_F64> dataSet, Sphere3D_F64 initial, Sphere3D_F64 found) {
+	public boolean fitModel(List<Point3D_F64> dataSet, @Nullable Sphere3D_F64 initial, Sphere3D_F64 found) {
+
+		if( initial == null ) {
+			if( !algebraic.process(dataSet, found) )
+				return false;
+			initial = found;
+		}
 
 		codec.encode(initial,param);
 
@@ -103,4 +122,11 @@ public class FitSphereToPoints_F64 implements ModelFitter<Sphere3D_F64,Point3D_F
 	public /**/double getFitScore() {
 		return optimizer.getFunctionValue();
 	}
+
+	/**
+	 * Algebraic fit used when no initial estimate is provided
+	 */
+	public FitSphereAlgebraic_F64 getAlgebraic() {
+		return algebraic;
+	}
 }
@@ -0,0 +1,351 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.geometry;
+
+import georegression.misc.GrlConstants;
+import georegression.struct.EulerType;
+import georegression.transform.twist.LieGroupOps_F64;
+
+/**
+ * <p>
+ * Converts between rotation parameterizations for many rotations at once. Rotations are stored in packed arrays
+ * and the functions are the batch equivalents of the ones in {@link ConvertRotation3D_F64}. Anything which depends
+ * on the {@link EulerType} is resolved once per call and not once per rotation. The inner loops only work with
+ * local variables so that the JIT can optimize them.
+ * </p>
+ *
+ * Packed formats:
+ * <ul>
+ *     <li>Matrix: 9 elements, row-major 3x3 rotation matrix</li>
+ *     <li>Quaternion: 4 elements, (w,x,y,z). Must have a norm of one.</li>
+ *     <li>Euler: 3 elements, rotation around axis A, B, then C</li>
+ *     <li>Rodrigues: 3 elements, rotation vector. unit axis multiplied by the rotation angle</li>
+ * </ul>
+ *
+ * @author Peter Abeles
+ */
+public class ConvertRotation3DArray_F64 {
+
+	/**
+	 * Converts unit quaternions into rotation matrices
+	 *
+	 * @param quats (Input) Packed quaternions. Not modified.
+	 * @param count Number of rotations
+	 * @param matrices (Output) Packed rotation matrices. Modified.
+	 */
+	public static void quaternionToMatrix( double[] quats, int count, double[] matrices ) {
+		for (int i = 0; i < count; i++) {
+			int idx = i*4;
+			setQuaternion(quats[idx], quats[idx + 1], quats[idx + 2], quats[idx + 3], matrices, i*9);
+		}
+	}
+
+	/**
+	 * Converts rotation matrices into unit quaternions. The returned quaternions have w &ge; 0.
+	 *
+	 * @param matrices (Input) Packed rotation matrices. Not modified.
+	 * @param count Number of rotations
+	 * @param quats (Output) Packed quaternions. Modified.
+	 */
+	public static void matrixToQuaternion( double[] matrices, int count, double[] quats ) {
+		for (int i = 0; i < count; i++) {
+			int idx = i*9;
+			double m00 = matrices[idx    ], m01 = matrices[idx + 1], m02 = matrices[idx + 2];
+			double m10 = matrices[idx + 3], m11 = matrices[idx + 4], m12 = matrices[idx + 5];
+			double m20 = matrices[idx + 6], m21 = matrices[idx + 7], m22 = matrices[idx + 8];
+
+			// Same algorithm as ConvertRotation3D_F64.matrixToQuaternion()
+			double w, x, y, z;
+			double trace = m00 + m11 + m22;
+			if( trace > 0 ) {
+				double S = Math.sqrt(trace + 1.0)*2;
+				w = 0.25*S;
+				x = (m21 - m12)/S;
+				y = (m02 - m20)/S;
+				z = (m10 - m01)/S;
+			} else if( (m00 > m11) & (m00 > m22) ) {
+				double S = Math.sqrt(1.0 + m00 - m11 - m22)*2;
+				w = (m21 - m12)/S;
+				x = 0.25*S;
+				y = (m01 + m10)/S;
+				z = (m02 + m20)/S;
+			} else if( m11 > m22 ) {
+				double S = Math.sqrt(1.0 + m11 - m00 - m22)*2;
+				w = (m02 - m20)/S;
+				x = (m01 + m10)/S;
+				y = 0.25*S;
+				z = (m12 + m21)/S;
+			} else {
+				double S = Math.sqrt(1.0 + m22 - m00 - m11)*2;
+				w = (m10 - m01)/S;
+				x = (m02 + m20)/S;
+				y = (m12 + m21)/S;
+				z = 0.25*S;
+			}
+
+			// q and -q are the same rotation. Select the one with a positive w to make the output unique
+			double sign = w < 0 ? -1 : 1;
+			idx = i*4;
+			quats[idx    ] = sign*w;
+			quats[idx + 1] = sign*x;
+			quats[idx + 2] = sign*y;
+			quats[idx + 3] = sign*z;
+		}
+	}
+
+	/**
+	 * Converts Euler angles into rotation matrices
+	 *
+	 * @param type Type of Euler rotation
+	 * @param euler (Input) Packed Euler angles. Not modified.
+	 * @param count Number of rotations
+	 * @param matrices (Output) Packed rotation matrices. Modified.
+	 */
+	public static void eulerToMatrix( EulerType type, double[] euler, int count, double[] matrices ) {
+		eulerToQuaternion(type, euler, count, matrices, true);
+	}
+
+	/**
+	 * Converts Euler angles into unit quaternions
+	 *
+	 * @param type Type of Euler rotation
+	 * @param euler (Input) Packed Euler angles. Not modified.
+	 * @param count Number of rotations
+	 * @param quats (Output) Packed quaternions. Modified.
+	 */
+	public static void eulerToQuaternion( EulerType type, double[] euler, int count, double[] quats ) {
+		eulerToQuaternion(type, euler, count, quats, false);
+	}
+
+	/**
+	 * The rotation around each axis is a quaternion with a single non-zero vector component. The axis is
+	 * selected once with 0 or 1 masks and then the three quaternions are multiplied, q = qC*qB*qA, without
+	 * any branches.
+	 */
+	private static void eulerToQuaternion( EulerType type, double[] euler, int count, double[] output,
+										   boolean matrix ) {
+		final double ax = type.getAxisA() == 0 ? 1 : 0, ay = type.getAxisA() == 1 ? 1 : 0, az = type.getAxisA() == 2 ? 1 : 0;
+		final double bx = type.getAxisB() == 0 ? 1 : 0, by = type.getAxisB() == 1 ? 1 : 0, bz = type.getAxisB() == 2 ? 1 : 0;
+		final double cx = type.getAxisC() == 0 ? 1 : 0, cy = type.getAxisC() == 1 ? 1 : 0, cz = type.getAxisC() == 2 ? 1 : 0;
+
+		for (int i = 0; i < count; i++) {
+			int idx = i*3;
+			double angA = euler[idx]*0.5, angB = euler[idx + 1]*0.5, angC = euler[idx + 2]*0.5;
+			double ca = Math.cos(angA), sa = Math.sin(angA);
+			double cb = Math.cos(angB), sb = Math.sin(angB);
+			double cc = Math.cos(angC), sc = Math.sin(angC);
+
+			// qA = (ca, sa*a) and qB = (cb, sb*b)
+			double pax = sa*ax, pay = sa*ay, paz = sa*az;
+			double pbx = sb*bx, pby = sb*by, pbz = sb*bz;
+
+			// p = qB*qA
+			double pw = cb*ca - (pbx*pax + pby*pay + pbz*paz);
+			double px = cb*pax + ca*pbx + (pby*paz - pbz*pay);
+			double py = cb*pay + ca*pby + (pbz*pax - pbx*paz);
+			double pz = cb*paz + ca*pbz + (pbx*pay - pby*pax);
+
+			// q = qC*p
+			double pcx = sc*cx, pcy = sc*cy, pcz = sc*cz;
+			double qw = cc*pw - (pcx*px + pcy*py + pcz*pz);
+			double qx = cc*px + pw*pcx + (pcy*pz - pcz*py);
+			double qy = cc*py + pw*pcy + (pcz*px - pcx*pz);
+			double qz = cc*pz + pw*pcz + (pcx*py - pcy*px);
+
+			if( matrix ) {
+				setQuaternion(qw, qx, qy, qz, output, i*9);
+			} else {
+				int idxQ = i*4;
+				output[idxQ    ] = qw;
+				output[idxQ + 1] = qx;
+				output[idxQ + 2] = qy;
+				output[idxQ + 3] = qz;
+			}
+		}
+	}
+
+	/**
+	 * Converts rotation matrices into Euler angles. Produces the same results as
+	 * {@link ConvertRotation3D_F64#matrixToEuler}.
+	 *
+	 * @param matrices (Input) Packed rotation matrices. Not modified.
+	 * @param count Number of rotations
+	 * @param type Type of Euler rotation
+	 * @param euler (Output) Packed Euler angles. Modified.
+	 */
+	public static void matrixToEuler( double[] matrices, int count, EulerType type, double[] euler ) {
+		// Same look up tables as in ConvertRotation3D_F64. 1 to 9 is the element and the sign is multiplied
+		// by the value
+		final int[] lut;
+		final boolean tanSinTan;
+		switch( type ) {
+			// @formatter:off
+			case ZYX: lut = new int[]{-2,1,  3,  -6,9,  5,-7,4,8}; tanSinTan = true; break;
+			case ZYZ: lut = new int[]{8,-7,  9,   6,3,  5,-7,4,8}; tanSinTan = false; break;
+			case ZXY: lut = new int[]{4,5,  -6,   3,9,  1,8,-2,7}; tanSinTan = true; break;
+			case ZXZ: lut = new int[]{7,8,   9,  3,-6,  1,8,-2,7}; tanSinTan = false; break;
+			case YXZ: lut = new int[]{-7,9,  8, -2,5,  1,-6,3,4}; tanSinTan = true; break;
+			case YXY: lut = new int[]{4,-6,  5,  2,8,  1,-6,3,4}; tanSinTan = false; break;
+			case YZX: lut = new int[]{3,1,  -2,  8,5,  9,4,-7,6}; tanSinTan = true; break;
+			case YZY: lut = new int[]{6,4,   5,  8,-2, 9,4,-7,6}; tanSinTan = false; break;
+			case XYZ: lut = new int[]{8,9,  -7,  4,1,  5,3,-6,2}; tanSinTan = true; break;
+			case XYX: lut = new int[]{2,3,   1,  4,-7, 5,3,-6,2}; tanSinTan = false; break;
+			case XZY: lut = new int[]{-6,5,  4, -7,1,  9,-2,8,3}; tanSinTan = true; break;
+			case XZX: lut = new int[]{3,-2,  1,  7,4,  9,-2,8,3}; tanSinTan = false; break;
+			default: throw new IllegalArgumentException("Unknown rotation sequence");
+			// @formatter:on
+		}
+
+		// Convert the table into offsets and signs
+		final int iy0 = index(lut[0]), ix0 = index(lut[1]), i1 = index(lut[2]);
+		final int iy2 = index(lut[3]), ix2 = index(lut[4]);
+		final int ic0a = index(lut[5]), ic0b = index(lut[6]);
+		final int is0a = index(lut[7]), is0b = index(lut[8]);
+		final double sy0 = sign(lut[0]), sx0 = sign(lut[1]), s1 = sign(lut[2]);
+		final double sy2 = sign(lut[3]), sx2 = sign(lut[4]);
+		final double sc0a = sign(lut[5]), sc0b = sign(lut[6]);
+		final double ss0a = sign(lut[7]), ss0b = sign(lut[8]);
+
+		for (int i = 0; i < count; i++) {
+			int idx = i*9;
+			int idxE = i*3;
+			double val1 = s1*matrices[idx + i1];
+
+			// singular when the middle angle is at +-pi/2 for Tait-Bryan or 0 and pi for proper Euler
+			if( 1.0 - Math.abs(val1) <= GrlConstants.EPS ) {
+				double sign = tanSinTan ? Math.signum(val1) : 1;
+				double sin0 = (ss0a*matrices[idx + is0a] + sign*ss0b*matrices[idx + is0b])/2.0;
+				double cos0 = (sc0a*matrices[idx + ic0a] + sign*sc0b*matrices[idx + ic0b])/2.0;
+				euler[idxE    ] = Math.atan2(sin0, cos0);
+				euler[idxE + 1] = tanSinTan ? sign*GrlConstants.PId2 : 0;
+				euler[idxE + 2] = 0;
+			} else {
+				euler[idxE    ] = Math.atan2(sy0*matrices[idx + iy0], sx0*matrices[idx + ix0]);
+				euler[idxE + 1] = tanSinTan ? Math.asin(val1) : Math.acos(val1);
+				euler[idxE + 2] = Math.atan2(sy2*matrices[idx + iy2], sx2*matrices[idx + ix2]);
+			}
+		}
+	}
+
+	/**
+	 * Converts rotation vectors into rotation matrices.
+	 *
+	 * @see LieGroupOps_F64#expSO3(double[], int, double[])
+	 *
+	 * @param rodrigues (Input) Packed rotation vectors. Not modified.
+	 * @param count Number of rotations
+	 * @param matrices (Output) Packed rotation matrices. Modified.
+	 */
+	public static void rodriguesToMatrix( double[] rodrigues, int count, double[] matrices ) {
+		LieGroupOps_F64.expSO3(rodrigues, count, matrices);
+	}
+
+	/**
+	 * Converts rotation matrices into rotation vectors. The angle will be from 0 to &pi;.
+	 *
+	 * @see LieGroupOps_F64#logSO3(double[], int, double[])
+	 *
+	 * @param matrices (Input) Packed rotation matrices. Not modified.
+	 * @param count Number of rotations
+	 * @param rodrigues (Output) Packed rotation vectors. Modified.
+	 */
+	public static void matrixToRodrigues( double[] matrices, int count, double[] rodrigues ) {
+		LieGroupOps_F64.logSO3(matrices, count, rodrigues);
+	}
+
+	/**
+	 * Converts unit quaternions into rotation vectors
+	 *
+	 * @param quats (Input) Packed quaternions. Not modified.
+	 * @param count Number of rotations
+	 * @param rodrigues (Output) Packed rotation vectors. Modified.
+	 */
+	public static void quaternionToRodrigues( double[] quats, int count, double[] rodrigues ) {
+		for (int i = 0; i < count; i++) {
+			int idx = i*4;
+			double w = quats[idx], x = quats[idx + 1], y = quats[idx + 2], z = quats[idx + 3];
+			// select the quaternion with w >= 0 so that the angle is less than pi
+			if( w < 0 ) {
+				w = -w; x = -x; y = -y; z = -z;
+			}
+			// theta = 2*atan2(|v|,w) is accurate for all angles, unlike acos(w)
+			double n = Math.sqrt(x*x + y*y + z*z);
+			double angle = Math.atan2(n, w);
+			double scale = n <= GrlConstants.EPS ? 2.0/w : 2.0*angle/n;
+
+			idx = i*3;
+			rodrigues[idx    ] = x*scale;
+			rodrigues[idx + 1] = y*scale;
+			rodrigues[idx + 2] = z*scale;
+		}
+	}
+
+	/**
+	 * Converts rotation vectors into unit quaternions
+	 *
+	 * @param rodrigues (Input) Packed rotation vectors. Not modified.
+	 * @param count Number of rotations
+	 * @param quats (Output) Packed quaternions. Modified.
+	 */
+	public static void rodriguesToQuaternion( double[] rodrigues, int count, double[] quats ) {
+		for (int i = 0; i < count; i++) {
+			int idx = i*3;
+			double x = rodrigues[idx], y = rodrigues[idx + 1], z = rodrigues[idx + 2];
+			double theta2 = x*x + y*y + z*z;
+			double theta = Math.sqrt(theta2);
+			double half = theta*0.5;
+			// sin(theta/2)/theta with a Taylor series for small angles
+			double scale = theta2 < LieGroupOps_F64.SMALL_ANGLE_SQ ? 0.5 - theta2/48*(1 - theta2/80) : Math.sin(half)/theta;
+
+			idx = i*4;
+			quats[idx    ] = Math.cos(half);
+			quats[idx + 1] = x*scale;
+			quats[idx + 2] = y*scale;
+			quats[idx + 3] = z*scale;
+		}
+	}
+
+	/**
+	 * Index of the element in the look up table, which starts at 1 and can be negative
+	 */
+	private static int index( int value ) {
+		return value < 0 ? -value - 1 : value - 1;
+	}
+
+	private static double sign( int value ) {
+		return value < 0 ? -1 : 1;
+	}
+
+	private static void setQuaternion( double w, double x, double y, double z, double[] R, int idx ) {
+		double ww = w*w, xx = x*x, yy = y*y, zz = z*z;
+		double xy = x*y, xz = x*z, yz = y*z;
+		double wx = w*x, wy = w*y, wz = w*z;
+
+		R[idx    ] = ww + xx - yy - zz;
+		R[idx + 1] = 2.0*(xy - wz);
+		R[idx + 2] = 2.0*(xz + wy);
+		R[idx + 3] = 2.0*(xy + wz);
+		R[idx + 4] = ww - xx + yy - zz;
+		R[idx + 5] = 2.0*(yz - wx);
+		R[idx + 6] = 2.0*(xz - wy);
+		R[idx + 7] = 2.0*(yz + wx);
+		R[idx + 8] = ww - xx - yy + zz;
+	}
+}
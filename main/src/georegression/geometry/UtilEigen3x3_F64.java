@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.geometry;
+
+import georegression.misc.GrlConstants;
+import georegression.struct.point.Vector3D_F64;
+
+/**
+ * <p>
+ * Closed form eigen decomposition of symmetric 3x3 matrices, such as the covariance matrix of a set of 3D points.
+ * Eigenvalues are found from the roots of the characteristic polynomial using the trigonometric solution and
+ * eigenvectors from cross products of the rows of (A - &lambda;I). This is much faster than a general purpose
+ * iterative solver and doesn't allocate memory, but the smallest eigenvalue is only accurate to about
+ * machine precision times the largest eigenvalue.
+ * </p>
+ *
+ * <p>
+ * The symmetric matrix is specified by its upper triangle: (a11, a12, a13, a22, a23, a33).
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class UtilEigen3x3_F64 {
+
+	/**
+	 * Computes the eigenvalues of a symmetric 3x3 matrix.
+	 *
+	 * @param values (Output) Eigenvalues sorted from smallest to largest. Array of length 3. Modified.
+	 */
+	public static void eigenvaluesSymmetric( double a11, double a12, double a13,
+											 double a22, double a23, double a33, double[] values ) {
+		// scale the matrix to avoid overflow and underflow
+		double scale = Math.max(Math.abs(a11), Math.max(Math.abs(a12), Math.abs(a13)));
+		scale = Math.max(scale, Math.max(Math.abs(a22), Math.max(Math.abs(a23), Math.abs(a33))));
+		if( scale == 0 ) {
+			values[0] = values[1] = values[2] = 0;
+			return;
+		}
+		a11 /= scale; a12 /= scale; a13 /= scale;
+		a22 /= scale; a23 /= scale; a33 /= scale;
+
+		double offDiagonal = a12*a12 + a13*a13 + a23*a23;
+		double q = (a11 + a22 + a33)/3.0;
+		double b11 = a11 - q, b22 = a22 - q, b33 = a33 - q;
+		double p2 = (b11*b11 + b22*b22 + b33*b33 + 2.0*offDiagonal)/6.0;
+
+		double e0, e1, e2;
+		if( p2 == 0 ) {
+			e0 = e1 = e2 = q;
+		} else {
+			double p = Math.sqrt(p2);
+			// determinant of B = (A - q*I)/p divided by two
+			double det = b11*(b22*b33 - a23*a23) - a12*(a12*b33 - a23*a13) + a13*(a12*a23 - b22*a13);
+			double r = det/(2.0*p2*p);
+			r = r < -1 ? -1 : (r > 1 ? 1 : r);
+			double phi = Math.acos(r)/3.0;
+
+			double cosLarge = Math.cos(phi);
+			double cosSmall = Math.cos(phi + GrlConstants.PI2/3.0);
+			e2 = q + 2.0*p*cosLarge;
+			e0 = q + 2.0*p*cosSmall;
+			e1 = 3.0*q - e0 - e2;
+		}
+
+		values[0] = e0*scale;
+		values[1] = e1*scale;
+		values[2] = e2*scale;
+	}
+
+	/**
+	 * Computes the eigenvector of a symmetric 3x3 matrix for the specified eigenvalue. This will fail if the
+	 * eigenvalue is repeated, since the eigenvector isn't unique, or if it's not an eigenvalue.
+	 *
+	 * @param lambda Eigenvalue
+	 * @param vector (Output) Unit length eigenvector. Modified.
+	 * @return true if successful or false if the eigenvector isn't unique
+	 */
+	public static boolean eigenvectorSymmetric( double a11, double a12, double a13,
+												double a22, double a23, double a33,
+												double lambda, Vector3D_F64 vector ) {
+		// scale the matrix to avoid overflow and underflow in the cross products
+		double scale = Math.max(Math.abs(a11), Math.max(Math.abs(a12), Math.abs(a13)));
+		scale = Math.max(scale, Math.max(Math.abs(a22), Math.max(Math.abs(a23), Math.abs(a33))));
+		if( scale == 0 )
+			return false;
+
+		// rows of (A - lambda*I)/scale. The eigenvector is orthogonal to all of them
+		double r0x = (a11 - lambda)/scale, r0y = a12/scale, r0z = a13/scale;
+		double r1x = a12/scale, r1y = (a22 - lambda)/scale, r1z = a23/scale;
+		double r2x = a13/scale, r2y = a23/scale, r2z = (a33 - lambda)/scale;
+
+		// use the cross product with the largest magnitude since it's the most numerically stable
+		double c01x = r0y*r1z - r0z*r1y, c01y = r0z*r1x - r0x*r1z, c01z = r0x*r1y - r0y*r1x;
+		double c02x = r0y*r2z - r0z*r2y, c02y = r0z*r2x - r0x*r2z, c02z = r0x*r2y - r0y*r2x;
+		double c12x = r1y*r2z - r1z*r2y, c12y = r1z*r2x - r1x*r2z, c12z = r1x*r2y - r1y*r2x;
+
+		double n01 = c01x*c01x + c01y*c01y + c01z*c01z;
+		double n02 = c02x*c02x + c02y*c02y + c02z*c02z;
+		double n12 = c12x*c12x + c12y*c12y + c12z*c12z;
+
+		double best;
+		if( n01 >= n02 && n01 >= n12 ) {
+			vector.set(c01x, c01y, c01z);
+			best = n01;
+		} else if( n02 >= n12 ) {
+			vector.set(c02x, c02y, c02z);
+			best = n02;
+		} else {
+			vector.set(c12x, c12y, c12z);
+			best = n12;
+		}
+
+		// the rows are all parallel when the eigenvalue is repeated
+		double rowScale = r0x*r0x + r0y*r0y + r0z*r0z + r1x*r1x + r1y*r1y + r1z*r1z +
+				r2x*r2x + r2y*r2y + r2z*r2z;
+		if( best <= GrlConstants.EPS*rowScale*rowScale )
+			return false;
+
+		double norm = Math.sqrt(best);
+		vector.x /= norm;
+		vector.y /= norm;
+		vector.z /= norm;
+		return true;
+	}
+}
@@ -18,17 +18,22 @@
 
 package georegression.geometry.algs;
 
-import georegression.geometry.UtilPolygons2D_F64;
-import georegression.struct.point.Point2D_I32;
+import georegression.misc.GrlConcurrency;
 import georegression.struct.shapes.Polygon2D_F64;
-import georegression.struct.shapes.Rectangle2D_F64;
+import org.ejml.data.DMatrixRMaj;
+
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * <p>
  * Computes the area of intersection between two convex polygons. Port of code found at [1] and Java version by Lagado.
  * </p>
  *
- * WARNING: No effort has been made to reduce the number of calls to new internally from original code.
+ * <p>
+ * Vertexes are stored in primitive arrays which are reused between calls. Once the arrays have grown to the size
+ * of the largest polygon no more memory is allocated.
+ * </p>
  *
  * [1] http://www.cap-lore.com/MathPhys/IP/
  *
@@ -38,10 +43,21 @@ public class AreaIntersectionPolygon2D_F64 {
 	static final double gamut = (double)500000000.0;
 	static final double mid = gamut / (double)2.0;
 
+	// Minimum number of rows in the IoU matrix processed by a thread
+	static final int IOU_BLOCK_SIZE = 4;
+
 	private long ssss;
 	private double sclx;
 	private double scly;
 
+	// vertexes for the two polygons in integer coordinates
+	private final Vertexes ipa = new Vertexes();
+	private final Vertexes ipb = new Vertexes();
+
+	// bounding box of each polygon in the two sets (x0,y0,x1,y1) and their areas. Used when computing IoU
+	private double[] boundsA = new double[0], boundsB = new double[0];
+	private double[] areasA = new double[0], areasB = new double[0];
+
 	/**
 	 * Computes the area of the intersection between the two polygons.
 	 *
@@ -59,95 +75,213 @@ public class AreaIntersectionPolygon2D_F64 {
 		return inter(a,b);
 	}
 
-	//--------------------------------------------------------------------------
+	/**
+	 * Computes the intersection over union (IoU) between every polygon in set A and every polygon in set B. Pairs
+	 * with bounding boxes that don't overlap are skipped. The area of each polygon is computed only once.
+	 *
+	 * @param setA (Input) First set of polygons. Each polygon must be simple.
+	 * @param setB (Input) Second set of polygons. Each polygon must be simple.
+	 * @param iou (Output) IoU between polygon i in A and j in B is stored in row i and column j. Reshaped.
+	 */
+	public void computeIoU( List<Polygon2D_F64> setA, List<Polygon2D_F64> setB, DMatrixRMaj iou ) {
+		prepareIoU(setA, setB, iou);
+		computeIoU(setA, setB, 0, setA.size(), iou);
+	}
+
+	/**
+	 * Concurrent version of {@link #computeIoU(List, List, DMatrixRMaj)}. Rows are split between threads.
+	 */
+	public void computeIoUParallel( List<Polygon2D_F64> setA, List<Polygon2D_F64> setB, DMatrixRMaj iou ) {
+		prepareIoU(setA, setB, iou);
+		GrlConcurrency.loopBlocks(0, setA.size(), IOU_BLOCK_SIZE, ( idx0, idx1 ) -> {
+			AreaIntersectionPolygon2D_F64 alg = new AreaIntersectionPolygon2D_F64();
+			alg.boundsA = boundsA;
+			alg.boundsB = boundsB;
+			alg.areasA = areasA;
+			alg.areasB = areasB;
+			alg.computeIoU(setA, setB, idx0, idx1, iou);
+		});
+	}
 
-	static class Rng {
-		int mn; int mx;
-		Rng(int mn, int mx) { this.mn = mn; this.mx = mx; }
+	/**
+	 * Computes the bounding box and area of each polygon
+	 */
+	private void prepareIoU( List<Polygon2D_F64> setA, List<Polygon2D_F64> setB, DMatrixRMaj iou ) {
+		iou.reshape(setA.size(), setB.size());
+		if( areasA.length < setA.size() ) {
+			boundsA = new double[setA.size()*4];
+			areasA = new double[setA.size()];
+		}
+		if( areasB.length < setB.size() ) {
+			boundsB = new double[setB.size()*4];
+			areasB = new double[setB.size()];
+		}
+		for (int i = 0; i < setA.size(); i++) {
+			Polygon2D_F64 p = setA.get(i);
+			bounding(p, boundsA, i*4);
+			areasA[i] = p.areaSimple();
+		}
+		for (int i = 0; i < setB.size(); i++) {
+			Polygon2D_F64 p = setB.get(i);
+			bounding(p, boundsB, i*4);
+			areasB[i] = p.areaSimple();
+		}
+	}
+
+	/**
+	 * Computes IoU for rows row0 to row1-1
+	 */
+	private void computeIoU( List<Polygon2D_F64> setA, List<Polygon2D_F64> setB, int row0, int row1, DMatrixRMaj iou ) {
+		final int M = setB.size();
+		for (int i = row0; i < row1; i++) {
+			int idxA = i*4;
+			for (int j = 0; j < M; j++) {
+				int idxB = j*4;
+				double value = 0;
+				if( boundsA[idxA] < boundsB[idxB+2] && boundsB[idxB] < boundsA[idxA+2] &&
+						boundsA[idxA+1] < boundsB[idxB+3] && boundsB[idxB+1] < boundsA[idxA+3] ) {
+					double intersection = Math.abs(computeArea(setA.get(i), setB.get(j)));
+					double union = areasA[i] + areasB[j] - intersection;
+					if( union > 0 )
+						value = intersection/union;
+				}
+				iou.data[i*M + j] = value;
+			}
+		}
+	}
+
+	private static void bounding( Polygon2D_F64 polygon, double[] bounds, int offset ) {
+		double x0 = Double.MAX_VALUE, y0 = Double.MAX_VALUE, x1 = -Double.MAX_VALUE, y1 = -Double.MAX_VALUE;
+		for (int i = 0; i < polygon.size(); i++) {
+			double x = polygon.vertexes.data[i].x;
+			double y = polygon.vertexes.data[i].y;
+			if( x < x0 ) x0 = x;
+			if( x > x1 ) x1 = x;
+			if( y < y0 ) y0 = y;
+			if( y > y1 ) y1 = y;
+		}
+		bounds[offset  ] = x0;
+		bounds[offset+1] = y0;
+		bounds[offset+2] = x1;
+		bounds[offset+3] = y1;
 	}
-	static class Vertex { Point2D_I32 ip; Rng rx; Rng ry; int in; }
 
 	//--------------------------------------------------------------------------
 
-	private static void range(Polygon2D_F64 points, Rectangle2D_F64 bbox)
-	{
-		UtilPolygons2D_F64.bounding(points,bbox);
+	/**
+	 * Polygon's vertexes in integer coordinates along with the range of each edge. Element 'size' is a copy of
+	 * element 0 so that the polygon is closed.
+	 */
+	static class Vertexes {
+		int[] x = new int[0], y = new int[0];
+		// range of the edge which starts at each vertex
+		int[] rxMin = new int[0], rxMax = new int[0];
+		int[] ryMin = new int[0], ryMax = new int[0];
+		int[] in = new int[0];
+
+		void reserve( int size ) {
+			if( x.length >= size + 1 )
+				return;
+			x = new int[size + 1];
+			y = new int[size + 1];
+			rxMin = new int[size];
+			rxMax = new int[size];
+			ryMin = new int[size];
+			ryMax = new int[size];
+			in = new int[size];
+		}
 	}
 
-	private static long area(Point2D_I32 a, Point2D_I32 p, Point2D_I32 q) {
-		return (long)p.x * q.y - (long)p.y * q.x +
-				(long)a.x * (p.y - q.y) + (long)a.y * (q.x - p.x);
+	//--------------------------------------------------------------------------
+
+	private static long area(int ax, int ay, int px, int py, int qx, int qy) {
+		return (long)px * qy - (long)py * qx +
+				(long)ax * (py - qy) + (long)ay * (qx - px);
 	}
 
-	private static boolean ovl(Rng p, Rng q) {
-		return p.mn < q.mx && q.mn < p.mx;
+	private static long area(Vertexes A, int a, Vertexes P, int p, int q) {
+		return area(A.x[a], A.y[a], P.x[p], P.y[p], P.x[q], P.y[q]);
 	}
 
 	private void cntrib(int f_x, int f_y, int t_x, int t_y, int w) {
 		ssss += (long)w * (t_x - f_x) * (t_y + f_y) / 2;
 	}
 
-	private void fit(Polygon2D_F64 x, Vertex[] ix, int fudge, Rectangle2D_F64 B)
+	private void fit(Polygon2D_F64 x, Vertexes ix, int fudge, double minX, double minY)
 	{
-		int c = x.size();
+		final int N = x.size();
+		ix.reserve(N);
+
+		int c = N;
 		while (c-- > 0) {
-			ix[c] = new Vertex();
-			ix[c].ip = new Point2D_I32();
-			ix[c].ip.x = ((int)((x.get(c).getX() - B.p0.x) * sclx - mid) & ~7)
+			ix.x[c] = ((int)((x.get(c).getX() - minX) * sclx - mid) & ~7)
 					| fudge | (c & 1);
-			ix[c].ip.y = ((int)((x.get(c).getY() - B.p0.y) * scly - mid) & ~7)
+			ix.y[c] = ((int)((x.get(c).getY() - minY) * scly - mid) & ~7)
 					| fudge;
 		}
 
-		ix[0].ip.y += x.size() & 1;
-		ix[x.size()] = ix[0];
+		ix.y[0] += N & 1;
+		ix.x[N] = ix.x[0];
+		ix.y[N] = ix.y[0];
 
-		c = x.size();
+		c = N;
 		while (c-- > 0) {
-			ix[c].rx = ix[c].ip.x < ix[c + 1].ip.x ?
-					new Rng(ix[c].ip.x, ix[c + 1].ip.x) :
-					new Rng(ix[c + 1].ip.x, ix[c].ip.x);
-			ix[c].ry = ix[c].ip.y < ix[c + 1].ip.y ?
-					new Rng(ix[c].ip.y, ix[c + 1].ip.y) :
-					new Rng(ix[c + 1].ip.y, ix[c].ip.y);
-			ix[c].in = 0;
+			if( ix.x[c] < ix.x[c + 1] ) {
+				ix.rxMin[c] = ix.x[c];
+				ix.rxMax[c] = ix.x[c + 1];
+			} else {
+				ix.rxMin[c] = ix.x[c + 1];
+				ix.rxMax[c] = ix.x[c];
+			}
+			if( ix.y[c] < ix.y[c + 1] ) {
+				ix.ryMin[c] = ix.y[c];
+				ix.ryMax[c] = ix.y[c + 1];
+			} else {
+				ix.ryMin[c] = ix.y[c + 1];
+				ix.ryMax[c] = ix.y[c];
+			}
 		}
+		Arrays.fill(ix.in, 0, N, 0);
 	}
 
-	private void cross(Vertex a, Vertex b, Vertex c, Vertex d,
+	/**
+	 * Handles the crossing of edge a in polygon A with edge c in polygon C
+	 */
+	private void cross(Vertexes A, int a, Vertexes C, int c,
 		  double a1, double a2, double a3, double a4)
 	{
 		double r1 = a1 / ((double) a1 + a2);
 		double r2 = a3 / ((double) a3 + a4);
 
-		cntrib((int)(a.ip.x + r1 * (b.ip.x - a.ip.x)),
-				(int)(a.ip.y + r1 * (b.ip.y - a.ip.y)),
-				b.ip.x, b.ip.y, 1);
-		cntrib(d.ip.x, d.ip.y,
-				(int)(c.ip.x + r2 * (d.ip.x - c.ip.x)),
-				(int)(c.ip.y + r2 * (d.ip.y - c.ip.y)),
+		int b = a + 1, d = c + 1;
+		cntrib((int)(A.x[a] + r1 * (A.x[b] - A.x[a])),
+				(int)(A.y[a] + r1 * (A.y[b] - A.y[a])),
+				A.x[b], A.y[b], 1);
+		cntrib(C.x[d], C.y[d],
+				(int)(C.x[c] + r2 * (C.x[d] - C.x[c])),
+				(int)(C.y[c] + r2 * (C.y[d] - C.y[c])),
 				1);
-		++a.in;
-		--c.in;
+		++A.in[a];
+		--C.in[c];
 	}
 
-	private void inness(Vertex[] P, int cP, Vertex[] Q, int cQ)
+	private void inness(Vertexes P, int cP, Vertexes Q, int cQ)
 	{
 		int s = 0;
 		int c = cQ;
-		Point2D_I32 p = P[0].ip;
+		int px = P.x[0], py = P.y[0];
 
 		while (c-- > 0) {
-			if (Q[c].rx.mn < p.x && p.x < Q[c].rx.mx) {
-				boolean sgn = 0 < area(p, Q[c].ip, Q[c + 1].ip);
-				s += (sgn != Q[c].ip.x < Q[c + 1].ip.x) ? 0 : (sgn ? -1 : 1);
+			if (Q.rxMin[c] < px && px < Q.rxMax[c]) {
+				boolean sgn = 0 < area(px, py, Q.x[c], Q.y[c], Q.x[c + 1], Q.y[c + 1]);
+				s += (sgn != Q.x[c] < Q.x[c + 1]) ? 0 : (sgn ? -1 : 1);
 			}
 		}
 		for (int j = 0; j < cP; ++j) {
 			if (s != 0)
-				cntrib(P[j].ip.x, P[j].ip.y,
-						P[j + 1].ip.x, P[j + 1].ip.y, s);
-			s += P[j].in;
+				cntrib(P.x[j], P.y[j],
+						P.x[j + 1], P.y[j + 1], s);
+			s += P.in[j];
 		}
 	}
 
@@ -158,44 +292,48 @@ public class AreaIntersectionPolygon2D_F64 {
 		if (a.size() < 3 || b.size() < 3)
 			return 0;
 
-		//		int na = a.size();
-//		int nb = b.size();
-		Vertex[] ipa = new Vertex[a.size() + 1];
-		Vertex[] ipb = new Vertex[b.size()+ 1];
-		Rectangle2D_F64 bbox = new Rectangle2D_F64(
-				Double.MAX_VALUE, Double.MAX_VALUE,
-				-Double.MAX_VALUE, -Double.MAX_VALUE);
-
-
-		range(a, bbox);
-		range(b, bbox);
+		// Bounding box of both polygons, which defines the integer quantization. The original code computed the
+		// bounding box of 'a' then overwrote it with the one of 'b'. Vertexes of 'a' outside of it would then
+		// fall outside of the quantization range and produce incorrect results.
+		double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+		double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+		for (int i = 0; i < a.size(); i++) {
+			minX = Math.min(minX, a.vertexes.data[i].x);
+			minY = Math.min(minY, a.vertexes.data[i].y);
+			maxX = Math.max(maxX, a.vertexes.data[i].x);
+			maxY = Math.max(maxY, a.vertexes.data[i].y);
+		}
+		for (int i = 0; i < b.size(); i++) {
+			minX = Math.min(minX, b.vertexes.data[i].x);
+			minY = Math.min(minY, b.vertexes.data[i].y);
+			maxX = Math.max(maxX, b.vertexes.data[i].x);
+			maxY = Math.max(maxY, b.vertexes.data[i].y);
+		}
 
-		double rngx = bbox.p1.x - bbox.p0.x;
+		double rngx = maxX - minX;
 		sclx = gamut / rngx;
-		double rngy = bbox.p1.y - bbox.p0.y;
+		double rngy = maxY - minY;
 		scly = gamut / rngy;
 		double ascale = sclx * scly;
 
-		fit(a, ipa, 0, bbox);
-		fit(b, ipb, 2, bbox);
+		fit(a, ipa, 0, minX, minY);
+		fit(b, ipb, 2, minX, minY);
 
 		for (int j = 0; j < a.size(); ++j) {
 			for (int k = 0; k < b.size(); ++k) {
-				if (ovl(ipa[j].rx, ipb[k].rx) && ovl(ipa[j].ry, ipb[k].ry)) {
-					long a1 = -area(ipa[j].ip, ipb[k].ip, ipb[k + 1].ip);
-					long a2 = area(ipa[j + 1].ip, ipb[k].ip, ipb[k + 1].ip);
+				if (ipa.rxMin[j] < ipb.rxMax[k] && ipb.rxMin[k] < ipa.rxMax[j] &&
+						ipa.ryMin[j] < ipb.ryMax[k] && ipb.ryMin[k] < ipa.ryMax[j]) {
+					long a1 = -area(ipa, j, ipb, k, k + 1);
+					long a2 = area(ipa, j + 1, ipb, k, k + 1);
 					boolean o = a1 < 0;
 					if (o == a2 < 0) {
-						long a3 = area(ipb[k].ip, ipa[j].ip, ipa[j + 1].ip);
-						long a4 = -area(ipb[k + 1].ip, ipa[j].ip,
-								ipa[j + 1].ip);
+						long a3 = area(ipb, k, ipa, j, j + 1);
+						long a4 = -area(ipb, k + 1, ipa, j, j + 1);
 						if (a3 < 0 == a4 < 0) {
 							if (o)
-								cross(ipa[j], ipa[j + 1], ipb[k], ipb[k + 1],
-										a1, a2, a3, a4);
+								cross(ipa, j, ipb, k, a1, a2, a3, a4);
 							else
-								cross(ipb[k], ipb[k + 1], ipa[j], ipa[j + 1],
-										a3, a4, a1, a2);
+								cross(ipb, k, ipa, j, a3, a4, a1, a2);
 						}
 					}
 				}
@@ -0,0 +1,679 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.index;
+
+import georegression.metric.alg.DistancePointTriangle3D_F64;
+import georegression.misc.GrlConcurrency;
+import georegression.struct.line.LineParametric3D_F64;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.shapes.Triangle3D_F64;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * Bounding volume hierarchy (BVH) for a triangle mesh. Used to find where rays first hit the mesh, if a ray
+ * hits the mesh at all, and the closest point on the mesh. The tree is built top down and nodes are split using
+ * the surface area heuristic (SAH) evaluated at evenly spaced bins along the axis with the largest spread of
+ * triangle centroids.
+ * </p>
+ *
+ * <p>
+ * The tree is stored in flat arrays in depth first order, so the left child of a node is always the next node.
+ * Triangles are copied into a packed array in the order they appear in the leaves. Each triangle is stored
+ * as one vertex and two edges, which is what's needed by the ray-triangle intersection test [1].
+ * </p>
+ *
+ * <p>
+ * Once built, the BVH is not modified by queries. Queries are done through a {@link Search}, which contains
+ * the workspace, and one should be created for each thread.
+ * </p>
+ *
+ * <p>
+ * [1] Möller, Tomas, and Ben Trumbore. "Fast, minimum storage ray-triangle intersection." Journal of
+ * graphics tools 2.1 (1997): 21-28.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class BvhTriangle3D_F64 {
+	// Number of bins the SAH is evaluated at
+	static final int NUM_BINS = 16;
+	// Maximum depth of the tree. Deep enough for any practical mesh
+	static final int MAX_DEPTH = 64;
+	// Minimum number of rays processed by a thread
+	static final int RAY_BLOCK_SIZE = 1000;
+
+	// maximum number of triangles in a leaf
+	int maxLeafSize;
+
+	// number of triangles
+	int numTriangles;
+	// triangles in the order they are referenced by the leaves (v0, v1-v0, v2-v0)
+	double[] triangles = new double[0];
+	// original index of each triangle in the packed array
+	int[] order = new int[0];
+
+	// total number of nodes in the tree
+	int numNodes;
+	// axis aligned bounding box of each node (x0,y0,z0,x1,y1,z1)
+	double[] nodeBounds = new double[0];
+	// range of triangles in the node
+	int[] nodeStart = new int[0];
+	int[] nodeEnd = new int[0];
+	// index of the right child. -1 if the node is a leaf
+	int[] nodeRight = new int[0];
+
+	// Workspace used while building. bounds and centroid of each triangle by their original index
+	double[] triBounds = new double[0];
+	double[] centroids = new double[0];
+	// workspace for SAH bins
+	int[] binCounts = new int[NUM_BINS];
+	double[] binBounds = new double[NUM_BINS*6];
+	double[] rightAreas = new double[NUM_BINS];
+	double[] workBounds = new double[6];
+	double[] workCentroidBounds = new double[6];
+
+	/**
+	 * @param maxLeafSize Maximum number of triangles in a leaf
+	 */
+	public BvhTriangle3D_F64( int maxLeafSize ) {
+		if( maxLeafSize < 1 )
+			throw new IllegalArgumentException("maxLeafSize must be at least 1");
+		this.maxLeafSize = maxLeafSize;
+	}
+
+	public BvhTriangle3D_F64() {
+		this(4);
+	}
+
+	/**
+	 * Builds the BVH from a list of triangles. The triangles are copied internally.
+	 *
+	 * @param triangles Triangles in the mesh. Not modified.
+	 */
+	public void setTriangles( List<Triangle3D_F64> triangles ) {
+		final int N = triangles.size();
+		double[] vertices = new double[N*9];
+		for (int i = 0; i < N; i++) {
+			Triangle3D_F64 t = triangles.get(i);
+			vertices[i*9  ] = t.v0.x; vertices[i*9+1] = t.v0.y; vertices[i*9+2] = t.v0.z;
+			vertices[i*9+3] = t.v1.x; vertices[i*9+4] = t.v1.y; vertices[i*9+5] = t.v1.z;
+			vertices[i*9+6] = t.v2.x; vertices[i*9+7] = t.v2.y; vertices[i*9+8] = t.v2.z;
+		}
+		setTriangles(vertices, N);
+	}
+
+	/**
+	 * Builds the BVH from triangles in a packed array. Each triangle is described by 9 elements, which are its 3
+	 * vertices, e.g. (x0,y0,z0,x1,y1,z1,x2,y2,z2).
+	 *
+	 * @param vertices Packed array containing the triangle vertices. Not modified.
+	 * @param numTriangles Number of triangles in the array
+	 */
+	public void setTriangles( double[] vertices, int numTriangles ) {
+		final int N = this.numTriangles = numTriangles;
+
+		if( order.length < N ) {
+			order = new int[N];
+			triangles = new double[N*9];
+			triBounds = new double[N*6];
+			centroids = new double[N*3];
+		}
+
+		for (int i = 0; i < N; i++) {
+			int idx = i*9;
+			for (int axis = 0; axis < 3; axis++) {
+				double a = vertices[idx + axis], b = vertices[idx + 3 + axis], c = vertices[idx + 6 + axis];
+				double lower = Math.min(a, Math.min(b, c));
+				double upper = Math.max(a, Math.max(b, c));
+				triBounds[i*6 + axis] = lower;
+				triBounds[i*6 + 3 + axis] = upper;
+				centroids[i*3 + axis] = (lower + upper)/2;
+			}
+			order[i] = i;
+		}
+
+		numNodes = 0;
+		if( N > 0 ) {
+			build(0, N, 0);
+		}
+
+		// copy the triangles into the order they are referenced by the leaves
+		for (int i = 0; i < N; i++) {
+			int src = order[i]*9;
+			int dst = i*9;
+			for (int axis = 0; axis < 3; axis++) {
+				double v0 = vertices[src + axis];
+				triangles[dst + axis] = v0;
+				triangles[dst + 3 + axis] = vertices[src + 3 + axis] - v0;
+				triangles[dst + 6 + axis] = vertices[src + 6 + axis] - v0;
+			}
+		}
+	}
+
+	/**
+	 * Recursively creates the node which contains the triangles from start to end-1 in 'order'
+	 *
+	 * @return index of the node
+	 */
+	private int build( int start, int end, int depth ) {
+		int node = numNodes++;
+		if( node >= nodeStart.length ) {
+			growNodes(Math.max(16, nodeStart.length*2));
+		}
+
+		// bounds of the node and the centroids inside of it
+		double[] bounds = workBounds;
+		double[] centroidBounds = workCentroidBounds;
+		initBounds(bounds, 0);
+		initBounds(centroidBounds, 0);
+		for (int i = start; i < end; i++) {
+			int index = order[i];
+			for (int axis = 0; axis < 3; axis++) {
+				bounds[axis] = Math.min(bounds[axis], triBounds[index*6 + axis]);
+				bounds[axis + 3] = Math.max(bounds[axis + 3], triBounds[index*6 + 3 + axis]);
+				double c = centroids[index*3 + axis];
+				centroidBounds[axis] = Math.min(centroidBounds[axis], c);
+				centroidBounds[axis + 3] = Math.max(centroidBounds[axis + 3], c);
+			}
+		}
+		System.arraycopy(bounds, 0, nodeBounds, node*6, 6);
+		nodeStart[node] = start;
+		nodeEnd[node] = end;
+		nodeRight[node] = -1;
+
+		if( end - start <= maxLeafSize || depth >= MAX_DEPTH - 1 )
+			return node;
+
+		// split along the axis with the largest spread of centroids
+		int axis = 0;
+		for (int i = 1; i < 3; i++) {
+			if( centroidBounds[i + 3] - centroidBounds[i] > centroidBounds[axis + 3] - centroidBounds[axis] )
+				axis = i;
+		}
+		double lower = centroidBounds[axis];
+		double extent = centroidBounds[axis + 3] - lower;
+		if( extent <= 0 )
+			return node; // all the centroids are at the same location and it can't be split
+
+		// evaluate the SAH at bin boundaries
+		Arrays.fill(binCounts, 0);
+		for (int i = 0; i < NUM_BINS; i++) {
+			initBounds(binBounds, i*6);
+		}
+		double scale = NUM_BINS/extent;
+		for (int i = start; i < end; i++) {
+			int index = order[i];
+			int bin = bin(centroids[index*3 + axis], lower, scale);
+			binCounts[bin]++;
+			for (int j = 0; j < 3; j++) {
+				binBounds[bin*6 + j] = Math.min(binBounds[bin*6 + j], triBounds[index*6 + j]);
+				binBounds[bin*6 + 3 + j] = Math.max(binBounds[bin*6 + 3 + j], triBounds[index*6 + 3 + j]);
+			}
+		}
+
+		// sweep from the right to find the area to the right of each split
+		initBounds(bounds, 0);
+		for (int i = NUM_BINS - 1; i > 0; i--) {
+			unionBounds(bounds, binBounds, i*6);
+			rightAreas[i] = surfaceArea(bounds);
+		}
+
+		// sweep from the left and select the split with the lowest cost
+		initBounds(bounds, 0);
+		int countLeft = 0;
+		int bestSplit = -1;
+		double bestCost = Double.MAX_VALUE;
+		for (int i = 1; i < NUM_BINS; i++) {
+			unionBounds(bounds, binBounds, (i - 1)*6);
+			countLeft += binCounts[i - 1];
+			int countRight = end - start - countLeft;
+			if( countLeft == 0 || countRight == 0 )
+				continue;
+			double cost = surfaceArea(bounds)*countLeft + rightAreas[i]*countRight;
+			if( cost < bestCost ) {
+				bestCost = cost;
+				bestSplit = i;
+			}
+		}
+
+		// partition the triangles by which side of the split they are on
+		int middle = start;
+		for (int i = start; i < end; i++) {
+			int index = order[i];
+			if( bin(centroids[index*3 + axis], lower, scale) < bestSplit ) {
+				order[i] = order[middle];
+				order[middle++] = index;
+			}
+		}
+
+		build(start, middle, depth + 1);
+		// the node arrays can be reallocated while building, so don't assign directly
+		int right = build(middle, end, depth + 1);
+		nodeRight[node] = right;
+		return node;
+	}
+
+	private static int bin( double value, double lower, double scale ) {
+		int bin = (int)((value - lower)*scale);
+		return bin >= NUM_BINS ? NUM_BINS - 1 : bin;
+	}
+
+	private static void initBounds( double[] bounds, int offset ) {
+		for (int i = 0; i < 3; i++) {
+			bounds[offset + i] = Double.MAX_VALUE;
+			bounds[offset + 3 + i] = -Double.MAX_VALUE;
+		}
+	}
+
+	private static void unionBounds( double[] bounds, double[] src, int offset ) {
+		for (int i = 0; i < 3; i++) {
+			bounds[i] = Math.min(bounds[i], src[offset + i]);
+			bounds[i + 3] = Math.max(bounds[i + 3], src[offset + 3 + i]);
+		}
+	}
+
+	private static double surfaceArea( double[] bounds ) {
+		double dx = bounds[3] - bounds[0];
+		double dy = bounds[4] - bounds[1];
+		double dz = bounds[5] - bounds[2];
+		if( dx < 0 )
+			return 0; // empty
+		return dx*dy + dy*dz + dz*dx;
+	}
+
+	private void growNodes( int length ) {
+		nodeBounds = Arrays.copyOf(nodeBounds, length*6);
+		nodeStart = Arrays.copyOf(nodeStart, length);
+		nodeEnd = Arrays.copyOf(nodeEnd, length);
+		nodeRight = Arrays.copyOf(nodeRight, length);
+	}
+
+	/**
+	 * Casts a batch of rays and finds where they first hit the mesh. See {@link Search#castRay}.
+	 *
+	 * @param rays Packed array of rays. Each ray is (x,y,z,dx,dy,dz), where (x,y,z) is the origin and
+	 *             (dx,dy,dz) is the direction. Not modified.
+	 * @param numRays Number of rays
+	 * @param maxT Maximum value of the line parameter for a hit
+	 * @param hitIndexes (Output) Index of the triangle each ray hit or -1 if it hit nothing. Modified.
+	 * @param hitT (Output) Line parameter at the hit location. Modified.
+	 */
+	public void castRays( double[] rays, int numRays, double maxT, int[] hitIndexes, double[] hitT ) {
+		createSearch().castRays(rays, 0, numRays, maxT, hitIndexes, hitT);
+	}
+
+	/**
+	 * Concurrent version of {@link #castRays}
+	 */
+	public void castRaysParallel( double[] rays, int numRays, double maxT, int[] hitIndexes, double[] hitT ) {
+		GrlConcurrency.loopBlocks(0, numRays, RAY_BLOCK_SIZE, ( idx0, idx1 ) ->
+				createSearch().castRays(rays, idx0, idx1, maxT, hitIndexes, hitT));
+	}
+
+	/**
+	 * Checks to see if each ray in a batch hits the mesh. See {@link Search#anyHit}.
+	 *
+	 * @param rays Packed array of rays. See {@link #castRays}. Not modified.
+	 * @param numRays Number of rays
+	 * @param maxT Maximum value of the line parameter for a hit
+	 * @param hits (Output) true if the ray hit the mesh. Modified.
+	 */
+	public void anyHits( double[] rays, int numRays, double maxT, boolean[] hits ) {
+		createSearch().anyHits(rays, 0, numRays, maxT, hits);
+	}
+
+	/**
+	 * Concurrent version of {@link #anyHits}
+	 */
+	public void anyHitsParallel( double[] rays, int numRays, double maxT, boolean[] hits ) {
+		GrlConcurrency.loopBlocks(0, numRays, RAY_BLOCK_SIZE, ( idx0, idx1 ) ->
+				createSearch().anyHits(rays, idx0, idx1, maxT, hits));
+	}
+
+	/**
+	 * Creates a new search for this BVH. Each search can only be used by one thread at a time.
+	 */
+	public Search createSearch() {
+		return new Search();
+	}
+
+	/**
+	 * Number of triangles in the mesh
+	 */
+	public int size() {
+		return numTriangles;
+	}
+
+	/**
+	 * Performs queries against the BVH. Returned indexes refer to the triangle's index in the input mesh.
+	 */
+	public class Search {
+		// stack of nodes which still need to be traversed
+		final int[] stack = new int[MAX_DEPTH*2];
+
+		// ray in a form that's efficient for slab tests
+		double ox, oy, oz, dx, dy, dz, invX, invY, invZ;
+
+		// results of the most recent query
+		int hitIndex;
+		double hitT;
+		double hitDistanceSq;
+
+		// used to compute the closest point on each triangle
+		final DistancePointTriangle3D_F64 distanceTriangle = new DistancePointTriangle3D_F64();
+		final Point3D_F64 v0 = new Point3D_F64();
+		final Point3D_F64 v1 = new Point3D_F64();
+		final Point3D_F64 v2 = new Point3D_F64();
+		final Point3D_F64 candidate = new Point3D_F64();
+
+		/**
+		 * Finds the first triangle that the ray hits. The ray is defined as p + t*slope for t &ge; 0. Both sides
+		 * of a triangle are considered.
+		 *
+		 * @param ray (Input) The ray
+		 * @param maxT Maximum value of the line parameter for a hit. Use Double.MAX_VALUE for no limit.
+		 * @return Index of the triangle which was hit or -1 if none were hit
+		 */
+		public int castRay( LineParametric3D_F64 ray, double maxT ) {
+			return castRay(ray.p.x, ray.p.y, ray.p.z, ray.slope.x, ray.slope.y, ray.slope.z, maxT);
+		}
+
+		/**
+		 * Same as {@link #castRay(LineParametric3D_F64, double)} but the ray's origin and direction are passed in
+		 * as individual elements.
+		 */
+		public int castRay( double x, double y, double z, double dx, double dy, double dz, double maxT ) {
+			setRay(x, y, z, dx, dy, dz);
+			hitIndex = -1;
+			hitT = maxT;
+			traverseRay(false);
+			return hitIndex;
+		}
+
+		/**
+		 * Checks to see if the ray hits any triangle. Faster than {@link #castRay} since it stops at the first
+		 * triangle it finds. Typically used for occlusion tests.
+		 *
+		 * @param ray (Input) The ray
+		 * @param maxT Maximum value of the line parameter for a hit. Use Double.MAX_VALUE for no limit.
+		 * @return true if a triangle was hit
+		 */
+		public boolean anyHit( LineParametric3D_F64 ray, double maxT ) {
+			return anyHit(ray.p.x, ray.p.y, ray.p.z, ray.slope.x, ray.slope.y, ray.slope.z, maxT);
+		}
+
+		/**
+		 * Same as {@link #anyHit(LineParametric3D_F64, double)} but the ray's origin and direction are passed in
+		 * as individual elements.
+		 */
+		public boolean anyHit( double x, double y, double z, double dx, double dy, double dz, double maxT ) {
+			setRay(x, y, z, dx, dy, dz);
+			hitIndex = -1;
+			hitT = maxT;
+			traverseRay(true);
+			return hitIndex >= 0;
+		}
+
+		/**
+		 * Finds the closest point on the mesh to the point.
+		 *
+		 * @param p (Input) The point
+		 * @param maxDistance Only triangles which are within this Euclidean distance are considered. Use
+		 *                    Double.MAX_VALUE for no limit.
+		 * @param closest (Output) The closest point on the mesh. Modified.
+		 * @return Index of the closest triangle or -1 if none are within maxDistance
+		 */
+		public int closestPoint( Point3D_F64 p, double maxDistance, Point3D_F64 closest ) {
+			hitIndex = -1;
+			hitDistanceSq = maxDistance*maxDistance;
+			if( numNodes == 0 )
+				return -1;
+
+			int size = 0;
+			stack[size++] = 0;
+			while( size > 0 ) {
+				int node = stack[--size];
+				if( boxDistanceSq(node, p) >= hitDistanceSq )
+					continue;
+
+				int right = nodeRight[node];
+				if( right < 0 ) {
+					for (int i = nodeStart[node]; i < nodeEnd[node]; i++) {
+						getTriangle(i);
+						distanceTriangle.setTriangle(v0, v1, v2);
+						distanceTriangle.closestPoint(p, candidate);
+						double d = candidate.distance2(p);
+						if( d < hitDistanceSq ) {
+							hitDistanceSq = d;
+							hitIndex = order[i];
+							closest.set(candidate);
+						}
+					}
+				} else {
+					// push the farther child first so that the closer child is visited first
+					int left = node + 1;
+					if( boxDistanceSq(left, p) <= boxDistanceSq(right, p) ) {
+						stack[size++] = right;
+						stack[size++] = left;
+					} else {
+						stack[size++] = left;
+						stack[size++] = right;
+					}
+				}
+			}
+			return hitIndex;
+		}
+
+		/**
+		 * Line parameter of the hit found by the most recent call to {@link #castRay} or {@link #anyHit}
+		 */
+		public double getHitT() {
+			return hitT;
+		}
+
+		/**
+		 * Euclidean distance squared to the point found by the most recent call to {@link #closestPoint}
+		 */
+		public double getDistanceSq() {
+			return hitDistanceSq;
+		}
+
+		void castRays( double[] rays, int ray0, int ray1, double maxT, int[] hitIndexes, double[] hitT ) {
+			for (int i = ray0; i < ray1; i++) {
+				int idx = i*6;
+				hitIndexes[i] = castRay(rays[idx], rays[idx + 1], rays[idx + 2],
+						rays[idx + 3], rays[idx + 4], rays[idx + 5], maxT);
+				hitT[i] = this.hitT;
+			}
+		}
+
+		void anyHits( double[] rays, int ray0, int ray1, double maxT, boolean[] hits ) {
+			for (int i = ray0; i < ray1; i++) {
+				int idx = i*6;
+				hits[i] = anyHit(rays[idx], rays[idx + 1], rays[idx + 2],
+						rays[idx + 3], rays[idx + 4], rays[idx + 5], maxT);
+			}
+		}
+
+		private void setRay( double x, double y, double z, double dx, double dy, double dz ) {
+			this.ox = x;
+			this.oy = y;
+			this.oz = z;
+			this.dx = dx;
+			this.dy = dy;
+			this.dz = dz;
+			// division by zero results in infinity. rayBoxEntry() handles zero components separately
+			this.invX = 1.0/dx;
+			this.invY = 1.0/dy;
+			this.invZ = 1.0/dz;
+		}
+
+		/**
+		 * Traverses the tree along the ray, visiting the closest child first
+		 *
+		 * @param any If true it will stop at the first hit
+		 */
+		private void traverseRay( boolean any ) {
+			if( numNodes == 0 )
+				return;
+
+			int size = 0;
+			stack[size++] = 0;
+			while( size > 0 ) {
+				int node = stack[--size];
+				if( rayBoxEntry(node) > hitT )
+					continue;
+
+				int right = nodeRight[node];
+				if( right < 0 ) {
+					for (int i = nodeStart[node]; i < nodeEnd[node]; i++) {
+						if( intersectTriangle(i) && any )
+							return;
+					}
+				} else {
+					int left = node + 1;
+					double entryLeft = rayBoxEntry(left);
+					double entryRight = rayBoxEntry(right);
+					if( entryLeft <= entryRight ) {
+						if( entryRight <= hitT ) stack[size++] = right;
+						if( entryLeft <= hitT ) stack[size++] = left;
+					} else {
+						if( entryLeft <= hitT ) stack[size++] = left;
+						if( entryRight <= hitT ) stack[size++] = right;
+					}
+				}
+			}
+		}
+
+		/**
+		 * Returns the line parameter where the ray enters the node's bounding box or infinity if it misses.
+		 * When the ray is parallel to a slab the slab is skipped if the origin is inside of it, including its
+		 * boundary. Otherwise an origin on the boundary would produce 0*infinity = NaN.
+		 */
+		private double rayBoxEntry( int node ) {
+			int idx = node*6;
+			double tmin = Double.NEGATIVE_INFINITY, tmax = Double.POSITIVE_INFINITY;
+
+			if( dx == 0 ) {
+				if( ox < nodeBounds[idx] || ox > nodeBounds[idx + 3] )
+					return Double.POSITIVE_INFINITY;
+			} else {
+				double t0 = (nodeBounds[idx] - ox)*invX;
+				double t1 = (nodeBounds[idx + 3] - ox)*invX;
+				tmin = Math.min(t0, t1);
+				tmax = Math.max(t0, t1);
+			}
+
+			if( dy == 0 ) {
+				if( oy < nodeBounds[idx + 1] || oy > nodeBounds[idx + 4] )
+					return Double.POSITIVE_INFINITY;
+			} else {
+				double t0 = (nodeBounds[idx + 1] - oy)*invY;
+				double t1 = (nodeBounds[idx + 4] - oy)*invY;
+				tmin = Math.max(tmin, Math.min(t0, t1));
+				tmax = Math.min(tmax, Math.max(t0, t1));
+			}
+
+			if( dz == 0 ) {
+				if( oz < nodeBounds[idx + 2] || oz > nodeBounds[idx + 5] )
+					return Double.POSITIVE_INFINITY;
+			} else {
+				double t0 = (nodeBounds[idx + 2] - oz)*invZ;
+				double t1 = (nodeBounds[idx + 5] - oz)*invZ;
+				tmin = Math.max(tmin, Math.min(t0, t1));
+				tmax = Math.min(tmax, Math.max(t0, t1));
+			}
+
+			if( tmax < tmin || tmax < 0 )
+				return Double.POSITIVE_INFINITY;
+			return Math.max(tmin, 0);
+		}
+
+		/**
+		 * Möller-Trumbore ray triangle intersection. If the triangle is hit before the current best hit then
+		 * the best hit is updated.
+		 *
+		 * @param slot Index of the triangle in the packed array
+		 * @return true if the best hit was updated
+		 */
+		private boolean intersectTriangle( int slot ) {
+			int idx = slot*9;
+			double e1x = triangles[idx + 3], e1y = triangles[idx + 4], e1z = triangles[idx + 5];
+			double e2x = triangles[idx + 6], e2y = triangles[idx + 7], e2z = triangles[idx + 8];
+
+			// P = D x E2
+			double px = dy*e2z - dz*e2y;
+			double py = dz*e2x - dx*e2z;
+			double pz = dx*e2y - dy*e2x;
+
+			double det = e1x*px + e1y*py + e1z*pz;
+			if( det == 0 )
+				return false; // ray is parallel to the triangle or the triangle is degenerate
+			double invDet = 1.0/det;
+
+			// T = O - V0
+			double tx = ox - triangles[idx];
+			double ty = oy - triangles[idx + 1];
+			double tz = oz - triangles[idx + 2];
+
+			double u = (tx*px + ty*py + tz*pz)*invDet;
+			if( u < 0 || u > 1 )
+				return false;
+
+			// Q = T x E1
+			double qx = ty*e1z - tz*e1y;
+			double qy = tz*e1x - tx*e1z;
+			double qz = tx*e1y - ty*e1x;
+
+			double v = (dx*qx + dy*qy + dz*qz)*invDet;
+			if( v < 0 || u + v > 1 )
+				return false;
+
+			double t = (e2x*qx + e2y*qy + e2z*qz)*invDet;
+			if( t < 0 || t > hitT )
+				return false;
+
+			hitT = t;
+			hitIndex = order[slot];
+			return true;
+		}
+
+		private double boxDistanceSq( int node, Point3D_F64 p ) {
+			int idx = node*6;
+			double dx = Math.max(0, Math.max(nodeBounds[idx] - p.x, p.x - nodeBounds[idx + 3]));
+			double dy = Math.max(0, Math.max(nodeBounds[idx + 1] - p.y, p.y - nodeBounds[idx + 4]));
+			double dz = Math.max(0, Math.max(nodeBounds[idx + 2] - p.z, p.z - nodeBounds[idx + 5]));
+			return dx*dx + dy*dy + dz*dz;
+		}
+
+		/**
+		 * Copies the triangle's vertices into v0, v1, v2
+		 */
+		private void getTriangle( int slot ) {
+			int idx = slot*9;
+			v0.set(triangles[idx], triangles[idx + 1], triangles[idx + 2]);
+			v1.set(v0.x + triangles[idx + 3], v0.y + triangles[idx + 4], v0.z + triangles[idx + 5]);
+			v2.set(v0.x + triangles[idx + 6], v0.y + triangles[idx + 7], v0.z + triangles[idx + 8]);
+		}
+	}
+}
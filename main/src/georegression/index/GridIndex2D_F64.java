@@ -0,0 +1,385 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.index;
+
+import org.ddogleg.struct.GrowQueue_F64;
+import org.ddogleg.struct.GrowQueue_I32;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * Uniform grid for 2D geometric primitives. The grid covers the bounding box of all the items and each item is
+ * added to every cell that its bounding box overlaps. Nearest neighbor searches examine rings of cells around
+ * the query point until the closest unexamined cell is farther away than the best solution. Works best when
+ * items are spread evenly.
+ * </p>
+ *
+ * <p>
+ * Cells are stored in compressed form, i.e. the items in cell 'i' are from cellStart[i] to cellStart[i+1]-1 in
+ * cellItems.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public abstract class GridIndex2D_F64 <T> implements SpatialIndex2D_F64<T> {
+	/** Maximum number of cells in the grid. Prevents a tiny cell size from exhausting memory */
+	public static final int MAX_CELLS = 1 << 26;
+
+	// Length of a cell's side specified by the user. If &le; 0 it is selected automatically
+	double cellSize;
+	// Desired average number of items in a cell when automatically selecting the cell size
+	double itemsPerCell = 2.0;
+
+	List<T> items = new ArrayList<>();
+
+	// axis aligned bounding box of each item (x0,y0,x1,y1)
+	double[] itemBounds = new double[0];
+	// range of cells each item overlaps (col0,row0,col1,row1)
+	int[] itemCells = new int[0];
+
+	// lower extent of the grid
+	double originX, originY;
+	// length of a cell's side
+	double cellLength;
+	// shape of the grid
+	int cols, rows;
+
+	// index of the first item in each cell
+	int[] cellStart = new int[0];
+	// items in each cell
+	int[] cellItems = new int[0];
+
+	/**
+	 * @param cellSize Length of a cell's side. If &le; 0 then it is selected automatically based on the number
+	 *                 of items and their size.
+	 */
+	protected GridIndex2D_F64( double cellSize ) {
+		this.cellSize = cellSize;
+	}
+
+	protected GridIndex2D_F64() {
+		this(0);
+	}
+
+	/**
+	 * Computes the axis aligned bounding box of the item
+	 *
+	 * @param item (Input) The item
+	 * @param bounds (Output) Storage for the bounding box, (x0,y0,x1,y1)
+	 * @param offset Index of the first element in bounds that is written to
+	 */
+	protected abstract void computeBounds( T item, double[] bounds, int offset );
+
+	/**
+	 * Euclidean distance squared between the item and the point
+	 *
+	 * @param index Index of the item in the list
+	 */
+	protected abstract double distanceSq( int index, double x, double y );
+
+	@Override
+	public void setItems( List<T> items ) {
+		this.items = items;
+		final int N = items.size();
+
+		if( itemCells.length < N*4 ) {
+			itemBounds = new double[N*4];
+			itemCells = new int[N*4];
+		}
+
+		double x0 = Double.MAX_VALUE, y0 = Double.MAX_VALUE, x1 = -Double.MAX_VALUE, y1 = -Double.MAX_VALUE;
+		double sumExtent = 0;
+		for (int i = 0; i < N; i++) {
+			computeBounds(items.get(i), itemBounds, i*4);
+			x0 = Math.min(x0, itemBounds[i*4]);
+			y0 = Math.min(y0, itemBounds[i*4+1]);
+			x1 = Math.max(x1, itemBounds[i*4+2]);
+			y1 = Math.max(y1, itemBounds[i*4+3]);
+			sumExtent += Math.max(itemBounds[i*4+2] - itemBounds[i*4], itemBounds[i*4+3] - itemBounds[i*4+1]);
+		}
+
+		if( N == 0 ) {
+			cols = rows = 0;
+			return;
+		}
+
+		originX = x0;
+		originY = y0;
+		if( cellSize > 0 ) {
+			cellLength = cellSize;
+		} else {
+			// cells should contain the desired number of items on average, but there's no point in having
+			// cells which are much smaller than the items. The longest side is used as a floor since the area is close to zero when the items lie
+			// along a thin strip, which would create an enormous number of tiny cells
+			double width = x1 - x0, height = y1 - y0;
+			double targetCells = Math.min(Math.max(1.0, N/itemsPerCell), MAX_CELLS/4);
+			cellLength = Math.max(Math.sqrt(width*height/targetCells), sumExtent/N);
+			cellLength = Math.max(cellLength, Math.max(width, height)/targetCells);
+			if( cellLength == 0 )
+				cellLength = 1;
+		}
+		// computed using doubles to avoid integer overflow
+		double cellsX = Math.floor((x1 - x0)/cellLength) + 1;
+		double cellsY = Math.floor((y1 - y0)/cellLength) + 1;
+		if( cellsX*cellsY > MAX_CELLS )
+			throw new IllegalArgumentException("Cell size is too small for the items' extent. cells = " +
+					cellsX + " x " + cellsY + " > " + MAX_CELLS);
+		cols = (int)cellsX;
+		rows = (int)cellsY;
+
+		final int numCells = cols*rows;
+		if( cellStart.length < numCells + 1 ) {
+			cellStart = new int[numCells + 1];
+		} else {
+			Arrays.fill(cellStart, 0, numCells + 1, 0);
+		}
+
+		// count the number of items in each cell
+		int total = 0;
+		for (int i = 0; i < N; i++) {
+			int col0 = col(itemBounds[i*4]), row0 = row(itemBounds[i*4+1]);
+			int col1 = col(itemBounds[i*4+2]), row1 = row(itemBounds[i*4+3]);
+			itemCells[i*4  ] = col0;
+			itemCells[i*4+1] = row0;
+			itemCells[i*4+2] = col1;
+			itemCells[i*4+3] = row1;
+			for (int row = row0; row <= row1; row++) {
+				for (int col = col0; col <= col1; col++) {
+					cellStart[row*cols + col + 1]++;
+				}
+			}
+			total += (col1 - col0 + 1)*(row1 - row0 + 1);
+		}
+		for (int i = 0; i < numCells; i++) {
+			cellStart[i + 1] += cellStart[i];
+		}
+
+		// fill in the cells. cellStart is shifted by one while filling and restored afterwards
+		if( cellItems.length < total )
+			cellItems = new int[total];
+		for (int i = 0; i < N; i++) {
+			for (int row = itemCells[i*4+1]; row <= itemCells[i*4+3]; row++) {
+				for (int col = itemCells[i*4]; col <= itemCells[i*4+2]; col++) {
+					cellItems[cellStart[row*cols + col]++] = i;
+				}
+			}
+		}
+		for (int i = numCells; i > 0; i--) {
+			cellStart[i] = cellStart[i - 1];
+		}
+		cellStart[0] = 0;
+	}
+
+	@Override
+	public List<T> getItems() {
+		return items;
+	}
+
+	/**
+	 * Column of the cell which contains the x-coordinate. Clamped to the grid.
+	 */
+	int col( double x ) {
+		int col = (int)((x - originX)/cellLength);
+		return col < 0 ? 0 : (col >= cols ? cols - 1 : col);
+	}
+
+	/**
+	 * Row of the cell which contains the y-coordinate. Clamped to the grid.
+	 */
+	int row( double y ) {
+		int row = (int)((y - originY)/cellLength);
+		return row < 0 ? 0 : (row >= rows ? rows - 1 : row);
+	}
+
+	/**
+	 * Lower bound on the distance squared from the point to any cell in ring 'radius' centered at (col,row)
+	 */
+	double ringDistanceSq( double x, double y, int col, int row, int radius ) {
+		if( radius == 0 )
+			return 0;
+
+		// square which contains all the rings inside of this one
+		double x0 = originX + (col - radius + 1)*cellLength;
+		double y0 = originY + (row - radius + 1)*cellLength;
+		double x1 = originX + (col + radius)*cellLength;
+		double y1 = originY + (row + radius)*cellLength;
+
+		if( x >= x0 && x <= x1 && y >= y0 && y <= y1 ) {
+			double d = Math.min(Math.min(x - x0, x1 - x), Math.min(y - y0, y1 - y));
+			return d*d;
+		}
+
+		// point is outside, so use the distance to the square which contains this ring
+		return UtilIndex2D_F64.distanceSq(x0 - cellLength, y0 - cellLength, x1 + cellLength, y1 + cellLength, x, y);
+	}
+
+	/**
+	 * Euclidean distance squared from the point to the cell
+	 */
+	double cellDistanceSq( int col, int row, double x, double y ) {
+		double x0 = originX + col*cellLength;
+		double y0 = originY + row*cellLength;
+		return UtilIndex2D_F64.distanceSq(x0, y0, x0 + cellLength, y0 + cellLength, x, y);
+	}
+
+	@Override
+	public Search createSearch() {
+		return new GridSearch();
+	}
+
+	/**
+	 * Searches the grid. Nearest neighbor searches visit rings of cells centered at the query point.
+	 */
+	class GridSearch implements Search {
+		// best solution found so far by nearest neighbor search
+		int bestIndex;
+		double bestDistanceSq;
+
+		// storage for k-nearest neighbor search. k = 0 indicates a single nearest neighbor search
+		int k;
+		double maxDistanceSq;
+		GrowQueue_I32 indexes;
+		GrowQueue_F64 distancesSq;
+
+		@Override
+		public int findNearest( double x, double y, double maxDistance ) {
+			bestIndex = -1;
+			bestDistanceSq = maxDistance*maxDistance;
+			k = 0;
+			searchRings(x, y);
+			return bestIndex;
+		}
+
+		@Override
+		public double getDistanceSq() {
+			return bestDistanceSq;
+		}
+
+		@Override
+		public void findNearest( double x, double y, double maxDistance, int k,
+								 GrowQueue_I32 indexes, GrowQueue_F64 distancesSq ) {
+			indexes.reset();
+			distancesSq.reset();
+			if( k <= 0 )
+				return;
+
+			this.k = k;
+			this.maxDistanceSq = maxDistance*maxDistance;
+			this.indexes = indexes;
+			this.distancesSq = distancesSq;
+			searchRings(x, y);
+			this.indexes = null;
+			this.distancesSq = null;
+		}
+
+		/**
+		 * Distance an item needs to be less than to be a solution
+		 */
+		private double worstDistanceSq() {
+			if( k == 0 )
+				return bestDistanceSq;
+			return indexes.size < k ? maxDistanceSq : distancesSq.data[k - 1];
+		}
+
+		private void searchRings( double x, double y ) {
+			if( cols == 0 )
+				return;
+
+			int col = col(x), row = row(y);
+			for (int radius = 0; ; radius++) {
+				// stop once the ring is entirely outside the grid
+				if( col - radius < 0 && col + radius >= cols && row - radius < 0 && row + radius >= rows )
+					break;
+				if( ringDistanceSq(x, y, col, row, radius) >= worstDistanceSq() )
+					break;
+
+				if( radius == 0 ) {
+					searchCell(col, row, x, y);
+					continue;
+				}
+
+				// range of cells along the ring's sides which are inside the grid
+				int col0 = col < radius ? 0 : col - radius;
+				int col1 = col + radius >= cols ? cols - 1 : col + radius;
+				int row0 = row < radius - 1 ? 0 : row - radius + 1;
+				int row1 = row + radius - 1 >= rows ? rows - 1 : row + radius - 1;
+				for (int c = col0; c <= col1; c++) {
+					if( row - radius >= 0 ) searchCell(c, row - radius, x, y);
+					if( row + radius < rows ) searchCell(c, row + radius, x, y);
+				}
+				for (int r = row0; r <= row1; r++) {
+					if( col - radius >= 0 ) searchCell(col - radius, r, x, y);
+					if( col + radius < cols ) searchCell(col + radius, r, x, y);
+				}
+			}
+		}
+
+		private void searchCell( int col, int row, double x, double y ) {
+			if( cellDistanceSq(col, row, x, y) >= worstDistanceSq() )
+				return;
+
+			int cell = row*cols + col;
+			for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+				int index = cellItems[i];
+				double d = distanceSq(index, x, y);
+				if( d >= worstDistanceSq() )
+					continue;
+
+				if( k == 0 ) {
+					bestDistanceSq = d;
+					bestIndex = index;
+				} else if( !indexes.contains(index) ) {
+					// items can be in multiple cells, so make sure it's not already in the list
+					UtilIndex2D_F64.insertSorted(k, index, d, indexes, distancesSq);
+				}
+			}
+		}
+
+		@Override
+		public void findWithinRadius( double x, double y, double radius, GrowQueue_I32 indexes ) {
+			indexes.reset();
+			if( cols == 0 )
+				return;
+
+			// range of cells which overlap a box around the circle
+			int col0 = col(x - radius), row0 = row(y - radius);
+			int col1 = col(x + radius), row1 = row(y + radius);
+			double radiusSq = radius*radius;
+
+			for (int row = row0; row <= row1; row++) {
+				for (int col = col0; col <= col1; col++) {
+					int cell = row*cols + col;
+					for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+						int index = cellItems[i];
+						// Items can be in multiple cells. Only consider it in the first cell that's searched
+						if( Math.max(itemCells[index*4], col0) != col || Math.max(itemCells[index*4+1], row0) != row )
+							continue;
+						if( distanceSq(index, x, y) <= radiusSq ) {
+							indexes.add(index);
+						}
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.index;
+
+import georegression.metric.Distance2D_F64;
+import georegression.struct.line.LineSegment2D_F64;
+
+/**
+ * {@link GridIndex2D_F64 Uniform grid} for 2D line segments. Distances are computed using
+ * {@link Distance2D_F64#distanceSq(LineSegment2D_F64, double, double)}.
+ *
+ * @author Peter Abeles
+ */
+public class GridIndexLineSegment2D_F64 extends GridIndex2D_F64<LineSegment2D_F64> {
+
+	/**
+	 * @param cellSize Length of a cell's side. If &le; 0 then it is selected automatically.
+	 */
+	public GridIndexLineSegment2D_F64( double cellSize ) {
+		super(cellSize);
+	}
+
+	public GridIndexLineSegment2D_F64() {
+	}
+
+	@Override
+	protected void computeBounds( LineSegment2D_F64 item, double[] bounds, int offset ) {
+		bounds[offset  ] = Math.min(item.a.x, item.b.x);
+		bounds[offset+1] = Math.min(item.a.y, item.b.y);
+		bounds[offset+2] = Math.max(item.a.x, item.b.x);
+		bounds[offset+3] = Math.max(item.a.y, item.b.y);
+	}
+
+	@Override
+	protected double distanceSq( int index, double x, double y ) {
+		return Distance2D_F64.distanceSq(items.get(index), x, y);
+	}
+}
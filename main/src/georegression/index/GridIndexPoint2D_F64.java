@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.index;
+
+import georegression.struct.point.Point2D_F64;
+
+/**
+ * {@link GridIndex2D_F64 Uniform grid} for 2D points.
+ *
+ * @author Peter Abeles
+ */
+public class GridIndexPoint2D_F64 extends GridIndex2D_F64<Point2D_F64> {
+
+	/**
+	 * @param cellSize Length of a cell's side. If &le; 0 then it is selected automatically.
+	 */
+	public GridIndexPoint2D_F64( double cellSize ) {
+		super(cellSize);
+	}
+
+	public GridIndexPoint2D_F64() {
+	}
+
+	@Override
+	protected void computeBounds( Point2D_F64 item, double[] bounds, int offset ) {
+		bounds[offset  ] = item.x;
+		bounds[offset+1] = item.y;
+		bounds[offset+2] = item.x;
+		bounds[offset+3] = item.y;
+	}
+
+	@Override
+	protected double distanceSq( int index, double x, double y ) {
+		// the bounds contain a copy of the point and are more cache friendly than the list
+		double dx = itemBounds[index*4] - x;
+		double dy = itemBounds[index*4+1] - y;
+		return dx*dx + dy*dy;
+	}
+}
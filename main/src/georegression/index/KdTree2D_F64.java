@@ -0,0 +1,351 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.index;
+
+import org.ddogleg.struct.GrowQueue_F64;
+import org.ddogleg.struct.GrowQueue_I32;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * Static k-d tree for 2D geometric primitives. Each item is described by its axis aligned bounding box. Nodes
+ * are split at the median of the bounding box centers along the axis with the largest spread and each node
+ * stores the bounding box of all the items it contains. This allows primitives with a spatial extent, such as
+ * line segments, to be stored in the same tree as points. Every item is stored in exactly one leaf.
+ * </p>
+ *
+ * <p>
+ * Nodes are stored in flat arrays in depth first order, so the left child of a node is always the next node.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public abstract class KdTree2D_F64 <T> implements SpatialIndex2D_F64<T> {
+	// maximum number of items in a leaf
+	int maxLeafSize;
+
+	List<T> items = new ArrayList<>();
+
+	// axis aligned bounding box of each item (x0,y0,x1,y1)
+	double[] itemBounds = new double[0];
+	// center of each item's bounding box (x,y). Used to split the nodes
+	double[] itemCenters = new double[0];
+	// indexes of items. Arranged so that the items inside a node are in a continuous range
+	int[] order = new int[0];
+
+	// total number of nodes in the tree
+	int numNodes;
+	// axis aligned bounding box of each node (x0,y0,x1,y1)
+	double[] nodeBounds = new double[0];
+	// range of elements in 'order' which belong to the node
+	int[] nodeStart = new int[0];
+	int[] nodeEnd = new int[0];
+	// index of the right child. -1 if the node is a leaf
+	int[] nodeRight = new int[0];
+
+	/**
+	 * @param maxLeafSize Maximum number of items in a leaf
+	 */
+	protected KdTree2D_F64( int maxLeafSize ) {
+		if( maxLeafSize < 1 )
+			throw new IllegalArgumentException("maxLeafSize must be at least 1");
+		this.maxLeafSize = maxLeafSize;
+	}
+
+	protected KdTree2D_F64() {
+		this(8);
+	}
+
+	/**
+	 * Computes the axis aligned bounding box of the item
+	 *
+	 * @param item (Input) The item
+	 * @param bounds (Output) Storage for the bounding box, (x0,y0,x1,y1)
+	 * @param offset Index of the first element in bounds that is written to
+	 */
+	protected abstract void computeBounds( T item, double[] bounds, int offset );
+
+	/**
+	 * Euclidean distance squared between the item and the point
+	 *
+	 * @param index Index of the item in the list
+	 */
+	protected abstract double distanceSq( int index, double x, double y );
+
+	@Override
+	public void setItems( List<T> items ) {
+		this.items = items;
+		final int N = items.size();
+
+		if( order.length < N ) {
+			itemBounds = new double[N*4];
+			itemCenters = new double[N*2];
+			order = new int[N];
+		}
+
+		for (int i = 0; i < N; i++) {
+			computeBounds(items.get(i), itemBounds, i*4);
+			itemCenters[i*2  ] = (itemBounds[i*4] + itemBounds[i*4+2])/2;
+			itemCenters[i*2+1] = (itemBounds[i*4+1] + itemBounds[i*4+3])/2;
+			order[i] = i;
+		}
+
+		numNodes = 0;
+		if( N > 0 ) {
+			build(0, N);
+		}
+	}
+
+	@Override
+	public List<T> getItems() {
+		return items;
+	}
+
+	/**
+	 * Recursively creates the node which contains the items from start to end-1 in 'order'
+	 *
+	 * @return index of the node
+	 */
+	private int build( int start, int end ) {
+		int node = numNodes++;
+		if( node >= nodeStart.length ) {
+			growNodes(Math.max(16, nodeStart.length*2));
+		}
+
+		double x0 = Double.MAX_VALUE, y0 = Double.MAX_VALUE, x1 = -Double.MAX_VALUE, y1 = -Double.MAX_VALUE;
+		double cx0 = Double.MAX_VALUE, cy0 = Double.MAX_VALUE, cx1 = -Double.MAX_VALUE, cy1 = -Double.MAX_VALUE;
+		for (int i = start; i < end; i++) {
+			int index = order[i];
+			x0 = Math.min(x0, itemBounds[index*4]);
+			y0 = Math.min(y0, itemBounds[index*4+1]);
+			x1 = Math.max(x1, itemBounds[index*4+2]);
+			y1 = Math.max(y1, itemBounds[index*4+3]);
+			double cx = itemCenters[index*2], cy = itemCenters[index*2+1];
+			cx0 = Math.min(cx0, cx);
+			cy0 = Math.min(cy0, cy);
+			cx1 = Math.max(cx1, cx);
+			cy1 = Math.max(cy1, cy);
+		}
+		nodeBounds[node*4  ] = x0;
+		nodeBounds[node*4+1] = y0;
+		nodeBounds[node*4+2] = x1;
+		nodeBounds[node*4+3] = y1;
+		nodeStart[node] = start;
+		nodeEnd[node] = end;
+
+		if( end - start <= maxLeafSize ) {
+			nodeRight[node] = -1;
+			return node;
+		}
+
+		int axis = cx1 - cx0 >= cy1 - cy0 ? 0 : 1;
+		int middle = (start + end)/2;
+		select(start, end, middle, axis);
+
+		build(start, middle);
+		// the node arrays can be reallocated while building, so don't assign directly
+		int right = build(middle, end);
+		nodeRight[node] = right;
+		return node;
+	}
+
+	private void growNodes( int length ) {
+		nodeBounds = Arrays.copyOf(nodeBounds, length*4);
+		nodeStart = Arrays.copyOf(nodeStart, length);
+		nodeEnd = Arrays.copyOf(nodeEnd, length);
+		nodeRight = Arrays.copyOf(nodeRight, length);
+	}
+
+	/**
+	 * Partially sorts 'order' from start to end-1 so that element k has the center which would be at k if
+	 * sorted along the axis, with smaller values before it and larger values after it.
+	 */
+	private void select( int start, int end, int k, int axis ) {
+		int lo = start, hi = end - 1;
+		while( lo < hi ) {
+			double pivot = itemCenters[order[(lo + hi) >>> 1]*2 + axis];
+			int i = lo, j = hi;
+			while( i <= j ) {
+				while( itemCenters[order[i]*2 + axis] < pivot ) i++;
+				while( itemCenters[order[j]*2 + axis] > pivot ) j--;
+				if( i <= j ) {
+					int tmp = order[i];
+					order[i++] = order[j];
+					order[j--] = tmp;
+				}
+			}
+			if( k <= j )
+				hi = j;
+			else if( k >= i )
+				lo = i;
+			else
+				break;
+		}
+	}
+
+	/**
+	 * Euclidean distance squared from the point to the node's bounding box
+	 */
+	double nodeDistanceSq( int node, double x, double y ) {
+		return UtilIndex2D_F64.distanceSq(nodeBounds[node*4], nodeBounds[node*4+1],
+				nodeBounds[node*4+2], nodeBounds[node*4+3], x, y);
+	}
+
+	@Override
+	public Search createSearch() {
+		return new KdTreeSearch();
+	}
+
+	/**
+	 * Depth first search which visits the closest child first and skips nodes that can't contain a better
+	 * solution
+	 */
+	class KdTreeSearch implements Search {
+		// best solution found so far by nearest neighbor search
+		int bestIndex;
+		double bestDistanceSq;
+
+		// storage for k-nearest neighbor search
+		int k;
+		double maxDistanceSq;
+		GrowQueue_I32 indexes;
+		GrowQueue_F64 distancesSq;
+
+		@Override
+		public int findNearest( double x, double y, double maxDistance ) {
+			bestIndex = -1;
+			bestDistanceSq = maxDistance*maxDistance;
+			if( numNodes > 0 ) {
+				searchNearest(0, x, y);
+			}
+			return bestIndex;
+		}
+
+		@Override
+		public double getDistanceSq() {
+			return bestDistanceSq;
+		}
+
+		private void searchNearest( int node, double x, double y ) {
+			int right = nodeRight[node];
+			if( right < 0 ) {
+				for (int i = nodeStart[node]; i < nodeEnd[node]; i++) {
+					int index = order[i];
+					double d = distanceSq(index, x, y);
+					if( d < bestDistanceSq ) {
+						bestDistanceSq = d;
+						bestIndex = index;
+					}
+				}
+				return;
+			}
+
+			int left = node + 1;
+			double distanceLeft = nodeDistanceSq(left, x, y);
+			double distanceRight = nodeDistanceSq(right, x, y);
+			if( distanceLeft <= distanceRight ) {
+				if( distanceLeft < bestDistanceSq ) searchNearest(left, x, y);
+				if( distanceRight < bestDistanceSq ) searchNearest(right, x, y);
+			} else {
+				if( distanceRight < bestDistanceSq ) searchNearest(right, x, y);
+				if( distanceLeft < bestDistanceSq ) searchNearest(left, x, y);
+			}
+		}
+
+		@Override
+		public void findNearest( double x, double y, double maxDistance, int k,
+								 GrowQueue_I32 indexes, GrowQueue_F64 distancesSq ) {
+			indexes.reset();
+			distancesSq.reset();
+			if( numNodes == 0 || k <= 0 )
+				return;
+
+			this.k = k;
+			this.maxDistanceSq = maxDistance*maxDistance;
+			this.indexes = indexes;
+			this.distancesSq = distancesSq;
+			searchNearestK(0, x, y);
+			this.indexes = null;
+			this.distancesSq = null;
+		}
+
+		/**
+		 * Distance an item needs to be less than to be added to the k-nearest list
+		 */
+		private double worstDistanceSq() {
+			return indexes.size < k ? maxDistanceSq : distancesSq.data[k - 1];
+		}
+
+		private void searchNearestK( int node, double x, double y ) {
+			int right = nodeRight[node];
+			if( right < 0 ) {
+				for (int i = nodeStart[node]; i < nodeEnd[node]; i++) {
+					int index = order[i];
+					double d = distanceSq(index, x, y);
+					if( d < worstDistanceSq() ) {
+						UtilIndex2D_F64.insertSorted(k, index, d, indexes, distancesSq);
+					}
+				}
+				return;
+			}
+
+			int left = node + 1;
+			double distanceLeft = nodeDistanceSq(left, x, y);
+			double distanceRight = nodeDistanceSq(right, x, y);
+			if( distanceLeft <= distanceRight ) {
+				if( distanceLeft < worstDistanceSq() ) searchNearestK(left, x, y);
+				if( distanceRight < worstDistanceSq() ) searchNearestK(right, x, y);
+			} else {
+				if( distanceRight < worstDistanceSq() ) searchNearestK(right, x, y);
+				if( distanceLeft < worstDistanceSq() ) searchNearestK(left, x, y);
+			}
+		}
+
+		@Override
+		public void findWithinRadius( double x, double y, double radius, GrowQueue_I32 indexes ) {
+			indexes.reset();
+			if( numNodes > 0 ) {
+				searchRadius(0, x, y, radius*radius, indexes);
+			}
+		}
+
+		private void searchRadius( int node, double x, double y, double radiusSq, GrowQueue_I32 indexes ) {
+			if( nodeDistanceSq(node, x, y) > radiusSq )
+				return;
+
+			int right = nodeRight[node];
+			if( right < 0 ) {
+				for (int i = nodeStart[node]; i < nodeEnd[node]; i++) {
+					int index = order[i];
+					if( distanceSq(index, x, y) <= radiusSq ) {
+						indexes.add(index);
+					}
+				}
+				return;
+			}
+
+			searchRadius(node + 1, x, y, radiusSq, indexes);
+			searchRadius(right, x, y, radiusSq, indexes);
+		}
+	}
+}
@@ -0,0 +1,509 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.index;
+
+import georegression.misc.GrlConcurrency;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.point.PointCloud3D_F64;
+import georegression.struct.shapes.Box3D_F64;
+import org.ddogleg.struct.GrowQueue_F64;
+import org.ddogleg.struct.GrowQueue_I32;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <p>
+ * Static k-d tree for 3D points. Nodes are split at the median point along the axis with the largest spread
+ * and each node stores the bounding box of the points it contains.
+ * </p>
+ *
+ * <p>
+ * Nodes are stored in flat arrays in depth first order, so the left child of a node is always the next node.
+ * A copy of the points is stored in the same order as the leaves so that points which are close to each other
+ * are also close to each other in memory. The tree can be built in parallel.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class KdTreePoint3D_F64 implements PointIndex3D_F64 {
+	// maximum number of points in a leaf
+	int maxLeafSize;
+
+	PointCloud3D_F64 cloud = new PointCloud3D_F64();
+	// storage for points when the input is a list
+	PointCloud3D_F64 listCopy = new PointCloud3D_F64();
+
+	// indexes of points in the cloud. Arranged so that the points inside a node are in a continuous range
+	int[] order = new int[0];
+	// copy of the points, arranged in the same order as 'order'
+	double[] points = new double[0];
+
+	// total number of nodes in the tree
+	int numNodes;
+	// axis aligned bounding box of each node (x0,y0,z0,x1,y1,z1)
+	double[] nodeBounds = new double[0];
+	// range of elements in 'order' which belong to the node
+	int[] nodeStart = new int[0];
+	int[] nodeEnd = new int[0];
+	// index of the right child. -1 if the node is a leaf
+	int[] nodeRight = new int[0];
+
+	// number of nodes in a subtree at each depth. See computeLevelNodes()
+	int[] levelNodes = new int[0];
+
+	/**
+	 * @param maxLeafSize Maximum number of points in a leaf
+	 */
+	public KdTreePoint3D_F64( int maxLeafSize ) {
+		if( maxLeafSize < 1 )
+			throw new IllegalArgumentException("maxLeafSize must be at least 1");
+		this.maxLeafSize = maxLeafSize;
+	}
+
+	public KdTreePoint3D_F64() {
+		this(8);
+	}
+
+	@Override
+	public void setPoints( PointCloud3D_F64 cloud ) {
+		initialize(cloud);
+		if( cloud.size > 0 ) {
+			build(0, cloud.size, 0, 0);
+		}
+		copyPoints(0, cloud.size);
+	}
+
+	@Override
+	public void setPoints( List<Point3D_F64> points ) {
+		listCopy.setTo(points);
+		setPoints(listCopy);
+	}
+
+	/**
+	 * Concurrent version of {@link #setPoints(PointCloud3D_F64)}. Large nodes are split in parallel. Since the
+	 * location of every node in the arrays can be computed from the number of points, the tree is
+	 * identical to the one built by a single thread.
+	 */
+	@Override
+	public void setPointsParallel( PointCloud3D_F64 cloud ) {
+		initialize(cloud);
+		if( GrlConcurrency.isParallel(cloud.size) ) {
+			GrlConcurrency.getPool().invoke(new BuildTask(0, cloud.size, 0, 0));
+		} else if( cloud.size > 0 ) {
+			build(0, cloud.size, 0, 0);
+		}
+		GrlConcurrency.loopBlocks(0, cloud.size, this::copyPoints);
+	}
+
+	@Override
+	public PointCloud3D_F64 getPoints() {
+		return cloud;
+	}
+
+	@Override
+	public int[] getOrder() {
+		return order;
+	}
+
+	/**
+	 * Declares memory and computes the number of nodes
+	 */
+	private void initialize( PointCloud3D_F64 cloud ) {
+		this.cloud = cloud;
+		final int N = cloud.size;
+
+		if( order.length < N ) {
+			order = new int[N];
+			points = new double[N*3];
+		}
+		for (int i = 0; i < N; i++) {
+			order[i] = i;
+		}
+
+		computeLevelNodes(N);
+		numNodes = N > 0 ? subtreeNodes(0, N) : 0;
+		if( nodeStart.length < numNodes ) {
+			growNodes(numNodes);
+		}
+	}
+
+	/**
+	 * Copies points into the same order as the leaves
+	 */
+	private void copyPoints( int idx0, int idx1 ) {
+		final double[] data = cloud.data;
+		for (int i = idx0; i < idx1; i++) {
+			int index = order[i]*3;
+			points[i*3  ] = data[index];
+			points[i*3+1] = data[index+1];
+			points[i*3+2] = data[index+2];
+		}
+	}
+
+	/**
+	 * <p>
+	 * Nodes are always split in half, so all the nodes at depth d have either N/2<sup>d</sup> or
+	 * N/2<sup>d</sup>+1 points, rounded down. This computes the number of nodes in a subtree for both sizes at
+	 * every depth. With this information the index of a node's right child is known before the left child is
+	 * built.
+	 * </p>
+	 */
+	void computeLevelNodes( int N ) {
+		int depths = 1;
+		while( (N >> (depths - 1)) + 1 > maxLeafSize )
+			depths++;
+		if( levelNodes.length < depths*2 )
+			levelNodes = new int[depths*2];
+
+		for (int depth = depths - 1; depth >= 0; depth--) {
+			int size = N >> depth;
+			levelNodes[depth*2  ] = countNodes(depth, size);
+			levelNodes[depth*2+1] = countNodes(depth, size + 1);
+		}
+	}
+
+	private int countNodes( int depth, int size ) {
+		if( size <= maxLeafSize )
+			return 1;
+		int left = size >> 1;
+		return 1 + subtreeNodes(depth + 1, left) + subtreeNodes(depth + 1, size - left);
+	}
+
+	/**
+	 * Number of nodes in a subtree with its root at the specified depth
+	 */
+	int subtreeNodes( int depth, int size ) {
+		return size == cloud.size >> depth ? levelNodes[depth*2] : levelNodes[depth*2+1];
+	}
+
+	/**
+	 * Recursively creates the node which contains the points from start to end-1 in 'order'
+	 */
+	private void build( int start, int end, int node, int depth ) {
+		int middle = splitNode(start, end, node, depth);
+		if( middle < 0 )
+			return;
+		build(start, middle, node + 1, depth + 1);
+		build(middle, end, nodeRight[node], depth + 1);
+	}
+
+	/**
+	 * Computes the node's bounds and partitions its points along the axis with the largest spread
+	 *
+	 * @return Index in 'order' of the first point in the right child or -1 if the node is a leaf
+	 */
+	private int splitNode( int start, int end, int node, int depth ) {
+		final double[] data = cloud.data;
+		double x0 = Double.MAX_VALUE, y0 = Double.MAX_VALUE, z0 = Double.MAX_VALUE;
+		double x1 = -Double.MAX_VALUE, y1 = -Double.MAX_VALUE, z1 = -Double.MAX_VALUE;
+		for (int i = start; i < end; i++) {
+			int index = order[i]*3;
+			double x = data[index], y = data[index+1], z = data[index+2];
+			if( x < x0 ) x0 = x;
+			if( x > x1 ) x1 = x;
+			if( y < y0 ) y0 = y;
+			if( y > y1 ) y1 = y;
+			if( z < z0 ) z0 = z;
+			if( z > z1 ) z1 = z;
+		}
+		nodeBounds[node*6  ] = x0;
+		nodeBounds[node*6+1] = y0;
+		nodeBounds[node*6+2] = z0;
+		nodeBounds[node*6+3] = x1;
+		nodeBounds[node*6+4] = y1;
+		nodeBounds[node*6+5] = z1;
+		nodeStart[node] = start;
+		nodeEnd[node] = end;
+
+		if( end - start <= maxLeafSize ) {
+			nodeRight[node] = -1;
+			return -1;
+		}
+
+		double dx = x1 - x0, dy = y1 - y0, dz = z1 - z0;
+		int axis = dx >= dy ? (dx >= dz ? 0 : 2) : (dy >= dz ? 1 : 2);
+		int middle = (start + end)/2;
+		select(start, end, middle, axis);
+		nodeRight[node] = node + 1 + subtreeNodes(depth + 1, middle - start);
+		return middle;
+	}
+
+	/**
+	 * Splits nodes in parallel until they are small enough to be built by a single thread
+	 */
+	private class BuildTask extends RecursiveAction {
+		final int start, end, node, depth;
+
+		BuildTask( int start, int end, int node, int depth ) {
+			this.start = start;
+			this.end = end;
+			this.node = node;
+			this.depth = depth;
+		}
+
+		@Override
+		protected void compute() {
+			if( end - start < GrlConcurrency.MIN_PARALLEL_LENGTH ) {
+				build(start, end, node, depth);
+				return;
+			}
+			int middle = splitNode(start, end, node, depth);
+			if( middle < 0 )
+				return;
+			invokeAll(new BuildTask(start, middle, node + 1, depth + 1),
+					new BuildTask(middle, end, nodeRight[node], depth + 1));
+		}
+	}
+
+	private void growNodes( int length ) {
+		nodeBounds = Arrays.copyOf(nodeBounds, length*6);
+		nodeStart = Arrays.copyOf(nodeStart, length);
+		nodeEnd = Arrays.copyOf(nodeEnd, length);
+		nodeRight = Arrays.copyOf(nodeRight, length);
+	}
+
+	/**
+	 * Partially sorts 'order' from start to end-1 so that element k has the point which would be at k if
+	 * sorted along the axis, with smaller values before it and larger values after it.
+	 */
+	private void select( int start, int end, int k, int axis ) {
+		final double[] data = cloud.data;
+		int lo = start, hi = end - 1;
+		while( lo < hi ) {
+			double pivot = data[order[(lo + hi) >>> 1]*3 + axis];
+			int i = lo, j = hi;
+			while( i <= j ) {
+				while( data[order[i]*3 + axis] < pivot ) i++;
+				while( data[order[j]*3 + axis] > pivot ) j--;
+				if( i <= j ) {
+					int tmp = order[i];
+					order[i++] = order[j];
+					order[j--] = tmp;
+				}
+			}
+			if( k <= j )
+				hi = j;
+			else if( k >= i )
+				lo = i;
+			else
+				break;
+		}
+	}
+
+	/**
+	 * Euclidean distance squared from the point to the node's bounding box. Zero if the point is inside.
+	 */
+	double nodeDistanceSq( int node, double x, double y, double z ) {
+		final int i = node*6;
+		double dx = x < nodeBounds[i  ] ? nodeBounds[i  ] - x : (x > nodeBounds[i+3] ? x - nodeBounds[i+3] : 0);
+		double dy = y < nodeBounds[i+1] ? nodeBounds[i+1] - y : (y > nodeBounds[i+4] ? y - nodeBounds[i+4] : 0);
+		double dz = z < nodeBounds[i+2] ? nodeBounds[i+2] - z : (z > nodeBounds[i+5] ? z - nodeBounds[i+5] : 0);
+		return dx*dx + dy*dy + dz*dz;
+	}
+
+	/**
+	 * Euclidean distance squared between the point at the specified location in 'order' and the query point
+	 */
+	double distanceSq( int i, double x, double y, double z ) {
+		double dx = points[i*3  ] - x;
+		double dy = points[i*3+1] - y;
+		double dz = points[i*3+2] - z;
+		return dx*dx + dy*dy + dz*dz;
+	}
+
+	@Override
+	public Search createSearch() {
+		return new KdTreeSearch();
+	}
+
+	/**
+	 * Depth first search which visits the closest child first and skips nodes that can't contain a better
+	 * solution
+	 */
+	class KdTreeSearch implements Search {
+		// best solution found so far by nearest neighbor search
+		int bestIndex;
+		double bestDistanceSq;
+
+		// storage for k-nearest neighbor search
+		int k;
+		double maxDistanceSq;
+		GrowQueue_I32 indexes;
+		GrowQueue_F64 distancesSq;
+
+		@Override
+		public int findNearest( double x, double y, double z, double maxDistance ) {
+			bestIndex = -1;
+			bestDistanceSq = maxDistance*maxDistance;
+			if( numNodes > 0 ) {
+				searchNearest(0, x, y, z);
+			}
+			return bestIndex;
+		}
+
+		@Override
+		public double getDistanceSq() {
+			return bestDistanceSq;
+		}
+
+		private void searchNearest( int node, double x, double y, double z ) {
+			int right = nodeRight[node];
+			if( right < 0 ) {
+				for (int i = nodeStart[node]; i < nodeEnd[node]; i++) {
+					double d = distanceSq(i, x, y, z);
+					if( d < bestDistanceSq ) {
+						bestDistanceSq = d;
+						bestIndex = order[i];
+					}
+				}
+				return;
+			}
+
+			int left = node + 1;
+			double distanceLeft = nodeDistanceSq(left, x, y, z);
+			double distanceRight = nodeDistanceSq(right, x, y, z);
+			if( distanceLeft <= distanceRight ) {
+				if( distanceLeft < bestDistanceSq ) searchNearest(left, x, y, z);
+				if( distanceRight < bestDistanceSq ) searchNearest(right, x, y, z);
+			} else {
+				if( distanceRight < bestDistanceSq ) searchNearest(right, x, y, z);
+				if( distanceLeft < bestDistanceSq ) searchNearest(left, x, y, z);
+			}
+		}
+
+		@Override
+		public void findNearest( double x, double y, double z, double maxDistance, int k,
+								 GrowQueue_I32 indexes, GrowQueue_F64 distancesSq ) {
+			indexes.reset();
+			distancesSq.reset();
+			if( numNodes == 0 || k <= 0 )
+				return;
+
+			this.k = k;
+			this.maxDistanceSq = maxDistance*maxDistance;
+			this.indexes = indexes;
+			this.distancesSq = distancesSq;
+			searchNearestK(0, x, y, z);
+			this.indexes = null;
+			this.distancesSq = null;
+		}
+
+		/**
+		 * Distance a point needs to be less than to be added to the k-nearest list
+		 */
+		private double worstDistanceSq() {
+			return indexes.size < k ? maxDistanceSq : distancesSq.data[k - 1];
+		}
+
+		private void searchNearestK( int node, double x, double y, double z ) {
+			int right = nodeRight[node];
+			if( right < 0 ) {
+				for (int i = nodeStart[node]; i < nodeEnd[node]; i++) {
+					double d = distanceSq(i, x, y, z);
+					if( d < worstDistanceSq() ) {
+						UtilIndex2D_F64.insertSorted(k, order[i], d, indexes, distancesSq);
+					}
+				}
+				return;
+			}
+
+			int left = node + 1;
+			double distanceLeft = nodeDistanceSq(left, x, y, z);
+			double distanceRight = nodeDistanceSq(right, x, y, z);
+			if( distanceLeft <= distanceRight ) {
+				if( distanceLeft < worstDistanceSq() ) searchNearestK(left, x, y, z);
+				if( distanceRight < worstDistanceSq() ) searchNearestK(right, x, y, z);
+			} else {
+				if( distanceRight < worstDistanceSq() ) searchNearestK(right, x, y, z);
+				if( distanceLeft < worstDistanceSq() ) searchNearestK(left, x, y, z);
+			}
+		}
+
+		@Override
+		public void findWithinRadius( double x, double y, double z, double radius, GrowQueue_I32 indexes ) {
+			indexes.reset();
+			if( numNodes > 0 ) {
+				searchRadius(0, x, y, z, radius*radius, indexes);
+			}
+		}
+
+		private void searchRadius( int node, double x, double y, double z, double radiusSq, GrowQueue_I32 indexes ) {
+			if( nodeDistanceSq(node, x, y, z) > radiusSq )
+				return;
+
+			int right = nodeRight[node];
+			if( right < 0 ) {
+				for (int i = nodeStart[node]; i < nodeEnd[node]; i++) {
+					if( distanceSq(i, x, y, z) <= radiusSq ) {
+						indexes.add(order[i]);
+					}
+				}
+				return;
+			}
+
+			searchRadius(node + 1, x, y, z, radiusSq, indexes);
+			searchRadius(right, x, y, z, radiusSq, indexes);
+		}
+
+		@Override
+		public void findInsideBox( Box3D_F64 box, GrowQueue_I32 indexes ) {
+			indexes.reset();
+			if( numNodes > 0 ) {
+				searchBox(0, box, indexes);
+			}
+		}
+
+		private void searchBox( int node, Box3D_F64 box, GrowQueue_I32 indexes ) {
+			final int b = node*6;
+			// skip nodes which don't intersect the box
+			if( nodeBounds[b+3] < box.p0.x || nodeBounds[b] >= box.p1.x ||
+					nodeBounds[b+4] < box.p0.y || nodeBounds[b+1] >= box.p1.y ||
+					nodeBounds[b+5] < box.p0.z || nodeBounds[b+2] >= box.p1.z )
+				return;
+
+			// every point is inside if the node is entirely inside the box
+			if( nodeBounds[b] >= box.p0.x && nodeBounds[b+3] < box.p1.x &&
+					nodeBounds[b+1] >= box.p0.y && nodeBounds[b+4] < box.p1.y &&
+					nodeBounds[b+2] >= box.p0.z && nodeBounds[b+5] < box.p1.z ) {
+				for (int i = nodeStart[node]; i < nodeEnd[node]; i++) {
+					indexes.add(order[i]);
+				}
+				return;
+			}
+
+			int right = nodeRight[node];
+			if( right < 0 ) {
+				for (int i = nodeStart[node]; i < nodeEnd[node]; i++) {
+					double x = points[i*3], y = points[i*3+1], z = points[i*3+2];
+					if( box.p0.x <= x && x < box.p1.x && box.p0.y <= y && y < box.p1.y &&
+							box.p0.z <= z && z < box.p1.z ) {
+						indexes.add(order[i]);
+					}
+				}
+				return;
+			}
+
+			searchBox(node + 1, box, indexes);
+			searchBox(right, box, indexes);
+		}
+	}
+}
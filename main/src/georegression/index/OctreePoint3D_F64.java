@@ -0,0 +1,603 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.index;
+
+import georegression.misc.GrlConcurrency;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.point.PointCloud3D_F64;
+import georegression.struct.shapes.Box3D_F64;
+import org.ddogleg.struct.FastQueue;
+import org.ddogleg.struct.GrowQueue_F64;
+import org.ddogleg.struct.GrowQueue_I32;
+
+import java.util.List;
+
+/**
+ * <p>
+ * Sparse octree for 3D points. The root is a cube which contains all the points. A node is split into eight
+ * octants when it contains more than the maximum number of points in a leaf, unless the maximum depth has been
+ * reached. Only octants which contain points are created, so empty space doesn't consume memory.
+ * </p>
+ *
+ * <p>
+ * Nodes are stored in flat arrays in depth first order. The first child of a node is the next node and
+ * each node stores the index of the node which follows its subtree, which is also the index of its next sibling.
+ * When built in parallel, subtrees are built independently and then merged into the same layout the single
+ * threaded version produces. A copy of the points is stored in the same order as the leaves.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class OctreePoint3D_F64 implements PointIndex3D_F64 {
+	// maximum number of points in a leaf
+	int maxLeafSize;
+	// maximum depth of a node. Needed to handle duplicate points
+	int maxDepth;
+
+	PointCloud3D_F64 cloud = new PointCloud3D_F64();
+	// storage for points when the input is a list
+	PointCloud3D_F64 listCopy = new PointCloud3D_F64();
+
+	// indexes of points in the cloud. Arranged so that the points inside a node are in a continuous range
+	int[] order = new int[0];
+	// work space used when partitioning 'order'
+	int[] work = new int[0];
+	// copy of the points, arranged in the same order as 'order'
+	double[] points = new double[0];
+
+	// the tree's nodes
+	Nodes nodes = new Nodes();
+
+	// used to build subtrees in parallel
+	FastQueue<Subtree> subtrees = new FastQueue<>(Subtree::new);
+	Nodes merged = new Nodes();
+
+	/**
+	 * @param maxLeafSize Maximum number of points in a leaf
+	 * @param maxDepth Maximum depth of a node. The root has a depth of 0
+	 */
+	public OctreePoint3D_F64( int maxLeafSize, int maxDepth ) {
+		if( maxLeafSize < 1 )
+			throw new IllegalArgumentException("maxLeafSize must be at least 1");
+		if( maxDepth < 0 )
+			throw new IllegalArgumentException("maxDepth can't be negative");
+		this.maxLeafSize = maxLeafSize;
+		this.maxDepth = maxDepth;
+	}
+
+	public OctreePoint3D_F64() {
+		this(16, 20);
+	}
+
+	@Override
+	public void setPoints( PointCloud3D_F64 cloud ) {
+		initialize(cloud);
+		if( cloud.size > 0 ) {
+			build(nodes, 0, cloud.size, nodes.rootX, nodes.rootY, nodes.rootZ, nodes.rootHalf, 0);
+		}
+		copyPoints(0, cloud.size);
+	}
+
+	@Override
+	public void setPoints( List<Point3D_F64> points ) {
+		listCopy.setTo(points);
+		setPoints(listCopy);
+	}
+
+	/**
+	 * Concurrent version of {@link #setPoints(PointCloud3D_F64)}. Nodes near the root are split by the calling
+	 * thread. Smaller subtrees are then built in parallel and merged.
+	 */
+	@Override
+	public void setPointsParallel( PointCloud3D_F64 cloud ) {
+		initialize(cloud);
+		if( !GrlConcurrency.isParallel(cloud.size) ) {
+			if( cloud.size > 0 )
+				build(nodes, 0, cloud.size, nodes.rootX, nodes.rootY, nodes.rootZ, nodes.rootHalf, 0);
+			copyPoints(0, cloud.size);
+			return;
+		}
+
+		subtrees.reset();
+		buildTop(0, cloud.size, nodes.rootX, nodes.rootY, nodes.rootZ, nodes.rootHalf, 0);
+		GrlConcurrency.loopBlocks(0, subtrees.size, 1, ( idx0, idx1 ) -> {
+			for (int i = idx0; i < idx1; i++) {
+				Subtree s = subtrees.get(i);
+				s.nodes.reset();
+				build(s.nodes, s.start, s.end, s.cx, s.cy, s.cz, s.half, s.depth);
+			}
+		});
+		mergeSubtrees();
+		GrlConcurrency.loopBlocks(0, cloud.size, this::copyPoints);
+	}
+
+	@Override
+	public PointCloud3D_F64 getPoints() {
+		return cloud;
+	}
+
+	@Override
+	public int[] getOrder() {
+		return order;
+	}
+
+	/**
+	 * Declares memory and finds the root's cube
+	 */
+	private void initialize( PointCloud3D_F64 cloud ) {
+		this.cloud = cloud;
+		final int N = cloud.size;
+		if( order.length < N ) {
+			order = new int[N];
+			work = new int[N];
+			points = new double[N*3];
+		}
+		for (int i = 0; i < N; i++) {
+			order[i] = i;
+		}
+		nodes.reset();
+		if( N == 0 )
+			return;
+
+		final double[] data = cloud.data;
+		double x0 = data[0], y0 = data[1], z0 = data[2];
+		double x1 = x0, y1 = y0, z1 = z0;
+		for (int i = 3; i < N*3; i += 3) {
+			double x = data[i], y = data[i+1], z = data[i+2];
+			if( x < x0 ) x0 = x; else if( x > x1 ) x1 = x;
+			if( y < y0 ) y0 = y; else if( y > y1 ) y1 = y;
+			if( z < z0 ) z0 = z; else if( z > z1 ) z1 = z;
+		}
+		nodes.rootX = (x0 + x1)/2;
+		nodes.rootY = (y0 + y1)/2;
+		nodes.rootZ = (z0 + z1)/2;
+		nodes.rootHalf = Math.max(x1 - x0, Math.max(y1 - y0, z1 - z0))/2;
+	}
+
+	private void copyPoints( int idx0, int idx1 ) {
+		final double[] data = cloud.data;
+		for (int i = idx0; i < idx1; i++) {
+			int index = order[i]*3;
+			points[i*3  ] = data[index];
+			points[i*3+1] = data[index+1];
+			points[i*3+2] = data[index+2];
+		}
+	}
+
+	/**
+	 * Recursively creates the node which contains the points from start to end-1 in 'order'
+	 */
+	private void build( Nodes nodes, int start, int end, double cx, double cy, double cz, double half, int depth ) {
+		int node = nodes.add(start, end, cx, cy, cz, half);
+		if( end - start > maxLeafSize && depth < maxDepth ) {
+			final int[] bounds = nodes.bounds;
+			final int b = depth*9;
+			partition(start, end, cx, cy, cz, bounds, b);
+			double quarter = half/2;
+			for (int octant = 0; octant < 8; octant++) {
+				if( bounds[b + octant] == bounds[b + octant + 1] )
+					continue;
+				build(nodes, bounds[b + octant], bounds[b + octant + 1],
+						(octant & 1) == 0 ? cx - quarter : cx + quarter,
+						(octant & 2) == 0 ? cy - quarter : cy + quarter,
+						(octant & 4) == 0 ? cz - quarter : cz + quarter, quarter, depth + 1);
+			}
+		}
+		nodes.next.data[node] = nodes.next.size;
+	}
+
+	/**
+	 * Same as {@link #build} but nodes which are small enough are built later by another thread
+	 */
+	private void buildTop( int start, int end, double cx, double cy, double cz, double half, int depth ) {
+		if( end - start < GrlConcurrency.MIN_PARALLEL_LENGTH ) {
+			// placeholder for the subtree's root
+			int node = nodes.add(start, end, cx, cy, cz, half);
+			nodes.next.data[node] = node + 1;
+			Subtree s = subtrees.grow();
+			s.node = node;
+			s.start = start;
+			s.end = end;
+			s.cx = cx;
+			s.cy = cy;
+			s.cz = cz;
+			s.half = half;
+			s.depth = depth;
+			return;
+		}
+
+		int node = nodes.add(start, end, cx, cy, cz, half);
+		if( depth < maxDepth ) {
+			// octant boundaries are copied since 'bounds' is shared by all the nodes at this depth
+			int[] bounds = new int[9];
+			partition(start, end, cx, cy, cz, bounds, 0);
+			double quarter = half/2;
+			for (int octant = 0; octant < 8; octant++) {
+				if( bounds[octant] == bounds[octant + 1] )
+					continue;
+				buildTop(bounds[octant], bounds[octant + 1],
+						(octant & 1) == 0 ? cx - quarter : cx + quarter,
+						(octant & 2) == 0 ? cy - quarter : cy + quarter,
+						(octant & 4) == 0 ? cz - quarter : cz + quarter, quarter, depth + 1);
+			}
+		}
+		nodes.next.data[node] = nodes.next.size;
+	}
+
+	/**
+	 * Replaces the placeholder nodes with the subtrees which were built in parallel
+	 */
+	private void mergeSubtrees() {
+		// new index of each node in the top of the tree
+		final int numTop = nodes.next.size;
+		final int[] newIndex = new int[numTop + 1];
+		int total = 0;
+		for (int node = 0, s = 0; node < numTop; node++) {
+			newIndex[node] = total;
+			if( s < subtrees.size && subtrees.get(s).node == node ) {
+				total += subtrees.get(s++).nodes.next.size;
+			} else {
+				total++;
+			}
+		}
+		newIndex[numTop] = total;
+
+		merged.reset();
+		merged.rootX = nodes.rootX;
+		merged.rootY = nodes.rootY;
+		merged.rootZ = nodes.rootZ;
+		merged.rootHalf = nodes.rootHalf;
+		for (int node = 0, s = 0; node < numTop; node++) {
+			if( s < subtrees.size && subtrees.get(s).node == node ) {
+				Nodes sub = subtrees.get(s++).nodes;
+				int offset = merged.next.size;
+				for (int i = 0; i < sub.next.size; i++) {
+					int n = merged.add(sub.start.data[i], sub.end.data[i], sub.cells.data[i*4],
+							sub.cells.data[i*4+1], sub.cells.data[i*4+2], sub.cells.data[i*4+3]);
+					merged.next.data[n] = sub.next.data[i] + offset;
+				}
+			} else {
+				int n = merged.add(nodes.start.data[node], nodes.end.data[node], nodes.cells.data[node*4],
+						nodes.cells.data[node*4+1], nodes.cells.data[node*4+2], nodes.cells.data[node*4+3]);
+				merged.next.data[n] = newIndex[nodes.next.data[node]];
+			}
+		}
+
+		Nodes tmp = nodes;
+		nodes = merged;
+		merged = tmp;
+	}
+
+	/**
+	 * Sorts the points in the range by octant. The octant is encoded in bits as (z,y,x), where a bit is
+	 * set if the coordinate is &ge; the center
+	 *
+	 * @param bounds (Output) Start of each octant in 'order' and the end of the last octant
+	 */
+	private void partition( int start, int end, double cx, double cy, double cz, int[] bounds, int offset ) {
+		final double[] data = cloud.data;
+		for (int i = 0; i < 9; i++) {
+			bounds[offset + i] = 0;
+		}
+		for (int i = start; i < end; i++) {
+			int index = order[i]*3;
+			bounds[offset + octant(data[index], data[index+1], data[index+2], cx, cy, cz) + 1]++;
+		}
+		bounds[offset] = start;
+		for (int i = 1; i < 9; i++) {
+			bounds[offset + i] += bounds[offset + i - 1];
+		}
+		// bounds is shifted by one while filling and restored afterwards
+		for (int i = start; i < end; i++) {
+			int index = order[i]*3;
+			int octant = octant(data[index], data[index+1], data[index+2], cx, cy, cz);
+			work[bounds[offset + octant]++] = order[i];
+		}
+		for (int i = 8; i > 0; i--) {
+			bounds[offset + i] = bounds[offset + i - 1];
+		}
+		bounds[offset] = start;
+		System.arraycopy(work, start, order, start, end - start);
+	}
+
+	private static int octant( double x, double y, double z, double cx, double cy, double cz ) {
+		return (x >= cx ? 1 : 0) | (y >= cy ? 2 : 0) | (z >= cz ? 4 : 0);
+	}
+
+	/**
+	 * Euclidean distance squared from the point to the node's cube. Zero if the point is inside.
+	 */
+	double nodeDistanceSq( int node, double x, double y, double z ) {
+		final double[] cells = nodes.cells.data;
+		final double half = cells[node*4+3];
+		double dx = Math.abs(x - cells[node*4  ]) - half;
+		double dy = Math.abs(y - cells[node*4+1]) - half;
+		double dz = Math.abs(z - cells[node*4+2]) - half;
+		dx = dx > 0 ? dx : 0;
+		dy = dy > 0 ? dy : 0;
+		dz = dz > 0 ? dz : 0;
+		return dx*dx + dy*dy + dz*dz;
+	}
+
+	/**
+	 * Euclidean distance squared between the point at the specified location in 'order' and the query point
+	 */
+	double distanceSq( int i, double x, double y, double z ) {
+		double dx = points[i*3  ] - x;
+		double dy = points[i*3+1] - y;
+		double dz = points[i*3+2] - z;
+		return dx*dx + dy*dy + dz*dz;
+	}
+
+	@Override
+	public Search createSearch() {
+		return new OctreeSearch();
+	}
+
+	/**
+	 * Depth first search which visits the closest child first and skips nodes that can't contain a better
+	 * solution
+	 */
+	class OctreeSearch implements Search {
+		// best solution found so far by nearest neighbor search
+		int bestIndex;
+		double bestDistanceSq;
+
+		// storage for k-nearest neighbor search
+		int k;
+		double maxDistanceSq;
+		GrowQueue_I32 indexes;
+		GrowQueue_F64 distancesSq;
+
+		// children of a node sorted by distance. 8 elements for each depth
+		int[] children = new int[0];
+		double[] childDistances = new double[0];
+
+		@Override
+		public int findNearest( double x, double y, double z, double maxDistance ) {
+			bestIndex = -1;
+			bestDistanceSq = maxDistance*maxDistance;
+			if( nodes.next.size > 0 ) {
+				searchNearest(0, 0, x, y, z);
+			}
+			return bestIndex;
+		}
+
+		@Override
+		public double getDistanceSq() {
+			return bestDistanceSq;
+		}
+
+		private void searchNearest( int node, int depth, double x, double y, double z ) {
+			if( nodes.next.data[node] == node + 1 ) {
+				for (int i = nodes.start.data[node]; i < nodes.end.data[node]; i++) {
+					double d = distanceSq(i, x, y, z);
+					if( d < bestDistanceSq ) {
+						bestDistanceSq = d;
+						bestIndex = order[i];
+					}
+				}
+				return;
+			}
+
+			int count = sortChildren(node, depth, x, y, z);
+			for (int i = 0; i < count; i++) {
+				if( childDistances[depth*8 + i] >= bestDistanceSq )
+					break;
+				searchNearest(children[depth*8 + i], depth + 1, x, y, z);
+			}
+		}
+
+		@Override
+		public void findNearest( double x, double y, double z, double maxDistance, int k,
+								 GrowQueue_I32 indexes, GrowQueue_F64 distancesSq ) {
+			indexes.reset();
+			distancesSq.reset();
+			if( nodes.next.size == 0 || k <= 0 )
+				return;
+
+			this.k = k;
+			this.maxDistanceSq = maxDistance*maxDistance;
+			this.indexes = indexes;
+			this.distancesSq = distancesSq;
+			searchNearestK(0, 0, x, y, z);
+			this.indexes = null;
+			this.distancesSq = null;
+		}
+
+		/**
+		 * Distance a point needs to be less than to be added to the k-nearest list
+		 */
+		private double worstDistanceSq() {
+			return indexes.size < k ? maxDistanceSq : distancesSq.data[k - 1];
+		}
+
+		private void searchNearestK( int node, int depth, double x, double y, double z ) {
+			if( nodes.next.data[node] == node + 1 ) {
+				for (int i = nodes.start.data[node]; i < nodes.end.data[node]; i++) {
+					double d = distanceSq(i, x, y, z);
+					if( d < worstDistanceSq() ) {
+						UtilIndex2D_F64.insertSorted(k, order[i], d, indexes, distancesSq);
+					}
+				}
+				return;
+			}
+
+			int count = sortChildren(node, depth, x, y, z);
+			for (int i = 0; i < count; i++) {
+				if( childDistances[depth*8 + i] >= worstDistanceSq() )
+					break;
+				searchNearestK(children[depth*8 + i], depth + 1, x, y, z);
+			}
+		}
+
+		/**
+		 * Saves the children of a node into the work space for its depth, sorted by distance to the point
+		 *
+		 * @return number of children
+		 */
+		private int sortChildren( int node, int depth, double x, double y, double z ) {
+			if( children.length < (depth + 1)*8 ) {
+				children = new int[(maxDepth + 1)*8];
+				childDistances = new double[(maxDepth + 1)*8];
+			}
+			final int offset = depth*8;
+			final int end = nodes.next.data[node];
+			int count = 0;
+			for (int child = node + 1; child < end; child = nodes.next.data[child]) {
+				double d = nodeDistanceSq(child, x, y, z);
+				// insertion sort
+				int i = count++;
+				for( ; i > 0 && childDistances[offset + i - 1] > d; i-- ) {
+					children[offset + i] = children[offset + i - 1];
+					childDistances[offset + i] = childDistances[offset + i - 1];
+				}
+				children[offset + i] = child;
+				childDistances[offset + i] = d;
+			}
+			return count;
+		}
+
+		@Override
+		public void findWithinRadius( double x, double y, double z, double radius, GrowQueue_I32 indexes ) {
+			indexes.reset();
+			if( nodes.next.size > 0 ) {
+				searchRadius(0, x, y, z, radius*radius, indexes);
+			}
+		}
+
+		private void searchRadius( int node, double x, double y, double z, double radiusSq, GrowQueue_I32 indexes ) {
+			if( nodeDistanceSq(node, x, y, z) > radiusSq )
+				return;
+
+			final int end = nodes.next.data[node];
+			if( end == node + 1 ) {
+				for (int i = nodes.start.data[node]; i < nodes.end.data[node]; i++) {
+					if( distanceSq(i, x, y, z) <= radiusSq ) {
+						indexes.add(order[i]);
+					}
+				}
+				return;
+			}
+
+			for (int child = node + 1; child < end; child = nodes.next.data[child]) {
+				searchRadius(child, x, y, z, radiusSq, indexes);
+			}
+		}
+
+		@Override
+		public void findInsideBox( Box3D_F64 box, GrowQueue_I32 indexes ) {
+			indexes.reset();
+			if( nodes.next.size > 0 ) {
+				searchBox(0, box, indexes);
+			}
+		}
+
+		private void searchBox( int node, Box3D_F64 box, GrowQueue_I32 indexes ) {
+			final double[] cells = nodes.cells.data;
+			final double cx = cells[node*4], cy = cells[node*4+1], cz = cells[node*4+2], half = cells[node*4+3];
+
+			// skip nodes which don't intersect the box
+			if( cx + half < box.p0.x || cx - half >= box.p1.x ||
+					cy + half < box.p0.y || cy - half >= box.p1.y ||
+					cz + half < box.p0.z || cz - half >= box.p1.z )
+				return;
+
+			// every point is inside if the node is entirely inside the box
+			if( cx - half >= box.p0.x && cx + half < box.p1.x &&
+					cy - half >= box.p0.y && cy + half < box.p1.y &&
+					cz - half >= box.p0.z && cz + half < box.p1.z ) {
+				for (int i = nodes.start.data[node]; i < nodes.end.data[node]; i++) {
+					indexes.add(order[i]);
+				}
+				return;
+			}
+
+			final int end = nodes.next.data[node];
+			if( end == node + 1 ) {
+				for (int i = nodes.start.data[node]; i < nodes.end.data[node]; i++) {
+					double x = points[i*3], y = points[i*3+1], z = points[i*3+2];
+					if( box.p0.x <= x && x < box.p1.x && box.p0.y <= y && y < box.p1.y &&
+							box.p0.z <= z && z < box.p1.z ) {
+						indexes.add(order[i]);
+					}
+				}
+				return;
+			}
+
+			for (int child = node + 1; child < end; child = nodes.next.data[child]) {
+				searchBox(child, box, indexes);
+			}
+		}
+	}
+
+	/**
+	 * Nodes in a tree or subtree
+	 */
+	class Nodes {
+		// range of elements in 'order' which belong to the node
+		GrowQueue_I32 start = new GrowQueue_I32();
+		GrowQueue_I32 end = new GrowQueue_I32();
+		// index of the node after the node's subtree
+		GrowQueue_I32 next = new GrowQueue_I32();
+		// cube of each node (center x, center y, center z, half length)
+		GrowQueue_F64 cells = new GrowQueue_F64();
+
+		// cube of the root node
+		double rootX, rootY, rootZ, rootHalf;
+
+		// octant boundaries for each depth while building
+		int[] bounds = new int[0];
+
+		int add( int start, int end, double cx, double cy, double cz, double half ) {
+			this.start.add(start);
+			this.end.add(end);
+			this.next.add(-1);
+			this.cells.add(cx);
+			this.cells.add(cy);
+			this.cells.add(cz);
+			this.cells.add(half);
+			if( bounds.length < (maxDepth + 1)*9 )
+				bounds = new int[(maxDepth + 1)*9];
+			return this.next.size - 1;
+		}
+
+		void reset() {
+			start.reset();
+			end.reset();
+			next.reset();
+			cells.reset();
+		}
+	}
+
+	/**
+	 * A subtree which is built by a single thread
+	 */
+	class Subtree {
+		// index of the placeholder node
+		int node;
+		// range of points and cube of the subtree's root
+		int start, end;
+		double cx, cy, cz, half;
+		int depth;
+		// storage for the subtree's nodes
+		Nodes nodes = new Nodes();
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.index;
+
+import georegression.misc.GrlConcurrency;
+import georegression.struct.point.PointCloud3D_F64;
+import org.ddogleg.struct.FastQueue;
+import org.ddogleg.struct.GrowQueue_F64;
+import org.ddogleg.struct.GrowQueue_I32;
+
+import javax.annotation.Nullable;
+
+/**
+ * Batch queries against a {@link PointIndex3D_F64}, where every point in a query cloud is searched for. The
+ * concurrent versions split the queries into blocks and create a {@link PointIndex3D_F64.Search} for each block.
+ * Their results are identical to the single threaded versions.
+ *
+ * @author Peter Abeles
+ */
+public class PointIndex3DOps_F64 {
+	// minimum number of queries processed by a thread
+	private static final int BLOCK_SIZE = 1_000;
+
+	/**
+	 * Finds the closest point in the index to every query point.
+	 *
+	 * @param index Spatial index which is searched
+	 * @param queries Points which are searched for. Not modified.
+	 * @param maxDistance Only points which are within this Euclidean distance are considered
+	 * @param matches (Output) Index of the closest point for each query or -1 if there is none. Modified.
+	 * @param distancesSq (Output) Optional storage for the Euclidean distance squared of each match. Modified.
+	 */
+	public static void findNearest( PointIndex3D_F64 index, PointCloud3D_F64 queries, double maxDistance,
+									GrowQueue_I32 matches, @Nullable GrowQueue_F64 distancesSq ) {
+		matches.resize(queries.size);
+		if( distancesSq != null )
+			distancesSq.resize(queries.size);
+		findNearest(index.createSearch(), queries, maxDistance, matches, distancesSq, 0, queries.size);
+	}
+
+	/**
+	 * Concurrent version of {@link #findNearest(PointIndex3D_F64, PointCloud3D_F64, double, GrowQueue_I32, GrowQueue_F64)}
+	 */
+	public static void findNearestParallel( PointIndex3D_F64 index, PointCloud3D_F64 queries, double maxDistance,
+											GrowQueue_I32 matches, @Nullable GrowQueue_F64 distancesSq ) {
+		matches.resize(queries.size);
+		if( distancesSq != null )
+			distancesSq.resize(queries.size);
+		GrlConcurrency.loopBlocks(0, queries.size, BLOCK_SIZE, ( idx0, idx1 ) ->
+				findNearest(index.createSearch(), queries, maxDistance, matches, distancesSq, idx0, idx1));
+	}
+
+	private static void findNearest( PointIndex3D_F64.Search search, PointCloud3D_F64 queries, double maxDistance,
+									 GrowQueue_I32 matches, @Nullable GrowQueue_F64 distancesSq,
+									 int idx0, int idx1 ) {
+		final double[] data = queries.data;
+		for (int i = idx0; i < idx1; i++) {
+			int match = search.findNearest(data[i*3], data[i*3+1], data[i*3+2], maxDistance);
+			matches.data[i] = match;
+			if( distancesSq != null )
+				distancesSq.data[i] = match >= 0 ? search.getDistanceSq() : Double.NaN;
+		}
+	}
+
+	/**
+	 * Finds the k closest points in the index to every query point. The results for query i are stored in
+	 * elements i*k to (i+1)*k-1 and are sorted from closest to farthest. If fewer than k points are found then
+	 * the remaining elements are filled with -1 and NaN.
+	 *
+	 * @param index Spatial index which is searched
+	 * @param queries Points which are searched for. Not modified.
+	 * @param maxDistance Only points which are within this Euclidean distance are considered
+	 * @param k Number of neighbors
+	 * @param neighbors (Output) Indexes of the neighbors. Modified.
+	 * @param distancesSq (Output) Euclidean distance squared of the neighbors. Modified.
+	 */
+	public static void findNearest( PointIndex3D_F64 index, PointCloud3D_F64 queries, double maxDistance, int k,
+									GrowQueue_I32 neighbors, GrowQueue_F64 distancesSq ) {
+		neighbors.resize(queries.size*k);
+		distancesSq.resize(queries.size*k);
+		findNearest(index.createSearch(), queries, maxDistance, k, neighbors, distancesSq, 0, queries.size);
+	}
+
+	/**
+	 * Concurrent version of {@link #findNearest(PointIndex3D_F64, PointCloud3D_F64, double, int, GrowQueue_I32, GrowQueue_F64)}
+	 */
+	public static void findNearestParallel( PointIndex3D_F64 index, PointCloud3D_F64 queries, double maxDistance,
+											int k, GrowQueue_I32 neighbors, GrowQueue_F64 distancesSq ) {
+		neighbors.resize(queries.size*k);
+		distancesSq.resize(queries.size*k);
+		GrlConcurrency.loopBlocks(0, queries.size, BLOCK_SIZE, ( idx0, idx1 ) ->
+				findNearest(index.createSearch(), queries, maxDistance, k, neighbors, distancesSq, idx0, idx1));
+	}
+
+	private static void findNearest( PointIndex3D_F64.Search search, PointCloud3D_F64 queries, double maxDistance,
+									 int k, GrowQueue_I32 neighbors, GrowQueue_F64 distancesSq,
+									 int idx0, int idx1 ) {
+		final double[] data = queries.data;
+		GrowQueue_I32 foundIndexes = new GrowQueue_I32(k);
+		GrowQueue_F64 foundDistances = new GrowQueue_F64(k);
+		for (int i = idx0; i < idx1; i++) {
+			search.findNearest(data[i*3], data[i*3+1], data[i*3+2], maxDistance, k, foundIndexes, foundDistances);
+			for (int j = 0; j < k; j++) {
+				boolean found = j < foundIndexes.size;
+				neighbors.data[i*k + j] = found ? foundIndexes.data[j] : -1;
+				distancesSq.data[i*k + j] = found ? foundDistances.data[j] : Double.NaN;
+			}
+		}
+	}
+
+	/**
+	 * Finds all the points in the index which are within the radius of every query point.
+	 *
+	 * @param index Spatial index which is searched
+	 * @param queries Points which are searched for. Not modified.
+	 * @param radius Points which are within this Euclidean distance are found
+	 * @param neighbors (Output) Indexes of the points inside the radius of each query. Modified.
+	 */
+	public static void findWithinRadius( PointIndex3D_F64 index, PointCloud3D_F64 queries, double radius,
+										 FastQueue<GrowQueue_I32> neighbors ) {
+		neighbors.resize(queries.size);
+		findWithinRadius(index.createSearch(), queries, radius, neighbors, 0, queries.size);
+	}
+
+	/**
+	 * Concurrent version of {@link #findWithinRadius(PointIndex3D_F64, PointCloud3D_F64, double, FastQueue)}
+	 */
+	public static void findWithinRadiusParallel( PointIndex3D_F64 index, PointCloud3D_F64 queries, double radius,
+												 FastQueue<GrowQueue_I32> neighbors ) {
+		neighbors.resize(queries.size);
+		GrlConcurrency.loopBlocks(0, queries.size, BLOCK_SIZE, ( idx0, idx1 ) ->
+				findWithinRadius(index.createSearch(), queries, radius, neighbors, idx0, idx1));
+	}
+
+	private static void findWithinRadius( PointIndex3D_F64.Search search, PointCloud3D_F64 queries, double radius,
+										  FastQueue<GrowQueue_I32> neighbors, int idx0, int idx1 ) {
+		final double[] data = queries.data;
+		for (int i = idx0; i < idx1; i++) {
+			search.findWithinRadius(data[i*3], data[i*3+1], data[i*3+2], radius, neighbors.get(i));
+		}
+	}
+}
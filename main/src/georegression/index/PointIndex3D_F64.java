@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.index;
+
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.point.PointCloud3D_F64;
+import georegression.struct.shapes.Box3D_F64;
+import org.ddogleg.struct.GrowQueue_F64;
+import org.ddogleg.struct.GrowQueue_I32;
+
+import java.util.List;
+
+/**
+ * Spatial index for finding the 3D points which are closest to a query point. Points are provided in a packed
+ * {@link PointCloud3D_F64}. Once the index has been built it is not modified by a query. All queries are done
+ * through a {@link Search}, which contains the workspace needed by the query. To search in parallel create one
+ * {@link Search} for each thread.
+ *
+ * @author Peter Abeles
+ */
+public interface PointIndex3D_F64 {
+
+	/**
+	 * Builds the index from the point cloud. A reference to the cloud is saved internally and the cloud should
+	 * not be modified until the index has been rebuilt.
+	 *
+	 * @param cloud Points which are to be indexed. Not modified.
+	 */
+	void setPoints( PointCloud3D_F64 cloud );
+
+	/**
+	 * Builds the index from a list of points. The points are copied into an internal cloud, which is returned
+	 * by {@link #getPoints()}.
+	 *
+	 * @param points Points which are to be indexed. Not modified.
+	 */
+	void setPoints( List<Point3D_F64> points );
+
+	/**
+	 * Concurrent version of {@link #setPoints(PointCloud3D_F64)}. The index is identical to the one built by the
+	 * single threaded version.
+	 */
+	void setPointsParallel( PointCloud3D_F64 cloud );
+
+	/**
+	 * Returns the point cloud which has been indexed
+	 */
+	PointCloud3D_F64 getPoints();
+
+	/**
+	 * Indexes of the points in the order they are stored inside the index. Points which are next to each other in
+	 * this list are also close to each other in space. When searching around every point in the cloud, visiting
+	 * points in this order is more cache friendly than the cloud's order. The array can be longer than the
+	 * number of points.
+	 */
+	int[] getOrder();
+
+	/**
+	 * Creates a new search for this index. Each search can only be used by one thread at a time.
+	 */
+	Search createSearch();
+
+	/**
+	 * Performs queries against the index. Returned indexes refer to the point's index in the cloud passed
+	 * to {@link #setPoints}.
+	 */
+	interface Search {
+		/**
+		 * Finds the point which is closest to the query point.
+		 *
+		 * @param x Query point's x-coordinate
+		 * @param y Query point's y-coordinate
+		 * @param z Query point's z-coordinate
+		 * @param maxDistance Only points which are within this Euclidean distance are considered. Use
+		 *                    Double.MAX_VALUE for no limit.
+		 * @return Index of the closest point or -1 if none are within maxDistance
+		 */
+		int findNearest( double x, double y, double z, double maxDistance );
+
+		/**
+		 * Euclidean distance squared of the point found by the most recent call to
+		 * {@link #findNearest(double, double, double, double)}
+		 */
+		double getDistanceSq();
+
+		/**
+		 * Finds the k points which are closest to the query point. The results are sorted from closest to farthest.
+		 *
+		 * @param x Query point's x-coordinate
+		 * @param y Query point's y-coordinate
+		 * @param z Query point's z-coordinate
+		 * @param maxDistance Only points which are within this Euclidean distance are considered. Use
+		 *                    Double.MAX_VALUE for no limit.
+		 * @param k The maximum number of points that are found
+		 * @param indexes (Output) Indexes of the closest points. Modified.
+		 * @param distancesSq (Output) Euclidean distance squared of the closest points. Modified.
+		 */
+		void findNearest( double x, double y, double z, double maxDistance, int k,
+						  GrowQueue_I32 indexes, GrowQueue_F64 distancesSq );
+
+		/**
+		 * Finds all the points which are within the specified distance of the query point. The order of the
+		 * results is arbitrary.
+		 *
+		 * @param x Query point's x-coordinate
+		 * @param y Query point's y-coordinate
+		 * @param z Query point's z-coordinate
+		 * @param radius Points which are within this Euclidean distance are found
+		 * @param indexes (Output) Indexes of the points inside the radius. Modified.
+		 */
+		void findWithinRadius( double x, double y, double z, double radius, GrowQueue_I32 indexes );
+
+		/**
+		 * Finds all the points which are inside the axis aligned box. The same as
+		 * {@link georegression.metric.Intersection3D_F64#contained(Box3D_F64, Point3D_F64)}, the lower
+		 * extent is inclusive and the upper extent is exclusive. The order of the results is arbitrary.
+		 *
+		 * @param box The box
+		 * @param indexes (Output) Indexes of the points inside the box. Modified.
+		 */
+		void findInsideBox( Box3D_F64 box, GrowQueue_I32 indexes );
+	}
+}
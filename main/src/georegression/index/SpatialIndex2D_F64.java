@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.index;
+
+import org.ddogleg.struct.GrowQueue_F64;
+import org.ddogleg.struct.GrowQueue_I32;
+
+import java.util.List;
+
+/**
+ * Spatial index for finding the 2D geometric primitives which are closest to a query point. Once the index
+ * has been built it is not modified by a query. All queries are done through a {@link Search}, which contains
+ * the workspace needed by the query. To search in parallel create one {@link Search} for each thread.
+ *
+ * @author Peter Abeles
+ */
+public interface SpatialIndex2D_F64<T> {
+
+	/**
+	 * Builds the index from the list of items. A reference to the list is saved internally and the list should
+	 * not be modified until the index has been rebuilt.
+	 *
+	 * @param items Items which are to be indexed. Not modified.
+	 */
+	void setItems( List<T> items );
+
+	/**
+	 * Returns the list of items which have been indexed
+	 */
+	List<T> getItems();
+
+	/**
+	 * Creates a new search for this index. Each search can only be used by one thread at a time.
+	 */
+	Search createSearch();
+
+	/**
+	 * Performs queries against the index. Returned indexes refer to the item's index in the list passed
+	 * to {@link #setItems}.
+	 */
+	interface Search {
+		/**
+		 * Finds the item which is closest to the point.
+		 *
+		 * @param x Point's x-coordinate
+		 * @param y Point's y-coordinate
+		 * @param maxDistance Only items which are within this Euclidean distance are considered. Use
+		 *                    Double.MAX_VALUE for no limit.
+		 * @return Index of the closest item or -1 if none are within maxDistance
+		 */
+		int findNearest( double x, double y, double maxDistance );
+
+		/**
+		 * Euclidean distance squared of the item found by the most recent call to {@link #findNearest(double, double, double)}
+		 */
+		double getDistanceSq();
+
+		/**
+		 * Finds the k items which are closest to the point. The results are sorted from closest to farthest.
+		 *
+		 * @param x Point's x-coordinate
+		 * @param y Point's y-coordinate
+		 * @param maxDistance Only items which are within this Euclidean distance are considered. Use
+		 *                    Double.MAX_VALUE for no limit.
+		 * @param k The maximum number of items that are found
+		 * @param indexes (Output) Indexes of the closest items. Modified.
+		 * @param distancesSq (Output) Euclidean distance squared of the closest items. Modified.
+		 */
+		void findNearest( double x, double y, double maxDistance, int k,
+						  GrowQueue_I32 indexes, GrowQueue_F64 distancesSq );
+
+		/**
+		 * Finds all the items which are within the specified distance of the point. The order of the results
+		 * is arbitrary.
+		 *
+		 * @param x Point's x-coordinate
+		 * @param y Point's y-coordinate
+		 * @param radius Items which are within this Euclidean distance are found
+		 * @param indexes (Output) Indexes of the items inside the radius. Modified.
+		 */
+		void findWithinRadius( double x, double y, double radius, GrowQueue_I32 indexes );
+	}
+}
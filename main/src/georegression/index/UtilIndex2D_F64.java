@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.index;
+
+import org.ddogleg.struct.GrowQueue_F64;
+import org.ddogleg.struct.GrowQueue_I32;
+
+/**
+ * Functions shared by the spatial index implementations.
+ *
+ * @author Peter Abeles
+ */
+class UtilIndex2D_F64 {
+	/**
+	 * Euclidean distance squared from a point to an axis aligned box. Zero if the point is inside.
+	 */
+	static double distanceSq( double x0, double y0, double x1, double y1, double x, double y ) {
+		double dx = x < x0 ? x0 - x : (x > x1 ? x - x1 : 0);
+		double dy = y < y0 ? y0 - y : (y > y1 ? y - y1 : 0);
+		return dx*dx + dy*dy;
+	}
+
+	/**
+	 * Adds an item to the list of the k-nearest items found so far, which is sorted from closest to farthest.
+	 * The caller must first check that the item is closer than the farthest item when the list is full.
+	 */
+	static void insertSorted( int k, int index, double distanceSq, GrowQueue_I32 indexes, GrowQueue_F64 distancesSq ) {
+		int i;
+		if( indexes.size < k ) {
+			indexes.add(index);
+			distancesSq.add(distanceSq);
+			i = indexes.size - 1;
+		} else {
+			i = k - 1;
+		}
+		for( ; i > 0 && distancesSq.data[i-1] > distanceSq; i-- ) {
+			indexes.data[i] = indexes.data[i-1];
+			distancesSq.data[i] = distancesSq.data[i-1];
+		}
+		indexes.data[i] = index;
+		distancesSq.data[i] = distanceSq;
+	}
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.index;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Open addressing hash map from a packed voxel key to an integer value. Keys are stored in primitive arrays so
+ * that no objects are created when a voxel is added, unlike {@link java.util.HashMap} with boxed {@link Long}
+ * keys. Collisions are resolved with linear probing and the table is kept at most half full.
+ * </p>
+ *
+ * <p>
+ * A voxel key is created from three non-negative integer coordinates using {@link #key(int, int, int)}, each
+ * coordinate must be less than {@link #MAX_COORDINATE}. Values must be non-negative since -1 is used to mark
+ * empty slots.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class VoxelHashMap {
+	/** Number of bits used to encode each coordinate */
+	public static final int BITS = 21;
+	/** Upper limit, exclusive, of a coordinate */
+	public static final int MAX_COORDINATE = 1 << BITS;
+	/** Largest possible length of the table. Up to half this number of elements can be stored */
+	public static final int MAX_TABLE_LENGTH = 1 << 30;
+
+	// value which indicates a slot is empty
+	private static final int EMPTY = -1;
+
+	// key stored in each slot
+	long[] keys;
+	// value stored in each slot or EMPTY
+	int[] values;
+	// number of elements in the map
+	int size;
+	// used to convert the hash into a slot index. table length - 1
+	int mask;
+
+	/**
+	 * Creates a map which can hold the specified number of elements before it needs to grow
+	 */
+	public VoxelHashMap( int capacity ) {
+		allocate(tableLength(capacity));
+	}
+
+	public VoxelHashMap() {
+		this(16);
+	}
+
+	/**
+	 * Packs the coordinate of a voxel into a single key
+	 *
+	 * @param x x-coordinate, 0 &le; x &lt; {@link #MAX_COORDINATE}
+	 * @param y y-coordinate, 0 &le; y &lt; {@link #MAX_COORDINATE}
+	 * @param z z-coordinate, 0 &le; z &lt; {@link #MAX_COORDINATE}
+	 * @return the key
+	 */
+	public static long key( int x , int y , int z ) {
+		return ((long)x << (2*BITS)) | ((long)y << BITS) | z;
+	}
+
+	/**
+	 * Returns the value associated with the key or -1 if the key is not in the map
+	 */
+	public int get( long key ) {
+		int slot = hash(key) & mask;
+		while( true ) {
+			int v = values[slot];
+			if( v == EMPTY || keys[slot] == key )
+				return v;
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	/**
+	 * Adds the key to the map if it is not already in the map.
+	 *
+	 * @param key The key
+	 * @param value Value associated with the key. Must be &ge; 0.
+	 * @return The value already associated with the key or -1 if the key was added
+	 */
+	public int putIfAbsent( long key , int value ) {
+		if( (size + 1)*2L > keys.length )
+			rehash(tableLength(size + 1));
+
+		int slot = hash(key) & mask;
+		while( true ) {
+			int v = values[slot];
+			if( v == EMPTY ) {
+				keys[slot] = key;
+				values[slot] = value;
+				size++;
+				return EMPTY;
+			} else if( keys[slot] == key ) {
+				return v;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	/**
+	 * Ensures that the specified number of elements can be added without growing the table
+	 */
+	public void reserve( int capacity ) {
+		int length = tableLength(capacity);
+		if( length > keys.length )
+			rehash(length);
+	}
+
+	/**
+	 * Removes all the elements from the map. The table's memory is kept.
+	 */
+	public void reset() {
+		Arrays.fill(values, EMPTY);
+		size = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Mixes the bits in the key so that voxels which are next to each other are spread out across the table.
+	 * This is the finalizer from MurmurHash3.
+	 */
+	static int hash( long key ) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int)key;
+	}
+
+	/**
+	 * Smallest power of two table which can store the requested number of elements and be at most half full
+	 *
+	 * @throws IllegalArgumentException If the table would need to be larger than {@link #MAX_TABLE_LENGTH}
+	 */
+	static int tableLength( int capacity ) {
+		if( capacity*2L > MAX_TABLE_LENGTH )
+			throw new IllegalArgumentException("Capacity is too large. capacity=" + capacity +
+					" max=" + MAX_TABLE_LENGTH/2);
+		int length = 16;
+		while( length < capacity*2L )
+			length *= 2;
+		return length;
+	}
+
+	private void allocate( int length ) {
+		keys = new long[length];
+		values = new int[length];
+		Arrays.fill(values, EMPTY);
+		mask = length - 1;
+		size = 0;
+	}
+
+	private void rehash( int length ) {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		allocate(length);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if( oldValues[i] == EMPTY )
+				continue;
+			int slot = hash(oldKeys[i]) & mask;
+			while( values[slot] != EMPTY )
+				slot = (slot + 1) & mask;
+			keys[slot] = oldKeys[i];
+			values[slot] = oldValues[i];
+			size++;
+		}
+	}
+}
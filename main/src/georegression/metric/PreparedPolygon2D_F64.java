@@ -0,0 +1,339 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.metric;
+
+import georegression.misc.GrlConcurrency;
+import georegression.struct.point.Point2D_F64;
+import georegression.struct.shapes.Polygon2D_F64;
+import georegression.struct.shapes.Rectangle2D_F64;
+import org.ddogleg.sorting.QuickSort_F64;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Polygon which has been preprocessed for fast point containment tests. Intended for when many points are tested
+ * against the same polygon. The polygon's edges are copied into packed arrays and the polygon's bounding box is
+ * divided into horizontal slabs of equal height. An edge which only partially covers a slab is stored in that slab's
+ * list and is tested against every point in the slab. An edge which completely covers a range of slabs is stored in
+ * a segment tree over the slabs. Inside a tree node, the edges can't cross each other and are sorted along
+ * the x-axis. The number of edges which a horizontal ray from the point crosses is then found with a binary search.
+ * A query costs O(log<sup>2</sup> n) in the worst case and is closer to O(1) for polygons with many short edges.
+ * </p>
+ *
+ * <p>
+ * Containment is determined by the even-odd rule, the same as
+ * {@link Intersection2D_F64#containConvex(Polygon2D_F64, Point2D_F64)}, which works for concave polygons too.
+ * The polygon must be simple, i.e. edges can't intersect each other.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class PreparedPolygon2D_F64 {
+	// Minimum number of points processed by a thread
+	static final int BATCH_BLOCK_SIZE = 5000;
+
+	// axis aligned bounding box of the polygon
+	double x0, y0, x1, y1;
+
+	// Non-horizontal edges (ax,ay,bx,by). Edge i goes from vertex i to vertex i-1
+	double[] edges = new double[0];
+	int numEdges;
+
+	// number of slabs, which is a power of two, and 1/(slab height)
+	int numSlabs;
+	double slabScale;
+
+	// Edges which partially cover each slab. Edges in slab i are from slabStart[i] to slabStart[i+1]-1
+	int[] slabStart = new int[0];
+	double[] slabEdges = new double[0];
+
+	// Segment tree with a node for each range of slabs. The root is node 1 and the children of node i are 2*i and
+	// 2*i+1. The leaf for slab i is node numSlabs+i. Edges which completely cover a node's range, but not its
+	// parent's range, are stored in the node and sorted along x.
+	int[] nodeStart = new int[0];
+	double[] nodeEdges = new double[0];
+
+	// workspace for building
+	int[] work = new int[0];
+	double[] workKeys = new double[0];
+	int[] workSorted = new int[0];
+	QuickSort_F64 sorter = new QuickSort_F64();
+
+	public PreparedPolygon2D_F64( Polygon2D_F64 polygon ) {
+		setPolygon(polygon);
+	}
+
+	public PreparedPolygon2D_F64() {
+	}
+
+	/**
+	 * Preprocesses the polygon. The polygon can be modified after this function returns without affecting
+	 * this class.
+	 *
+	 * @param polygon Simple polygon that points are to be tested against. Can be concave. Not modified.
+	 */
+	public void setPolygon( Polygon2D_F64 polygon ) {
+		final int N = polygon.size();
+
+		x0 = y0 = Double.MAX_VALUE;
+		x1 = y1 = -Double.MAX_VALUE;
+		for (int i = 0; i < N; i++) {
+			Point2D_F64 p = polygon.vertexes.data[i];
+			x0 = Math.min(x0, p.x);
+			y0 = Math.min(y0, p.y);
+			x1 = Math.max(x1, p.x);
+			y1 = Math.max(y1, p.y);
+		}
+
+		// horizontal edges can never be crossed and are discarded
+		if( edges.length < N*4 )
+			edges = new double[N*4];
+		numEdges = 0;
+		for (int i = 0, j = N - 1; i < N; j = i++) {
+			Point2D_F64 a = polygon.vertexes.data[i];
+			Point2D_F64 b = polygon.vertexes.data[j];
+			if( a.y == b.y )
+				continue;
+			int idx = numEdges*4;
+			numEdges++;
+			edges[idx  ] = a.x;
+			edges[idx+1] = a.y;
+			edges[idx+2] = b.x;
+			edges[idx+3] = b.y;
+		}
+
+		// about one slab for each edge
+		numSlabs = 1;
+		while( numSlabs < numEdges )
+			numSlabs *= 2;
+		slabScale = y1 > y0 ? numSlabs/(y1 - y0) : 0;
+
+		if( slabStart.length < numSlabs + 1 ) {
+			slabStart = new int[numSlabs + 1];
+			nodeStart = new int[numSlabs*2 + 1];
+		} else {
+			Arrays.fill(slabStart, 0, numSlabs + 1, 0);
+			Arrays.fill(nodeStart, 0, numSlabs*2 + 1, 0);
+		}
+
+		// count the number of edges in each slab and tree node
+		int totalSlab = 0, totalNode = 0;
+		for (int i = 0; i < numEdges; i++) {
+			int slab0 = slab(Math.min(edges[i*4+1], edges[i*4+3]));
+			int slab1 = slab(Math.max(edges[i*4+1], edges[i*4+3]));
+			slabStart[slab0 + 1]++;
+			totalSlab++;
+			if( slab1 != slab0 ) {
+				slabStart[slab1 + 1]++;
+				totalSlab++;
+			}
+			totalNode += forEachNode(slab0 + 1, slab1 - 1, i, false);
+		}
+		for (int i = 0; i < numSlabs; i++) {
+			slabStart[i + 1] += slabStart[i];
+		}
+		for (int i = 0; i < numSlabs*2; i++) {
+			nodeStart[i + 1] += nodeStart[i];
+		}
+
+		// Fill in the slabs and nodes. The start arrays are shifted by one while filling and restored afterwards
+		if( slabEdges.length < totalSlab*4 )
+			slabEdges = new double[totalSlab*4];
+		if( work.length < totalNode ) {
+			work = new int[totalNode];
+			workKeys = new double[totalNode];
+			workSorted = new int[totalNode];
+			nodeEdges = new double[totalNode*4];
+		}
+		for (int i = 0; i < numEdges; i++) {
+			int slab0 = slab(Math.min(edges[i*4+1], edges[i*4+3]));
+			int slab1 = slab(Math.max(edges[i*4+1], edges[i*4+3]));
+			System.arraycopy(edges, i*4, slabEdges, slabStart[slab0]*4, 4);
+			slabStart[slab0]++;
+			if( slab1 != slab0 ) {
+				System.arraycopy(edges, i*4, slabEdges, slabStart[slab1]*4, 4);
+				slabStart[slab1]++;
+			}
+			forEachNode(slab0 + 1, slab1 - 1, i, true);
+		}
+		for (int i = numSlabs; i > 0; i--) {
+			slabStart[i] = slabStart[i - 1];
+		}
+		slabStart[0] = 0;
+		for (int i = numSlabs*2; i > 0; i--) {
+			nodeStart[i] = nodeStart[i - 1];
+		}
+		nodeStart[0] = 0;
+
+		// sort the edges in each node along the x-axis at the middle of the node
+		for (int node = 1; node < numSlabs*2; node++) {
+			int start = nodeStart[node], end = nodeStart[node + 1];
+			if( start == end )
+				continue;
+
+			// find the y-coordinate at the middle of the node's slabs
+			int level = 31 - Integer.numberOfLeadingZeros(node);
+			int length = numSlabs >> level;
+			int first = (node - (1 << level))*length;
+			double y = y0 + (first + length*0.5)/slabScale;
+
+			for (int i = start; i < end; i++) {
+				workKeys[i] = crossingX(edges, work[i]*4, y);
+			}
+			sorter.sort(workKeys, start, end - start, workSorted);
+			for (int i = 0; i < end - start; i++) {
+				System.arraycopy(edges, work[workSorted[i]]*4, nodeEdges, (start + i)*4, 4);
+			}
+		}
+	}
+
+	/**
+	 * Finds the nodes in the segment tree which cover the range of slabs from slab0 to slab1, inclusive. If
+	 * requested, the edge is added to each node.
+	 *
+	 * @return Number of nodes
+	 */
+	private int forEachNode( int slab0, int slab1, int edge, boolean add ) {
+		int count = 0;
+		for (int lower = slab0 + numSlabs, upper = slab1 + numSlabs + 1; lower < upper; lower >>= 1, upper >>= 1) {
+			if( (lower & 1) == 1 ) {
+				addToNode(lower++, edge, add);
+				count++;
+			}
+			if( (upper & 1) == 1 ) {
+				addToNode(--upper, edge, add);
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private void addToNode( int node, int edge, boolean add ) {
+		if( add ) {
+			work[nodeStart[node]++] = edge;
+		} else {
+			nodeStart[node + 1]++;
+		}
+	}
+
+	/**
+	 * x-coordinate where the horizontal line at y intersects the edge. Same equation as used in
+	 * {@link Intersection2D_F64#containConvex(Polygon2D_F64, Point2D_F64)}.
+	 */
+	private static double crossingX( double[] edges, int idx, double y ) {
+		double ax = edges[idx], ay = edges[idx+1];
+		double bx = edges[idx+2], by = edges[idx+3];
+		return (bx - ax)*(y - ay)/(by - ay) + ax;
+	}
+
+	/**
+	 * Index of the slab which contains the y-coordinate. Clamped to the valid range.
+	 */
+	int slab( double y ) {
+		int slab = (int)((y - y0)*slabScale);
+		return slab < 0 ? 0 : (slab >= numSlabs ? numSlabs - 1 : slab);
+	}
+
+	/**
+	 * Returns true if the point is inside the polygon
+	 *
+	 * @param x Point's x-coordinate
+	 * @param y Point's y-coordinate
+	 */
+	public boolean contains( double x, double y ) {
+		// no edges can be crossed if y = y1 and the number of crossings is even if x < x0
+		if( x < x0 || x > x1 || y < y0 || y >= y1 )
+			return false;
+
+		int slab = slab(y);
+		boolean c = false;
+
+		// edges which partially cover the slab need to be fully tested
+		for (int i = slabStart[slab]*4, end = slabStart[slab + 1]*4; i < end; i += 4) {
+			double ay = slabEdges[i+1], by = slabEdges[i+3];
+			if( ((ay > y) != (by > y)) && (x < crossingX(slabEdges, i, y)) )
+				c = !c;
+		}
+
+		// Edges in the nodes containing this slab are known to cross y. Count how many are to the right of x
+		for (int node = slab + numSlabs; node >= 1; node >>= 1) {
+			int start = nodeStart[node], end = nodeStart[node + 1];
+			if( start == end )
+				continue;
+
+			// find the first edge which is to the right of x
+			int lower = start, upper = end;
+			while( lower < upper ) {
+				int middle = (lower + upper) >>> 1;
+				if( x < crossingX(nodeEdges, middle*4, y) )
+					upper = middle;
+				else
+					lower = middle + 1;
+			}
+			if( ((end - lower) & 1) == 1 )
+				c = !c;
+		}
+		return c;
+	}
+
+	/**
+	 * Returns true if the point is inside the polygon
+	 */
+	public boolean contains( Point2D_F64 p ) {
+		return contains(p.x, p.y);
+	}
+
+	/**
+	 * Tests a batch of points for containment inside the polygon
+	 *
+	 * @param xy Packed array of points, e.g. (x0,y0,x1,y1,...). Not modified.
+	 * @param out (Output) Results for each point. Must be at least xy.length/2 elements. Modified.
+	 */
+	public void contains( double[] xy, boolean[] out ) {
+		contains(xy, 0, xy.length/2, out);
+	}
+
+	/**
+	 * Concurrent version of {@link #contains(double[], boolean[])}
+	 */
+	public void containsParallel( double[] xy, boolean[] out ) {
+		GrlConcurrency.loopBlocks(0, xy.length/2, BATCH_BLOCK_SIZE, ( idx0, idx1 ) -> contains(xy, idx0, idx1, out));
+	}
+
+	void contains( double[] xy, int point0, int point1, boolean[] out ) {
+		for (int i = point0; i < point1; i++) {
+			out[i] = contains(xy[i*2], xy[i*2+1]);
+		}
+	}
+
+	/**
+	 * Returns the axis aligned bounding box of the polygon
+	 *
+	 * @param storage (Output) Storage for the bounding box. If null a new instance is returned.
+	 */
+	public Rectangle2D_F64 getBounds( @Nullable Rectangle2D_F64 storage ) {
+		if( storage == null )
+			storage = new Rectangle2D_F64();
+		storage.set(x0, y0, x1, y1);
+		return storage;
+	}
+}
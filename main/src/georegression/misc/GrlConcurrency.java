@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package georegression.misc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+
+/**
+ * Controls how concurrent (multi-threaded) operations are run. By default work is submitted to
+ * {@link ForkJoinPool#commonPool()}. All concurrent functions in the library go through this class.
+ *
+ * @author Peter Abeles
+ */
+public class GrlConcurrency {
+
+	/**
+	 * If the number of elements is less than this value then bulk operations will be run in the calling thread.
+	 * Splitting up a small amount of work costs more than it saves.
+	 */
+	public static int MIN_PARALLEL_LENGTH = 20_000;
+
+	// pool that all the work is run inside of
+	private static volatile ForkJoinPool pool = ForkJoinPool.commonPool();
+	// true if 'pool' was created by setMaxThreads() and should be shut down when it's replaced
+	private static boolean ownsPool = false;
+
+	/**
+	 * Changes the thread pool to a new pool with the specified number of threads. The new pool is owned by this
+	 * class and will be shut down when it's replaced by another call to this function or {@link #setPool}.
+	 */
+	public static synchronized void setMaxThreads( int maxThreads ) {
+		if( maxThreads < 1 )
+			throw new IllegalArgumentException("Must have at least one thread");
+		replacePool(new ForkJoinPool(maxThreads), true);
+	}
+
+	/**
+	 * Changes the thread pool to one provided by the caller. The caller is responsible for shutting it down.
+	 */
+	public static synchronized void setPool( ForkJoinPool pool ) {
+		replacePool(pool, false);
+	}
+
+	/**
+	 * Returns the pool work is run in. If it was created by {@link #setMaxThreads} then don't save it for later
+	 * use, since it's shut down once replaced.
+	 */
+	public static ForkJoinPool getPool() {
+		return pool;
+	}
+
+	private static void replacePool( ForkJoinPool replacement, boolean owned ) {
+		ForkJoinPool previous = pool;
+		if( previous == replacement )
+			return;
+		boolean previousOwned = ownsPool;
+		pool = replacement;
+		ownsPool = owned;
+		// tasks which have already been submitted will still finish
+		if( previousOwned )
+			previous.shutdown();
+	}
+
+	/**
+	 * Returns true if an operation with this many elements should be run in parallel
+	 */
+	public static boolean isParallel( int length ) {
+		return length >= MIN_PARALLEL_LENGTH && pool.getParallelism() > 1;
+	}
+
+	/**
+	 * Splits the range [start,end) into contiguous blocks and processes them in parallel. If the range is too
+	 * small, see {@link #isParallel}, then the consumer is called once in the calling thread.
+	 *
+	 * @param start First index, inclusive
+	 * @param end Last index, exclusive
+	 * @param consumer Processes a single block.
+	 */
+	public static void loopBlocks( int start, int end, IntRangeConsumer consumer ) {
+		loopBlocks(start, end, MIN_PARALLEL_LENGTH, consumer);
+	}
+
+	/**
+	 * Splits the range [start,end) into contiguous blocks and processes them in parallel. The blocks will be
+	 * at least 'minBlock' elements long, unless the entire range is smaller.
+	 *
+	 * @param start First index, inclusive
+	 * @param end Last index, exclusive
+	 * @param minBlock Minimum number of elements in a block
+	 * @param consumer Processes a single block.
+	 */
+	public static void loopBlocks( int start, int end, int minBlock, IntRangeConsumer consumer ) {
+		final int length = end - start;
+		if( length <= 0 )
+			return;
+		final int threads = pool.getParallelism();
+		if( threads <= 1 || length < 2*Math.max(1, minBlock) ) {
+			consumer.accept(start, end);
+			return;
+		}
+
+		// Several blocks per thread to help with load balancing
+		int blockSize = Math.max(minBlock, length/(threads*4));
+		pool.invoke(new BlockTask(start, end, blockSize, consumer));
+	}
+
+	/**
+	 * Same as {@link #loopBlocks(int, int, int, IntRangeConsumer)} but each block is also given a workspace from
+	 * the pool. A workspace is only used by one block at a time and is returned to the pool afterwards.
+	 *
+	 * @param start First index, inclusive
+	 * @param end Last index, exclusive
+	 * @param minBlock Minimum number of elements in a block
+	 * @param workspaces Pool that workspaces are taken from
+	 * @param consumer Processes a single block.
+	 */
+	public static <W> void loopBlocks( int start, int end, int minBlock,
+									   WorkspacePool<W> workspaces, IntRangeWorkspaceConsumer<W> consumer ) {
+		loopBlocks(start, end, minBlock, ( idx0, idx1 ) -> {
+			W w = workspaces.acquire();
+			try {
+				consumer.accept(w, idx0, idx1);
+			} finally {
+				workspaces.release(w);
+			}
+		});
+	}
+
+	/**
+	 * Processes all the indexes inside a range of values
+	 */
+	public interface IntRangeConsumer {
+		/**
+		 * @param idx0 First index, inclusive
+		 * @param idx1 Last index, exclusive
+		 */
+		void accept( int idx0, int idx1 );
+	}
+
+	/**
+	 * Processes all the indexes inside a range of values using a workspace
+	 */
+	public interface IntRangeWorkspaceConsumer<W> {
+		/**
+		 * @param workspace Workspace which only this call is using
+		 * @param idx0 First index, inclusive
+		 * @param idx1 Last index, exclusive
+		 */
+		void accept( W workspace, int idx0, int idx1 );
+	}
+
+	/**
+	 * Workspaces which are shared by threads. New ones are created when all the existing ones are in use and
+	 * they are recycled between calls. Every workspace which has been created can be accessed, e.g. so that partial
+	 * results computed by each thread can be merged.
+	 */
+	public static class WorkspacePool<W> {
+		final Supplier<W> factory;
+		// every workspace which has been created
+		final List<W> all = new ArrayList<>();
+		// workspaces which are not in use
+		final List<W> available = new ArrayList<>();
+
+		/**
+		 * @param factory Creates a new workspace
+		 */
+		public WorkspacePool( Supplier<W> factory ) {
+			this.factory = factory;
+		}
+
+		/**
+		 * Returns a workspace which isn't in use, creating one if needed
+		 */
+		public synchronized W acquire() {
+			if( available.isEmpty() ) {
+				W w = factory.get();
+				all.add(w);
+				return w;
+			}
+			return available.remove(available.size() - 1);
+		}
+
+		/**
+		 * Returns a workspace to the pool so that it can be used again
+		 */
+		public synchronized void release( W w ) {
+			available.add(w);
+		}
+
+		/**
+		 * All the workspaces which have been created. Should not be called while workspaces are in use.
+		 */
+		public List<W> getAll() {
+			return all;
+		}
+
+		/**
+		 * Discards all the workspaces, e.g. because what the factory creates has changed
+		 */
+		public synchronized void clear() {
+			all.clear();
+			available.clear();
+		}
+	}
+
+	/**
+	 * Recursively splits the range in half until it can't be split without a half being smaller than the block size
+	 */
+	private static class BlockTask extends RecursiveAction {
+		final int start, end, blockSize;
+		final IntRangeConsumer consumer;
+
+		BlockTask( int start, int end, int blockSize, IntRangeConsumer consumer ) {
+			this.start = start;
+			this.end = end;
+			this.blockSize = blockSize;
+			this.consumer = consumer;
+		}
+
+		@Override
+		protected void compute() {
+			if( end - start < 2*blockSize ) {
+				consumer.accept(start, end);
+				return;
+			}
+			int middle = start + (end - start)/2;
+			invokeAll(new BlockTask(start, middle, blockSize, consumer),
+					new BlockTask(middle, end, blockSize, consumer));
+		}
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.struct.point;
+
+import java.io.Serializable;
+
+/**
+ * A pair of 3D points which have been associated with each other, e.g. the same feature observed in two
+ * different reference frames. Typically the motion being estimated transforms 'src' into 'dst'.
+ *
+ * @author Peter Abeles
+ */
+public class AssociatedPair3D_F64 implements Serializable {
+	/**
+	 * Location of the point in the source frame
+	 */
+	public Point3D_F64 src = new Point3D_F64();
+	/**
+	 * Location of the point in the destination frame
+	 */
+	public Point3D_F64 dst = new Point3D_F64();
+
+	public AssociatedPair3D_F64() {
+	}
+
+	public AssociatedPair3D_F64( Point3D_F64 src, Point3D_F64 dst ) {
+		set(src, dst);
+	}
+
+	public AssociatedPair3D_F64( double x0, double y0, double z0, double x1, double y1, double z1 ) {
+		set(x0, y0, z0, x1, y1, z1);
+	}
+
+	public void set( AssociatedPair3D_F64 o ) {
+		this.src.set(o.src);
+		this.dst.set(o.dst);
+	}
+
+	public void set( Point3D_F64 src, Point3D_F64 dst ) {
+		this.src.set(src);
+		this.dst.set(dst);
+	}
+
+	public void set( double x0, double y0, double z0, double x1, double y1, double z1 ) {
+		src.set(x0, y0, z0);
+		dst.set(x1, y1, z1);
+	}
+
+	public Point3D_F64 getSrc() {
+		return src;
+	}
+
+	public void setSrc( Point3D_F64 src ) {
+		this.src = src;
+	}
+
+	public Point3D_F64 getDst() {
+		return dst;
+	}
+
+	public void setDst( Point3D_F64 dst ) {
+		this.dst = dst;
+	}
+
+	public AssociatedPair3D_F64 copy() {
+		return new AssociatedPair3D_F64(src, dst);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "{" +
+				"src=" + src +
+				", dst=" + dst +
+				'}';
+	}
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package georegression.struct.point;
+
+import javax.annotation.Nullable;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * A set of 3D points which are stored in a single packed array instead of one object per point. Point 'i' is
+ * located at data[3*i], data[3*i+1], data[3*i+2]. This avoids the memory and pointer chasing overhead of a
+ * List of {@link Point3D_F64} when working with large point clouds.
+ * </p>
+ *
+ * <p>
+ * The array can be larger than the number of points. Only the first 3*size elements are valid.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class PointCloud3D_F64 implements Serializable {
+	/**
+	 * Packed (x,y,z) coordinates for each point.
+	 */
+	public double[] data;
+	/**
+	 * Number of points in the cloud
+	 */
+	public int size;
+
+	/**
+	 * Creates a point cloud with enough storage for the specified number of points. The size will be zero.
+	 */
+	public PointCloud3D_F64( int reserve ) {
+		data = new double[reserve*3];
+	}
+
+	public PointCloud3D_F64( PointCloud3D_F64 original ) {
+		this(original.size);
+		setTo(original);
+	}
+
+	public PointCloud3D_F64() {
+		this(10);
+	}
+
+	/**
+	 * Sets the number of points to zero. Memory is not released.
+	 */
+	public void reset() {
+		size = 0;
+	}
+
+	/**
+	 * Ensures that the internal array can store at least this number of points. Existing values are copied.
+	 */
+	public void reserve( int numPoints ) {
+		if( data.length >= numPoints*3 )
+			return;
+		double[] tmp = new double[numPoints*3];
+		System.arraycopy(data,0,tmp,0,size*3);
+		data = tmp;
+	}
+
+	/**
+	 * Changes the number of points. If the array needs to grow then existing values are copied.
+	 */
+	public void resize( int numPoints ) {
+		reserve(numPoints);
+		size = numPoints;
+	}
+
+	/**
+	 * Adds a point to the end of the cloud, growing the array if needed.
+	 */
+	public void add( double x , double y , double z ) {
+		if( data.length < (size+1)*3 )
+			reserve(Math.max(10,size*2));
+		int index = size*3;
+		data[index  ] = x;
+		data[index+1] = y;
+		data[index+2] = z;
+		size++;
+	}
+
+	public void add( Point3D_F64 p ) {
+		add(p.x,p.y,p.z);
+	}
+
+	public void set( int index , double x , double y , double z ) {
+		index *= 3;
+		data[index  ] = x;
+		data[index+1] = y;
+		data[index+2] = z;
+	}
+
+	public void set( int index , Point3D_F64 p ) {
+		set(index,p.x,p.y,p.z);
+	}
+
+	/**
+	 * Copies the point at the specified index into the output.
+	 *
+	 * @param index Index of the point
+	 * @param storage (Optional) Storage for the point. If null a new instance is created
+	 * @return The point
+	 */
+	public Point3D_F64 get( int index , @Nullable Point3D_F64 storage ) {
+		if( storage == null )
+			storage = new Point3D_F64();
+		index *= 3;
+		storage.x = data[index  ];
+		storage.y = data[index+1];
+		storage.z = data[index+2];
+		return storage;
+	}
+
+	public double getX( int index ) {
+		return data[index*3];
+	}
+
+	public double getY( int index ) {
+		return data[index*3+1];
+	}
+
+	public double getZ( int index ) {
+		return data[index*3+2];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Turns this into a copy of 'src'
+	 */
+	public void setTo( PointCloud3D_F64 src ) {
+		resize(src.size);
+		System.arraycopy(src.data,0,data,0,size*3);
+	}
+
+	/**
+	 * Copies points from the list into this cloud
+	 */
+	public void setTo( List<Point3D_F64> src ) {
+		resize(src.size());
+		int index = 0;
+		for (int i = 0; i < size; i++) {
+			Point3D_F64 p = src.get(i);
+			data[index++] = p.x;
+			data[index++] = p.y;
+			data[index++] = p.z;
+		}
+	}
+
+	/**
+	 * Copies the points into a list.
+	 *
+	 * @param storage (Optional) Storage for the output. Points already in the list are recycled.  If null a
+	 *                new list is created.
+	 * @return List of points
+	 */
+	public List<Point3D_F64> toList( @Nullable List<Point3D_F64> storage ) {
+		if( storage == null )
+			storage = new ArrayList<>(size);
+		while( storage.size() > size )
+			storage.remove(storage.size()-1);
+		for (int i = 0; i < size; i++) {
+			if( i < storage.size() )
+				get(i,storage.get(i));
+			else
+				storage.add(get(i,null));
+		}
+		return storage;
+	}
+
+	public PointCloud3D_F64 copy() {
+		return new PointCloud3D_F64(this);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName()+"{ size="+size+" }";
+	}
+}
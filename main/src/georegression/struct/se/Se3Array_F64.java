@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.struct.se;
+
+import javax.annotation.Nullable;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * A sequence of rigid body transforms, e.g. a trajectory, stored in a single packed array instead of one object
+ * per pose. Each pose takes up {@link #LENGTH} elements, the row-major rotation matrix followed by the
+ * translation, (r11,r12,r13,r21,r22,r23,r31,r32,r33,tx,ty,tz). This is the same layout as the fields in
+ * {@link Se3Compact_F64}.
+ * </p>
+ *
+ * <p>
+ * The array can be larger than the number of poses. Only the first {@link #LENGTH}*size elements are valid.
+ * </p>
+ *
+ * @see georegression.transform.se.Se3ArrayOps_F64
+ *
+ * @author Peter Abeles
+ */
+public class Se3Array_F64 implements Serializable {
+	/**
+	 * Number of elements used to store a single pose
+	 */
+	public static final int LENGTH = 12;
+
+	/**
+	 * Packed poses
+	 */
+	public double[] data;
+	/**
+	 * Number of poses
+	 */
+	public int size;
+
+	/**
+	 * Creates an array with enough storage for the specified number of poses. The size will be zero.
+	 */
+	public Se3Array_F64( int reserve ) {
+		data = new double[reserve*LENGTH];
+	}
+
+	public Se3Array_F64( Se3Array_F64 original ) {
+		this(original.size);
+		setTo(original);
+	}
+
+	public Se3Array_F64() {
+		this(10);
+	}
+
+	/**
+	 * Sets the number of poses to zero. Memory is not released.
+	 */
+	public void reset() {
+		size = 0;
+	}
+
+	/**
+	 * Ensures that the internal array can store at least this number of poses. Existing values are copied.
+	 */
+	public void reserve( int numPoses ) {
+		if( data.length >= numPoses*LENGTH )
+			return;
+		double[] tmp = new double[numPoses*LENGTH];
+		System.arraycopy(data,0,tmp,0,size*LENGTH);
+		data = tmp;
+	}
+
+	/**
+	 * Changes the number of poses. If the array needs to grow then existing values are copied.
+	 */
+	public void resize( int numPoses ) {
+		reserve(numPoses);
+		size = numPoses;
+	}
+
+	/**
+	 * Adds a pose to the end, growing the array if needed.
+	 */
+	public void add( Se3_F64 pose ) {
+		grow();
+		set(size-1,pose);
+	}
+
+	public void add( Se3Compact_F64 pose ) {
+		grow();
+		set(size-1,pose);
+	}
+
+	private void grow() {
+		if( data.length < (size+1)*LENGTH )
+			reserve(Math.max(10,size*2));
+		size++;
+	}
+
+	public void set( int index , Se3_F64 pose ) {
+		index *= LENGTH;
+		System.arraycopy(pose.R.data,0,data,index,9);
+		data[index+ 9] = pose.T.x;
+		data[index+10] = pose.T.y;
+		data[index+11] = pose.T.z;
+	}
+
+	public void set( int index , Se3Compact_F64 pose ) {
+		index *= LENGTH;
+		data[index   ] = pose.r11; data[index+ 1] = pose.r12; data[index+ 2] = pose.r13;
+		data[index+ 3] = pose.r21; data[index+ 4] = pose.r22; data[index+ 5] = pose.r23;
+		data[index+ 6] = pose.r31; data[index+ 7] = pose.r32; data[index+ 8] = pose.r33;
+		data[index+ 9] = pose.tx;  data[index+10] = pose.ty;  data[index+11] = pose.tz;
+	}
+
+	/**
+	 * Copies the pose at the specified index into the output.
+	 *
+	 * @param index Index of the pose
+	 * @param storage (Optional) Storage for the pose. If null a new instance is created
+	 * @return The pose
+	 */
+	public Se3_F64 get( int index , @Nullable Se3_F64 storage ) {
+		if( storage == null )
+			storage = new Se3_F64();
+		index *= LENGTH;
+		System.arraycopy(data,index,storage.R.data,0,9);
+		storage.T.x = data[index+ 9];
+		storage.T.y = data[index+10];
+		storage.T.z = data[index+11];
+		return storage;
+	}
+
+	/**
+	 * Copies the pose at the specified index into the output.
+	 *
+	 * @param index Index of the pose
+	 * @param storage (Optional) Storage for the pose. If null a new instance is created
+	 * @return The pose
+	 */
+	public Se3Compact_F64 get( int index , @Nullable Se3Compact_F64 storage ) {
+		if( storage == null )
+			storage = new Se3Compact_F64();
+		index *= LENGTH;
+		storage.r11 = data[index   ]; storage.r12 = data[index+ 1]; storage.r13 = data[index+ 2];
+		storage.r21 = data[index+ 3]; storage.r22 = data[index+ 4]; storage.r23 = data[index+ 5];
+		storage.r31 = data[index+ 6]; storage.r32 = data[index+ 7]; storage.r33 = data[index+ 8];
+		storage.tx  = data[index+ 9]; storage.ty  = data[index+10]; storage.tz  = data[index+11];
+		return storage;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Turns this into a copy of 'src'
+	 */
+	public void setTo( Se3Array_F64 src ) {
+		resize(src.size);
+		System.arraycopy(src.data,0,data,0,size*LENGTH);
+	}
+
+	/**
+	 * Copies poses from the list into this array
+	 */
+	public void setTo( List<Se3_F64> src ) {
+		resize(src.size());
+		for (int i = 0; i < size; i++) {
+			set(i,src.get(i));
+		}
+	}
+
+	/**
+	 * Copies the poses into a list.
+	 *
+	 * @param storage (Optional) Storage for the output. Poses already in the list are recycled.  If null a
+	 *                new list is created.
+	 * @return List of poses
+	 */
+	public List<Se3_F64> toList( @Nullable List<Se3_F64> storage ) {
+		if( storage == null )
+			storage = new ArrayList<>(size);
+		while( storage.size() > size )
+			storage.remove(storage.size()-1);
+		for (int i = 0; i < size; i++) {
+			if( i < storage.size() )
+				get(i,storage.get(i));
+			else
+				storage.add(get(i,(Se3_F64)null));
+		}
+		return storage;
+	}
+
+	public Se3Array_F64 copy() {
+		return new Se3Array_F64(this);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName()+"{ size="+size+" }";
+	}
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.struct.se;
+
+import georegression.struct.GeoTuple3D_F64;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.point.Vector3D_F64;
+import georegression.transform.se.SePointOps_F64;
+import org.ejml.data.DMatrixRMaj;
+
+import javax.annotation.Nullable;
+
+/**
+ * <p>
+ * A rigid body transform which stores the rotation matrix and translation in 12 fields, p' = R*p + T.
+ * Unlike {@link Se3_F64}, which references a {@link DMatrixRMaj} and a {@link Vector3D_F64}, this is a single
+ * object. This makes it cheaper to store large numbers of poses and the operations are all written out
+ * inline.
+ * </p>
+ *
+ * <p>
+ * Unlike {@link Se3_F64} the output of {@link #concat} and {@link #invert} can be the same instance as an input.
+ * </p>
+ *
+ * @see georegression.transform.ConvertTransform_F64
+ *
+ * @author Peter Abeles
+ */
+public class Se3Compact_F64 implements SpecialEuclidean<Se3Compact_F64> {
+
+	// serialization version
+	public static final long serialVersionUID = 1L;
+
+	/** Rotation matrix */
+	public double r11, r12, r13, r21, r22, r23, r31, r32, r33;
+	/** Translation */
+	public double tx, ty, tz;
+
+	/**
+	 * Creates a new transform that does nothing.
+	 */
+	public Se3Compact_F64() {
+		reset();
+	}
+
+	public Se3Compact_F64( Se3Compact_F64 src ) {
+		set(src);
+	}
+
+	public Se3Compact_F64( Se3_F64 src ) {
+		set(src);
+	}
+
+	@Override
+	public void set( Se3Compact_F64 src ) {
+		r11 = src.r11; r12 = src.r12; r13 = src.r13;
+		r21 = src.r21; r22 = src.r22; r23 = src.r23;
+		r31 = src.r31; r32 = src.r32; r33 = src.r33;
+		tx = src.tx; ty = src.ty; tz = src.tz;
+	}
+
+	/**
+	 * Sets this transform to be the same as src
+	 */
+	public void set( Se3_F64 src ) {
+		setRotation(src.R);
+		setTranslation(src.T.x, src.T.y, src.T.z);
+	}
+
+	/**
+	 * Copies the rotation matrix from R
+	 *
+	 * @param R 3x3 rotation matrix. Not modified.
+	 */
+	public void setRotation( DMatrixRMaj R ) {
+		double[] d = R.data;
+		r11 = d[0]; r12 = d[1]; r13 = d[2];
+		r21 = d[3]; r22 = d[4]; r23 = d[5];
+		r31 = d[6]; r32 = d[7]; r33 = d[8];
+	}
+
+	/**
+	 * Copies the rotation matrix into R
+	 *
+	 * @param R (Output) 3x3 rotation matrix. If null a new matrix is declared. Modified.
+	 * @return The rotation matrix
+	 */
+	public DMatrixRMaj getRotation( @Nullable DMatrixRMaj R ) {
+		if( R == null )
+			R = new DMatrixRMaj(3,3);
+		else
+			R.reshape(3,3);
+		double[] d = R.data;
+		d[0] = r11; d[1] = r12; d[2] = r13;
+		d[3] = r21; d[4] = r22; d[5] = r23;
+		d[6] = r31; d[7] = r32; d[8] = r33;
+		return R;
+	}
+
+	public void setTranslation( double x, double y, double z ) {
+		tx = x;
+		ty = y;
+		tz = z;
+	}
+
+	public void setTranslation( GeoTuple3D_F64 T ) {
+		setTranslation(T.x, T.y, T.z);
+	}
+
+	/**
+	 * Copies the translation into T
+	 *
+	 * @param T (Output) translation. If null a new vector is declared. Modified.
+	 * @return The translation
+	 */
+	public Vector3D_F64 getTranslation( @Nullable Vector3D_F64 T ) {
+		if( T == null )
+			T = new Vector3D_F64();
+		T.set(tx, ty, tz);
+		return T;
+	}
+
+	@Override
+	public int getDimension() {
+		return 3;
+	}
+
+	@Override
+	public Se3Compact_F64 createInstance() {
+		return new Se3Compact_F64();
+	}
+
+	@Override
+	public Se3Compact_F64 concat( Se3Compact_F64 second, @Nullable Se3Compact_F64 result ) {
+		if( result == null )
+			result = new Se3Compact_F64();
+
+		final Se3Compact_F64 b = second;
+
+		// R = R_b*R_a
+		double c11 = b.r11*r11 + b.r12*r21 + b.r13*r31;
+		double c12 = b.r11*r12 + b.r12*r22 + b.r13*r32;
+		double c13 = b.r11*r13 + b.r12*r23 + b.r13*r33;
+		double c21 = b.r21*r11 + b.r22*r21 + b.r23*r31;
+		double c22 = b.r21*r12 + b.r22*r22 + b.r23*r32;
+		double c23 = b.r21*r13 + b.r22*r23 + b.r23*r33;
+		double c31 = b.r31*r11 + b.r32*r21 + b.r33*r31;
+		double c32 = b.r31*r12 + b.r32*r22 + b.r33*r32;
+		double c33 = b.r31*r13 + b.r32*r23 + b.r33*r33;
+
+		// T = R_b*T_a + T_b
+		double x = b.r11*tx + b.r12*ty + b.r13*tz + b.tx;
+		double y = b.r21*tx + b.r22*ty + b.r23*tz + b.ty;
+		double z = b.r31*tx + b.r32*ty + b.r33*tz + b.tz;
+
+		result.r11 = c11; result.r12 = c12; result.r13 = c13;
+		result.r21 = c21; result.r22 = c22; result.r23 = c23;
+		result.r31 = c31; result.r32 = c32; result.r33 = c33;
+		result.tx = x; result.ty = y; result.tz = z;
+
+		return result;
+	}
+
+	@Override
+	public Se3Compact_F64 invert( @Nullable Se3Compact_F64 inverse ) {
+		if( inverse == null )
+			inverse = new Se3Compact_F64();
+
+		// T' = -R^T*T
+		double x = -(r11*tx + r21*ty + r31*tz);
+		double y = -(r12*tx + r22*ty + r32*tz);
+		double z = -(r13*tx + r23*ty + r33*tz);
+
+		// R' = R^T
+		double a12 = r12, a13 = r13, a23 = r23;
+		inverse.r11 = r11; inverse.r12 = r21; inverse.r13 = r31;
+		inverse.r21 = a12; inverse.r22 = r22; inverse.r23 = r32;
+		inverse.r31 = a13; inverse.r32 = a23; inverse.r33 = r33;
+		inverse.tx = x; inverse.ty = y; inverse.tz = z;
+
+		return inverse;
+	}
+
+	@Override
+	public void reset() {
+		r11 = 1; r12 = 0; r13 = 0;
+		r21 = 0; r22 = 1; r23 = 0;
+		r31 = 0; r32 = 0; r33 = 1;
+		tx = ty = tz = 0;
+	}
+
+	/**
+	 * Applies the transform to the src point and stores the result in dst. src and dst can be the same instance
+	 *
+	 * @see SePointOps_F64#transform(Se3Compact_F64, Point3D_F64, Point3D_F64)
+	 */
+	public Point3D_F64 transform( Point3D_F64 src, @Nullable Point3D_F64 dst ) {
+		return SePointOps_F64.transform(this, src, dst);
+	}
+
+	/**
+	 * Applies the reverse transform to the src point and stores the result in dst. src and dst can be the
+	 * same instance
+	 *
+	 * @see SePointOps_F64#transformReverse(Se3Compact_F64, Point3D_F64, Point3D_F64)
+	 */
+	public Point3D_F64 transformReverse( Point3D_F64 src, @Nullable Point3D_F64 dst ) {
+		return SePointOps_F64.transformReverse(this, src, dst);
+	}
+
+	public Se3Compact_F64 copy() {
+		return new Se3Compact_F64(this);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "{ T = (" + tx + ", " + ty + ", " + tz + ")\n" +
+				"  R = [ " + r11 + " , " + r12 + " , " + r13 + " ]\n" +
+				"      [ " + r21 + " , " + r22 + " , " + r23 + " ]\n" +
+				"      [ " + r31 + " , " + r32 + " , " + r33 + " ] }";
+	}
+
+	public void print() {
+		System.out.println(this);
+	}
+}
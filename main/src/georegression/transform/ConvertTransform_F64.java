@@ -22,6 +22,8 @@ import georegression.struct.InvertibleTransform;
 import georegression.struct.affine.Affine2D_F64;
 import georegression.struct.homography.Homography2D_F64;
 import georegression.struct.se.Se2_F64;
+import georegression.struct.se.Se3Compact_F64;
+import georegression.struct.se.Se3_F64;
 
 
 /**
@@ -59,6 +61,20 @@ public class ConvertTransform_F64 {
 				dst.set(src);
 				return dst;
 			}
+		} else if( src instanceof Se3_F64 ) {
+			if( dst instanceof Se3Compact_F64 ) {
+				return (B)convert((Se3_F64)src,(Se3Compact_F64)dst);
+			} else if( dst instanceof Se3_F64 ) {
+				dst.set(src);
+				return dst;
+			}
+		} else if( src instanceof Se3Compact_F64 ) {
+			if( dst instanceof Se3_F64 ) {
+				return (B)convert((Se3Compact_F64)src,(Se3_F64)dst);
+			} else if( dst instanceof Se3Compact_F64 ) {
+				dst.set(src);
+				return dst;
+			}
 		}
 		
 		throw new IllegalArgumentException("The specified transform is not supported");
@@ -111,4 +127,23 @@ public class ConvertTransform_F64 {
 
 		return dst;
 	}
+
+	public static Se3Compact_F64 convert( Se3_F64 src , Se3Compact_F64 dst ) {
+		if( dst == null )
+			dst = new Se3Compact_F64();
+
+		dst.set(src);
+
+		return dst;
+	}
+
+	public static Se3_F64 convert( Se3Compact_F64 src , Se3_F64 dst ) {
+		if( dst == null )
+			dst = new Se3_F64();
+
+		src.getRotation(dst.R);
+		src.getTranslation(dst.T);
+
+		return dst;
+	}
 }
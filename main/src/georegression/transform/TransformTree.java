@@ -0,0 +1,296 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.transform;
+
+import georegression.struct.InvertibleTransform;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ * A tree of named coordinate frames, where each frame is connected to its parent by an
+ * {@link InvertibleTransform}. Unlike {@link InvertibleTransformSequence}, which composes the entire sequence each
+ * time, the transform from each frame to the root of its tree and its inverse are cached. Looking up the transform
+ * between any two frames in the same tree is then a single call to concat.
+ * </p>
+ *
+ * <p>
+ * When the transform from a frame to its parent changes, only the cache of that frame and its descendants is
+ * invalidated. Invalid caches are recomputed the next time they are needed.
+ * </p>
+ *
+ * <p>
+ * Thread safety: {@link #lookup} can be called by any number of threads while another thread modifies the tree.
+ * Cached transforms are never modified after being created and modifications increment a sequence number,
+ * which readers check to make sure the tree didn't change while they were reading it. Readers only need to lock
+ * when a cache has to be recomputed. Modifications are serialized with a lock.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+@SuppressWarnings({"unchecked"})
+public class TransformTree<T extends InvertibleTransform> {
+
+	// look up table from name to frame
+	private final Map<String,Frame<T>> frames = new ConcurrentHashMap<>();
+
+	// Sequence number. Odd while the tree is being modified.
+	private volatile long sequence;
+
+	// only one thread at a time can modify the tree or compute caches
+	private final Object lock = new Object();
+
+	// Used to create instances of the transform. Roots have no transform of their own to create one from.
+	private @Nullable T prototype;
+
+	/**
+	 * Creates an empty tree. The type of transform is learned from the first call to {@link #setTransform}.
+	 */
+	public TransformTree() {}
+
+	/**
+	 * Creates an empty tree
+	 *
+	 * @param prototype Instance of the transform type used to create new instances. Not modified.
+	 */
+	public TransformTree( T prototype ) {
+		this.prototype = (T)prototype.createInstance();
+	}
+
+	/**
+	 * Specifies the transform from a frame to its parent. Frames which don't exist are created. If the frame
+	 * already has a different parent then it's moved, along with all of its children, to the new parent.
+	 *
+	 * @param frame Name of the frame
+	 * @param parent Name of the parent frame
+	 * @param frameToParent Transform from 'frame' to 'parent'. A copy is saved. Not modified.
+	 */
+	public void setTransform( String frame, String parent, T frameToParent ) {
+		if( frame.equals(parent) )
+			throw new IllegalArgumentException("A frame can't be its own parent");
+
+		synchronized (lock) {
+			Frame<T> f = frames.get(frame);
+			Frame<T> p = frames.get(parent);
+
+			// make sure a cycle won't be created before modifying anything
+			if( f != null && p != null && f.parent != p ) {
+				for (Frame<T> a = p; a != null; a = a.parent) {
+					if( a == f )
+						throw new IllegalArgumentException("'"+parent+"' is a descendant of '"+frame+"'");
+				}
+			}
+
+			sequence++;
+			try {
+				if( prototype == null )
+					prototype = (T)frameToParent.createInstance();
+				if( p == null ) {
+					p = new Frame<>(parent);
+					frames.put(parent, p);
+				}
+				if( f == null ) {
+					f = new Frame<>(frame);
+					frames.put(frame, f);
+				}
+
+				if( f.parent != p ) {
+					if( f.parent != null )
+						f.parent.children.remove(f);
+					f.parent = p;
+					p.children.add(f);
+				}
+
+				if( f.frameToParent == null )
+					f.frameToParent = (T)frameToParent.createInstance();
+				f.frameToParent.set(frameToParent);
+
+				invalidate(f);
+			} finally {
+				sequence++;
+			}
+		}
+	}
+
+	/**
+	 * Looks up the transform from one frame to another. Both frames must be in the same tree.
+	 *
+	 * @param from Name of the frame it's transforming from
+	 * @param to Name of the frame it's transforming to
+	 * @param output (Output) Storage for the transform. If null a new instance is declared. Modified.
+	 * @return The transform from 'from' to 'to'
+	 */
+	public T lookup( String from, String to, @Nullable T output ) {
+		while( true ) {
+			long before = sequence;
+			if( (before & 1) != 0 ) {
+				// the tree is being modified
+				Thread.yield();
+				continue;
+			}
+
+			Frame<T> a = frames.get(from);
+			Frame<T> b = frames.get(to);
+			if( a == null || b == null ) {
+				if( sequence != before )
+					continue;
+				throw new IllegalArgumentException("Unknown frame '"+(a == null ? from : to)+"'");
+			}
+
+			Cache<T> ca = a.cache;
+			Cache<T> cb = b.cache;
+			if( ca == null || cb == null ) {
+				synchronized (lock) {
+					computeCache(a);
+					computeCache(b);
+				}
+				continue;
+			}
+
+			if( ca.root != cb.root ) {
+				if( sequence != before )
+					continue;
+				throw new IllegalArgumentException("'"+from+"' and '"+to+"' are not in the same tree");
+			}
+
+			if( output == null )
+				output = (T)ca.toRoot.createInstance();
+			ca.toRoot.concat(cb.fromRoot, output);
+
+			if( sequence == before )
+				return output;
+		}
+	}
+
+	/**
+	 * Returns true if a frame with the specified name exists
+	 */
+	public boolean hasFrame( String name ) {
+		return frames.containsKey(name);
+	}
+
+	/**
+	 * Returns the name of the frame's parent, or null if it's a root.
+	 */
+	public @Nullable String getParent( String name ) {
+		synchronized (lock) {
+			Frame<T> f = frames.get(name);
+			if( f == null )
+				throw new IllegalArgumentException("Unknown frame '"+name+"'");
+			return f.parent == null ? null : f.parent.name;
+		}
+	}
+
+	/**
+	 * Number of frames in the tree
+	 */
+	public int size() {
+		return frames.size();
+	}
+
+	/**
+	 * Removes all frames
+	 */
+	public void clear() {
+		synchronized (lock) {
+			sequence++;
+			frames.clear();
+			sequence++;
+		}
+	}
+
+	/**
+	 * Invalidates the cache of the frame and all of its descendants. If a frame's cache is already invalid then
+	 * so are the caches of its descendants.
+	 */
+	private void invalidate( Frame<T> frame ) {
+		ArrayDeque<Frame<T>> open = new ArrayDeque<>();
+		open.add(frame);
+		while( !open.isEmpty() ) {
+			Frame<T> f = open.removeLast();
+			if( f.cache == null )
+				continue;
+			f.cache = null;
+			open.addAll(f.children);
+		}
+	}
+
+	/**
+	 * Computes the cache for the frame and all of its ancestors, if they are invalid. Must be called while
+	 * holding the lock.
+	 */
+	private Cache<T> computeCache( Frame<T> frame ) {
+		Cache<T> cache = frame.cache;
+		if( cache != null )
+			return cache;
+
+		Frame<T> parent = frame.parent;
+		if( parent == null ) {
+			// The root has no transform of its own and might not have any children
+			T toRoot = (T)prototype.createInstance();
+			T fromRoot = (T)toRoot.createInstance();
+			toRoot.reset();
+			fromRoot.reset();
+			cache = new Cache<>(frame, toRoot, fromRoot);
+		} else {
+			Cache<T> parentCache = computeCache(parent);
+			T toRoot = (T)frame.frameToParent.concat(parentCache.toRoot, null);
+			T fromRoot = (T)toRoot.invert(null);
+			cache = new Cache<>(parentCache.root, toRoot, fromRoot);
+		}
+		frame.cache = cache;
+		return cache;
+	}
+
+	private static class Frame<T extends InvertibleTransform> {
+		final String name;
+		// null if it's a root
+		@Nullable Frame<T> parent;
+		final List<Frame<T>> children = new ArrayList<>();
+		// transform from this frame to its parent
+		@Nullable T frameToParent;
+		// transforms to and from the root. null if it needs to be recomputed
+		volatile @Nullable Cache<T> cache;
+
+		Frame( String name ) {
+			this.name = name;
+		}
+	}
+
+	/**
+	 * Cached transforms for a frame. Never modified after being created.
+	 */
+	private static class Cache<T extends InvertibleTransform> {
+		final Frame<T> root;
+		final T toRoot;
+		final T fromRoot;
+
+		Cache( Frame<T> root, T toRoot, T fromRoot ) {
+			this.root = root;
+			this.toRoot = toRoot;
+			this.fromRoot = fromRoot;
+		}
+	}
+}
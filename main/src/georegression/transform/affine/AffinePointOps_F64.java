@@ -18,6 +18,7 @@
 
 package georegression.transform.affine;
 
+import georegression.misc.GrlConcurrency;
 import georegression.struct.affine.Affine2D_F64;
 import georegression.struct.point.Point2D_F64;
 import georegression.struct.point.Vector2D_F64;
@@ -102,4 +103,68 @@ public class AffinePointOps_F64 {
 
 		return result;
 	}
+
+	/**
+	 * Applies a 2D affine transform to an array of points.
+	 *
+	 * @param se	 The transform.
+	 * @param points Array of points which are to be transformed.  Modified.
+	 * @param start First element in the array that is to be processed
+	 * @param length The number of elements in the array that are to be processed.
+	 */
+	public static void transform( Affine2D_F64 se, Point2D_F64[] points , int start , int length ) {
+		final double a11 = se.a11, a12 = se.a12, a21 = se.a21, a22 = se.a22;
+		final double tx = se.tx, ty = se.ty;
+
+		for (int i = start; i < start + length; i++) {
+			Point2D_F64 p = points[i];
+			double x = p.x;
+			double y = p.y;
+
+			p.x = tx + a11*x + a12*y;
+			p.y = ty + a21*x + a22*y;
+		}
+	}
+
+	/**
+	 * Applies a 2D affine transform to points in a packed array, e.g. (x0,y0,x1,y1,...). The input and output
+	 * can be the same array.
+	 *
+	 * @param se The transform.
+	 * @param src Packed array of input points. Not modified.
+	 * @param srcOffset Index of the first element in src
+	 * @param dst Packed array the transformed points are written to. Modified.
+	 * @param dstOffset Index of the first element in dst
+	 * @param numPoints Number of points which are to be transformed
+	 */
+	public static void transform( Affine2D_F64 se, double[] src , int srcOffset , double[] dst , int dstOffset , int numPoints ) {
+		final double a11 = se.a11, a12 = se.a12, a21 = se.a21, a22 = se.a22;
+		final double tx = se.tx, ty = se.ty;
+
+		final int end = srcOffset + numPoints*2;
+		for (int i = srcOffset, j = dstOffset; i < end; i += 2, j += 2) {
+			double x = src[i];
+			double y = src[i+1];
+
+			dst[j  ] = tx + a11*x + a12*y;
+			dst[j+1] = ty + a21*x + a22*y;
+		}
+	}
+
+	/**
+	 * Concurrent version of {@link #transform(Affine2D_F64, Point2D_F64[], int, int)}. The array is split into
+	 * blocks which are processed in parallel using {@link GrlConcurrency}. Small arrays are processed in the
+	 * calling thread.
+	 */
+	public static void transformParallel( Affine2D_F64 se, Point2D_F64[] points , int start , int length ) {
+		GrlConcurrency.loopBlocks(start, start + length, ( idx0, idx1 ) -> transform(se, points, idx0, idx1 - idx0));
+	}
+
+	/**
+	 * Concurrent version of {@link #transform(Affine2D_F64, double[], int, double[], int, int)}.
+	 */
+	public static void transformParallel( Affine2D_F64 se, double[] src , int srcOffset , double[] dst , int dstOffset , int numPoints ) {
+		GrlConcurrency.loopBlocks(0, numPoints, ( idx0, idx1 ) ->
+				transform(se, src, srcOffset + idx0*2, dst, dstOffset + idx0*2, idx1 - idx0));
+	}
 }
@@ -18,6 +18,7 @@
 
 package georegression.transform.homography;
 
+import georegression.misc.GrlConcurrency;
 import georegression.struct.homography.Homography2D_F64;
 import georegression.struct.point.Point2D_F64;
 
@@ -84,4 +85,74 @@ public class HomographyPointOps_F64 {
 
 		return result;
 	}
+
+	/**
+	 * Applies a 2D homography transform to an array of points.
+	 *
+	 * @param H Homography transform
+	 * @param points Array of points which are to be transformed.  Modified.
+	 * @param start First element in the array that is to be processed
+	 * @param length The number of elements in the array that are to be processed.
+	 */
+	public static void transform( Homography2D_F64 H, Point2D_F64[] points , int start , int length ) {
+		final double a11 = H.a11, a12 = H.a12, a13 = H.a13;
+		final double a21 = H.a21, a22 = H.a22, a23 = H.a23;
+		final double a31 = H.a31, a32 = H.a32, a33 = H.a33;
+
+		for (int i = start; i < start + length; i++) {
+			Point2D_F64 p = points[i];
+			double x = p.x;
+			double y = p.y;
+
+			double z = a31*x + a32*y + a33;
+
+			p.x = (a11*x + a12*y + a13)/z;
+			p.y = (a21*x + a22*y + a23)/z;
+		}
+	}
+
+	/**
+	 * Applies a 2D homography transform to points in a packed array, e.g. (x0,y0,x1,y1,...). The input and output
+	 * can be the same array.
+	 *
+	 * @param H Homography transform
+	 * @param src Packed array of input points. Not modified.
+	 * @param srcOffset Index of the first element in src
+	 * @param dst Packed array the transformed points are written to. Modified.
+	 * @param dstOffset Index of the first element in dst
+	 * @param numPoints Number of points which are to be transformed
+	 */
+	public static void transform( Homography2D_F64 H, double[] src , int srcOffset , double[] dst , int dstOffset , int numPoints ) {
+		final double a11 = H.a11, a12 = H.a12, a13 = H.a13;
+		final double a21 = H.a21, a22 = H.a22, a23 = H.a23;
+		final double a31 = H.a31, a32 = H.a32, a33 = H.a33;
+
+		final int end = srcOffset + numPoints*2;
+		for (int i = srcOffset, j = dstOffset; i < end; i += 2, j += 2) {
+			double x = src[i];
+			double y = src[i+1];
+
+			double z = a31*x + a32*y + a33;
+
+			dst[j  ] = (a11*x + a12*y + a13)/z;
+			dst[j+1] = (a21*x + a22*y + a23)/z;
+		}
+	}
+
+	/**
+	 * Concurrent version of {@link #transform(Homography2D_F64, Point2D_F64[], int, int)}. The array is split into
+	 * blocks which are processed in parallel using {@link GrlConcurrency}. Small arrays are processed in the
+	 * calling thread.
+	 */
+	public static void transformParallel( Homography2D_F64 H, Point2D_F64[] points , int start , int length ) {
+		GrlConcurrency.loopBlocks(start, start + length, ( idx0, idx1 ) -> transform(H, points, idx0, idx1 - idx0));
+	}
+
+	/**
+	 * Concurrent version of {@link #transform(Homography2D_F64, double[], int, double[], int, int)}.
+	 */
+	public static void transformParallel( Homography2D_F64 H, double[] src , int srcOffset , double[] dst , int dstOffset , int numPoints ) {
+		GrlConcurrency.loopBlocks(0, numPoints, ( idx0, idx1 ) ->
+				transform(H, src, srcOffset + idx0*2, dst, dstOffset + idx0*2, idx1 - idx0));
+	}
 }
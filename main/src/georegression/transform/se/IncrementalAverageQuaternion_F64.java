@@ -0,0 +1,344 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.transform.se;
+
+import georegression.misc.GrlConcurrency;
+import georegression.misc.GrlConstants;
+import georegression.struct.so.Quaternion_F64;
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.dense.row.factory.DecompositionFactory_DDRM;
+import org.ejml.interfaces.decomposition.EigenDecomposition_F64;
+
+import java.util.List;
+
+/**
+ * <p>
+ * Streaming version of {@link AverageQuaternion_F64}. Only the weighted sum of q*q<sup>T</sup>, a 4x4 symmetric
+ * matrix, is saved. This lets quaternions be added and removed in constant time, which is useful for sliding
+ * windows. The average is only computed when requested. Two accumulators can be merged, so a large set can be
+ * split up and processed in parallel.
+ * </p>
+ *
+ * <p>
+ * Because q and -q contribute the same amount, the sign of each quaternion doesn't matter. Quaternions must have
+ * a norm of one. Removing quaternions subtracts them from the sum, so the results can have round off errors
+ * which depend on everything added before. Call {@link #reset()} and add the current set again if that's
+ * a concern.
+ * </p>
+ *
+ * <p>[1] MLA Markley, F. Landis, et al. "Quaternion averaging." (2007)</p>
+ *
+ * @author Peter Abeles
+ */
+public class IncrementalAverageQuaternion_F64 {
+
+	// Minimum number of quaternions processed by a thread
+	private static final int BLOCK_SIZE = 5000;
+
+	// Upper triangle of the weighted sum of q*q^T, where q = [w,x,y,z]
+	double sww, swx, swy, swz, sxx, sxy, sxz, syy, syz, szz;
+
+	// sum of all the weights
+	double totalWeight;
+
+	// number of quaternions which have been added minus the number removed
+	int count;
+
+	/** Maximum number of power iterations before it switches to an eigen decomposition */
+	public int maxIterations = 30;
+
+	/** Power iteration stops when the estimated error in the quaternion is less than this */
+	public double convergenceTol = GrlConstants.DCONV_TOL_B;
+
+	// The most recently found average. Used as the initial guess for power iteration
+	double qw, qx, qy, qz;
+	boolean hasPrevious = false;
+
+	DMatrixRMaj M = new DMatrixRMaj(4, 4);
+	EigenDecomposition_F64<DMatrixRMaj> eig = DecompositionFactory_DDRM.eig(4, true, true);
+
+	/**
+	 * Adds a quaternion with a weight of one
+	 */
+	public void add( Quaternion_F64 q ) {
+		add(q, 1.0);
+	}
+
+	/**
+	 * Adds a quaternion with the specified weight
+	 *
+	 * @param q Unit quaternion. Not modified.
+	 * @param weight Weight. Must be positive.
+	 */
+	public void add( Quaternion_F64 q, double weight ) {
+		accumulate(q.w, q.x, q.y, q.z, weight);
+		totalWeight += weight;
+		count++;
+	}
+
+	/**
+	 * Removes a quaternion which was previously added with a weight of one
+	 */
+	public void remove( Quaternion_F64 q ) {
+		remove(q, 1.0);
+	}
+
+	/**
+	 * Removes a quaternion which was previously added with the same weight
+	 *
+	 * @param q Unit quaternion. Not modified.
+	 * @param weight The weight it was added with.
+	 */
+	public void remove( Quaternion_F64 q, double weight ) {
+		accumulate(q.w, q.x, q.y, q.z, -weight);
+		totalWeight -= weight;
+		count--;
+	}
+
+	/**
+	 * Adds all the quaternions in the list with a weight of one
+	 */
+	public void addAll( List<Quaternion_F64> list ) {
+		addAll(list, 0, list.size());
+	}
+
+	/**
+	 * Concurrent version of {@link #addAll(List)}. Each block is added to its own accumulator, which is then
+	 * merged into this one.
+	 */
+	public void addAllParallel( List<Quaternion_F64> list ) {
+		GrlConcurrency.loopBlocks(0, list.size(), BLOCK_SIZE, ( idx0, idx1 ) -> {
+			IncrementalAverageQuaternion_F64 partial = new IncrementalAverageQuaternion_F64();
+			partial.addAll(list, idx0, idx1);
+			synchronized (this) {
+				merge(partial);
+			}
+		});
+	}
+
+	private void addAll( List<Quaternion_F64> list, int idx0, int idx1 ) {
+		for (int i = idx0; i < idx1; i++) {
+			Quaternion_F64 q = list.get(i);
+			accumulate(q.w, q.x, q.y, q.z, 1.0);
+		}
+		totalWeight += idx1 - idx0;
+		count += idx1 - idx0;
+	}
+
+	/**
+	 * Adds everything in 'src' to this accumulator
+	 *
+	 * @param src The accumulator being added. Not modified.
+	 */
+	public void merge( IncrementalAverageQuaternion_F64 src ) {
+		sww += src.sww; swx += src.swx; swy += src.swy; swz += src.swz;
+		sxx += src.sxx; sxy += src.sxy; sxz += src.sxz;
+		syy += src.syy; syz += src.syz;
+		szz += src.szz;
+		totalWeight += src.totalWeight;
+		count += src.count;
+	}
+
+	private void accumulate( double w, double x, double y, double z, double weight ) {
+		double ww = weight*w, wx = weight*x, wy = weight*y;
+		sww += ww*w; swx += ww*x; swy += ww*y; swz += ww*z;
+		sxx += wx*x; sxy += wx*y; sxz += wx*z;
+		syy += wy*y; syz += wy*z;
+		szz += weight*z*z;
+	}
+
+	/**
+	 * <p>
+	 * Computes the average of all the quaternions. The sign of the found quaternion is selected so
+	 * that w &ge; 0.
+	 * </p>
+	 *
+	 * <p>
+	 * The average is the eigenvector with the largest eigenvalue. It's found using power iteration, starting
+	 * from the previous average, which converges in a few iterations when the quaternions are clustered. If
+	 * power iteration doesn't converge, or the solution can't be shown to be the largest eigenvalue, then a
+	 * full eigen decomposition is used instead.
+	 * </p>
+	 *
+	 * @param average (Output) The average quaternion. Modified.
+	 * @return true if successful or false if there is nothing to average or the decomposition failed
+	 */
+	public boolean computeAverage( Quaternion_F64 average ) {
+		if( totalWeight <= 0 || count <= 0 )
+			return false;
+
+		// Scale the sum so that values are around one
+		double s = 1.0/totalWeight;
+		double m00 = sww*s, m01 = swx*s, m02 = swy*s, m03 = swz*s;
+		double m11 = sxx*s, m12 = sxy*s, m13 = sxz*s;
+		double m22 = syy*s, m23 = syz*s;
+		double m33 = szz*s;
+
+		if( !powerIteration(m00, m01, m02, m03, m11, m12, m13, m22, m23, m33) ) {
+			if( !eigenDecomposition(m00, m01, m02, m03, m11, m12, m13, m22, m23, m33) )
+				return false;
+		}
+
+		// select the sign which makes the output unique
+		double sign = qw < 0 ? -1 : 1;
+		average.set(sign*qw, sign*qx, sign*qy, sign*qz);
+		hasPrevious = true;
+
+		return true;
+	}
+
+	/**
+	 * Finds the eigenvector with the largest eigenvalue using power iteration
+	 *
+	 * @return true if it converged
+	 */
+	private boolean powerIteration( double m00, double m01, double m02, double m03,
+									double m11, double m12, double m13,
+									double m22, double m23, double m33 ) {
+		double w = qw, x = qx, y = qy, z = qz;
+		if( !hasPrevious ) {
+			// Initial guess is the column with the largest diagonal element. Can't be zero.
+			if( m00 >= m11 && m00 >= m22 && m00 >= m33 ) {
+				w = m00; x = m01; y = m02; z = m03;
+			} else if( m11 >= m22 && m11 >= m33 ) {
+				w = m01; x = m11; y = m12; z = m13;
+			} else if( m22 >= m33 ) {
+				w = m02; x = m12; y = m22; z = m23;
+			} else {
+				w = m03; x = m13; y = m23; z = m33;
+			}
+			double n = Math.sqrt(w*w + x*x + y*y + z*z);
+			if( n == 0 )
+				return false;
+			w /= n; x /= n; y /= n; z /= n;
+		}
+
+		double previousChange = 0;
+		boolean converged = false;
+		for (int iter = 0; iter < maxIterations; iter++) {
+			double nw = m00*w + m01*x + m02*y + m03*z;
+			double nx = m01*w + m11*x + m12*y + m13*z;
+			double ny = m02*w + m12*x + m22*y + m23*z;
+			double nz = m03*w + m13*x + m23*y + m33*z;
+			double n = Math.sqrt(nw*nw + nx*nx + ny*ny + nz*nz);
+			if( n == 0 )
+				return false;
+			nw /= n; nx /= n; ny /= n; nz /= n;
+
+			double dw = nw - w, dx = nx - x, dy = ny - y, dz = nz - z;
+			double change = Math.sqrt(dw*dw + dx*dx + dy*dy + dz*dz);
+			w = nw; x = nx; y = ny; z = nz;
+
+			if( change <= convergenceTol ) {
+				converged = true;
+				break;
+			}
+			// The error shrinks by a ratio of r = lambda2/lambda1 each iteration, which can be estimated from
+			// how fast the change shrinks. Remaining error = change*r/(1-r)
+			if( iter > 0 && change < previousChange ) {
+				double r = change/previousChange;
+				if( change*r/(1 - r) <= convergenceTol ) {
+					converged = true;
+					break;
+				}
+			}
+			previousChange = change;
+		}
+		if( !converged )
+			return false;
+
+		// M is positive semi-definite. If the eigenvalue is more than half the trace then no other eigenvalue
+		// can be larger. Otherwise it might have converged to a different eigenvector.
+		double lambda = w*(m00*w + m01*x + m02*y + m03*z) + x*(m01*w + m11*x + m12*y + m13*z) +
+				y*(m02*w + m12*x + m22*y + m23*z) + z*(m03*w + m13*x + m23*y + m33*z);
+		if( lambda <= 0.5*(m00 + m11 + m22 + m33) )
+			return false;
+
+		qw = w; qx = x; qy = y; qz = z;
+		return true;
+	}
+
+	private boolean eigenDecomposition( double m00, double m01, double m02, double m03,
+										double m11, double m12, double m13,
+										double m22, double m23, double m33 ) {
+		double[] d = M.data;
+		d[0]  = m00; d[1]  = m01; d[2]  = m02; d[3]  = m03;
+		d[4]  = m01; d[5]  = m11; d[6]  = m12; d[7]  = m13;
+		d[8]  = m02; d[9]  = m12; d[10] = m22; d[11] = m23;
+		d[12] = m03; d[13] = m13; d[14] = m23; d[15] = m33;
+
+		if( !eig.decompose(M) )
+			return false;
+
+		// the eigenvector with the largest eigenvalue is the quaternion
+		int largest = 0;
+		double largestValue = eig.getEigenvalue(0).getReal();
+		for (int i = 1; i < 4; i++) {
+			double value = eig.getEigenvalue(i).getReal();
+			if( value > largestValue ) {
+				largestValue = value;
+				largest = i;
+			}
+		}
+
+		DMatrixRMaj v = eig.getEigenVector(largest);
+		double n = Math.sqrt(v.data[0]*v.data[0] + v.data[1]*v.data[1] + v.data[2]*v.data[2] + v.data[3]*v.data[3]);
+		qw = v.data[0]/n;
+		qx = v.data[1]/n;
+		qy = v.data[2]/n;
+		qz = v.data[3]/n;
+		return true;
+	}
+
+	/**
+	 * Removes everything that has been added
+	 */
+	public void reset() {
+		sww = swx = swy = swz = 0;
+		sxx = sxy = sxz = 0;
+		syy = syz = 0;
+		szz = 0;
+		totalWeight = 0;
+		count = 0;
+		hasPrevious = false;
+	}
+
+	/**
+	 * Copies the state of 'src' into this
+	 */
+	public void setTo( IncrementalAverageQuaternion_F64 src ) {
+		reset();
+		merge(src);
+	}
+
+	/**
+	 * Sum of the weights of all the quaternions
+	 */
+	public double getTotalWeight() {
+		return totalWeight;
+	}
+
+	/**
+	 * Number of quaternions added minus the number removed
+	 */
+	public int getCount() {
+		return count;
+	}
+}
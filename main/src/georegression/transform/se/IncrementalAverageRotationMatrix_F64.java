@@ -0,0 +1,260 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.transform.se;
+
+import georegression.misc.GrlConcurrency;
+import org.ejml.data.DMatrix3x3;
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.dense.row.CommonOps_DDRM;
+import org.ejml.dense.row.factory.DecompositionFactory_DDRM;
+import org.ejml.interfaces.decomposition.SingularValueDecomposition_F64;
+
+import java.util.List;
+
+/**
+ * <p>
+ * Streaming version of {@link AverageRotationMatrix_F64}. Only the weighted sum of the rotation matrices is saved.
+ * Rotation matrices can be added and removed in constant time. The average is found on request by projecting
+ * the sum onto SO(3) with SVD. Accumulators can be merged, which lets the sum be computed in parallel.
+ * </p>
+ *
+ * <p>
+ * Removing matrices subtracts them from the sum, so the results can have round off errors which depend on
+ * everything added before.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class IncrementalAverageRotationMatrix_F64 {
+
+	// Minimum number of matrices processed by a thread
+	private static final int BLOCK_SIZE = 5000;
+
+	// weighted sum of rotation matrices
+	DMatrix3x3 sum = new DMatrix3x3();
+
+	// sum of all the weights
+	double totalWeight;
+
+	// number of matrices added minus the number removed
+	int count;
+
+	DMatrixRMaj M = new DMatrixRMaj(3, 3);
+	DMatrixRMaj U = new DMatrixRMaj(3, 3);
+	DMatrixRMaj V = new DMatrixRMaj(3, 3);
+	SingularValueDecomposition_F64<DMatrixRMaj> svd = DecompositionFactory_DDRM.svd(3, 3, true, true, true);
+
+	/**
+	 * Adds a rotation matrix with a weight of one
+	 */
+	public void add( DMatrixRMaj R ) {
+		add(R, 1.0);
+	}
+
+	/**
+	 * Adds a rotation matrix with the specified weight
+	 *
+	 * @param R 3x3 rotation matrix. Not modified.
+	 * @param weight Weight. Must be positive.
+	 */
+	public void add( DMatrixRMaj R, double weight ) {
+		accumulate(R.data, weight);
+		totalWeight += weight;
+		count++;
+	}
+
+	/**
+	 * Adds a rotation matrix with the specified weight
+	 *
+	 * @param R 3x3 rotation matrix. Not modified.
+	 * @param weight Weight. Must be positive.
+	 */
+	public void add( DMatrix3x3 R, double weight ) {
+		accumulate(R, weight);
+		totalWeight += weight;
+		count++;
+	}
+
+	/**
+	 * Removes a rotation matrix which was previously added with a weight of one
+	 */
+	public void remove( DMatrixRMaj R ) {
+		remove(R, 1.0);
+	}
+
+	/**
+	 * Removes a rotation matrix which was previously added with the same weight
+	 */
+	public void remove( DMatrixRMaj R, double weight ) {
+		accumulate(R.data, -weight);
+		totalWeight -= weight;
+		count--;
+	}
+
+	/**
+	 * Removes a rotation matrix which was previously added with the same weight
+	 */
+	public void remove( DMatrix3x3 R, double weight ) {
+		accumulate(R, -weight);
+		totalWeight -= weight;
+		count--;
+	}
+
+	/**
+	 * Adds all the rotation matrices in the list with a weight of one
+	 */
+	public void addAll( List<DMatrixRMaj> list ) {
+		addAll(list, 0, list.size());
+	}
+
+	/**
+	 * Concurrent version of {@link #addAll(List)}. Each block is added to its own accumulator, which is then
+	 * merged into this one.
+	 */
+	public void addAllParallel( List<DMatrixRMaj> list ) {
+		GrlConcurrency.loopBlocks(0, list.size(), BLOCK_SIZE, ( idx0, idx1 ) -> {
+			IncrementalAverageRotationMatrix_F64 partial = new IncrementalAverageRotationMatrix_F64();
+			partial.addAll(list, idx0, idx1);
+			synchronized (this) {
+				merge(partial);
+			}
+		});
+	}
+
+	private void addAll( List<DMatrixRMaj> list, int idx0, int idx1 ) {
+		for (int i = idx0; i < idx1; i++) {
+			accumulate(list.get(i).data, 1.0);
+		}
+		totalWeight += idx1 - idx0;
+		count += idx1 - idx0;
+	}
+
+	/**
+	 * Adds everything in 'src' to this accumulator
+	 *
+	 * @param src The accumulator being added. Not modified.
+	 */
+	public void merge( IncrementalAverageRotationMatrix_F64 src ) {
+		DMatrix3x3 a = src.sum;
+		sum.a11 += a.a11; sum.a12 += a.a12; sum.a13 += a.a13;
+		sum.a21 += a.a21; sum.a22 += a.a22; sum.a23 += a.a23;
+		sum.a31 += a.a31; sum.a32 += a.a32; sum.a33 += a.a33;
+		totalWeight += src.totalWeight;
+		count += src.count;
+	}
+
+	private void accumulate( double[] R, double weight ) {
+		sum.a11 += weight*R[0]; sum.a12 += weight*R[1]; sum.a13 += weight*R[2];
+		sum.a21 += weight*R[3]; sum.a22 += weight*R[4]; sum.a23 += weight*R[5];
+		sum.a31 += weight*R[6]; sum.a32 += weight*R[7]; sum.a33 += weight*R[8];
+	}
+
+	private void accumulate( DMatrix3x3 R, double weight ) {
+		sum.a11 += weight*R.a11; sum.a12 += weight*R.a12; sum.a13 += weight*R.a13;
+		sum.a21 += weight*R.a21; sum.a22 += weight*R.a22; sum.a23 += weight*R.a23;
+		sum.a31 += weight*R.a31; sum.a32 += weight*R.a32; sum.a33 += weight*R.a33;
+	}
+
+	/**
+	 * Computes the average rotation matrix. This is the rotation matrix which is closest to the
+	 * weighted mean in Frobenius norm.
+	 *
+	 * @param average (Output) The average rotation matrix. Modified.
+	 * @return true if successful or false if there is nothing to average or the decomposition failed
+	 */
+	public boolean computeAverage( DMatrixRMaj average ) {
+		if( totalWeight <= 0 || count <= 0 )
+			return false;
+
+		double s = 1.0/totalWeight;
+		double[] d = M.data;
+		d[0] = sum.a11*s; d[1] = sum.a12*s; d[2] = sum.a13*s;
+		d[3] = sum.a21*s; d[4] = sum.a22*s; d[5] = sum.a23*s;
+		d[6] = sum.a31*s; d[7] = sum.a32*s; d[8] = sum.a33*s;
+
+		if( !svd.decompose(M) )
+			return false;
+
+		svd.getU(U, false);
+		svd.getV(V, false);
+
+		// average = U*diag(1,1,det(U*V'))*V' so that the determinant is +1
+		average.reshape(3, 3);
+		CommonOps_DDRM.multTransB(U, V, average);
+		if( CommonOps_DDRM.det(average) < 0 ) {
+			// flip the sign of the singular vector with the smallest singular value
+			double[] sv = svd.getSingularValues();
+			int smallest = 0;
+			for (int i = 1; i < 3; i++) {
+				if( sv[i] < sv[smallest] )
+					smallest = i;
+			}
+			for (int i = 0; i < 3; i++) {
+				U.data[i*3 + smallest] = -U.data[i*3 + smallest];
+			}
+			CommonOps_DDRM.multTransB(U, V, average);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Same as {@link #computeAverage(DMatrixRMaj)} but for a {@link DMatrix3x3}
+	 */
+	public boolean computeAverage( DMatrix3x3 average ) {
+		// M is no longer needed once the SVD has been computed, so it can store the results
+		if( !computeAverage(M) )
+			return false;
+		double[] d = M.data;
+		average.set(d[0], d[1], d[2], d[3], d[4], d[5], d[6], d[7], d[8]);
+		return true;
+	}
+
+	/**
+	 * Removes everything that has been added
+	 */
+	public void reset() {
+		sum.zero();
+		totalWeight = 0;
+		count = 0;
+	}
+
+	/**
+	 * Copies the state of 'src' into this
+	 */
+	public void setTo( IncrementalAverageRotationMatrix_F64 src ) {
+		reset();
+		merge(src);
+	}
+
+	/**
+	 * Sum of the weights of all the rotation matrices
+	 */
+	public double getTotalWeight() {
+		return totalWeight;
+	}
+
+	/**
+	 * Number of matrices added minus the number removed
+	 */
+	public int getCount() {
+		return count;
+	}
+}
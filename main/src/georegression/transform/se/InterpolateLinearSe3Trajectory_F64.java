@@ -0,0 +1,286 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.transform.se;
+
+import georegression.geometry.ConvertRotation3D_F64;
+import georegression.misc.GrlConcurrency;
+import georegression.struct.se.Se3Array_F64;
+import georegression.struct.se.Se3_F64;
+import georegression.struct.so.Rodrigues_F64;
+import org.ddogleg.struct.GrowQueue_F64;
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.dense.row.CommonOps_DDRM;
+
+import static georegression.struct.se.Se3Array_F64.LENGTH;
+
+/**
+ * <p>
+ * Linear interpolation along a trajectory of time stamped {@link Se3_F64} poses. Between two consecutive poses
+ * the result is the same as {@link InterpolateLinearSe3_F64}, but the rotation axis, angle, and translation of
+ * each interval are computed once when a pose is added instead of every time a pose is looked up. Intended for
+ * situations where a very large number of look ups are done, e.g. removing motion distortion from every point
+ * in a LiDAR scan.
+ * </p>
+ *
+ * <p>
+ * The interval a time belongs to is found using a binary search. The batch functions first check the interval
+ * of the previous time and the one after it, which is much faster when the times are sorted. Times before the
+ * first pose or after the last pose are set to the first or last pose, respectively.
+ * </p>
+ *
+ * <p>
+ * Look ups do not modify the class and can be done concurrently. Adding poses can't.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class InterpolateLinearSe3Trajectory_F64 {
+	// Number of elements which describe an interval. (axis x, axis y, axis z, angle, dx, dy, dz, 1/dt)
+	static final int INTERVAL = 8;
+
+	// Minimum number of look ups in a block when done concurrently
+	static final int BLOCK_SIZE = 2000;
+
+	// time stamp of each pose
+	GrowQueue_F64 times = new GrowQueue_F64();
+	// the poses
+	Se3Array_F64 poses = new Se3Array_F64();
+	// precomputed information for interpolating between pose 'i' and 'i+1'
+	GrowQueue_F64 intervals = new GrowQueue_F64();
+
+	// work space for adding a pose
+	DMatrixRMaj R0 = new DMatrixRMaj(3,3);
+	DMatrixRMaj R1 = new DMatrixRMaj(3,3);
+	DMatrixRMaj R = new DMatrixRMaj(3,3);
+	Rodrigues_F64 rodrigues = new Rodrigues_F64();
+
+	/**
+	 * Removes all poses
+	 */
+	public void reset() {
+		times.reset();
+		poses.reset();
+		intervals.reset();
+	}
+
+	/**
+	 * Adds a pose to the end of the trajectory. Time stamps must be strictly increasing.
+	 *
+	 * @param time Time stamp of the pose
+	 * @param pose The pose. Not modified.
+	 */
+	public void add( double time , Se3_F64 pose ) {
+		if( times.size > 0 && !(time > times.data[times.size-1]) )
+			throw new IllegalArgumentException("Time stamps must be strictly increasing");
+
+		times.add(time);
+		poses.add(pose);
+		if( poses.size < 2 )
+			return;
+
+		// precompute the difference between the previous pose and this one
+		int idx0 = (poses.size-2)*LENGTH;
+		int idx1 = idx0 + LENGTH;
+		System.arraycopy(poses.data,idx0,R0.data,0,9);
+		System.arraycopy(poses.data,idx1,R1.data,0,9);
+		CommonOps_DDRM.multTransA(R0, R1, R);
+		ConvertRotation3D_F64.matrixToRodrigues(R, rodrigues);
+
+		intervals.add(rodrigues.unitAxisRotation.x);
+		intervals.add(rodrigues.unitAxisRotation.y);
+		intervals.add(rodrigues.unitAxisRotation.z);
+		intervals.add(rodrigues.theta);
+		intervals.add(poses.data[idx1+ 9] - poses.data[idx0+ 9]);
+		intervals.add(poses.data[idx1+10] - poses.data[idx0+10]);
+		intervals.add(poses.data[idx1+11] - poses.data[idx0+11]);
+		intervals.add(1.0/(time - times.data[times.size-2]));
+	}
+
+	/**
+	 * Computes the pose at the specified time.
+	 *
+	 * @param time Time stamp of the pose
+	 * @param output (Output) The interpolated pose. Modified.
+	 * @return true if the time is inside the trajectory or false if it was set to the first or last pose.
+	 */
+	public boolean interpolate( double time , Se3_F64 output ) {
+		checkNotEmpty();
+
+		double[] T = times.data;
+		if( !(time >= T[0] && time <= T[times.size-1]) ) {
+			poses.get(time > T[0] ? poses.size-1 : 0, output);
+			return false;
+		} else if( times.size == 1 ) {
+			poses.get(0, output);
+			return true;
+		}
+
+		int k = findInterval(time);
+		double where = interpolateRotation(k, time, output.R.data, 0);
+
+		final int p = k*LENGTH;
+		final int d = k*INTERVAL;
+		output.T.x = poses.data[p+ 9] + where*intervals.data[d+4];
+		output.T.y = poses.data[p+10] + where*intervals.data[d+5];
+		output.T.z = poses.data[p+11] + where*intervals.data[d+6];
+		return true;
+	}
+
+	/**
+	 * Computes the pose at each of the time stamps. Faster when the times are sorted.
+	 *
+	 * @param times (Input) Time stamps. Not modified.
+	 * @param count Number of time stamps
+	 * @param output (Output) The pose at each time stamp. Modified.
+	 */
+	public void interpolate( double[] times, int count, Se3Array_F64 output ) {
+		checkNotEmpty();
+		output.resize(count);
+		interpolate(times, 0, count, output.data);
+	}
+
+	/**
+	 * Concurrent version of {@link #interpolate(double[], int, Se3Array_F64)}
+	 */
+	public void interpolateParallel( double[] times, int count, Se3Array_F64 output ) {
+		checkNotEmpty();
+		output.resize(count);
+		GrlConcurrency.loopBlocks(0, count, BLOCK_SIZE, ( idx0, idx1 ) ->
+				interpolate(times, idx0, idx1, output.data));
+	}
+
+	/**
+	 * Computes the poses in the specified range of time stamps. A cursor is used so that sorted times don't
+	 * need a binary search.
+	 */
+	void interpolate( double[] queries, int idx0, int idx1, double[] output ) {
+		final double[] T = times.data;
+		final double timeFirst = T[0];
+		final double timeLast = T[times.size-1];
+		final int numIntervals = times.size-1;
+
+		int k = 0;
+		for (int i = idx0; i < idx1; i++) {
+			double time = queries[i];
+			int out = i*LENGTH;
+
+			if( !(time >= timeFirst && time <= timeLast) || numIntervals == 0 ) {
+				int which = time > timeFirst ? poses.size-1 : 0;
+				System.arraycopy(poses.data, which*LENGTH, output, out, LENGTH);
+				continue;
+			}
+
+			// see if it's in the same interval or the next one before doing a binary search
+			if( time < T[k] || time > T[k+1] ) {
+				if( k+2 <= numIntervals && time >= T[k+1] && time <= T[k+2] )
+					k++;
+				else
+					k = findInterval(time);
+			}
+			double where = interpolateRotation(k, time, output, out);
+
+			final int p = k*LENGTH;
+			final int d = k*INTERVAL;
+			output[out+ 9] = poses.data[p+ 9] + where*intervals.data[d+4];
+			output[out+10] = poses.data[p+10] + where*intervals.data[d+5];
+			output[out+11] = poses.data[p+11] + where*intervals.data[d+6];
+		}
+	}
+
+	/**
+	 * Interpolates the rotation inside of interval 'k' and writes the matrix to 'rot'.
+	 *
+	 * @return Fraction of the interval's length the time is at
+	 */
+	private double interpolateRotation( int k, double time, double[] rot, int idxR ) {
+		final double[] P = poses.data;
+		final double[] I = intervals.data;
+		final int p = k*LENGTH;
+		final int d = k*INTERVAL;
+
+		double where = (time - times.data[k])*I[d+7];
+
+		// rotation from the start of the interval
+		double x = I[d], y = I[d+1], z = I[d+2];
+		double theta = where*I[d+3];
+		double c = Math.cos(theta);
+		double s = Math.sin(theta);
+		double oc = 1.0 - c;
+
+		double d11 = c + x*x*oc,   d12 = x*y*oc - z*s, d13 = x*z*oc + y*s;
+		double d21 = y*x*oc + z*s, d22 = c + y*y*oc,   d23 = y*z*oc - x*s;
+		double d31 = z*x*oc - y*s, d32 = z*y*oc + x*s, d33 = c + z*z*oc;
+
+		// R = R_k*dR
+		double a11 = P[p  ], a12 = P[p+1], a13 = P[p+2];
+		double a21 = P[p+3], a22 = P[p+4], a23 = P[p+5];
+		double a31 = P[p+6], a32 = P[p+7], a33 = P[p+8];
+
+		rot[idxR  ] = a11*d11 + a12*d21 + a13*d31;
+		rot[idxR+1] = a11*d12 + a12*d22 + a13*d32;
+		rot[idxR+2] = a11*d13 + a12*d23 + a13*d33;
+		rot[idxR+3] = a21*d11 + a22*d21 + a23*d31;
+		rot[idxR+4] = a21*d12 + a22*d22 + a23*d32;
+		rot[idxR+5] = a21*d13 + a22*d23 + a23*d33;
+		rot[idxR+6] = a31*d11 + a32*d21 + a33*d31;
+		rot[idxR+7] = a31*d12 + a32*d22 + a33*d32;
+		rot[idxR+8] = a31*d13 + a32*d23 + a33*d33;
+
+		return where;
+	}
+
+	/**
+	 * Finds the interval 'k' such that times[k] &le; time &le; times[k+1] using a binary search. The time
+	 * must be inside the trajectory.
+	 */
+	int findInterval( double time ) {
+		final double[] T = times.data;
+		int lo = 0, hi = times.size-1;
+		// invariant: T[lo] <= time <= T[hi]
+		while( hi - lo > 1 ) {
+			int mid = (lo + hi) >>> 1;
+			if( T[mid] <= time )
+				lo = mid;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	private void checkNotEmpty() {
+		if( times.size == 0 )
+			throw new IllegalArgumentException("No poses have been added");
+	}
+
+	/**
+	 * Number of poses in the trajectory
+	 */
+	public int size() {
+		return times.size;
+	}
+
+	public double getTime( int index ) {
+		return times.get(index);
+	}
+
+	public Se3_F64 getPose( int index , Se3_F64 storage ) {
+		return poses.get(index, storage);
+	}
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.transform.se;
+
+import georegression.geometry.ConvertRotation3D_F64;
+import georegression.struct.GeoTuple3D_F64;
+import georegression.struct.point.Vector3D_F64;
+import georegression.struct.se.Se3Array_F64;
+import georegression.struct.se.Se3_F64;
+import georegression.struct.so.Quaternion_F64;
+import org.ddogleg.struct.FastQueue;
+import org.ejml.data.DMatrixRMaj;
+
+import java.util.List;
+
+import static georegression.struct.se.Se3Array_F64.LENGTH;
+
+/**
+ * <p>
+ * Bulk operations on the poses inside of a {@link Se3Array_F64}. The meaning of concat is the same as in
+ * {@link Se3_F64#concat}, e.g. a.concat(b) is the transform which applies 'a' then 'b'. Unless stated
+ * otherwise the input and output can be the same array.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class Se3ArrayOps_F64 {
+
+	/**
+	 * Applies a fixed transform before each pose, dst[i] = first.concat(src[i]). For example, changing the
+	 * coordinate system a trajectory is expressed in.
+	 *
+	 * @param first Transform which is applied first. Not modified.
+	 * @param src (Input) Poses. Not modified.
+	 * @param dst (Output) Resulting poses. Modified.
+	 */
+	public static void concat( Se3_F64 first, Se3Array_F64 src, Se3Array_F64 dst ) {
+		double[] a = first.R.data;
+		double a11 = a[0], a12 = a[1], a13 = a[2];
+		double a21 = a[3], a22 = a[4], a23 = a[5];
+		double a31 = a[6], a32 = a[7], a33 = a[8];
+		double ax = first.T.x, ay = first.T.y, az = first.T.z;
+
+		dst.resize(src.size);
+		final double[] s = src.data;
+		final double[] d = dst.data;
+		final int end = src.size*LENGTH;
+		for (int i = 0; i < end; i += LENGTH) {
+			double b11 = s[i  ], b12 = s[i+1], b13 = s[i+2];
+			double b21 = s[i+3], b22 = s[i+4], b23 = s[i+5];
+			double b31 = s[i+6], b32 = s[i+7], b33 = s[i+8];
+			double bx = s[i+9], by = s[i+10], bz = s[i+11];
+
+			// R = R_b*R_a
+			d[i  ] = b11*a11 + b12*a21 + b13*a31;
+			d[i+1] = b11*a12 + b12*a22 + b13*a32;
+			d[i+2] = b11*a13 + b12*a23 + b13*a33;
+			d[i+3] = b21*a11 + b22*a21 + b23*a31;
+			d[i+4] = b21*a12 + b22*a22 + b23*a32;
+			d[i+5] = b21*a13 + b22*a23 + b23*a33;
+			d[i+6] = b31*a11 + b32*a21 + b33*a31;
+			d[i+7] = b31*a12 + b32*a22 + b33*a32;
+			d[i+8] = b31*a13 + b32*a23 + b33*a33;
+
+			// T = R_b*T_a + T_b
+			d[i+ 9] = b11*ax + b12*ay + b13*az + bx;
+			d[i+10] = b21*ax + b22*ay + b23*az + by;
+			d[i+11] = b31*ax + b32*ay + b33*az + bz;
+		}
+	}
+
+	/**
+	 * Applies a fixed transform after each pose, dst[i] = src[i].concat(second). For example, converting a
+	 * trajectory of a body into the trajectory of a sensor rigidly attached to it.
+	 *
+	 * @param src (Input) Poses. Not modified.
+	 * @param second Transform which is applied second. Not modified.
+	 * @param dst (Output) Resulting poses. Modified.
+	 */
+	public static void concat( Se3Array_F64 src, Se3_F64 second, Se3Array_F64 dst ) {
+		double[] b = second.R.data;
+		double b11 = b[0], b12 = b[1], b13 = b[2];
+		double b21 = b[3], b22 = b[4], b23 = b[5];
+		double b31 = b[6], b32 = b[7], b33 = b[8];
+		double bx = second.T.x, by = second.T.y, bz = second.T.z;
+
+		dst.resize(src.size);
+		final double[] s = src.data;
+		final double[] d = dst.data;
+		final int end = src.size*LENGTH;
+		for (int i = 0; i < end; i += LENGTH) {
+			double a11 = s[i  ], a12 = s[i+1], a13 = s[i+2];
+			double a21 = s[i+3], a22 = s[i+4], a23 = s[i+5];
+			double a31 = s[i+6], a32 = s[i+7], a33 = s[i+8];
+			double ax = s[i+9], ay = s[i+10], az = s[i+11];
+
+			// R = R_b*R_a
+			d[i  ] = b11*a11 + b12*a21 + b13*a31;
+			d[i+1] = b11*a12 + b12*a22 + b13*a32;
+			d[i+2] = b11*a13 + b12*a23 + b13*a33;
+			d[i+3] = b21*a11 + b22*a21 + b23*a31;
+			d[i+4] = b21*a12 + b22*a22 + b23*a32;
+			d[i+5] = b21*a13 + b22*a23 + b23*a33;
+			d[i+6] = b31*a11 + b32*a21 + b33*a31;
+			d[i+7] = b31*a12 + b32*a22 + b33*a32;
+			d[i+8] = b31*a13 + b32*a23 + b33*a33;
+
+			// T = R_b*T_a + T_b
+			d[i+ 9] = b11*ax + b12*ay + b13*az + bx;
+			d[i+10] = b21*ax + b22*ay + b23*az + by;
+			d[i+11] = b31*ax + b32*ay + b33*az + bz;
+		}
+	}
+
+	/**
+	 * Inverts every pose.
+	 *
+	 * @param src (Input) Poses. Not modified.
+	 * @param dst (Output) Inverted poses. Modified.
+	 */
+	public static void invert( Se3Array_F64 src, Se3Array_F64 dst ) {
+		dst.resize(src.size);
+		final double[] s = src.data;
+		final double[] d = dst.data;
+		final int end = src.size*LENGTH;
+		for (int i = 0; i < end; i += LENGTH) {
+			double r11 = s[i  ], r12 = s[i+1], r13 = s[i+2];
+			double r21 = s[i+3], r22 = s[i+4], r23 = s[i+5];
+			double r31 = s[i+6], r32 = s[i+7], r33 = s[i+8];
+			double tx = s[i+9], ty = s[i+10], tz = s[i+11];
+
+			// R' = R^T
+			d[i  ] = r11; d[i+1] = r21; d[i+2] = r31;
+			d[i+3] = r12; d[i+4] = r22; d[i+5] = r32;
+			d[i+6] = r13; d[i+7] = r23; d[i+8] = r33;
+
+			// T' = -R^T*T
+			d[i+ 9] = -(r11*tx + r21*ty + r31*tz);
+			d[i+10] = -(r12*tx + r22*ty + r32*tz);
+			d[i+11] = -(r13*tx + r23*ty + r33*tz);
+		}
+	}
+
+	/**
+	 * Computes the motion between consecutive poses. dst[i] is selected so that src[i].concat(dst[i]) = src[i+1],
+	 * i.e. dst[i] = src[i]<sup>-1</sup>.concat(src[i+1]). The output will have one less pose than the input.
+	 * This is the inverse of {@link #accumulate}.
+	 *
+	 * @param src (Input) Poses. Not modified.
+	 * @param dst (Output) Relative motion between poses. Modified.
+	 */
+	public static void relative( Se3Array_F64 src, Se3Array_F64 dst ) {
+		if( src.size == 0 ) {
+			dst.reset();
+			return;
+		}
+		// save the number of motions before src is modified, in case it's also dst
+		final int numMotions = src.size-1;
+		dst.resize(numMotions);
+		final double[] s = src.data;
+		final double[] d = dst.data;
+
+		// pose 'i' is processed before 'i+1' so it's safe for dst to be src
+		final int end = numMotions*LENGTH;
+		for (int i = 0; i < end; i += LENGTH) {
+			final int j = i + LENGTH;
+			double a11 = s[i  ], a12 = s[i+1], a13 = s[i+2];
+			double a21 = s[i+3], a22 = s[i+4], a23 = s[i+5];
+			double a31 = s[i+6], a32 = s[i+7], a33 = s[i+8];
+			double ax = s[i+9], ay = s[i+10], az = s[i+11];
+
+			double b11 = s[j  ], b12 = s[j+1], b13 = s[j+2];
+			double b21 = s[j+3], b22 = s[j+4], b23 = s[j+5];
+			double b31 = s[j+6], b32 = s[j+7], b33 = s[j+8];
+
+			// R = R_b*R_a^T
+			d[i  ] = b11*a11 + b12*a12 + b13*a13;
+			d[i+1] = b11*a21 + b12*a22 + b13*a23;
+			d[i+2] = b11*a31 + b12*a32 + b13*a33;
+			d[i+3] = b21*a11 + b22*a12 + b23*a13;
+			d[i+4] = b21*a21 + b22*a22 + b23*a23;
+			d[i+5] = b21*a31 + b22*a32 + b23*a33;
+			d[i+6] = b31*a11 + b32*a12 + b33*a13;
+			d[i+7] = b31*a21 + b32*a22 + b33*a23;
+			d[i+8] = b31*a31 + b32*a32 + b33*a33;
+
+			// T = T_b - R*T_a
+			d[i+ 9] = s[j+9]  - (d[i  ]*ax + d[i+1]*ay + d[i+2]*az);
+			d[i+10] = s[j+10] - (d[i+3]*ax + d[i+4]*ay + d[i+5]*az);
+			d[i+11] = s[j+11] - (d[i+6]*ax + d[i+7]*ay + d[i+8]*az);
+		}
+	}
+
+	/**
+	 * Integrates a sequence of motions into poses. dst[0] = start and dst[i+1] = dst[i].concat(motions[i]).
+	 * The output will have one more pose than the input. This is the inverse of {@link #relative}.
+	 * The input and output must not be the same array.
+	 *
+	 * @param start Initial pose. Not modified.
+	 * @param motions (Input) Motion from one pose to the next. Not modified.
+	 * @param dst (Output) Poses. Modified.
+	 */
+	public static void accumulate( Se3_F64 start, Se3Array_F64 motions, Se3Array_F64 dst ) {
+		if( motions == dst )
+			throw new IllegalArgumentException("motions and dst must be different arrays");
+
+		dst.resize(motions.size+1);
+		dst.set(0,start);
+
+		final double[] s = motions.data;
+		final double[] d = dst.data;
+		final int end = motions.size*LENGTH;
+		for (int i = 0; i < end; i += LENGTH) {
+			// previous pose is at 'i' in dst, output at 'j'
+			final int j = i + LENGTH;
+			double a11 = d[i  ], a12 = d[i+1], a13 = d[i+2];
+			double a21 = d[i+3], a22 = d[i+4], a23 = d[i+5];
+			double a31 = d[i+6], a32 = d[i+7], a33 = d[i+8];
+			double ax = d[i+9], ay = d[i+10], az = d[i+11];
+
+			double b11 = s[i  ], b12 = s[i+1], b13 = s[i+2];
+			double b21 = s[i+3], b22 = s[i+4], b23 = s[i+5];
+			double b31 = s[i+6], b32 = s[i+7], b33 = s[i+8];
+
+			// R = R_b*R_a
+			d[j  ] = b11*a11 + b12*a21 + b13*a31;
+			d[j+1] = b11*a12 + b12*a22 + b13*a32;
+			d[j+2] = b11*a13 + b12*a23 + b13*a33;
+			d[j+3] = b21*a11 + b22*a21 + b23*a31;
+			d[j+4] = b21*a12 + b22*a22 + b23*a32;
+			d[j+5] = b21*a13 + b22*a23 + b23*a33;
+			d[j+6] = b31*a11 + b32*a21 + b33*a31;
+			d[j+7] = b31*a12 + b32*a22 + b33*a32;
+			d[j+8] = b31*a13 + b32*a23 + b33*a33;
+
+			// T = R_b*T_a + T_b
+			d[j+ 9] = b11*ax + b12*ay + b13*az + s[i+9];
+			d[j+10] = b21*ax + b22*ay + b23*az + s[i+10];
+			d[j+11] = b31*ax + b32*ay + b33*az + s[i+11];
+		}
+	}
+
+	/**
+	 * Converts rotations, expressed as quaternions, and translations into poses. The quaternions are converted
+	 * using {@link ConvertRotation3D_F64#quaternionToMatrix(Quaternion_F64, DMatrixRMaj)} and should be
+	 * normalized.
+	 *
+	 * @param rotations (Input) Rotation of each pose. Not modified.
+	 * @param translations (Input) Translation of each pose. Not modified.
+	 * @param dst (Output) Poses. Modified.
+	 */
+	public static void convert( List<Quaternion_F64> rotations, List<? extends GeoTuple3D_F64> translations,
+								Se3Array_F64 dst ) {
+		if( rotations.size() != translations.size() )
+			throw new IllegalArgumentException("Number of rotations and translations must be the same");
+
+		dst.resize(rotations.size());
+		DMatrixRMaj R = new DMatrixRMaj(3,3);
+		final double[] d = dst.data;
+		for (int i = 0, index = 0; i < dst.size; i++, index += LENGTH) {
+			ConvertRotation3D_F64.quaternionToMatrix(rotations.get(i), R);
+			GeoTuple3D_F64 T = translations.get(i);
+			System.arraycopy(R.data,0,d,index,9);
+			d[index+ 9] = T.x;
+			d[index+10] = T.y;
+			d[index+11] = T.z;
+		}
+	}
+
+	/**
+	 * Converts poses into a rotation, expressed as a quaternion, and translation. The quaternions are computed
+	 * using {@link ConvertRotation3D_F64#matrixToQuaternion(DMatrixRMaj, Quaternion_F64)}.
+	 *
+	 * @param src (Input) Poses. Not modified.
+	 * @param rotations (Output) Rotation of each pose. Modified.
+	 * @param translations (Output) Translation of each pose. Modified.
+	 */
+	public static void convert( Se3Array_F64 src,
+								FastQueue<Quaternion_F64> rotations, FastQueue<Vector3D_F64> translations ) {
+		rotations.resize(src.size);
+		translations.resize(src.size);
+
+		DMatrixRMaj R = new DMatrixRMaj(3,3);
+		final double[] s = src.data;
+		for (int i = 0, index = 0; i < src.size; i++, index += LENGTH) {
+			System.arraycopy(s,index,R.data,0,9);
+			ConvertRotation3D_F64.matrixToQuaternion(R, rotations.get(i));
+			translations.get(i).set(s[index+9], s[index+10], s[index+11]);
+		}
+	}
+}
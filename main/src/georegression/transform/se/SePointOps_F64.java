@@ -19,14 +19,18 @@
 package georegression.transform.se;
 
 import georegression.geometry.GeometryMath_F64;
+import georegression.misc.GrlConcurrency;
 import georegression.struct.point.Point2D_F64;
 import georegression.struct.point.Point3D_F64;
 import georegression.struct.point.Point4D_F64;
+import georegression.struct.point.PointCloud3D_F64;
 import georegression.struct.point.Vector3D_F64;
 import georegression.struct.se.Se2_F64;
+import georegression.struct.se.Se3Compact_F64;
 import georegression.struct.se.Se3_F64;
 import org.ejml.data.DMatrixRMaj;
 
+import javax.annotation.Nullable;
 import java.util.List;
 
 /**
@@ -172,6 +176,221 @@ public class SePointOps_F64 {
 		}
 	}
 
+	/**
+	 * Concurrent version of {@link #transform(Se3_F64, Point3D_F64[], int, int)}. The array is split into blocks
+	 * which are processed in parallel using {@link GrlConcurrency}. Small arrays are processed in the calling thread.
+	 *
+	 * @param se	 The transform.
+	 * @param points Array of points which are to be transformed.  Modified.
+	 * @param start First element in the array that is to be processed
+	 * @param length The number of elements in the array that are to be processed.
+	 */
+	public static void transformParallel( Se3_F64 se, Point3D_F64[] points , int start , int length ) {
+		GrlConcurrency.loopBlocks(start, start + length, ( idx0, idx1 ) -> transform(se, points, idx0, idx1 - idx0));
+	}
+
+	/**
+	 * Concurrent version of {@link #transform(Se3_F64, List)}. The list should support fast random access,
+	 * e.g. ArrayList.
+	 *
+	 * @param se	 The transform.
+	 * @param points List of points which are to be transformed.  Modified.
+	 */
+	public static void transformParallel( Se3_F64 se, List<Point3D_F64> points ) {
+		GrlConcurrency.loopBlocks(0, points.size(), ( idx0, idx1 ) -> {
+			for (int i = idx0; i < idx1; i++) {
+				Point3D_F64 p = points.get(i);
+				transform(se, p, p);
+			}
+		});
+	}
+
+	/**
+	 * Concurrent version of {@link #transform(Se3_F64, double[], int, double[], int, int)}.
+	 */
+	public static void transformParallel( Se3_F64 se, double[] src , int srcOffset , double[] dst , int dstOffset , int numPoints ) {
+		GrlConcurrency.loopBlocks(0, numPoints, ( idx0, idx1 ) ->
+				transform(se, src, srcOffset + idx0*3, dst, dstOffset + idx0*3, idx1 - idx0));
+	}
+
+	/**
+	 * Concurrent version of {@link #transform(Se3_F64, PointCloud3D_F64, PointCloud3D_F64)}.
+	 */
+	public static void transformParallel( Se3_F64 se, PointCloud3D_F64 src , PointCloud3D_F64 dst ) {
+		dst.resize(src.size);
+		transformParallel(se, src.data, 0, dst.data, 0, src.size);
+	}
+
+	/**
+	 * Applies a 3D special euclidean transform to points in a packed array, e.g. (x0,y0,z0,x1,y1,z1,...).
+	 * Rotation and translation are read once and applied in a single pass. The input and output can be
+	 * the same array.
+	 *
+	 * @param se The transform. Not modified.
+	 * @param src Packed array of input points. Not modified.
+	 * @param srcOffset Index of the first element in src
+	 * @param dst Packed array the transformed points are written to. Modified.
+	 * @param dstOffset Index of the first element in dst
+	 * @param numPoints Number of points which are to be transformed
+	 */
+	public static void transform( Se3_F64 se, double[] src , int srcOffset , double[] dst , int dstOffset , int numPoints ) {
+		double[] R = se.R.data;
+		Vector3D_F64 T = se.T;
+
+		transform(R[0],R[1],R[2],R[3],R[4],R[5],R[6],R[7],R[8],T.x,T.y,T.z,src,srcOffset,dst,dstOffset,numPoints);
+	}
+
+	/**
+	 * Applies a 3D special euclidean transform to every point in the cloud.
+	 *
+	 * @param se The transform. Not modified.
+	 * @param src Input points. Not modified.
+	 * @param dst Output points. Can be the same instance as src. Modified.
+	 */
+	public static void transform( Se3_F64 se, PointCloud3D_F64 src , PointCloud3D_F64 dst ) {
+		dst.resize(src.size);
+		transform(se,src.data,0,dst.data,0,src.size);
+	}
+
+	/**
+	 * Applies two transforms in sequence to every point in the cloud, first then second. This is the same as
+	 * transforming by first.concat(second) but the combined transform is computed inline and nothing is declared.
+	 *
+	 * @param first The first transform which is applied. Not modified.
+	 * @param second The second transform which is applied. Not modified.
+	 * @param src Input points. Not modified.
+	 * @param dst Output points. Can be the same instance as src. Modified.
+	 */
+	public static void transform( Se3_F64 first, Se3_F64 second, PointCloud3D_F64 src , PointCloud3D_F64 dst ) {
+		double[] a = first.R.data;
+		double[] b = second.R.data;
+		Vector3D_F64 Ta = first.T;
+		Vector3D_F64 Tb = second.T;
+
+		// R = R_b*R_a
+		double r11 = b[0]*a[0] + b[1]*a[3] + b[2]*a[6];
+		double r12 = b[0]*a[1] + b[1]*a[4] + b[2]*a[7];
+		double r13 = b[0]*a[2] + b[1]*a[5] + b[2]*a[8];
+		double r21 = b[3]*a[0] + b[4]*a[3] + b[5]*a[6];
+		double r22 = b[3]*a[1] + b[4]*a[4] + b[5]*a[7];
+		double r23 = b[3]*a[2] + b[4]*a[5] + b[5]*a[8];
+		double r31 = b[6]*a[0] + b[7]*a[3] + b[8]*a[6];
+		double r32 = b[6]*a[1] + b[7]*a[4] + b[8]*a[7];
+		double r33 = b[6]*a[2] + b[7]*a[5] + b[8]*a[8];
+
+		// T = R_b*T_a + T_b
+		double tx = b[0]*Ta.x + b[1]*Ta.y + b[2]*Ta.z + Tb.x;
+		double ty = b[3]*Ta.x + b[4]*Ta.y + b[5]*Ta.z + Tb.y;
+		double tz = b[6]*Ta.x + b[7]*Ta.y + b[8]*Ta.z + Tb.z;
+
+		dst.resize(src.size);
+		transform(r11,r12,r13,r21,r22,r23,r31,r32,r33,tx,ty,tz,src.data,0,dst.data,0,src.size);
+	}
+
+	/**
+	 * Applies the transform in the reverse direction to points in a packed array, p = R<sup>T</sup>*(p'-T).
+	 * The input and output can be the same array.
+	 *
+	 * @param se The transform. Not modified.
+	 * @param src Packed array of input points. Not modified.
+	 * @param srcOffset Index of the first element in src
+	 * @param dst Packed array the transformed points are written to. Modified.
+	 * @param dstOffset Index of the first element in dst
+	 * @param numPoints Number of points which are to be transformed
+	 */
+	public static void transformReverse( Se3_F64 se, double[] src , int srcOffset , double[] dst , int dstOffset , int numPoints ) {
+		double[] R = se.R.data;
+		Vector3D_F64 T = se.T;
+
+		// p = R^T*p' - R^T*T
+		double tx = -(R[0]*T.x + R[3]*T.y + R[6]*T.z);
+		double ty = -(R[1]*T.x + R[4]*T.y + R[7]*T.z);
+		double tz = -(R[2]*T.x + R[5]*T.y + R[8]*T.z);
+
+		transform(R[0],R[3],R[6],R[1],R[4],R[7],R[2],R[5],R[8],tx,ty,tz,src,srcOffset,dst,dstOffset,numPoints);
+	}
+
+	/**
+	 * Applies the transform in the reverse direction to every point in the cloud.
+	 *
+	 * @param se The transform. Not modified.
+	 * @param src Input points. Not modified.
+	 * @param dst Output points. Can be the same instance as src. Modified.
+	 */
+	public static void transformReverse( Se3_F64 se, PointCloud3D_F64 src , PointCloud3D_F64 dst ) {
+		dst.resize(src.size);
+		transformReverse(se,src.data,0,dst.data,0,src.size);
+	}
+
+	/**
+	 * Applies a 3D special euclidean transform to points in a packed array, e.g. (x0,y0,z0,x1,y1,z1,...). The input
+	 * and output can be the same array.
+	 *
+	 * @param se The transform. Not modified.
+	 * @param src Packed array of input points. Not modified.
+	 * @param srcOffset Index of the first element in src
+	 * @param dst Packed array the transformed points are written to. Modified.
+	 * @param dstOffset Index of the first element in dst
+	 * @param numPoints Number of points which are to be transformed
+	 */
+	public static void transform( Se3Compact_F64 se, double[] src , int srcOffset , double[] dst , int dstOffset , int numPoints ) {
+		transform(se.r11,se.r12,se.r13,se.r21,se.r22,se.r23,se.r31,se.r32,se.r33,se.tx,se.ty,se.tz,
+				src,srcOffset,dst,dstOffset,numPoints);
+	}
+
+	/**
+	 * Applies a 3D special euclidean transform to every point in the cloud.
+	 *
+	 * @param se The transform. Not modified.
+	 * @param src Input points. Not modified.
+	 * @param dst Output points. Can be the same instance as src. Modified.
+	 */
+	public static void transform( Se3Compact_F64 se, PointCloud3D_F64 src , PointCloud3D_F64 dst ) {
+		dst.resize(src.size);
+		transform(se,src.data,0,dst.data,0,src.size);
+	}
+
+	/**
+	 * Applies the transform in the reverse direction to points in a packed array, p = R<sup>T</sup>*(p'-T).
+	 * The input and output can be the same array.
+	 *
+	 * @param se The transform. Not modified.
+	 * @param src Packed array of input points. Not modified.
+	 * @param srcOffset Index of the first element in src
+	 * @param dst Packed array the transformed points are written to. Modified.
+	 * @param dstOffset Index of the first element in dst
+	 * @param numPoints Number of points which are to be transformed
+	 */
+	public static void transformReverse( Se3Compact_F64 se, double[] src , int srcOffset , double[] dst , int dstOffset , int numPoints ) {
+		// p = R^T*p' - R^T*T
+		double tx = -(se.r11*se.tx + se.r21*se.ty + se.r31*se.tz);
+		double ty = -(se.r12*se.tx + se.r22*se.ty + se.r32*se.tz);
+		double tz = -(se.r13*se.tx + se.r23*se.ty + se.r33*se.tz);
+
+		transform(se.r11,se.r21,se.r31,se.r12,se.r22,se.r32,se.r13,se.r23,se.r33,tx,ty,tz,
+				src,srcOffset,dst,dstOffset,numPoints);
+	}
+
+	/**
+	 * Kernel for applying p' = R*p + T to packed points with the transform stored in local variables
+	 */
+	private static void transform( double r11, double r12, double r13,
+								   double r21, double r22, double r23,
+								   double r31, double r32, double r33,
+								   double tx, double ty, double tz,
+								   double[] src , int srcOffset , double[] dst , int dstOffset , int numPoints ) {
+		final int end = srcOffset + numPoints*3;
+		for (int i = srcOffset, j = dstOffset; i < end; i += 3, j += 3) {
+			double x = src[i];
+			double y = src[i+1];
+			double z = src[i+2];
+
+			dst[j  ] = r11*x + r12*y + r13*z + tx;
+			dst[j+1] = r21*x + r22*y + r23*z + ty;
+			dst[j+2] = r31*x + r32*y + r33*z + tz;
+		}
+	}
+
 	/**
 	 * <p>.
 	 * Applies the transform specified by SpecialEuclidean to a point.<br>
@@ -205,6 +424,49 @@ public class SePointOps_F64 {
 		return dst;
 	}
 
+	/**
+	 * Applies the transform to a point, p' = R*p + T. src and dst can be the same instance.
+	 *
+	 * @param se The transform. Not modified.
+	 * @param src Original coordinate of the point. Not modified.
+	 * @param dst Storage for transformed coordinate of the point. Point declared if null.  Modified.
+	 * @return Transformed point.
+	 */
+	public static Point3D_F64 transform( Se3Compact_F64 se, Point3D_F64 src, @Nullable Point3D_F64 dst ) {
+		if( dst == null )
+			dst = new Point3D_F64();
+
+		double x = src.x, y = src.y, z = src.z;
+
+		dst.x = se.r11*x + se.r12*y + se.r13*z + se.tx;
+		dst.y = se.r21*x + se.r22*y + se.r23*z + se.ty;
+		dst.z = se.r31*x + se.r32*y + se.r33*z + se.tz;
+
+		return dst;
+	}
+
+	/**
+	 * Applies the transform in the reverse direction to a point, p = R<sup>T</sup>*(p'-T).
+	 * src and dst can be the same instance.
+	 *
+	 * @param se The transform. Not modified.
+	 * @param src Transformed coordinate of the point. Not modified.
+	 * @param dst Storage for the original coordinate of the point. Point declared if null.  Modified.
+	 * @return Original point.
+	 */
+	public static Point3D_F64 transformReverse( Se3Compact_F64 se, Point3D_F64 src, @Nullable Point3D_F64 dst ) {
+		if( dst == null )
+			dst = new Point3D_F64();
+
+		double x = src.x - se.tx, y = src.y - se.ty, z = src.z - se.tz;
+
+		dst.x = se.r11*x + se.r21*y + se.r31*z;
+		dst.y = se.r12*x + se.r22*y + se.r32*z;
+		dst.z = se.r13*x + se.r23*y + se.r33*z;
+
+		return dst;
+	}
+
 	/**
 	 * <p>.
 	 * Applies rigid body motion to a point. The homogeneous coordinate is converted into a cartesian coordinate.
@@ -0,0 +1,658 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.transform.twist;
+
+import georegression.misc.GrlConcurrency;
+import georegression.struct.point.Vector3D_F64;
+import georegression.struct.se.Se3Array_F64;
+import georegression.struct.se.Se3_F64;
+import org.ejml.data.DMatrix3x3;
+import org.ejml.data.DMatrixRMaj;
+
+import javax.annotation.Nullable;
+
+/**
+ * <p>
+ * Exponential and logarithm maps, adjoint, and Jacobians for the Lie groups SO(3) and SE(3). Unlike
+ * {@link TwistOps_F64} these functions don't declare any memory when the output is provided and are intended for
+ * use in inner loops, e.g. pose graph optimization or IMU preintegration. When the rotation angle is close to
+ * zero the coefficients are computed with a Taylor series instead of expressions which divide by the angle.
+ * </p>
+ *
+ * <p>
+ * Rotation vectors are w = &theta;*n, where n is the unit axis and &theta; the angle. Twists are ordered
+ * as &xi; = [v ; w], translational then rotational, e.g. packed arrays are (vx,vy,vz,wx,wy,wz) and the 6x6 matrices
+ * have the translational component in the first 3 rows. The exponential of a twist is the same as
+ * {@link TwistOps_F64#exponential} with theta=1.
+ * </p>
+ *
+ * <p>
+ * Jacobians follow the definitions in [1], e.g. exp(w + &delta;) = exp(J<sub>l</sub>(w)*&delta;)*exp(w) and
+ * exp(w + &delta;) = exp(w)*exp(J<sub>r</sub>(w)*&delta;) for small &delta;.
+ * </p>
+ *
+ * <p>
+ * [1] Timothy D. Barfoot, "State Estimation for Robotics" 2017
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class LieGroupOps_F64 {
+
+	/**
+	 * If the angle squared is less than this the coefficients are computed using a Taylor series
+	 */
+	public static final double SMALL_ANGLE_SQ = (double)1e-4;
+
+	// number of elements in a packed twist
+	public static final int TWIST_LENGTH = 6;
+
+	// Minimum number of elements processed by a thread
+	private static final int BLOCK_SIZE = 2000;
+
+	/**
+	 * Computes the skew symmetric cross product matrix, hat(w)
+	 *
+	 * @param output (Output) Storage for hat(w). If null a new instance is declared.
+	 * @return hat(w)
+	 */
+	public static DMatrix3x3 hat( double wx, double wy, double wz, @Nullable DMatrix3x3 output ) {
+		return setPoly(0, 1, 0, wx, wy, wz, output);
+	}
+
+	/**
+	 * Exponential map from so(3) to SO(3), i.e. converts a rotation vector into a rotation matrix.
+	 *
+	 * @param wx x-component of the rotation vector
+	 * @param wy y-component of the rotation vector
+	 * @param wz z-component of the rotation vector
+	 * @param R (Output) Storage for the rotation matrix. If null a new instance is declared.
+	 * @return Rotation matrix
+	 */
+	public static DMatrix3x3 expSO3( double wx, double wy, double wz, @Nullable DMatrix3x3 R ) {
+		double theta2 = wx*wx + wy*wy + wz*wz;
+		return setPoly(1, coefA(theta2), coefB(theta2), wx, wy, wz, R);
+	}
+
+	/**
+	 * Logarithm map from SO(3) to so(3), i.e. converts a rotation matrix into a rotation vector. The angle
+	 * of the returned vector will be from 0 to &pi;. Handles angles close to 0 and &pi;.
+	 *
+	 * @param R (Input) Rotation matrix
+	 * @param w (Output) Storage for the rotation vector. If null a new instance is declared.
+	 * @return The rotation vector
+	 */
+	public static Vector3D_F64 logSO3( DMatrix3x3 R, @Nullable Vector3D_F64 w ) {
+		if( w == null )
+			w = new Vector3D_F64();
+		logSO3(R.a11, R.a12, R.a13, R.a21, R.a22, R.a23, R.a31, R.a32, R.a33, w);
+		return w;
+	}
+
+	/**
+	 * Left Jacobian of SO(3). J<sub>l</sub>(w) = I + (1-cos&theta;)/&theta;<sup>2</sup>*hat(w) +
+	 * (&theta;-sin&theta;)/&theta;<sup>3</sup>*hat(w)<sup>2</sup>
+	 *
+	 * @param J (Output) Storage for the Jacobian. If null a new instance is declared.
+	 * @return The Jacobian
+	 */
+	public static DMatrix3x3 jacobianLeftSO3( double wx, double wy, double wz, @Nullable DMatrix3x3 J ) {
+		double theta2 = wx*wx + wy*wy + wz*wz;
+		return setPoly(1, coefB(theta2), coefC(theta2), wx, wy, wz, J);
+	}
+
+	/**
+	 * Inverse of the left Jacobian of SO(3). J<sub>l</sub>(w)<sup>-1</sup> = I - hat(w)/2 +
+	 * (1/&theta;<sup>2</sup> - (1+cos&theta;)/(2&theta;sin&theta;))*hat(w)<sup>2</sup>. Singular at &theta;=2&pi;.
+	 *
+	 * @param J (Output) Storage for the inverse Jacobian. If null a new instance is declared.
+	 * @return The inverse Jacobian
+	 */
+	public static DMatrix3x3 jacobianLeftInvSO3( double wx, double wy, double wz, @Nullable DMatrix3x3 J ) {
+		double theta2 = wx*wx + wy*wy + wz*wz;
+		return setPoly(1, -0.5, coefD(theta2), wx, wy, wz, J);
+	}
+
+	/**
+	 * Right Jacobian of SO(3). J<sub>r</sub>(w) = J<sub>l</sub>(-w)
+	 *
+	 * @param J (Output) Storage for the Jacobian. If null a new instance is declared.
+	 * @return The Jacobian
+	 */
+	public static DMatrix3x3 jacobianRightSO3( double wx, double wy, double wz, @Nullable DMatrix3x3 J ) {
+		return jacobianLeftSO3(-wx, -wy, -wz, J);
+	}
+
+	/**
+	 * Inverse of the right Jacobian of SO(3). J<sub>r</sub>(w)<sup>-1</sup> = J<sub>l</sub>(-w)<sup>-1</sup>
+	 *
+	 * @param J (Output) Storage for the inverse Jacobian. If null a new instance is declared.
+	 * @return The inverse Jacobian
+	 */
+	public static DMatrix3x3 jacobianRightInvSO3( double wx, double wy, double wz, @Nullable DMatrix3x3 J ) {
+		return jacobianLeftInvSO3(-wx, -wy, -wz, J);
+	}
+
+	/**
+	 * Exponential map from se(3) to SE(3). R = exp(w) and T = J<sub>l</sub>(w)*v
+	 *
+	 * @param twist (Input) The twist
+	 * @param motion (Output) Storage for the rigid body motion. If null a new instance is declared.
+	 * @return The rigid body motion
+	 */
+	public static Se3_F64 expSE3( TwistCoordinate_F64 twist, @Nullable Se3_F64 motion ) {
+		if( motion == null )
+			motion = new Se3_F64();
+		expSE3(twist.v.x, twist.v.y, twist.v.z, twist.w.x, twist.w.y, twist.w.z, motion.R.data, 0, motion.T);
+		return motion;
+	}
+
+	/**
+	 * Logarithm map from SE(3) to se(3). w = log(R) and v = J<sub>l</sub>(w)<sup>-1</sup>*T
+	 *
+	 * @param motion (Input) The rigid body motion
+	 * @param twist (Output) Storage for the twist. If null a new instance is declared.
+	 * @return The twist
+	 */
+	public static TwistCoordinate_F64 logSE3( Se3_F64 motion, @Nullable TwistCoordinate_F64 twist ) {
+		if( twist == null )
+			twist = new TwistCoordinate_F64();
+		double[] R = motion.R.data;
+		logSE3(R[0], R[1], R[2], R[3], R[4], R[5], R[6], R[7], R[8],
+				motion.T.x, motion.T.y, motion.T.z, twist.w, twist.v);
+		return twist;
+	}
+
+	/**
+	 * Computes the adjoint of a rigid body motion, which transforms twists between coordinate systems.
+	 * Ad = [R, hat(T)*R ; 0 , R]
+	 *
+	 * @param motion (Input) The rigid body motion
+	 * @param adjoint (Output) Storage for the 6x6 adjoint matrix. If null a new matrix is declared.
+	 * @return The adjoint
+	 */
+	public static DMatrixRMaj adjointSE3( Se3_F64 motion, @Nullable DMatrixRMaj adjoint ) {
+		adjoint = reshape6(adjoint);
+		double[] R = motion.R.data;
+		double[] A = adjoint.data;
+		double tx = motion.T.x, ty = motion.T.y, tz = motion.T.z;
+
+		for (int row = 0; row < 3; row++) {
+			int idx = row*3;
+			A[row*6    ] = A[row*6 + 21] = R[idx];
+			A[row*6 + 1] = A[row*6 + 22] = R[idx + 1];
+			A[row*6 + 2] = A[row*6 + 23] = R[idx + 2];
+			A[row*6 + 18] = A[row*6 + 19] = A[row*6 + 20] = 0;
+		}
+		// hat(T)*R
+		for (int col = 0; col < 3; col++) {
+			double r0 = R[col], r1 = R[col + 3], r2 = R[col + 6];
+			A[     3 + col] = ty*r2 - tz*r1;
+			A[ 6 + 3 + col] = tz*r0 - tx*r2;
+			A[12 + 3 + col] = tx*r1 - ty*r0;
+		}
+		return adjoint;
+	}
+
+	/**
+	 * Left Jacobian of SE(3). J<sub>l</sub>(&xi;) = [J<sub>l</sub>(w), Q(v,w) ; 0 , J<sub>l</sub>(w)]
+	 *
+	 * @param twist (Input) The twist
+	 * @param J (Output) Storage for the 6x6 Jacobian. If null a new matrix is declared.
+	 * @return The Jacobian
+	 */
+	public static DMatrixRMaj jacobianLeftSE3( TwistCoordinate_F64 twist, @Nullable DMatrixRMaj J ) {
+		return jacobianSE3(twist.v.x, twist.v.y, twist.v.z, twist.w.x, twist.w.y, twist.w.z, false, J);
+	}
+
+	/**
+	 * Inverse of the left Jacobian of SE(3).
+	 * J<sub>l</sub>(&xi;)<sup>-1</sup> = [J<sub>l</sub>(w)<sup>-1</sup>,
+	 * -J<sub>l</sub>(w)<sup>-1</sup>*Q(v,w)*J<sub>l</sub>(w)<sup>-1</sup> ; 0 , J<sub>l</sub>(w)<sup>-1</sup>]
+	 *
+	 * @param twist (Input) The twist
+	 * @param J (Output) Storage for the 6x6 inverse Jacobian. If null a new matrix is declared.
+	 * @return The inverse Jacobian
+	 */
+	public static DMatrixRMaj jacobianLeftInvSE3( TwistCoordinate_F64 twist, @Nullable DMatrixRMaj J ) {
+		return jacobianSE3(twist.v.x, twist.v.y, twist.v.z, twist.w.x, twist.w.y, twist.w.z, true, J);
+	}
+
+	/**
+	 * Right Jacobian of SE(3). J<sub>r</sub>(&xi;) = J<sub>l</sub>(-&xi;)
+	 *
+	 * @param twist (Input) The twist
+	 * @param J (Output) Storage for the 6x6 Jacobian. If null a new matrix is declared.
+	 * @return The Jacobian
+	 */
+	public static DMatrixRMaj jacobianRightSE3( TwistCoordinate_F64 twist, @Nullable DMatrixRMaj J ) {
+		return jacobianSE3(-twist.v.x, -twist.v.y, -twist.v.z, -twist.w.x, -twist.w.y, -twist.w.z, false, J);
+	}
+
+	/**
+	 * Inverse of the right Jacobian of SE(3). J<sub>r</sub>(&xi;)<sup>-1</sup> = J<sub>l</sub>(-&xi;)<sup>-1</sup>
+	 *
+	 * @param twist (Input) The twist
+	 * @param J (Output) Storage for the 6x6 inverse Jacobian. If null a new matrix is declared.
+	 * @return The inverse Jacobian
+	 */
+	public static DMatrixRMaj jacobianRightInvSE3( TwistCoordinate_F64 twist, @Nullable DMatrixRMaj J ) {
+		return jacobianSE3(-twist.v.x, -twist.v.y, -twist.v.z, -twist.w.x, -twist.w.y, -twist.w.z, true, J);
+	}
+
+	/**
+	 * Applies the SO(3) exponential map to rotation vectors in a packed array, (wx,wy,wz) for each vector.
+	 *
+	 * @param vectors (Input) Packed array of rotation vectors. Not modified.
+	 * @param numVectors Number of rotation vectors
+	 * @param rotations (Output) Packed array of row-major rotation matrices, 9 elements each. Modified.
+	 */
+	public static void expSO3( double[] vectors, int numVectors, double[] rotations ) {
+		for (int i = 0, idx = 0, idxR = 0; i < numVectors; i++, idx += 3, idxR += 9) {
+			double wx = vectors[idx], wy = vectors[idx + 1], wz = vectors[idx + 2];
+			double theta2 = wx*wx + wy*wy + wz*wz;
+			setPoly(1, coefA(theta2), coefB(theta2), wx, wy, wz, rotations, idxR, 3);
+		}
+	}
+
+	/**
+	 * Applies the SO(3) logarithm map to rotation matrices in a packed array.
+	 *
+	 * @param rotations (Input) Packed array of row-major rotation matrices, 9 elements each. Not modified.
+	 * @param numRotations Number of rotation matrices
+	 * @param vectors (Output) Packed array of rotation vectors, (wx,wy,wz) for each vector. Modified.
+	 */
+	public static void logSO3( double[] rotations, int numRotations, double[] vectors ) {
+		Vector3D_F64 w = new Vector3D_F64();
+		for (int i = 0, idx = 0, idxR = 0; i < numRotations; i++, idx += 3, idxR += 9) {
+			logSO3(rotations[idxR], rotations[idxR + 1], rotations[idxR + 2],
+					rotations[idxR + 3], rotations[idxR + 4], rotations[idxR + 5],
+					rotations[idxR + 6], rotations[idxR + 7], rotations[idxR + 8], w);
+			vectors[idx] = w.x;
+			vectors[idx + 1] = w.y;
+			vectors[idx + 2] = w.z;
+		}
+	}
+
+	/**
+	 * Applies the SE(3) exponential map to all the twists in a packed array
+	 *
+	 * @param twists (Input) Packed array of twists, see {@link #TWIST_LENGTH}. Not modified.
+	 * @param numTwists Number of twists
+	 * @param motions (Output) Storage for the rigid body motions. Resized. Modified.
+	 */
+	public static void expSE3( double[] twists, int numTwists, Se3Array_F64 motions ) {
+		motions.resize(numTwists);
+		expSE3(twists, motions.data, 0, numTwists, new Vector3D_F64());
+	}
+
+	/**
+	 * Concurrent version of {@link #expSE3(double[], int, Se3Array_F64)}
+	 */
+	public static void expSE3Parallel( double[] twists, int numTwists, Se3Array_F64 motions ) {
+		motions.resize(numTwists);
+		GrlConcurrency.loopBlocks(0, numTwists, BLOCK_SIZE, ( idx0, idx1 ) ->
+				expSE3(twists, motions.data, idx0, idx1, new Vector3D_F64()));
+	}
+
+	/**
+	 * Applies the SE(3) logarithm map to all the motions in the array
+	 *
+	 * @param motions (Input) The rigid body motions. Not modified.
+	 * @param twists (Output) Packed array of twists, see {@link #TWIST_LENGTH}. Modified.
+	 */
+	public static void logSE3( Se3Array_F64 motions, double[] twists ) {
+		logSE3(motions.data, twists, 0, motions.size, new Vector3D_F64(), new Vector3D_F64());
+	}
+
+	/**
+	 * Concurrent version of {@link #logSE3(Se3Array_F64, double[])}
+	 */
+	public static void logSE3Parallel( Se3Array_F64 motions, double[] twists ) {
+		GrlConcurrency.loopBlocks(0, motions.size, BLOCK_SIZE, ( idx0, idx1 ) ->
+				logSE3(motions.data, twists, idx0, idx1, new Vector3D_F64(), new Vector3D_F64()));
+	}
+
+	private static void expSE3( double[] twists, double[] motions, int idx0, int idx1, Vector3D_F64 T ) {
+		for (int i = idx0; i < idx1; i++) {
+			int idx = i*TWIST_LENGTH;
+			int idxM = i*Se3Array_F64.LENGTH;
+			expSE3(twists[idx], twists[idx + 1], twists[idx + 2], twists[idx + 3], twists[idx + 4], twists[idx + 5],
+					motions, idxM, T);
+			motions[idxM + 9] = T.x;
+			motions[idxM + 10] = T.y;
+			motions[idxM + 11] = T.z;
+		}
+	}
+
+	private static void logSE3( double[] motions, double[] twists, int idx0, int idx1,
+								Vector3D_F64 w, Vector3D_F64 v ) {
+		for (int i = idx0; i < idx1; i++) {
+			int idx = i*TWIST_LENGTH;
+			int m = i*Se3Array_F64.LENGTH;
+			logSE3(motions[m], motions[m + 1], motions[m + 2], motions[m + 3], motions[m + 4], motions[m + 5],
+					motions[m + 6], motions[m + 7], motions[m + 8], motions[m + 9], motions[m + 10], motions[m + 11],
+					w, v);
+			twists[idx] = v.x;
+			twists[idx + 1] = v.y;
+			twists[idx + 2] = v.z;
+			twists[idx + 3] = w.x;
+			twists[idx + 4] = w.y;
+			twists[idx + 5] = w.z;
+		}
+	}
+
+	/**
+	 * Exponential of a twist. Rotation matrix is written to R starting at index and the translation to T
+	 */
+	private static void expSE3( double vx, double vy, double vz, double wx, double wy, double wz,
+								double[] R, int index, Vector3D_F64 T ) {
+		double theta2 = wx*wx + wy*wy + wz*wz;
+		double a, b, c;
+		if( theta2 < SMALL_ANGLE_SQ ) {
+			a = 1 - theta2/6*(1 - theta2/20);
+			b = 0.5 - theta2/24*(1 - theta2/30);
+			c = 1.0/6.0 - theta2/120*(1 - theta2/42);
+		} else {
+			// compute sin and cos once for all the coefficients
+			double theta = Math.sqrt(theta2);
+			double sin = Math.sin(theta);
+			double cos = Math.cos(theta);
+			a = sin/theta;
+			b = (1 - cos)/theta2;
+			c = (theta - sin)/(theta2*theta);
+		}
+
+		setPoly(1, a, b, wx, wy, wz, R, index, 3);
+
+		// T = J*v = v + b*(w x v) + c*(w x (w x v))
+		double cx = wy*vz - wz*vy;
+		double cy = wz*vx - wx*vz;
+		double cz = wx*vy - wy*vx;
+		double ccx = wy*cz - wz*cy;
+		double ccy = wz*cx - wx*cz;
+		double ccz = wx*cy - wy*cx;
+		T.x = vx + b*cx + c*ccx;
+		T.y = vy + b*cy + c*ccy;
+		T.z = vz + b*cz + c*ccz;
+	}
+
+	private static void logSE3( double r11, double r12, double r13,
+								double r21, double r22, double r23,
+								double r31, double r32, double r33,
+								double tx, double ty, double tz, Vector3D_F64 w, Vector3D_F64 v ) {
+		logSO3(r11, r12, r13, r21, r22, r23, r31, r32, r33, w);
+
+		// v = Jinv*T = T - (w x T)/2 + d*(w x (w x T))
+		double wx = w.x, wy = w.y, wz = w.z;
+		double d = coefD(wx*wx + wy*wy + wz*wz);
+		double cx = wy*tz - wz*ty;
+		double cy = wz*tx - wx*tz;
+		double cz = wx*ty - wy*tx;
+		double ccx = wy*cz - wz*cy;
+		double ccy = wz*cx - wx*cz;
+		double ccz = wx*cy - wy*cx;
+		v.x = tx - 0.5*cx + d*ccx;
+		v.y = ty - 0.5*cy + d*ccy;
+		v.z = tz - 0.5*cz + d*ccz;
+	}
+
+	private static void logSO3( double r11, double r12, double r13,
+								double r21, double r22, double r23,
+								double r31, double r32, double r33, Vector3D_F64 w ) {
+		// the skew symmetric part is sin(theta)*n
+		double sx = (r32 - r23)/2;
+		double sy = (r13 - r31)/2;
+		double sz = (r21 - r12)/2;
+		double s2 = sx*sx + sy*sy + sz*sz;
+		double s = Math.sqrt(s2);
+		double c = (r11 + r22 + r33 - 1)/2;
+
+		if( c > 0 ) {
+			// theta < pi/2 and theta = asin(s)
+			double scale;
+			if( s2 < SMALL_ANGLE_SQ ) {
+				// Taylor series of asin(s)/s
+				scale = 1 + s2/6*(1 + s2*9/20);
+			} else {
+				scale = Math.atan2(s, c)/s;
+			}
+			w.x = sx*scale;
+			w.y = sy*scale;
+			w.z = sz*scale;
+		} else {
+			// sin(theta) can be close to zero. Use the symmetric part instead, (1-cos)*n*n'
+			double theta = Math.atan2(s, c);
+			double oneMinusC = 1 - c;
+			double nx2 = Math.max(0, (r11 - c)/oneMinusC);
+			double ny2 = Math.max(0, (r22 - c)/oneMinusC);
+			double nz2 = Math.max(0, (r33 - c)/oneMinusC);
+
+			double nx, ny, nz;
+			if( nx2 >= ny2 && nx2 >= nz2 ) {
+				nx = Math.sqrt(nx2);
+				ny = (r12 + r21)/(2*oneMinusC*nx);
+				nz = (r13 + r31)/(2*oneMinusC*nx);
+			} else if( ny2 >= nz2 ) {
+				ny = Math.sqrt(ny2);
+				nx = (r12 + r21)/(2*oneMinusC*ny);
+				nz = (r23 + r32)/(2*oneMinusC*ny);
+			} else {
+				nz = Math.sqrt(nz2);
+				nx = (r13 + r31)/(2*oneMinusC*nz);
+				ny = (r23 + r32)/(2*oneMinusC*nz);
+			}
+
+			// the axis's sign comes from the skew symmetric part
+			if( nx*sx + ny*sy + nz*sz < 0 )
+				theta = -theta;
+
+			w.x = nx*theta;
+			w.y = ny*theta;
+			w.z = nz*theta;
+		}
+	}
+
+	private static DMatrixRMaj jacobianSE3( double vx, double vy, double vz, double wx, double wy, double wz,
+											boolean inverse, @Nullable DMatrixRMaj J ) {
+		J = reshape6(J);
+		double[] d = J.data;
+
+		double theta2 = wx*wx + wy*wy + wz*wz;
+		if( inverse ) {
+			setPoly(1, -0.5, coefD(theta2), wx, wy, wz, d, 0, 6);
+		} else {
+			setPoly(1, coefB(theta2), coefC(theta2), wx, wy, wz, d, 0, 6);
+		}
+
+		// Q goes into the upper right block
+		computeQ(vx, vy, vz, wx, wy, wz, theta2, d, 3);
+
+		if( inverse ) {
+			// upper right = -Jinv*Q*Jinv. Compute Q*Jinv first in the lower right block then multiply
+			for (int row = 0; row < 3; row++) {
+				for (int col = 0; col < 3; col++) {
+					double sum = 0;
+					for (int k = 0; k < 3; k++) {
+						sum += d[row*6 + 3 + k]*d[k*6 + col];
+					}
+					d[(row + 3)*6 + 3 + col] = sum;
+				}
+			}
+			for (int row = 0; row < 3; row++) {
+				for (int col = 0; col < 3; col++) {
+					double sum = 0;
+					for (int k = 0; k < 3; k++) {
+						sum += d[row*6 + k]*d[(k + 3)*6 + 3 + col];
+					}
+					d[row*6 + 3 + col] = -sum;
+				}
+			}
+		}
+
+		// lower left is zero and lower right is a copy of upper left
+		for (int row = 0; row < 3; row++) {
+			int src = row*6;
+			int dst = (row + 3)*6;
+			d[dst] = d[dst + 1] = d[dst + 2] = 0;
+			d[dst + 3] = d[src];
+			d[dst + 4] = d[src + 1];
+			d[dst + 5] = d[src + 2];
+		}
+
+		return J;
+	}
+
+	/**
+	 * Computes the Q(v,w) block of the SE(3) left Jacobian. Uses the identities hat(a)*hat(b) = b*a' - (a.b)*I
+	 * to reduce the standard expression to outer products.
+	 */
+	private static void computeQ( double vx, double vy, double vz, double wx, double wy, double wz,
+								  double theta2, double[] d, int index ) {
+		double c1 = coefC(theta2);
+		double c2, c3;
+		if( theta2 < SMALL_ANGLE_SQ ) {
+			c2 = 1.0/24.0 - theta2/720*(1 - theta2/56);
+			c3 = 1.0/120.0 - theta2/2520*(1 - theta2/48);
+		} else {
+			double theta = Math.sqrt(theta2);
+			double sin = Math.sin(theta);
+			double cos = Math.cos(theta);
+			double theta4 = theta2*theta2;
+			c2 = (theta2 + 2*cos - 2)/(2*theta4);
+			c3 = (2*theta - 3*sin + theta*cos)/(2*theta4*theta);
+		}
+
+		// dot and cross product of w and v
+		double dot = wx*vx + wy*vy + wz*vz;
+		double cx = wy*vz - wz*vy;
+		double cy = wz*vx - wx*vz;
+		double cz = wx*vy - wy*vx;
+
+		// Q = hat(v)/2 + c1*(v*w' + w*v' - 2*dot*I - dot*hat(w)) + c2*(c*w' - w*c' + dot*hat(w))
+		//     - 2*c3*dot*(w*w' - theta2*I)
+		double hw = dot*(c2 - c1);
+		double diag = -2*c1*dot + 2*c3*dot*theta2;
+		double ww = -2*c3*dot;
+
+		d[index     ] = diag + c1*2*vx*wx + ww*wx*wx;
+		d[index + 1] = -vz/2 + c1*(vx*wy + wx*vy) + c2*(cx*wy - wx*cy) - hw*wz + ww*wx*wy;
+		d[index + 2] =  vy/2 + c1*(vx*wz + wx*vz) + c2*(cx*wz - wx*cz) + hw*wy + ww*wx*wz;
+		d[index + 6] =  vz/2 + c1*(vy*wx + wy*vx) + c2*(cy*wx - wy*cx) + hw*wz + ww*wy*wx;
+		d[index + 7] = diag + c1*2*vy*wy + ww*wy*wy;
+		d[index + 8] = -vx/2 + c1*(vy*wz + wy*vz) + c2*(cy*wz - wy*cz) - hw*wx + ww*wy*wz;
+		d[index + 12] = -vy/2 + c1*(vz*wx + wz*vx) + c2*(cz*wx - wz*cx) - hw*wy + ww*wz*wx;
+		d[index + 13] =  vx/2 + c1*(vz*wy + wz*vy) + c2*(cz*wy - wz*cy) + hw*wx + ww*wz*wy;
+		d[index + 14] = diag + c1*2*vz*wz + ww*wz*wz;
+	}
+
+	/**
+	 * Computes alpha*I + a*hat(w) + b*hat(w)^2
+	 */
+	private static DMatrix3x3 setPoly( double alpha, double a, double b, double wx, double wy, double wz,
+									   @Nullable DMatrix3x3 M ) {
+		if( M == null )
+			M = new DMatrix3x3();
+		double xx = wx*wx, yy = wy*wy, zz = wz*wz;
+		double xy = wx*wy, xz = wx*wz, yz = wy*wz;
+
+		// hat(w)^2 = w*w' - |w|^2*I
+		M.a11 = alpha - b*(yy + zz);
+		M.a12 = -a*wz + b*xy;
+		M.a13 = a*wy + b*xz;
+		M.a21 = a*wz + b*xy;
+		M.a22 = alpha - b*(xx + zz);
+		M.a23 = -a*wx + b*yz;
+		M.a31 = -a*wy + b*xz;
+		M.a32 = a*wx + b*yz;
+		M.a33 = alpha - b*(xx + yy);
+		return M;
+	}
+
+	/**
+	 * Same as {@link #setPoly(double, double, double, double, double, double, DMatrix3x3)} but writes to a
+	 * 3x3 block inside an array with the specified row stride
+	 */
+	private static void setPoly( double alpha, double a, double b, double wx, double wy, double wz,
+								 double[] M, int index, int stride ) {
+		double xx = wx*wx, yy = wy*wy, zz = wz*wz;
+		double xy = wx*wy, xz = wx*wz, yz = wy*wz;
+
+		M[index    ] = alpha - b*(yy + zz);
+		M[index + 1] = -a*wz + b*xy;
+		M[index + 2] = a*wy + b*xz;
+		index += stride;
+		M[index    ] = a*wz + b*xy;
+		M[index + 1] = alpha - b*(xx + zz);
+		M[index + 2] = -a*wx + b*yz;
+		index += stride;
+		M[index    ] = -a*wy + b*xz;
+		M[index + 1] = a*wx + b*yz;
+		M[index + 2] = alpha - b*(xx + yy);
+	}
+
+	private static DMatrixRMaj reshape6( @Nullable DMatrixRMaj M ) {
+		if( M == null )
+			return new DMatrixRMaj(6, 6);
+		M.reshape(6, 6);
+		return M;
+	}
+
+	/**
+	 * sin(&theta;)/&theta;
+	 */
+	static double coefA( double theta2 ) {
+		if( theta2 < SMALL_ANGLE_SQ )
+			return 1 - theta2/6*(1 - theta2/20);
+		double theta = Math.sqrt(theta2);
+		return Math.sin(theta)/theta;
+	}
+
+	/**
+	 * (1-cos(&theta;))/&theta;<sup>2</sup>
+	 */
+	static double coefB( double theta2 ) {
+		if( theta2 < SMALL_ANGLE_SQ )
+			return 0.5 - theta2/24*(1 - theta2/30);
+		return (1 - Math.cos(Math.sqrt(theta2)))/theta2;
+	}
+
+	/**
+	 * (&theta;-sin(&theta;))/&theta;<sup>3</sup>
+	 */
+	static double coefC( double theta2 ) {
+		if( theta2 < SMALL_ANGLE_SQ )
+			return 1.0/6.0 - theta2/120*(1 - theta2/42);
+		double theta = Math.sqrt(theta2);
+		return (theta - Math.sin(theta))/(theta2*theta);
+	}
+
+	/**
+	 * 1/&theta;<sup>2</sup> - (1+cos(&theta;))/(2&theta;sin(&theta;))
+	 */
+	static double coefD( double theta2 ) {
+		if( theta2 < SMALL_ANGLE_SQ )
+			return 1.0/12.0 + theta2/720*(1 + theta2/42);
+		double theta = Math.sqrt(theta2);
+		double sin = Math.sin(theta);
+		double cos = Math.cos(theta);
+		return 1/theta2 - (1 + cos)/(2*theta*sin);
+	}
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.fitting;
+
+import georegression.misc.GrlConstants;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Generic tests for implementations of {@link DistanceFromModelPacked_F64}
+ *
+ * @author Peter Abeles
+ */
+public abstract class GeneralDistanceFromModelPackedTests_F64 <Model,Point> {
+	protected Random rand = new Random(234);
+
+	public abstract DistanceFromModelPacked_F64<Model,Point> createAlg();
+
+	public abstract Model createRandomModel();
+
+	/**
+	 * Creates a point which is the specified distance from the model
+	 */
+	public abstract Point createPoint( Model model, double distance );
+
+	/**
+	 * Computes the distance using a reference implementation
+	 */
+	public abstract double distance( Model model, Point point );
+
+	/**
+	 * Writes the point into the packed array
+	 */
+	public abstract void pack( Point point, double[] array, int offset );
+
+	/**
+	 * Creates a set of points with distances spread on both sides of 0.5
+	 */
+	private List<Point> createPoints( Model model, int N ) {
+		List<Point> points = new ArrayList<>();
+		for (int i = 0; i < N; i++) {
+			points.add(createPoint(model, rand.nextDouble()));
+		}
+		return points;
+	}
+
+	private double[] pack( List<Point> points, int length ) {
+		double[] packed = new double[points.size()*length];
+		for (int i = 0; i < points.size(); i++) {
+			pack(points.get(i), packed, i*length);
+		}
+		return packed;
+	}
+
+	@Test
+	void computeDistance_single() {
+		DistanceFromModelPacked_F64<Model,Point> alg = createAlg();
+
+		for (int trial = 0; trial < 10; trial++) {
+			Model model = createRandomModel();
+			alg.setModel(model);
+
+			for (int i = 0; i < 10; i++) {
+				double expected = 2.0*rand.nextDouble();
+				Point p = createPoint(model, expected);
+				assertEquals(expected, alg.computeDistance(p), GrlConstants.TEST_F64);
+				assertEquals(distance(model, p), alg.computeDistance(p), GrlConstants.TEST_F64);
+			}
+		}
+	}
+
+	@Test
+	void computeDistance_list() {
+		DistanceFromModelPacked_F64<Model,Point> alg = createAlg();
+		Model model = createRandomModel();
+		alg.setModel(model);
+
+		List<Point> points = createPoints(model, 50);
+		/**/double[] found = new /**/double[points.size()];
+		alg.computeDistance(points, found);
+
+		for (int i = 0; i < points.size(); i++) {
+			assertEquals(alg.computeDistance(points.get(i)), found[i], GrlConstants.TEST_F64);
+		}
+	}
+
+	@Test
+	void computeDistance_packed() {
+		DistanceFromModelPacked_F64<Model,Point> alg = createAlg();
+		Model model = createRandomModel();
+		alg.setModel(model);
+
+		List<Point> points = createPoints(model, 50);
+		double[] packed = pack(points, alg.getPackedLength());
+		// extra elements which should not be modified
+		double[] found = new double[points.size() + 2];
+		found[points.size()] = -1;
+		alg.computeDistance(packed, points.size(), found);
+
+		for (int i = 0; i < points.size(); i++) {
+			assertEquals(alg.computeDistance(points.get(i)), found[i], GrlConstants.TEST_F64);
+		}
+		assertEquals(-1, found[points.size()]);
+	}
+
+	@Test
+	void countInliers() {
+		DistanceFromModelPacked_F64<Model,Point> alg = createAlg();
+		Model model = createRandomModel();
+		alg.setModel(model);
+
+		List<Point> points = createPoints(model, 100);
+		double[] packed = pack(points, alg.getPackedLength());
+
+		for (double threshold : new double[]{0.0, 0.1, 0.5, 0.9, 2.0}) {
+			int expected = 0;
+			for (int i = 0; i < points.size(); i++) {
+				if (alg.computeDistance(points.get(i)) <= threshold)
+					expected++;
+			}
+			assertEquals(expected, alg.countInliers(packed, points.size(), threshold, -1));
+		}
+	}
+
+	/**
+	 * The count should be exact when it beats the best and be no more than the best when it stops early
+	 */
+	@Test
+	void countInliers_preemptive() {
+		DistanceFromModelPacked_F64<Model,Point> alg = createAlg();
+		Model model = createRandomModel();
+		alg.setModel(model);
+
+		List<Point> points = createPoints(model, 100);
+		double[] packed = pack(points, alg.getPackedLength());
+		double threshold = 0.5;
+		int expected = alg.countInliers(packed, points.size(), threshold, -1);
+		assertTrue(expected > 0 && expected < points.size());
+
+		for (int mustBeat = 0; mustBeat <= points.size(); mustBeat++) {
+			int found = alg.countInliers(packed, points.size(), threshold, mustBeat);
+			if (mustBeat < expected) {
+				assertEquals(expected, found);
+			} else {
+				assertTrue(found <= mustBeat);
+			}
+		}
+	}
+
+	@Test
+	void countInliers_zeroPoints() {
+		DistanceFromModelPacked_F64<Model,Point> alg = createAlg();
+		alg.setModel(createRandomModel());
+		assertEquals(0, alg.countInliers(new double[0], 0, 1.0, -1));
+		assertEquals(0, alg.countInliers(new double[0], 0, 1.0, 5));
+	}
+
+	@Test
+	void getTypes() {
+		DistanceFromModelPacked_F64<Model,Point> alg = createAlg();
+		Model model = createRandomModel();
+		assertTrue(alg.getModelType().isInstance(model));
+		assertTrue(alg.getPointType().isInstance(createPoint(model, 0.1)));
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.fitting;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestInlierCountOps_F64 {
+	Random rand = new Random(234);
+
+	/**
+	 * Each point is a single value. Values &gt; 0 are outliers
+	 */
+	InlierCountOps_F64.BlockOutliers counter = ( points, start, end ) -> {
+		int outliers = 0;
+		for (int i = start; i < end; i++) {
+			outliers += points[i] > 0 ? 1 : 0;
+		}
+		return outliers;
+	};
+
+	@Test
+	void countInliers() {
+		// number of points isn't a multiple of the block size
+		int N = InlierCountOps_F64.BLOCK*5 + 7;
+		double[] points = new double[N];
+		int expected = 0;
+		for (int i = 0; i < N; i++) {
+			points[i] = rand.nextDouble() - 0.3;
+			expected += points[i] > 0 ? 0 : 1;
+		}
+
+		assertEquals(expected, InlierCountOps_F64.countInliers(points, N, -1, counter));
+
+		for (int mustBeat = 0; mustBeat <= N; mustBeat++) {
+			int found = InlierCountOps_F64.countInliers(points, N, mustBeat, counter);
+			if( expected > mustBeat )
+				assertEquals(expected, found);
+			else
+				assertTrue(found <= mustBeat);
+		}
+	}
+
+	/**
+	 * It should stop after the first block since every point in it is an outlier and it can then no longer win
+	 */
+	@Test
+	void stopsEarly() {
+		int N = InlierCountOps_F64.BLOCK*10;
+		double[] points = new double[N];
+		for (int i = 0; i < N; i++) {
+			points[i] = 1;
+		}
+
+		int[] calls = new int[1];
+		int found = InlierCountOps_F64.countInliers(points, N, N - InlierCountOps_F64.BLOCK, ( p, start, end ) -> {
+			calls[0]++;
+			return counter.countOutliers(p, start, end);
+		});
+		assertEquals(0, found);
+		assertEquals(1, calls[0]);
+	}
+
+	@Test
+	void empty() {
+		assertEquals(0, InlierCountOps_F64.countInliers(new double[0], 0, -1, counter));
+	}
+}
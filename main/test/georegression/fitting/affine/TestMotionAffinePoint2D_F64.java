@@ -30,6 +30,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
@@ -70,4 +71,60 @@ public class TestMotionAffinePoint2D_F64 {
 			GeometryUnitTest.assertEquals( to.get( i ), foundPt, tol );
 		}
 	}
+
+	@Test
+	void processBatch() {
+		Affine2D_F64 motion = new Affine2D_F64( 2, -4, 0.3, 1.1, 0.93, -3 );
+		List<Point2D_F64> src = UtilPoint2D_F64.random( -10, 10, 50, rand );
+		List<Point2D_F64> dst = new ArrayList<>();
+		for (Point2D_F64 p : src) {
+			Point2D_F64 q = AffinePointOps_F64.transform(motion, p, null);
+			q.x += rand.nextGaussian()*0.1;
+			q.y += rand.nextGaussian()*0.1;
+			dst.add(q);
+		}
+
+		int sampleSize = 4, numSamples = 300;
+		int[] samples = new int[sampleSize*numSamples];
+		for (int i = 0; i < samples.length; i++) {
+			samples[i] = rand.nextInt(src.size());
+		}
+
+		Affine2D_F64[] models = new Affine2D_F64[numSamples];
+		Affine2D_F64[] modelsParallel = new Affine2D_F64[numSamples];
+		for (int i = 0; i < numSamples; i++) {
+			models[i] = new Affine2D_F64();
+			modelsParallel[i] = new Affine2D_F64();
+		}
+		boolean[] success = new boolean[numSamples];
+		boolean[] successParallel = new boolean[numSamples];
+
+		MotionAffinePoint2D_F64 alg = new MotionAffinePoint2D_F64();
+		alg.processBatch(src, dst, samples, sampleSize, numSamples, models, success);
+		alg.processBatchParallel(src, dst, samples, sampleSize, numSamples, modelsParallel, successParallel);
+
+		// compare against fitting each sample individually
+		List<Point2D_F64> subSrc = new ArrayList<>();
+		List<Point2D_F64> subDst = new ArrayList<>();
+		for (int i = 0; i < numSamples; i++) {
+			subSrc.clear();
+			subDst.clear();
+			for (int j = 0; j < sampleSize; j++) {
+				subSrc.add(src.get(samples[i*sampleSize+j]));
+				subDst.add(dst.get(samples[i*sampleSize+j]));
+			}
+			assertTrue(alg.process(subSrc, subDst));
+			Affine2D_F64 expected = alg.getTransformSrcToDst();
+			assertTrue(success[i]);
+			assertTrue(successParallel[i]);
+			for (Affine2D_F64 found : new Affine2D_F64[]{models[i], modelsParallel[i]}) {
+				assertEquals(expected.a11, found.a11, GrlConstants.TEST_F64);
+				assertEquals(expected.a12, found.a12, GrlConstants.TEST_F64);
+				assertEquals(expected.a21, found.a21, GrlConstants.TEST_F64);
+				assertEquals(expected.a22, found.a22, GrlConstants.TEST_F64);
+				assertEquals(expected.tx, found.tx, GrlConstants.TEST_F64);
+				assertEquals(expected.ty, found.ty, GrlConstants.TEST_F64);
+			}
+		}
+	}
 }
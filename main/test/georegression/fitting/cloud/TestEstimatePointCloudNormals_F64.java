@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.fitting.cloud;
+
+import georegression.misc.GrlConcurrency;
+import georegression.misc.GrlConstants;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.point.PointCloud3D_F64;
+import georegression.struct.point.Vector3D_F64;
+import org.ddogleg.struct.FastQueue;
+import org.ddogleg.struct.GrowQueue_F64;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestEstimatePointCloudNormals_F64 {
+	Random rand = new Random(234);
+
+	/**
+	 * Points on a tilted plane. All the normals should be the plane's normal and curvature should be zero
+	 */
+	@Test
+	void plane() {
+		Vector3D_F64 normal = new Vector3D_F64(0.2, -0.4, 1.0);
+		normal.normalize();
+		PointCloud3D_F64 cloud = createPlane(normal, 500);
+
+		EstimatePointCloudNormals_F64 alg = new EstimatePointCloudNormals_F64();
+		alg.setNeighborsKNearest(8, Double.MAX_VALUE);
+		GrowQueue_F64 normals = new GrowQueue_F64();
+		GrowQueue_F64 curvature = new GrowQueue_F64();
+		alg.process(cloud, normals, curvature);
+
+		assertEquals(cloud.size*3, normals.size);
+		assertEquals(cloud.size, curvature.size);
+		for (int i = 0; i < cloud.size; i++) {
+			double dot = normals.get(i*3)*normal.x + normals.get(i*3+1)*normal.y + normals.get(i*3+2)*normal.z;
+			assertEquals(1.0, Math.abs(dot), GrlConstants.TEST_F64);
+			assertEquals(0.0, curvature.get(i), GrlConstants.TEST_F64);
+		}
+	}
+
+	/**
+	 * Points on a sphere. Normals should point outwards towards the view point at the center... which
+	 * makes them point inwards
+	 */
+	@Test
+	void sphere_viewPoint() {
+		PointCloud3D_F64 cloud = createSphere(2000);
+
+		EstimatePointCloudNormals_F64 alg = new EstimatePointCloudNormals_F64();
+		alg.setNeighborsRadius(0.25);
+		alg.setViewPoint(new Point3D_F64(1, 2, 3));
+		GrowQueue_F64 normals = new GrowQueue_F64();
+		GrowQueue_F64 curvature = new GrowQueue_F64();
+		alg.process(cloud, normals, curvature);
+
+		for (int i = 0; i < cloud.size; i++) {
+			// direction from the point towards the center
+			double dx = 1 - cloud.getX(i), dy = 2 - cloud.getY(i), dz = 3 - cloud.getZ(i);
+			double dot = normals.get(i*3)*dx + normals.get(i*3+1)*dy + normals.get(i*3+2)*dz;
+			assertEquals(1.0, dot, 0.01);
+			// curved surfaces have a small positive curvature
+			assertTrue(curvature.get(i) > 0 && curvature.get(i) < 0.05);
+		}
+	}
+
+	/**
+	 * Neighborhoods which are too small produce NaN
+	 */
+	@Test
+	void tooFewNeighbors() {
+		PointCloud3D_F64 cloud = new PointCloud3D_F64();
+		cloud.add(0, 0, 0);
+		cloud.add(0.01, 0, 0);
+		cloud.add(5, 0, 0);
+		cloud.add(5, 0.01, 0);
+		cloud.add(5, 0, 0.01);
+
+		EstimatePointCloudNormals_F64 alg = new EstimatePointCloudNormals_F64();
+		alg.setNeighborsRadius(0.1);
+		GrowQueue_F64 normals = new GrowQueue_F64();
+		GrowQueue_F64 curvature = new GrowQueue_F64();
+		alg.process(cloud, normals, curvature);
+
+		for (int i = 0; i < 2; i++) {
+			assertTrue(Double.isNaN(normals.get(i*3)));
+			assertTrue(Double.isNaN(curvature.get(i)));
+		}
+		for (int i = 2; i < 5; i++) {
+			assertEquals(1.0, Math.abs(normals.get(i*3)), GrlConstants.TEST_F64);
+			assertEquals(0.0, curvature.get(i), GrlConstants.TEST_F64);
+		}
+	}
+
+	/**
+	 * Points on a line don't have a unique normal
+	 */
+	@Test
+	void line() {
+		PointCloud3D_F64 cloud = new PointCloud3D_F64();
+		for (int i = 0; i < 10; i++) {
+			cloud.add(i, 2*i, -i);
+		}
+		EstimatePointCloudNormals_F64 alg = new EstimatePointCloudNormals_F64();
+		alg.setNeighborsKNearest(5, Double.MAX_VALUE);
+		GrowQueue_F64 normals = new GrowQueue_F64();
+		alg.process(cloud, normals, null);
+		for (int i = 0; i < normals.size; i++) {
+			assertTrue(Double.isNaN(normals.get(i)));
+		}
+	}
+
+	@Test
+	void list() {
+		PointCloud3D_F64 cloud = createSphere(500);
+		List<Point3D_F64> points = cloud.toList(null);
+
+		EstimatePointCloudNormals_F64 alg = new EstimatePointCloudNormals_F64();
+		GrowQueue_F64 expected = new GrowQueue_F64();
+		alg.process(cloud, expected, null);
+
+		FastQueue<Vector3D_F64> found = new FastQueue<>(Vector3D_F64::new);
+		alg.process(points, found, null);
+		checkIdentical(expected, found);
+		alg.processParallel(points, found, null);
+		checkIdentical(expected, found);
+	}
+
+	/**
+	 * The concurrent implementation should produce identical results
+	 */
+	@Test
+	void parallel() {
+		ForkJoinPool original = GrlConcurrency.getPool();
+		GrlConcurrency.setMaxThreads(4);
+		try {
+			PointCloud3D_F64 cloud = createSphere(5000);
+			EstimatePointCloudNormals_F64 alg = new EstimatePointCloudNormals_F64();
+			GrowQueue_F64 expectedN = new GrowQueue_F64();
+			GrowQueue_F64 expectedC = new GrowQueue_F64();
+			GrowQueue_F64 foundN = new GrowQueue_F64();
+			GrowQueue_F64 foundC = new GrowQueue_F64();
+			alg.process(cloud, expectedN, expectedC);
+			alg.processParallel(cloud, foundN, foundC);
+
+			assertEquals(expectedN.size, foundN.size);
+			for (int i = 0; i < expectedN.size; i++) {
+				assertEquals(expectedN.get(i), foundN.get(i), 0.0);
+			}
+			for (int i = 0; i < expectedC.size; i++) {
+				assertEquals(expectedC.get(i), foundC.get(i), 0.0);
+			}
+		} finally {
+			GrlConcurrency.setPool(original);
+		}
+	}
+
+	@Test
+	void badSettings() {
+		EstimatePointCloudNormals_F64 alg = new EstimatePointCloudNormals_F64();
+		assertThrows(IllegalArgumentException.class, () -> alg.setNeighborsKNearest(2, 1.0));
+		assertThrows(IllegalArgumentException.class, () -> alg.setNeighborsRadius(0));
+	}
+
+	private void checkIdentical( GrowQueue_F64 expected, FastQueue<Vector3D_F64> found ) {
+		assertEquals(expected.size, found.size*3);
+		for (int i = 0; i < found.size; i++) {
+			Vector3D_F64 v = found.get(i);
+			assertEquals(expected.get(i*3), v.x, 0.0);
+			assertEquals(expected.get(i*3+1), v.y, 0.0);
+			assertEquals(expected.get(i*3+2), v.z, 0.0);
+		}
+	}
+
+	private PointCloud3D_F64 createPlane( Vector3D_F64 normal, int N ) {
+		// two vectors which are tangent to the plane
+		Vector3D_F64 a = new Vector3D_F64(1, 0, 0);
+		Vector3D_F64 b = new Vector3D_F64();
+		b.cross(normal, a);
+		b.normalize();
+		a.cross(b, normal);
+
+		PointCloud3D_F64 cloud = new PointCloud3D_F64();
+		for (int i = 0; i < N; i++) {
+			double u = rand.nextDouble()*4 - 2, v = rand.nextDouble()*4 - 2;
+			cloud.add(1 + u*a.x + v*b.x, -2 + u*a.y + v*b.y, 0.5 + u*a.z + v*b.z);
+		}
+		return cloud;
+	}
+
+	/**
+	 * Unit sphere centered at (1,2,3)
+	 */
+	private PointCloud3D_F64 createSphere( int N ) {
+		PointCloud3D_F64 cloud = new PointCloud3D_F64();
+		for (int i = 0; i < N; i++) {
+			Vector3D_F64 v = new Vector3D_F64(rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian());
+			v.normalize();
+			cloud.add(1 + v.x, 2 + v.y, 3 + v.z);
+		}
+		return cloud;
+	}
+}
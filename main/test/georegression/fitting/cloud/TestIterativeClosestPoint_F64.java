@@ -0,0 +1,384 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.fitting.cloud;
+
+import georegression.fitting.cloud.IterativeClosestPoint_F64.IterationStats;
+import georegression.fitting.cloud.IterativeClosestPoint_F64.Metric;
+import georegression.index.OctreePoint3D_F64;
+import georegression.misc.GrlConcurrency;
+import georegression.misc.GrlConstants;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.point.PointCloud3D_F64;
+import georegression.struct.se.Se3_F64;
+import georegression.struct.se.SpecialEuclideanOps_F64;
+import georegression.transform.se.SePointOps_F64;
+import org.ddogleg.struct.FastQueue;
+import org.ddogleg.struct.GrowQueue_F64;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestIterativeClosestPoint_F64 {
+	Random rand = new Random(234);
+
+	Se3_F64 srcToDst = SpecialEuclideanOps_F64.eulerXyz(0.03, -0.02, 0.04, 0.02, -0.03, 0.04, null);
+
+	/**
+	 * The source is the destination moved. Every point has an exact match
+	 */
+	@Test
+	void pointToPoint() {
+		PointCloud3D_F64 dst = createRoom(3000, 0);
+		PointCloud3D_F64 src = createSource(dst);
+
+		IterativeClosestPoint_F64 alg = new IterativeClosestPoint_F64(Metric.POINT_TO_POINT);
+		alg.setDestination(dst);
+		assertTrue(alg.process(src, null));
+
+		assertTrue(alg.isConverged());
+		checkMotion(alg.getSrcToDst());
+	}
+
+	/**
+	 * The source is sampled independently from the destination, so there are no exact matches. Point-to-plane
+	 * can still find the exact solution.
+	 */
+	@Test
+	void pointToPlane() {
+		PointCloud3D_F64 dst = createRoom(6000, 0);
+		PointCloud3D_F64 src = createSource(createRoom(1000, 0.2));
+
+		IterativeClosestPoint_F64 alg = new IterativeClosestPoint_F64(Metric.POINT_TO_PLANE);
+		alg.setDestination(dst);
+		assertEquals(dst.size*3, alg.getNormals().size);
+		assertTrue(alg.process(src, null));
+
+		assertTrue(alg.isConverged());
+		checkMotion(alg.getSrcToDst());
+	}
+
+	/**
+	 * Normals are provided instead of being estimated
+	 */
+	@Test
+	void pointToPlane_providedNormals() {
+		GrowQueue_F64 normals = new GrowQueue_F64();
+		PointCloud3D_F64 dst = createRoom(6000, 0, normals);
+		PointCloud3D_F64 src = createSource(createRoom(1000, 0.2));
+
+		IterativeClosestPoint_F64 alg = new IterativeClosestPoint_F64(Metric.POINT_TO_PLANE);
+		alg.setDestination(dst, normals);
+		assertTrue(alg.process(src, null));
+		checkMotion(alg.getSrcToDst());
+
+		// should never associate with points that have no normal
+		normals.fill(Double.NaN);
+		alg.setDestination(dst, normals);
+		assertFalse(alg.process(src, null));
+		assertEquals(0, alg.getStatistics().get(0).associated);
+
+		assertThrows(IllegalArgumentException.class, () -> alg.setDestination(dst, new GrowQueue_F64()));
+	}
+
+	/**
+	 * Outliers in the source are removed by only using the closest associations
+	 */
+	@Test
+	void outliers_trimmed() {
+		PointCloud3D_F64 dst = createRoom(3000, 0);
+		PointCloud3D_F64 src = createSource(dst);
+		addOutliers(src, 200);
+
+		IterativeClosestPoint_F64 alg = new IterativeClosestPoint_F64(Metric.POINT_TO_POINT);
+		alg.setDestination(dst);
+		alg.setTrimFraction(0.85);
+		assertTrue(alg.process(src, null));
+		checkMotion(alg.getSrcToDst());
+
+		IterationStats last = alg.getStatistics().getTail();
+		assertEquals(src.size, last.associated);
+		assertEquals((int)(0.85*src.size), last.inliers);
+	}
+
+	/**
+	 * Outliers in the source are removed with a maximum distance
+	 */
+	@Test
+	void outliers_maxDistance() {
+		PointCloud3D_F64 dst = createRoom(3000, 0);
+		PointCloud3D_F64 src = createSource(dst);
+		addOutliers(src, 200);
+
+		IterativeClosestPoint_F64 alg = new IterativeClosestPoint_F64(Metric.POINT_TO_POINT);
+		alg.setDestination(dst);
+		alg.setMaxDistance(0.3);
+		assertTrue(alg.process(src, null));
+		checkMotion(alg.getSrcToDst());
+
+		IterationStats last = alg.getStatistics().getTail();
+		assertEquals(dst.size, last.associated);
+		assertEquals(dst.size, last.inliers);
+	}
+
+	/**
+	 * Coarse-to-fine levels
+	 */
+	@Test
+	void levels() {
+		PointCloud3D_F64 dst = createRoom(3000, 0);
+		PointCloud3D_F64 src = createSource(dst);
+
+		IterativeClosestPoint_F64 alg = new IterativeClosestPoint_F64(Metric.POINT_TO_POINT, new OctreePoint3D_F64());
+		alg.addLevel(0.3, 1.0);
+		alg.addLevel(0.1, 0.5);
+		alg.addLevel(0, 0.2);
+		alg.setDestination(dst);
+		assertTrue(alg.process(src, null));
+		assertTrue(alg.isConverged());
+		checkMotion(alg.getSrcToDst());
+
+		// every level should have been processed in order
+		FastQueue<IterationStats> stats = alg.getStatistics();
+		int level = 0;
+		int iteration = 0;
+		for (int i = 0; i < stats.size; i++) {
+			IterationStats s = stats.get(i);
+			if( s.level != level ) {
+				assertEquals(level + 1, s.level);
+				level = s.level;
+				iteration = 0;
+			}
+			assertEquals(iteration++, s.iteration);
+		}
+		assertEquals(2, level);
+
+		// coarse levels use fewer points
+		assertTrue(stats.get(0).associated < src.size);
+		assertEquals(src.size, stats.getTail().associated);
+	}
+
+	@Test
+	void list() {
+		PointCloud3D_F64 dst = createRoom(3000, 0);
+		PointCloud3D_F64 src = createSource(dst);
+		List<Point3D_F64> listDst = dst.toList(null);
+		List<Point3D_F64> listSrc = src.toList(null);
+
+		IterativeClosestPoint_F64 alg = new IterativeClosestPoint_F64(Metric.POINT_TO_POINT);
+		alg.setDestination(listDst);
+		assertTrue(alg.process(listSrc, null));
+		checkMotion(alg.getSrcToDst());
+	}
+
+	/**
+	 * Checks the statistics and that the initial estimate is used
+	 */
+	@Test
+	void statistics() {
+		PointCloud3D_F64 dst = createRoom(3000, 0);
+		PointCloud3D_F64 src = createSource(dst);
+
+		IterativeClosestPoint_F64 alg = new IterativeClosestPoint_F64(Metric.POINT_TO_POINT);
+		alg.setDestination(dst);
+		alg.process(src, null);
+		FastQueue<IterationStats> stats = alg.getStatistics();
+		assertTrue(stats.size > 1);
+		for (int i = 0; i < stats.size; i++) {
+			IterationStats s = stats.get(i);
+			assertEquals(i, s.iteration);
+			assertEquals(src.size, s.inliers);
+			assertTrue(s.timeAssociate >= 0);
+			assertTrue(s.timeMotion >= 0);
+			assertTrue(s.changeTranslation >= 0);
+			assertTrue(s.changeAngle >= 0);
+		}
+		assertTrue(stats.get(0).errorRms > stats.getTail().errorRms);
+		assertEquals(0.0, stats.getTail().errorRms, GrlConstants.TEST_SQ_F64);
+
+		// start at the solution and it should converge immediately
+		alg.process(src, srcToDst);
+		assertTrue(alg.isConverged());
+		assertEquals(1, stats.size);
+		checkMotion(alg.getSrcToDst());
+
+		// limit the number of iterations
+		alg.setMaxIterations(2);
+		alg.process(src, null);
+		assertFalse(alg.isConverged());
+		assertEquals(2, stats.size);
+	}
+
+	@Test
+	void tooFewAssociations() {
+		PointCloud3D_F64 dst = createRoom(300, 0);
+		PointCloud3D_F64 src = createSource(dst);
+		SePointOps_F64.transform(SpecialEuclideanOps_F64.eulerXyz(10, 0, 0, 0, 0, 0, null), src, src);
+
+		IterativeClosestPoint_F64 alg = new IterativeClosestPoint_F64(Metric.POINT_TO_POINT);
+		alg.setDestination(dst);
+		alg.setMaxDistance(1.0);
+		assertFalse(alg.process(src, null));
+		assertEquals(0, alg.getStatistics().getTail().inliers);
+	}
+
+	@Test
+	void badArguments() {
+		IterativeClosestPoint_F64 alg = new IterativeClosestPoint_F64(Metric.POINT_TO_POINT);
+		assertThrows(IllegalArgumentException.class, () -> alg.setTrimFraction(0));
+		assertThrows(IllegalArgumentException.class, () -> alg.setTrimFraction(1.1));
+		assertThrows(IllegalArgumentException.class, () -> alg.setMaxDistance(0));
+		assertThrows(IllegalArgumentException.class, () -> alg.addLevel(0.1, 0));
+
+		// normals have not been computed
+		alg.setDestination(createRoom(100, 0));
+		alg.setMetric(Metric.POINT_TO_PLANE);
+		assertThrows(IllegalArgumentException.class, () -> alg.process(createRoom(100, 0), null));
+	}
+
+	@Test
+	void parallel() {
+		PointCloud3D_F64 dst = createRoom(6000, 0);
+		PointCloud3D_F64 src = createSource(createRoom(3000, 0.2));
+		addOutliers(src, 100);
+
+		ForkJoinPool original = GrlConcurrency.getPool();
+		try {
+			GrlConcurrency.setMaxThreads(4);
+			for (Metric metric : Metric.values()) {
+				IterativeClosestPoint_F64 expected = new IterativeClosestPoint_F64(metric);
+				expected.addLevel(0.2, 0.5);
+				expected.addLevel(0, 0.2);
+				expected.setTrimFraction(0.9);
+				expected.setDestination(dst);
+				assertTrue(expected.process(src, null));
+
+				IterativeClosestPoint_F64 found = new IterativeClosestPoint_F64(metric);
+				found.addLevel(0.2, 0.5);
+				found.addLevel(0, 0.2);
+				found.setTrimFraction(0.9);
+				found.setDestinationParallel(dst);
+				assertTrue(found.processParallel(src, null));
+
+				assertTrue(SpecialEuclideanOps_F64.isIdentical(expected.getSrcToDst(), found.getSrcToDst(),
+						GrlConstants.TEST_SQ_F64, GrlConstants.TEST_SQ_F64));
+				assertEquals(expected.getStatistics().size, found.getStatistics().size);
+				assertEquals(expected.getStatistics().getTail().inliers, found.getStatistics().getTail().inliers);
+			}
+		} finally {
+			GrlConcurrency.setPool(original);
+		}
+	}
+
+	/**
+	 * Sorting should only change the order of the points
+	 */
+	@Test
+	void sortSpatially() {
+		PointCloud3D_F64 cloud = createRoom(2000, 0);
+		PointCloud3D_F64 sorted = new PointCloud3D_F64();
+
+		IterativeClosestPoint_F64 alg = new IterativeClosestPoint_F64(Metric.POINT_TO_POINT);
+		alg.sortSpatially(cloud, sorted);
+		assertEquals(cloud.size, sorted.size);
+
+		double[] expected = Arrays.copyOf(cloud.data, cloud.size*3);
+		double[] found = Arrays.copyOf(sorted.data, sorted.size*3);
+		Arrays.sort(expected);
+		Arrays.sort(found);
+		assertArrayEquals(expected, found);
+
+		// consecutive points should be much closer than in the original order
+		assertTrue(averageStep(sorted)*5 < averageStep(cloud));
+
+		alg.sortSpatially(new PointCloud3D_F64(), sorted);
+		assertEquals(0, sorted.size);
+	}
+
+	@Test
+	void interleave() {
+		assertEquals(0, IterativeClosestPoint_F64.interleave(0));
+		assertEquals(0b1001, IterativeClosestPoint_F64.interleave(0b11));
+		assertEquals(0b1000001000001, IterativeClosestPoint_F64.interleave(0b10101));
+		assertEquals(0b1001001001001001, IterativeClosestPoint_F64.interleave(63));
+	}
+
+	static double averageStep( PointCloud3D_F64 cloud ) {
+		double total = 0;
+		for (int i = 1; i < cloud.size; i++) {
+			double dx = cloud.getX(i) - cloud.getX(i - 1);
+			double dy = cloud.getY(i) - cloud.getY(i - 1);
+			double dz = cloud.getZ(i) - cloud.getZ(i - 1);
+			total += Math.sqrt(dx*dx + dy*dy + dz*dz);
+		}
+		return total/(cloud.size - 1);
+	}
+
+	void checkMotion( Se3_F64 found ) {
+		assertTrue(SpecialEuclideanOps_F64.isIdentical(srcToDst, found,
+				GrlConstants.TEST_SQ_F64, GrlConstants.TEST_SQ_F64));
+	}
+
+	/**
+	 * Applies the inverse of the true motion so that the true motion takes it back to the destination
+	 */
+	PointCloud3D_F64 createSource( PointCloud3D_F64 dst ) {
+		PointCloud3D_F64 src = new PointCloud3D_F64();
+		src.resize(dst.size);
+		SePointOps_F64.transformReverse(srcToDst, dst, src);
+		return src;
+	}
+
+	void addOutliers( PointCloud3D_F64 cloud, int count ) {
+		for (int i = 0; i < count; i++) {
+			cloud.add(0.5 + rand.nextDouble(), 0.5 + rand.nextDouble(), 0.5 + rand.nextDouble());
+		}
+	}
+
+	PointCloud3D_F64 createRoom( int count, double margin ) {
+		return createRoom(count, margin, new GrowQueue_F64());
+	}
+
+	/**
+	 * Points on the floor and two walls of a 2x2x2 room. Points are kept away from where the planes intersect
+	 * by the margin.
+	 */
+	PointCloud3D_F64 createRoom( int count, double margin, GrowQueue_F64 normals ) {
+		PointCloud3D_F64 cloud = new PointCloud3D_F64();
+		normals.reset();
+		for (int i = 0; i < count; i++) {
+			double a = margin + rand.nextDouble()*(2.0 - margin);
+			double b = margin + rand.nextDouble()*(2.0 - margin);
+			switch( i%3 ) {
+				case 0: cloud.add(a, b, 0); normals.add(0); normals.add(0); normals.add(1); break;
+				case 1: cloud.add(0, a, b); normals.add(1); normals.add(0); normals.add(0); break;
+				default: cloud.add(a, 0, b); normals.add(0); normals.add(1); normals.add(0); break;
+			}
+		}
+		return cloud;
+	}
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.fitting.cloud;
+
+import georegression.fitting.sphere.FitSphereToPoints_F64;
+import georegression.index.OctreePoint3D_F64;
+import georegression.misc.GrlConcurrency;
+import georegression.misc.GrlConstants;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.point.PointCloud3D_F64;
+import georegression.struct.shapes.Sphere3D_F64;
+import org.ddogleg.struct.GrowQueue_B;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestRemovePointCloudOutliers_F64 {
+	Random rand = new Random(234);
+
+	Point3D_F64 center = new Point3D_F64(1, 2, 3);
+	double radius = 1.5;
+	int numSphere = 2000;
+	int numOutliers = 20;
+
+	/**
+	 * Points on a sphere followed by isolated points far away from the sphere and each other
+	 */
+	List<Point3D_F64> createScene() {
+		List<Point3D_F64> points = new ArrayList<>();
+		for (int i = 0; i < numSphere; i++) {
+			double x = rand.nextGaussian(), y = rand.nextGaussian(), z = rand.nextGaussian();
+			double n = Math.sqrt(x*x + y*y + z*z);
+			points.add(new Point3D_F64(center.x + radius*x/n, center.y + radius*y/n, center.z + radius*z/n));
+		}
+		for (int i = 0; i < numOutliers; i++) {
+			points.add(new Point3D_F64(center.x + 4 + 2*i, center.y - 3 + rand.nextDouble(), center.z));
+		}
+		return points;
+	}
+
+	@Test
+	void statistical() {
+		List<Point3D_F64> points = createScene();
+
+		RemovePointCloudOutliers_F64 alg = new RemovePointCloudOutliers_F64();
+		alg.setStatistical(8, 1.0);
+		GrowQueue_B inliers = new GrowQueue_B();
+		int total = alg.process(points, inliers);
+
+		checkInliers(points, inliers, total);
+		assertEquals(points.size(), alg.getMeanDistances().size);
+		assertTrue(alg.getThreshold() > 0);
+	}
+
+	@Test
+	void radius() {
+		List<Point3D_F64> points = createScene();
+
+		RemovePointCloudOutliers_F64 alg = new RemovePointCloudOutliers_F64();
+		alg.setRadius(0.3, 3);
+		GrowQueue_B inliers = new GrowQueue_B();
+		int total = alg.process(points, inliers);
+
+		checkInliers(points, inliers, total);
+		assertEquals(points.size(), alg.getNeighborCounts().size);
+		for (int i = numSphere; i < points.size(); i++) {
+			assertEquals(0, alg.getNeighborCounts().get(i));
+		}
+	}
+
+	private void checkInliers( List<Point3D_F64> points, GrowQueue_B inliers, int total ) {
+		assertEquals(points.size(), inliers.size);
+		int count = 0;
+		for (int i = 0; i < inliers.size; i++) {
+			if( inliers.get(i) )
+				count++;
+		}
+		assertEquals(count, total);
+
+		// every outlier should be removed while almost all of the sphere is kept
+		for (int i = numSphere; i < points.size(); i++) {
+			assertFalse(inliers.get(i));
+		}
+		assertTrue(total > numSphere*0.8);
+	}
+
+	/**
+	 * Removing the outliers should allow the sphere to be fit accurately
+	 */
+	@Test
+	void improvesSphereFit() {
+		List<Point3D_F64> points = createScene();
+
+		RemovePointCloudOutliers_F64 alg = new RemovePointCloudOutliers_F64();
+		alg.setRadius(0.3, 3);
+		GrowQueue_B inliers = new GrowQueue_B();
+		alg.process(points, inliers);
+
+		List<Point3D_F64> filtered = new ArrayList<>();
+		for (int i = 0; i < points.size(); i++) {
+			if( inliers.get(i) )
+				filtered.add(points.get(i));
+		}
+
+		FitSphereToPoints_F64 fitter = new FitSphereToPoints_F64(100);
+		Sphere3D_F64 initial = new Sphere3D_F64(center.x + 0.1, center.y - 0.1, center.z, radius*1.1);
+		Sphere3D_F64 found = new Sphere3D_F64();
+
+		assertTrue(fitter.fitModel(filtered, initial, found));
+		assertEquals(0, found.center.distance(center), GrlConstants.TEST_SQ_F64);
+		assertEquals(radius, found.radius, GrlConstants.TEST_SQ_F64);
+
+		// sanity check to make sure the outliers actually hurt the fit
+		fitter.fitModel(points, initial, found);
+		assertTrue(found.center.distance(center) > 0.01);
+	}
+
+	/**
+	 * Both types of input should produce the same results
+	 */
+	@Test
+	void cloud_vs_list() {
+		List<Point3D_F64> points = createScene();
+		PointCloud3D_F64 cloud = new PointCloud3D_F64();
+		cloud.setTo(points);
+
+		RemovePointCloudOutliers_F64 alg = new RemovePointCloudOutliers_F64(new OctreePoint3D_F64());
+		alg.setStatistical(6, 0.5);
+		GrowQueue_B expected = new GrowQueue_B();
+		GrowQueue_B found = new GrowQueue_B();
+		int totalExpected = alg.process(points, expected);
+		int totalFound = alg.process(cloud, found);
+
+		assertEquals(totalExpected, totalFound);
+		for (int i = 0; i < points.size(); i++) {
+			assertEquals(expected.get(i), found.get(i));
+		}
+	}
+
+	@Test
+	void parallel() {
+		ForkJoinPool original = GrlConcurrency.getPool();
+		try {
+			GrlConcurrency.setMaxThreads(4);
+			numSphere = 5000;
+			List<Point3D_F64> points = createScene();
+
+			for (boolean statistical : new boolean[]{true, false}) {
+				RemovePointCloudOutliers_F64 alg = new RemovePointCloudOutliers_F64();
+				if( statistical )
+					alg.setStatistical(8, 1.0);
+				else
+					alg.setRadius(0.2, 3);
+
+				GrowQueue_B expected = new GrowQueue_B();
+				GrowQueue_B found = new GrowQueue_B();
+				int totalExpected = alg.process(points, expected);
+				double threshold = alg.getThreshold();
+				int totalFound = alg.processParallel(points, found);
+
+				assertEquals(totalExpected, totalFound);
+				assertEquals(threshold, alg.getThreshold());
+				for (int i = 0; i < points.size(); i++) {
+					assertEquals(expected.get(i), found.get(i));
+				}
+			}
+		} finally {
+			GrlConcurrency.setPool(original);
+		}
+	}
+
+	/**
+	 * A point with no neighbors can't have a mean distance and is an outlier
+	 */
+	@Test
+	void singlePoint() {
+		List<Point3D_F64> points = new ArrayList<>();
+		points.add(new Point3D_F64(1, 2, 3));
+
+		RemovePointCloudOutliers_F64 alg = new RemovePointCloudOutliers_F64();
+		GrowQueue_B inliers = new GrowQueue_B();
+		assertEquals(0, alg.process(points, inliers));
+		assertEquals(1, inliers.size);
+		assertFalse(inliers.get(0));
+		assertTrue(Double.isNaN(alg.getMeanDistances().get(0)));
+
+		// zero neighbors are required so it's an inlier
+		alg.setRadius(1.0, 0);
+		assertEquals(1, alg.process(points, inliers));
+		assertTrue(inliers.get(0));
+	}
+
+	@Test
+	void empty() {
+		RemovePointCloudOutliers_F64 alg = new RemovePointCloudOutliers_F64();
+		GrowQueue_B inliers = GrowQueue_B.zeros(5);
+		assertEquals(0, alg.process(new ArrayList<>(), inliers));
+		assertEquals(0, inliers.size);
+	}
+
+	@Test
+	void badSettings() {
+		RemovePointCloudOutliers_F64 alg = new RemovePointCloudOutliers_F64();
+		assertThrows(IllegalArgumentException.class, () -> alg.setStatistical(0, 1.0));
+		assertThrows(IllegalArgumentException.class, () -> alg.setRadius(0, 1));
+		assertThrows(IllegalArgumentException.class, () -> alg.setRadius(1, -1));
+	}
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.fitting.cloud;
+
+import georegression.misc.GrlConcurrency;
+import georegression.misc.GrlConstants;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.point.PointCloud3D_F64;
+import org.ddogleg.struct.FastQueue;
+import org.ddogleg.struct.GrowQueue_I32;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestVoxelGridDownsample_F64 {
+	Random rand = new Random(234);
+
+	/**
+	 * Compare against a simple implementation that uses a HashMap
+	 */
+	@Test
+	void centroid() {
+		PointCloud3D_F64 cloud = randomCloud(2000);
+		double size = 0.3;
+
+		VoxelGridDownsample_F64 alg = new VoxelGridDownsample_F64(size, VoxelGridDownsample_F64.Mode.CENTROID);
+		PointCloud3D_F64 found = new PointCloud3D_F64();
+		alg.process(cloud, found);
+
+		List<List<Point3D_F64>> voxels = bruteForce(cloud, size);
+		assertEquals(voxels.size(), found.size);
+		assertEquals(voxels.size(), alg.getVoxelCount());
+		for (int i = 0; i < voxels.size(); i++) {
+			Point3D_F64 expected = new Point3D_F64();
+			for (Point3D_F64 p : voxels.get(i)) {
+				expected.plusIP(p);
+			}
+			expected.divideIP(voxels.get(i).size());
+			assertEquals(0.0, expected.distance(found.get(i, null)), GrlConstants.TEST_F64);
+		}
+	}
+
+	@Test
+	void first() {
+		PointCloud3D_F64 cloud = randomCloud(2000);
+		double size = 0.3;
+
+		VoxelGridDownsample_F64 alg = new VoxelGridDownsample_F64(size, VoxelGridDownsample_F64.Mode.FIRST);
+		PointCloud3D_F64 found = new PointCloud3D_F64();
+		alg.process(cloud, found);
+
+		List<List<Point3D_F64>> voxels = bruteForce(cloud, size);
+		assertEquals(voxels.size(), found.size);
+		for (int i = 0; i < voxels.size(); i++) {
+			assertEquals(0.0, voxels.get(i).get(0).distance(found.get(i, null)), 0.0);
+			assertEquals(0.0, cloud.get(alg.getFirstPoint().get(i), null).distance(found.get(i, null)), 0.0);
+		}
+
+		// every point should be assigned to the voxel with its first point
+		for (int i = 0; i < cloud.size; i++) {
+			int voxel = alg.getPointToVoxel().get(i);
+			int first = alg.getFirstPoint().get(voxel);
+			for (int axis = 0; axis < 3; axis++) {
+				double v = cloud.data[i*3 + axis], f = cloud.data[first*3 + axis];
+				assertEquals((int)((v + 10.0)/size), (int)((f + 10.0)/size));
+			}
+		}
+	}
+
+	/**
+	 * The input and output cloud are the same instance
+	 */
+	@Test
+	void inPlace() {
+		for (VoxelGridDownsample_F64.Mode mode : VoxelGridDownsample_F64.Mode.values()) {
+			PointCloud3D_F64 cloud = randomCloud(2000);
+			VoxelGridDownsample_F64 alg = new VoxelGridDownsample_F64(0.25, mode);
+			PointCloud3D_F64 expected = new PointCloud3D_F64();
+			alg.process(cloud, expected);
+			alg.process(cloud, cloud);
+			assertEquals(expected.size, cloud.size);
+			for (int i = 0; i < expected.size*3; i++) {
+				assertEquals(expected.data[i], cloud.data[i], 0.0);
+			}
+		}
+	}
+
+	@Test
+	void list() {
+		for (VoxelGridDownsample_F64.Mode mode : VoxelGridDownsample_F64.Mode.values()) {
+			PointCloud3D_F64 cloud = randomCloud(2000);
+			List<Point3D_F64> points = cloud.toList(null);
+
+			VoxelGridDownsample_F64 alg = new VoxelGridDownsample_F64(0.25, mode);
+			PointCloud3D_F64 expected = new PointCloud3D_F64();
+			alg.process(cloud, expected);
+
+			FastQueue<Point3D_F64> found = new FastQueue<>(Point3D_F64::new);
+			alg.process(points, found);
+			assertEquals(expected.size, found.size);
+			for (int i = 0; i < found.size; i++) {
+				assertEquals(0.0, expected.get(i, null).distance(found.get(i)), 0.0);
+			}
+
+			alg.processParallel(points, found);
+			assertEquals(expected.size, found.size);
+			for (int i = 0; i < found.size; i++) {
+				assertEquals(0.0, expected.get(i, null).distance(found.get(i)), 0.0);
+			}
+		}
+	}
+
+	/**
+	 * The concurrent implementation should produce identical results
+	 */
+	@Test
+	void parallel() {
+		ForkJoinPool original = GrlConcurrency.getPool();
+		GrlConcurrency.setMaxThreads(4);
+		try {
+			for (VoxelGridDownsample_F64.Mode mode : VoxelGridDownsample_F64.Mode.values()) {
+				PointCloud3D_F64 cloud = randomCloud(50_000);
+				VoxelGridDownsample_F64 alg = new VoxelGridDownsample_F64(0.1, mode);
+				PointCloud3D_F64 expected = new PointCloud3D_F64();
+				PointCloud3D_F64 found = new PointCloud3D_F64();
+				alg.process(cloud, expected);
+				GrowQueue_I32 pointToVoxel = alg.getPointToVoxel().copy();
+				alg.processParallel(cloud, found);
+
+				assertEquals(expected.size, found.size);
+				for (int i = 0; i < expected.size*3; i++) {
+					assertEquals(expected.data[i], found.data[i], 0.0);
+				}
+				for (int i = 0; i < cloud.size; i++) {
+					assertEquals(pointToVoxel.get(i), alg.getPointToVoxel().get(i));
+				}
+			}
+		} finally {
+			GrlConcurrency.setPool(original);
+		}
+	}
+
+	/**
+	 * Cloud far from the origin. The grid should be relative to the cloud
+	 */
+	@Test
+	void farFromOrigin() {
+		PointCloud3D_F64 cloud = new PointCloud3D_F64();
+		cloud.add(5000, 10000, -3000);
+		cloud.add(5000.05, 10000, -3000);
+		cloud.add(5000.15, 10000, -3000);
+
+		VoxelGridDownsample_F64 alg = new VoxelGridDownsample_F64(0.1, VoxelGridDownsample_F64.Mode.CENTROID);
+		PointCloud3D_F64 found = new PointCloud3D_F64();
+		alg.process(cloud, found);
+		assertEquals(2, found.size);
+		assertEquals(5000.025, found.getX(0), GrlConstants.TEST_SQ_F64);
+		assertEquals(5000.15, found.getX(1), GrlConstants.TEST_SQ_F64);
+	}
+
+	@Test
+	void empty() {
+		VoxelGridDownsample_F64 alg = new VoxelGridDownsample_F64(0.1, VoxelGridDownsample_F64.Mode.CENTROID);
+		PointCloud3D_F64 found = new PointCloud3D_F64();
+		found.add(1, 2, 3);
+		alg.process(new PointCloud3D_F64(), found);
+		assertEquals(0, found.size);
+		alg.processParallel(new PointCloud3D_F64(), found);
+		assertEquals(0, found.size);
+	}
+
+	@Test
+	void badInput() {
+		assertThrows(IllegalArgumentException.class,
+				() -> new VoxelGridDownsample_F64(0, VoxelGridDownsample_F64.Mode.FIRST));
+
+		// too many voxels along one axis
+		PointCloud3D_F64 cloud = new PointCloud3D_F64();
+		cloud.add(0, 0, 0);
+		cloud.add(0, 10_000_000, 0);
+		VoxelGridDownsample_F64 alg = new VoxelGridDownsample_F64(1, VoxelGridDownsample_F64.Mode.FIRST);
+		assertThrows(IllegalArgumentException.class, () -> alg.process(cloud, new PointCloud3D_F64()));
+	}
+
+	/**
+	 * Groups points into voxels using a HashMap. Voxels are ordered by their first point.
+	 */
+	private static List<List<Point3D_F64>> bruteForce( PointCloud3D_F64 cloud , double size ) {
+		Map<String, List<Point3D_F64>> map = new HashMap<>();
+		List<List<Point3D_F64>> voxels = new ArrayList<>();
+		for (int i = 0; i < cloud.size; i++) {
+			Point3D_F64 p = cloud.get(i, null);
+			// the grid is aligned to -10 since every cloud has a point at that coordinate
+			String key = (int)((p.x + 10.0)/size) + " " + (int)((p.y + 10.0)/size) + " " + (int)((p.z + 10.0)/size);
+			List<Point3D_F64> voxel = map.get(key);
+			if( voxel == null ) {
+				voxel = new ArrayList<>();
+				map.put(key, voxel);
+				voxels.add(voxel);
+			}
+			voxel.add(p);
+		}
+		return voxels;
+	}
+
+	/**
+	 * Random cloud with a point at the lower corner so that the voxel grid is at a known location
+	 */
+	private PointCloud3D_F64 randomCloud( int N ) {
+		PointCloud3D_F64 cloud = new PointCloud3D_F64();
+		cloud.add(-10, -10, -10);
+		for (int i = 1; i < N; i++) {
+			cloud.add(rand.nextDouble()*4 - 2, rand.nextDouble()*4 - 2, rand.nextDouble()*4 - 2);
+		}
+		return cloud;
+	}
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.fitting.curves;
+
+import georegression.fitting.sphere.AlgebraicHypersphere_F64.Method;
+import georegression.geometry.UtilCircle2D_F64;
+import georegression.misc.GrlConstants;
+import georegression.struct.point.Point2D_F64;
+import georegression.struct.trig.Circle2D_F64;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestFitCircleAlgebraic_F64 {
+
+	Random rand = new Random(234);
+
+	/**
+	 * Creates points along an arc of the circle
+	 */
+	List<Point2D_F64> createPoints( Circle2D_F64 circle, double maxAngle, double noise, int N ) {
+		List<Point2D_F64> points = new ArrayList<>();
+		for (int i = 0; i < N; i++) {
+			double theta = rand.nextDouble()*maxAngle;
+			double c = Math.cos(theta);
+			double s = Math.sin(theta);
+			double x = circle.center.x + circle.radius*c + rand.nextGaussian()*noise;
+			double y = circle.center.y + circle.radius*s + rand.nextGaussian()*noise;
+			points.add(new Point2D_F64(x, y));
+		}
+		return points;
+	}
+
+	@Test
+	void perfect() {
+		for (Method method : Method.values()) {
+			for (double maxAngle : new double[]{GrlConstants.PI2, 0.5}) {
+				Circle2D_F64 circle = new Circle2D_F64(2, 3, -1);
+				List<Point2D_F64> points = createPoints(circle, maxAngle, 0, 30);
+
+				FitCircleAlgebraic_F64 alg = new FitCircleAlgebraic_F64(method);
+				Circle2D_F64 found = new Circle2D_F64();
+				assertTrue(alg.process(points, found));
+
+				assertEquals(0, circle.center.distance(found.center), GrlConstants.TEST_SQ_F64);
+				assertEquals(circle.radius, found.radius, GrlConstants.TEST_SQ_F64);
+			}
+		}
+	}
+
+	/**
+	 * With three points the solution should be the same as the one found by {@link UtilCircle2D_F64#circle}
+	 */
+	@Test
+	void threePoints() {
+		Point2D_F64 a = new Point2D_F64(1, 2);
+		Point2D_F64 b = new Point2D_F64(4, 3);
+		Point2D_F64 c = new Point2D_F64(2, -1);
+		Circle2D_F64 expected = new Circle2D_F64();
+		assertTrue(UtilCircle2D_F64.circle(a, b, c, expected));
+
+		for (Method method : Method.values()) {
+			FitCircleAlgebraic_F64 alg = new FitCircleAlgebraic_F64(method);
+			alg.add(a);
+			alg.add(b);
+			alg.add(c);
+			Circle2D_F64 found = new Circle2D_F64();
+			assertTrue(alg.process(found));
+
+			assertEquals(0, expected.center.distance(found.center), GrlConstants.TEST_SQ_F64);
+			assertEquals(expected.radius, found.radius, GrlConstants.TEST_SQ_F64);
+		}
+	}
+
+	/**
+	 * Noisy points along a short arc. Kasa is known to be biased towards smaller circles
+	 */
+	@Test
+	void noisyArc() {
+		Circle2D_F64 circle = new Circle2D_F64(2, 3, -1);
+		List<Point2D_F64> points = createPoints(circle, 1.5, 0.05, 5000);
+
+		Circle2D_F64 kasa = new Circle2D_F64();
+		Circle2D_F64 pratt = new Circle2D_F64();
+		Circle2D_F64 taubin = new Circle2D_F64();
+		assertTrue(new FitCircleAlgebraic_F64(Method.KASA).process(points, kasa));
+		assertTrue(new FitCircleAlgebraic_F64(Method.PRATT).process(points, pratt));
+		assertTrue(new FitCircleAlgebraic_F64(Method.TAUBIN).process(points, taubin));
+
+		double errorKasa = Math.abs(kasa.radius - circle.radius);
+		assertTrue(kasa.radius < circle.radius);
+		assertTrue(Math.abs(pratt.radius - circle.radius) < errorKasa);
+		assertTrue(Math.abs(taubin.radius - circle.radius) < errorKasa);
+		assertEquals(circle.radius, taubin.radius, 0.1);
+		assertEquals(0, circle.center.distance(taubin.center), 0.1);
+	}
+
+	@Test
+	void merge() {
+		Circle2D_F64 circle = new Circle2D_F64(2, 3, -1);
+		List<Point2D_F64> points = createPoints(circle, 2.0, 0.05, 300);
+
+		FitCircleAlgebraic_F64 all = new FitCircleAlgebraic_F64();
+		all.addAll(points);
+
+		FitCircleAlgebraic_F64 merged = new FitCircleAlgebraic_F64();
+		FitCircleAlgebraic_F64 partial = new FitCircleAlgebraic_F64();
+		for (int start = 0; start < points.size(); start += 100) {
+			partial.reset();
+			partial.addAll(points.subList(start, start + 100));
+			merged.merge(partial);
+		}
+		assertEquals(all.size(), merged.size());
+
+		Circle2D_F64 expected = new Circle2D_F64();
+		Circle2D_F64 found = new Circle2D_F64();
+		assertTrue(all.process(expected));
+		assertTrue(merged.process(found));
+		assertEquals(0, expected.center.distance(found.center), GrlConstants.TEST_SQ_F64);
+		assertEquals(expected.radius, found.radius, GrlConstants.TEST_SQ_F64);
+	}
+
+	@Test
+	void packed_vs_list() {
+		Circle2D_F64 circle = new Circle2D_F64(2, 3, -1);
+		List<Point2D_F64> points = createPoints(circle, 2.0, 0.05, 100);
+		double[] packed = new double[points.size()*2 + 4];
+		for (int i = 0; i < points.size(); i++) {
+			packed[4 + i*2] = points.get(i).x;
+			packed[4 + i*2 + 1] = points.get(i).y;
+		}
+
+		FitCircleAlgebraic_F64 alg = new FitCircleAlgebraic_F64();
+		Circle2D_F64 expected = new Circle2D_F64();
+		Circle2D_F64 found = new Circle2D_F64();
+		assertTrue(alg.process(points, expected));
+		alg.reset();
+		alg.addAll(packed, 4, points.size());
+		assertTrue(alg.process(found));
+
+		assertEquals(0, expected.center.distance(found.center), GrlConstants.TEST_F64);
+		assertEquals(expected.radius, found.radius, GrlConstants.TEST_F64);
+	}
+
+	@Test
+	void degenerate() {
+		for (Method method : Method.values()) {
+			FitCircleAlgebraic_F64 alg = new FitCircleAlgebraic_F64(method);
+			Circle2D_F64 found = new Circle2D_F64();
+
+			// too few points
+			alg.add(1, 0);
+			alg.add(0, 1);
+			assertFalse(alg.process(found));
+
+			// all the points lie along a line
+			alg.reset();
+			for (int i = 0; i < 20; i++) {
+				double t = rand.nextGaussian();
+				alg.add(1 + t, 2 - 2*t);
+			}
+			assertFalse(alg.process(found));
+		}
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.fitting.cylinder;
+
+import georegression.fitting.DistanceFromModelPacked_F64;
+import georegression.fitting.GeneralDistanceFromModelPackedTests_F64;
+import georegression.metric.Distance3D_F64;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.point.Vector3D_F64;
+import georegression.struct.shapes.Cylinder3D_F64;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestDistanceFromModelCylinder3D_F64
+		extends GeneralDistanceFromModelPackedTests_F64<Cylinder3D_F64,Point3D_F64> {
+
+	@Override
+	public DistanceFromModelPacked_F64<Cylinder3D_F64, Point3D_F64> createAlg() {
+		return new DistanceFromModelCylinder3D_F64();
+	}
+
+	@Override
+	public Cylinder3D_F64 createRandomModel() {
+		// the slope is intentionally not a unit vector
+		return new Cylinder3D_F64(
+				rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian(),
+				rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian(),
+				2.5 + rand.nextDouble());
+	}
+
+	@Override
+	public Point3D_F64 createPoint( Cylinder3D_F64 model, double distance ) {
+		Vector3D_F64 slope = model.line.slope.copy();
+		slope.normalize();
+
+		// direction perpendicular to the axis
+		Vector3D_F64 v = new Vector3D_F64(rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian());
+		Vector3D_F64 perp = slope.cross(v);
+		perp.normalize();
+
+		double t = rand.nextGaussian();
+		double r = model.radius + (rand.nextBoolean() ? distance : -distance);
+		return new Point3D_F64(
+				model.line.p.x + t*slope.x + r*perp.x,
+				model.line.p.y + t*slope.y + r*perp.y,
+				model.line.p.z + t*slope.z + r*perp.z);
+	}
+
+	@Override
+	public double distance( Cylinder3D_F64 model, Point3D_F64 point ) {
+		return Math.abs(Distance3D_F64.distance(model, point));
+	}
+
+	@Override
+	public void pack( Point3D_F64 point, double[] array, int offset ) {
+		array[offset] = point.x;
+		array[offset + 1] = point.y;
+		array[offset + 2] = point.z;
+	}
+}
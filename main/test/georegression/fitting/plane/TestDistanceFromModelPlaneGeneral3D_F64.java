@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.fitting.plane;
+
+import georegression.fitting.DistanceFromModelPacked_F64;
+import georegression.fitting.GeneralDistanceFromModelPackedTests_F64;
+import georegression.geometry.UtilPlane3D_F64;
+import georegression.metric.Distance3D_F64;
+import georegression.struct.plane.PlaneGeneral3D_F64;
+import georegression.struct.plane.PlaneNormal3D_F64;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.point.Vector3D_F64;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestDistanceFromModelPlaneGeneral3D_F64
+		extends GeneralDistanceFromModelPackedTests_F64<PlaneGeneral3D_F64,Point3D_F64> {
+
+	@Override
+	public DistanceFromModelPacked_F64<PlaneGeneral3D_F64, Point3D_F64> createAlg() {
+		return new DistanceFromModelPlaneGeneral3D_F64();
+	}
+
+	@Override
+	public PlaneGeneral3D_F64 createRandomModel() {
+		// the normal is intentionally not a unit vector
+		PlaneNormal3D_F64 plane = new PlaneNormal3D_F64(
+				rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian(),
+				rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian());
+		return UtilPlane3D_F64.convert(plane, null);
+	}
+
+	@Override
+	public Point3D_F64 createPoint( PlaneGeneral3D_F64 model, double distance ) {
+		PlaneNormal3D_F64 plane = UtilPlane3D_F64.convert(model, null);
+		Vector3D_F64 n = plane.n.copy();
+		n.normalize();
+
+		// random point on the plane
+		Vector3D_F64 v = new Vector3D_F64(rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian());
+		Vector3D_F64 tangent = n.cross(v);
+
+		double sign = rand.nextBoolean() ? 1 : -1;
+		return new Point3D_F64(
+				plane.p.x + tangent.x + sign*distance*n.x,
+				plane.p.y + tangent.y + sign*distance*n.y,
+				plane.p.z + tangent.z + sign*distance*n.z);
+	}
+
+	@Override
+	public double distance( PlaneGeneral3D_F64 model, Point3D_F64 point ) {
+		return Math.abs(Distance3D_F64.distance(model, point));
+	}
+
+	@Override
+	public void pack( Point3D_F64 point, double[] array, int offset ) {
+		array[offset] = point.x;
+		array[offset + 1] = point.y;
+		array[offset + 2] = point.z;
+	}
+}
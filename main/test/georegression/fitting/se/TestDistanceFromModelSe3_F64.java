@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.fitting.se;
+
+import georegression.fitting.DistanceFromModelPacked_F64;
+import georegression.fitting.GeneralDistanceFromModelPackedTests_F64;
+import georegression.struct.point.AssociatedPair3D_F64;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.point.Vector3D_F64;
+import georegression.struct.se.Se3_F64;
+import georegression.struct.se.SpecialEuclideanOps_F64;
+import georegression.transform.se.SePointOps_F64;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestDistanceFromModelSe3_F64
+		extends GeneralDistanceFromModelPackedTests_F64<Se3_F64,AssociatedPair3D_F64> {
+
+	@Override
+	public DistanceFromModelPacked_F64<Se3_F64, AssociatedPair3D_F64> createAlg() {
+		return new DistanceFromModelSe3_F64();
+	}
+
+	@Override
+	public Se3_F64 createRandomModel() {
+		return SpecialEuclideanOps_F64.eulerXyz(
+				rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian(),
+				rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian(), null);
+	}
+
+	@Override
+	public AssociatedPair3D_F64 createPoint( Se3_F64 model, double distance ) {
+		AssociatedPair3D_F64 pair = new AssociatedPair3D_F64();
+		pair.src.set(rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian());
+		SePointOps_F64.transform(model, pair.src, pair.dst);
+
+		// move the dst point away from where it should be
+		Vector3D_F64 v = new Vector3D_F64(rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian());
+		v.normalize();
+		pair.dst.x += distance*v.x;
+		pair.dst.y += distance*v.y;
+		pair.dst.z += distance*v.z;
+		return pair;
+	}
+
+	@Override
+	public double distance( Se3_F64 model, AssociatedPair3D_F64 pair ) {
+		Point3D_F64 expected = SePointOps_F64.transform(model, pair.src, null);
+		return expected.distance(pair.dst);
+	}
+
+	@Override
+	public void pack( AssociatedPair3D_F64 pair, double[] array, int offset ) {
+		array[offset] = pair.src.x;
+		array[offset + 1] = pair.src.y;
+		array[offset + 2] = pair.src.z;
+		array[offset + 3] = pair.dst.x;
+		array[offset + 4] = pair.dst.y;
+		array[offset + 5] = pair.dst.z;
+	}
+}
@@ -30,6 +30,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -72,4 +73,57 @@ public class TestMotionSe2PointSVD_F64 {
 			GeometryUnitTest.assertEquals( dst.get( i ), foundPt, tol );
 		}
 	}
+
+	@Test
+	void processBatch() {
+		Se2_F64 motion = new Se2_F64( 2, -4, 0.93 );
+		List<Point2D_F64> src = UtilPoint2D_F64.random( -10, 10, 50, rand );
+		List<Point2D_F64> dst = new ArrayList<>();
+		for (Point2D_F64 p : src) {
+			Point2D_F64 q = SePointOps_F64.transform(motion, p, null);
+			q.x += rand.nextGaussian()*0.1;
+			q.y += rand.nextGaussian()*0.1;
+			dst.add(q);
+		}
+
+		int sampleSize = 4, numSamples = 300;
+		int[] samples = new int[sampleSize*numSamples];
+		for (int i = 0; i < samples.length; i++) {
+			samples[i] = rand.nextInt(src.size());
+		}
+
+		Se2_F64[] models = new Se2_F64[numSamples];
+		Se2_F64[] modelsParallel = new Se2_F64[numSamples];
+		for (int i = 0; i < numSamples; i++) {
+			models[i] = new Se2_F64();
+			modelsParallel[i] = new Se2_F64();
+		}
+		boolean[] success = new boolean[numSamples];
+		boolean[] successParallel = new boolean[numSamples];
+
+		MotionSe2PointSVD_F64 alg = new MotionSe2PointSVD_F64();
+		alg.processBatch(src, dst, samples, sampleSize, numSamples, models, success);
+		alg.processBatchParallel(src, dst, samples, sampleSize, numSamples, modelsParallel, successParallel);
+
+		// compare against fitting each sample individually
+		List<Point2D_F64> subSrc = new ArrayList<>();
+		List<Point2D_F64> subDst = new ArrayList<>();
+		for (int i = 0; i < numSamples; i++) {
+			subSrc.clear();
+			subDst.clear();
+			for (int j = 0; j < sampleSize; j++) {
+				subSrc.add(src.get(samples[i*sampleSize+j]));
+				subDst.add(dst.get(samples[i*sampleSize+j]));
+			}
+			assertTrue(alg.process(subSrc, subDst));
+			Se2_F64 expected = alg.getTransformSrcToDst();
+			assertTrue(success[i]);
+			assertTrue(successParallel[i]);
+			for (Se2_F64 found : new Se2_F64[]{models[i], modelsParallel[i]}) {
+				assertEquals(expected.T.x, found.T.x, GrlConstants.TEST_F64);
+				assertEquals(expected.T.y, found.T.y, GrlConstants.TEST_F64);
+				assertEquals(expected.getYaw(), found.getYaw(), GrlConstants.TEST_F64);
+			}
+		}
+	}
 }
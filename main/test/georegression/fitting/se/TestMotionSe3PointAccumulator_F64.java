@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package georegression.fitting.se;
+
+import georegression.fitting.MotionTransformPoint;
+import georegression.geometry.UtilPoint3D_F64;
+import georegression.misc.GrlConstants;
+import georegression.struct.EulerType;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.se.Se3_F64;
+import georegression.transform.se.SePointOps_F64;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestMotionSe3PointAccumulator_F64 extends GeneralMotionSe3Tests_F64 {
+
+	@Override
+	MotionTransformPoint<Se3_F64, Point3D_F64> createAlg() {
+		return new MotionSe3PointAccumulator_F64();
+	}
+
+	/**
+	 * Removing points should produce the same state as if they had never been added
+	 */
+	@Test
+	void remove() {
+		List<Point3D_F64> src = new ArrayList<>();
+		List<Point3D_F64> dst = new ArrayList<>();
+		createNoisy(40, src, dst);
+
+		MotionSe3PointAccumulator_F64 expected = new MotionSe3PointAccumulator_F64();
+		MotionSe3PointAccumulator_F64 found = new MotionSe3PointAccumulator_F64();
+
+		for (int i = 0; i < src.size(); i++) {
+			found.add(src.get(i), dst.get(i));
+			if( i >= 10 )
+				expected.add(src.get(i), dst.get(i));
+		}
+		for (int i = 0; i < 10; i++) {
+			found.remove(src.get(i), dst.get(i));
+		}
+
+		assertEquals(expected.size(), found.size());
+		assertIdentical(expected, found);
+	}
+
+	/**
+	 * Merging two partial sums should be the same as adding all the points to one accumulator
+	 */
+	@Test
+	void merge() {
+		List<Point3D_F64> src = new ArrayList<>();
+		List<Point3D_F64> dst = new ArrayList<>();
+		createNoisy(40, src, dst);
+
+		MotionSe3PointAccumulator_F64 expected = new MotionSe3PointAccumulator_F64();
+		MotionSe3PointAccumulator_F64 a = new MotionSe3PointAccumulator_F64();
+		MotionSe3PointAccumulator_F64 b = new MotionSe3PointAccumulator_F64();
+
+		for (int i = 0; i < src.size(); i++) {
+			expected.add(src.get(i), dst.get(i));
+			if( i < 15 )
+				a.add(src.get(i), dst.get(i));
+			else
+				b.add(src.get(i), dst.get(i));
+		}
+
+		a.merge(b);
+		assertEquals(expected.size(), a.size());
+		assertIdentical(expected, a);
+
+		// merging into an empty accumulator
+		MotionSe3PointAccumulator_F64 empty = new MotionSe3PointAccumulator_F64();
+		empty.merge(expected);
+		assertIdentical(expected, empty);
+	}
+
+	/**
+	 * Incremental solution should be the same as the batch solution when there's noise
+	 */
+	@Test
+	void compareToBatch() {
+		List<Point3D_F64> src = new ArrayList<>();
+		List<Point3D_F64> dst = new ArrayList<>();
+		createNoisy(40, src, dst);
+
+		MotionSe3PointSVD_F64 batch = new MotionSe3PointSVD_F64();
+		assertTrue(batch.process(src, dst));
+
+		MotionSe3PointAccumulator_F64 alg = new MotionSe3PointAccumulator_F64();
+		for (int i = 0; i < src.size(); i++) {
+			alg.add(src.get(i), dst.get(i));
+		}
+		assertTrue(alg.process());
+
+		Se3_F64 expected = batch.getTransformSrcToDst();
+		Se3_F64 found = alg.getTransformSrcToDst();
+		assertEquals(0, expected.T.distance(found.T), GrlConstants.TEST_F64);
+		for (int i = 0; i < 9; i++) {
+			assertEquals(expected.R.data[i], found.R.data[i], GrlConstants.TEST_F64);
+		}
+	}
+
+	@Test
+	void notEnoughPoints() {
+		MotionSe3PointAccumulator_F64 alg = new MotionSe3PointAccumulator_F64();
+		assertFalse(alg.process());
+		alg.add(1, 2, 3, 4, 5, 6);
+		alg.add(2, 2, 3, 4, 6, 6);
+		assertFalse(alg.process());
+
+		alg.remove(1, 2, 3, 4, 5, 6);
+		alg.remove(2, 2, 3, 4, 6, 6);
+		assertEquals(0, alg.size());
+		assertEquals(0, alg.getMeanSrc().norm(), GrlConstants.TEST_F64);
+	}
+
+	private void createNoisy( int N, List<Point3D_F64> src, List<Point3D_F64> dst ) {
+		Se3_F64 motion = new Se3_F64();
+		motion.set(1, -2, 0.5, EulerType.XYZ, 0.1, -0.5, 1.2);
+
+		src.addAll(UtilPoint3D_F64.random(-10, 10, N, rand));
+		for (Point3D_F64 p : src) {
+			Point3D_F64 q = SePointOps_F64.transform(motion, p, null);
+			q.x += rand.nextGaussian()*0.1;
+			q.y += rand.nextGaussian()*0.1;
+			q.z += rand.nextGaussian()*0.1;
+			dst.add(q);
+		}
+	}
+
+	private static void assertIdentical( MotionSe3PointAccumulator_F64 a, MotionSe3PointAccumulator_F64 b ) {
+		double tol = GrlConstants.TEST_F64;
+		assertEquals(0, a.meanSrc.distance(b.meanSrc), tol);
+		assertEquals(0, a.meanDst.distance(b.meanDst), tol);
+		// co-moment is a sum and can be large. Use a relative tolerance
+		assertRelative(a.c11, b.c11); assertRelative(a.c12, b.c12); assertRelative(a.c13, b.c13);
+		assertRelative(a.c21, b.c21); assertRelative(a.c22, b.c22); assertRelative(a.c23, b.c23);
+		assertRelative(a.c31, b.c31); assertRelative(a.c32, b.c32); assertRelative(a.c33, b.c33);
+	}
+
+	private static void assertRelative( double expected, double found ) {
+		assertEquals(expected, found, GrlConstants.TEST_F64*Math.max(1, Math.abs(expected)));
+	}
+}
@@ -19,8 +19,19 @@
 package georegression.fitting.se;
 
 import georegression.fitting.MotionTransformPoint;
+import georegression.geometry.UtilPoint3D_F64;
+import georegression.misc.GrlConstants;
+import georegression.struct.EulerType;
 import georegression.struct.point.Point3D_F64;
 import georegression.struct.se.Se3_F64;
+import georegression.transform.se.SePointOps_F64;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * @author Peter Abeles
@@ -32,4 +43,59 @@ public class TestMotionSe3PointSVD_F64 extends GeneralMotionSe3Tests_F64 {
 		return new MotionSe3PointSVD_F64();
 	}
 
+	@Test
+	void processBatch() {
+		Se3_F64 motion = new Se3_F64();
+		motion.set(1, -2, 0.5, EulerType.XYZ, 0.1, -0.5, 1.2);
+		List<Point3D_F64> src = UtilPoint3D_F64.random(-10, 10, 50, rand);
+		List<Point3D_F64> dst = new ArrayList<>();
+		for (Point3D_F64 p : src) {
+			Point3D_F64 q = SePointOps_F64.transform(motion, p, null);
+			q.x += rand.nextGaussian()*0.1;
+			q.y += rand.nextGaussian()*0.1;
+			q.z += rand.nextGaussian()*0.1;
+			dst.add(q);
+		}
+
+		int sampleSize = 4, numSamples = 300;
+		int[] samples = new int[sampleSize*numSamples];
+		for (int i = 0; i < samples.length; i++) {
+			samples[i] = rand.nextInt(src.size());
+		}
+
+		Se3_F64[] models = new Se3_F64[numSamples];
+		Se3_F64[] modelsParallel = new Se3_F64[numSamples];
+		for (int i = 0; i < numSamples; i++) {
+			models[i] = new Se3_F64();
+			modelsParallel[i] = new Se3_F64();
+		}
+		boolean[] success = new boolean[numSamples];
+		boolean[] successParallel = new boolean[numSamples];
+
+		MotionSe3PointSVD_F64 alg = new MotionSe3PointSVD_F64();
+		alg.processBatch(src, dst, samples, sampleSize, numSamples, models, success);
+		alg.processBatchParallel(src, dst, samples, sampleSize, numSamples, modelsParallel, successParallel);
+
+		// compare against fitting each sample individually
+		List<Point3D_F64> subSrc = new ArrayList<>();
+		List<Point3D_F64> subDst = new ArrayList<>();
+		for (int i = 0; i < numSamples; i++) {
+			subSrc.clear();
+			subDst.clear();
+			for (int j = 0; j < sampleSize; j++) {
+				subSrc.add(src.get(samples[i*sampleSize+j]));
+				subDst.add(dst.get(samples[i*sampleSize+j]));
+			}
+			assertTrue(alg.process(subSrc, subDst));
+			Se3_F64 expected = alg.getTransformSrcToDst();
+			assertTrue(success[i]);
+			assertTrue(successParallel[i]);
+			for (Se3_F64 found : new Se3_F64[]{models[i], modelsParallel[i]}) {
+				for (int k = 0; k < 9; k++) {
+					assertEquals(expected.R.data[k], found.R.data[k], GrlConstants.TEST_F64);
+				}
+				assertEquals(0, expected.T.distance(found.T), GrlConstants.TEST_F64);
+			}
+		}
+	}
 }
@@ -0,0 +1,314 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.fitting.se;
+
+import georegression.misc.GrlConcurrency;
+import georegression.misc.GrlConstants;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.point.PointCloud3D_F64;
+import georegression.struct.point.Vector3D_F64;
+import georegression.struct.se.Se3_F64;
+import georegression.struct.se.SpecialEuclideanOps_F64;
+import georegression.transform.se.SePointOps_F64;
+import org.ddogleg.struct.GrowQueue_F64;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestMotionSe3PointToPlane_F64 {
+	Random rand = new Random(234);
+
+	List<Point3D_F64> src = new ArrayList<>();
+	List<Point3D_F64> dst = new ArrayList<>();
+	List<Vector3D_F64> normals = new ArrayList<>();
+
+	/**
+	 * The points are already aligned. Solution should be the identity
+	 */
+	@Test
+	void noMotion() {
+		createPlanes(60, new Se3_F64());
+
+		MotionSe3PointToPlane_F64 alg = new MotionSe3PointToPlane_F64();
+		assertTrue(alg.process(src, dst, normals));
+
+		assertEquals(0.0, alg.getErrorSq(), GrlConstants.TEST_F64);
+		assertTrue(SpecialEuclideanOps_F64.isIdentical(new Se3_F64(), alg.getTransformSrcToDst(),
+				GrlConstants.TEST_F64, GrlConstants.TEST_F64));
+	}
+
+	/**
+	 * Pure translation has no linearization error
+	 */
+	@Test
+	void translation() {
+		Se3_F64 srcToDst = SpecialEuclideanOps_F64.eulerXyz(0.5, -0.2, 1.5, 0, 0, 0, null);
+		createPlanes(60, srcToDst);
+
+		MotionSe3PointToPlane_F64 alg = new MotionSe3PointToPlane_F64();
+		assertTrue(alg.process(src, dst, normals));
+		assertTrue(SpecialEuclideanOps_F64.isIdentical(srcToDst, alg.getTransformSrcToDst(),
+				GrlConstants.TEST_F64, GrlConstants.TEST_F64));
+	}
+
+	/**
+	 * With rotation the solution is approximate. Iterating should converge to the true motion.
+	 */
+	@Test
+	void iterate() {
+		Se3_F64 srcToDst = SpecialEuclideanOps_F64.eulerXyz(0.1, -0.2, 0.05, 0.1, -0.05, 0.08, null);
+		createPlanes(60, srcToDst);
+
+		MotionSe3PointToPlane_F64 alg = new MotionSe3PointToPlane_F64();
+		Se3_F64 found = new Se3_F64();
+		Se3_F64 tmp = new Se3_F64();
+		List<Point3D_F64> moved = new ArrayList<>();
+		for (int i = 0; i < src.size(); i++) {
+			moved.add(src.get(i).copy());
+		}
+
+		double previousError = Double.MAX_VALUE;
+		for (int iteration = 0; iteration < 6; iteration++) {
+			assertTrue(alg.process(moved, dst, normals));
+			assertTrue(alg.getErrorSq() <= previousError + GrlConstants.TEST_F64);
+			previousError = alg.getErrorSq();
+
+			Se3_F64 delta = alg.getTransformSrcToDst();
+			found.concat(delta, tmp);
+			found.set(tmp);
+			for (int i = 0; i < src.size(); i++) {
+				SePointOps_F64.transform(found, src.get(i), moved.get(i));
+			}
+		}
+
+		assertTrue(SpecialEuclideanOps_F64.isIdentical(srcToDst, found,
+				GrlConstants.TEST_SQ_F64, GrlConstants.TEST_SQ_F64));
+	}
+
+	@Test
+	void packed() {
+		Se3_F64 srcToDst = SpecialEuclideanOps_F64.eulerXyz(0.1, -0.2, 0.05, 0.1, -0.05, 0.08, null);
+		createPlanes(60, srcToDst);
+
+		PointCloud3D_F64 cloudSrc = new PointCloud3D_F64();
+		PointCloud3D_F64 cloudDst = new PointCloud3D_F64();
+		GrowQueue_F64 packedNormals = new GrowQueue_F64();
+		cloudSrc.setTo(src);
+		cloudDst.setTo(dst);
+		for (Vector3D_F64 n : normals) {
+			packedNormals.add(n.x);
+			packedNormals.add(n.y);
+			packedNormals.add(n.z);
+		}
+
+		MotionSe3PointToPlane_F64 expected = new MotionSe3PointToPlane_F64();
+		MotionSe3PointToPlane_F64 found = new MotionSe3PointToPlane_F64();
+		assertTrue(expected.process(src, dst, normals));
+		assertTrue(found.process(cloudSrc, cloudDst, packedNormals));
+		assertIdentical(expected, found, GrlConstants.TEST_F64);
+	}
+
+	/**
+	 * Merging partial sums should be the same as adding everything to one
+	 */
+	@Test
+	void merge() {
+		Se3_F64 srcToDst = SpecialEuclideanOps_F64.eulerXyz(0.1, -0.2, 0.05, 0.1, -0.05, 0.08, null);
+		createPlanes(60, srcToDst);
+
+		MotionSe3PointToPlane_F64 expected = new MotionSe3PointToPlane_F64();
+		MotionSe3PointToPlane_F64 a = new MotionSe3PointToPlane_F64();
+		MotionSe3PointToPlane_F64 b = new MotionSe3PointToPlane_F64();
+		for (int i = 0; i < src.size(); i++) {
+			expected.add(src.get(i), dst.get(i), normals.get(i));
+			if( i < 25 )
+				a.add(src.get(i), dst.get(i), normals.get(i));
+			else
+				b.add(src.get(i), dst.get(i), normals.get(i));
+		}
+		a.merge(b);
+		assertEquals(expected.size(), a.size());
+		assertTrue(expected.process());
+		assertTrue(a.process());
+		assertIdentical(expected, a, GrlConstants.TEST_F64);
+
+		MotionSe3PointToPlane_F64 copy = new MotionSe3PointToPlane_F64();
+		copy.add(1, 2, 3, 4, 5, 6, 1, 0, 0);
+		copy.setTo(expected);
+		assertTrue(copy.process());
+		assertIdentical(expected, copy, GrlConstants.TEST_F64);
+
+		expected.reset();
+		assertEquals(0, expected.size());
+		assertEquals(0.0, expected.getErrorSq());
+	}
+
+	@Test
+	void parallel() {
+		Se3_F64 srcToDst = SpecialEuclideanOps_F64.eulerXyz(0.1, -0.2, 0.05, 0.1, -0.05, 0.08, null);
+		createPlanes(30_000, srcToDst);
+		PointCloud3D_F64 cloudSrc = new PointCloud3D_F64();
+		PointCloud3D_F64 cloudDst = new PointCloud3D_F64();
+		GrowQueue_F64 packedNormals = new GrowQueue_F64();
+		cloudSrc.setTo(src);
+		cloudDst.setTo(dst);
+		for (Vector3D_F64 n : normals) {
+			packedNormals.add(n.x);
+			packedNormals.add(n.y);
+			packedNormals.add(n.z);
+		}
+
+		ForkJoinPool original = GrlConcurrency.getPool();
+		try {
+			GrlConcurrency.setMaxThreads(4);
+			MotionSe3PointToPlane_F64 expected = new MotionSe3PointToPlane_F64();
+			MotionSe3PointToPlane_F64 found = new MotionSe3PointToPlane_F64();
+			assertTrue(expected.process(src, dst, normals));
+
+			// call twice to make sure the partial sums are reset
+			for (int trial = 0; trial < 2; trial++) {
+				assertTrue(found.processParallel(src, dst, normals));
+				assertEquals(src.size(), found.size());
+				assertIdentical(expected, found, GrlConstants.TEST_SQ_F64);
+
+				assertTrue(found.processParallel(cloudSrc, cloudDst, packedNormals));
+				assertEquals(src.size(), found.size());
+				assertIdentical(expected, found, GrlConstants.TEST_SQ_F64);
+			}
+		} finally {
+			GrlConcurrency.setPool(original);
+		}
+	}
+
+	/**
+	 * All the points are on a single plane, which doesn't constrain the motion
+	 */
+	@Test
+	void degenerate() {
+		MotionSe3PointToPlane_F64 alg = new MotionSe3PointToPlane_F64();
+		for (int i = 0; i < 50; i++) {
+			double x = rand.nextGaussian(), y = rand.nextGaussian();
+			alg.add(x, y, 0.1, x, y, 0, 0, 0, 1);
+		}
+		assertFalse(alg.process());
+
+		// too few points
+		alg.reset();
+		for (int i = 0; i < 5; i++) {
+			alg.add(rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian(), 0, 0, 0, 1, 0, 0);
+		}
+		assertFalse(alg.process());
+	}
+
+	@Test
+	void badInput() {
+		createPlanes(10, new Se3_F64());
+		MotionSe3PointToPlane_F64 alg = new MotionSe3PointToPlane_F64();
+		normals.remove(0);
+		assertThrows(IllegalArgumentException.class, () -> alg.process(src, dst, normals));
+	}
+
+	@Test
+	void solveCholesky6() {
+		// random symmetric positive definite matrix
+		double[] M = new double[36];
+		for (int i = 0; i < 36; i++) {
+			M[i] = rand.nextGaussian();
+		}
+		double[] A = new double[36];
+		for (int i = 0; i < 6; i++) {
+			for (int j = 0; j < 6; j++) {
+				double sum = i == j ? 1.0 : 0.0;
+				for (int k = 0; k < 6; k++) {
+					sum += M[i*6 + k]*M[j*6 + k];
+				}
+				A[i*6 + j] = sum;
+			}
+		}
+		double[] x = new double[6];
+		double[] b = new double[6];
+		for (int i = 0; i < 6; i++) {
+			x[i] = rand.nextGaussian();
+		}
+		for (int i = 0; i < 6; i++) {
+			for (int j = 0; j < 6; j++) {
+				b[i] += A[i*6 + j]*x[j];
+			}
+		}
+
+		assertTrue(MotionSe3PointToPlane_F64.solveCholesky6(A.clone(), b));
+		for (int i = 0; i < 6; i++) {
+			assertEquals(x[i], b[i], GrlConstants.TEST_SQ_F64);
+		}
+
+		// not positive definite
+		A[0] = -1;
+		assertFalse(MotionSe3PointToPlane_F64.solveCholesky6(A, b));
+	}
+
+	/**
+	 * Points on three planes with different orientations. The planes are far enough from the origin that
+	 * the rotation vector and translation are not decoupled.
+	 */
+	void createPlanes( int N, Se3_F64 srcToDst ) {
+		src.clear();
+		dst.clear();
+		normals.clear();
+		Vector3D_F64[] planeNormals = new Vector3D_F64[]{
+				new Vector3D_F64(0, 0, 1), new Vector3D_F64(1, 0.2, 0), new Vector3D_F64(-0.1, 1, 0.3)};
+		for (Vector3D_F64 n : planeNormals) {
+			n.normalize();
+		}
+
+		Se3_F64 dstToSrc = srcToDst.invert(null);
+		for (int i = 0; i < N; i++) {
+			Vector3D_F64 n = planeNormals[i%3];
+			// random point on the plane which passes through (1,2,3)
+			Point3D_F64 q = new Point3D_F64(1 + rand.nextGaussian(), 2 + rand.nextGaussian(), 3 + rand.nextGaussian());
+			double d = n.x*(q.x - 1) + n.y*(q.y - 2) + n.z*(q.z - 3);
+			q.x -= d*n.x;
+			q.y -= d*n.y;
+			q.z -= d*n.z;
+
+			Point3D_F64 p = new Point3D_F64();
+			SePointOps_F64.transform(dstToSrc, q, p);
+
+			dst.add(q);
+			normals.add(n.copy());
+			src.add(p);
+		}
+	}
+
+	private static void assertIdentical( MotionSe3PointToPlane_F64 expected, MotionSe3PointToPlane_F64 found,
+										 double tol ) {
+		assertEquals(expected.size(), found.size());
+		assertEquals(expected.getErrorSq(), found.getErrorSq(), tol*Math.max(1, expected.getErrorSq()));
+		assertTrue(SpecialEuclideanOps_F64.isIdentical(expected.getTransformSrcToDst(), found.getTransformSrcToDst(),
+				tol, tol));
+	}
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.fitting.sphere;
+
+import georegression.fitting.sphere.AlgebraicHypersphere_F64.Method;
+import georegression.misc.GrlConstants;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.point.PointCloud3D_F64;
+import georegression.struct.shapes.Sphere3D_F64;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestFitSphereAlgebraic_F64 {
+
+	Random rand = new Random(234);
+
+	/**
+	 * Creates points on the sphere with polar angles from 0 to maxPhi
+	 */
+	List<Point3D_F64> createPoints( Sphere3D_F64 sphere, double maxPhi, double noise, int N ) {
+		List<Point3D_F64> points = new ArrayList<>();
+		for (int i = 0; i < N; i++) {
+			double phi = rand.nextDouble()*maxPhi;
+			double theta = rand.nextDouble()*GrlConstants.PI2;
+			Point3D_F64 p = TestFitSphereToPoints_F64.createPt(sphere, phi, theta);
+			p.x += rand.nextGaussian()*noise;
+			p.y += rand.nextGaussian()*noise;
+			p.z += rand.nextGaussian()*noise;
+			points.add(p);
+		}
+		return points;
+	}
+
+	/**
+	 * All methods are exact with perfect data, even if only part of the sphere is visible
+	 */
+	@Test
+	void perfect() {
+		for (Method method : Method.values()) {
+			for (double maxPhi : new double[]{GrlConstants.PI, 0.5}) {
+				Sphere3D_F64 sphere = new Sphere3D_F64(1, 2, 3, 4);
+				List<Point3D_F64> points = createPoints(sphere, maxPhi, 0, 50);
+
+				FitSphereAlgebraic_F64 alg = new FitSphereAlgebraic_F64(method);
+				Sphere3D_F64 found = new Sphere3D_F64();
+				assertTrue(alg.process(points, found));
+
+				assertEquals(0, sphere.center.distance(found.center), GrlConstants.TEST_SQ_F64);
+				assertEquals(sphere.radius, found.radius, GrlConstants.TEST_SQ_F64);
+			}
+		}
+	}
+
+	/**
+	 * A small sphere far from the origin. Precision should be relative to the sphere's size
+	 */
+	@Test
+	void smallSphereFarAway() {
+		for (Method method : Method.values()) {
+			Sphere3D_F64 sphere = new Sphere3D_F64(1000, -500, 2000, 0.05);
+			List<Point3D_F64> points = createPoints(sphere, GrlConstants.PI, 0, 50);
+
+			FitSphereAlgebraic_F64 alg = new FitSphereAlgebraic_F64(method);
+			Sphere3D_F64 found = new Sphere3D_F64();
+			assertTrue(alg.process(points, found));
+
+			assertEquals(0, sphere.center.distance(found.center), sphere.radius*GrlConstants.TEST_SQ_F64);
+			assertEquals(sphere.radius, found.radius, sphere.radius*GrlConstants.TEST_SQ_F64);
+		}
+	}
+
+	/**
+	 * Noisy points on a cap of the sphere. Kasa is known to be biased towards smaller spheres while the others
+	 * are not
+	 */
+	@Test
+	void noisyCap() {
+		Sphere3D_F64 sphere = new Sphere3D_F64(1, 2, 3, 4);
+		List<Point3D_F64> points = createPoints(sphere, 0.6, 0.1, 5000);
+
+		Sphere3D_F64 kasa = new Sphere3D_F64();
+		Sphere3D_F64 pratt = new Sphere3D_F64();
+		Sphere3D_F64 taubin = new Sphere3D_F64();
+		assertTrue(new FitSphereAlgebraic_F64(Method.KASA).process(points, kasa));
+		assertTrue(new FitSphereAlgebraic_F64(Method.PRATT).process(points, pratt));
+		assertTrue(new FitSphereAlgebraic_F64(Method.TAUBIN).process(points, taubin));
+
+		double errorKasa = Math.abs(kasa.radius - sphere.radius);
+		assertTrue(kasa.radius < sphere.radius);
+		assertTrue(Math.abs(pratt.radius - sphere.radius) < errorKasa);
+		assertTrue(Math.abs(taubin.radius - sphere.radius) < errorKasa);
+		assertEquals(sphere.radius, taubin.radius, 0.2);
+		assertEquals(0, sphere.center.distance(taubin.center), 0.2);
+	}
+
+	/**
+	 * Sums computed from different subsets should produce the same results as when computed all at once
+	 */
+	@Test
+	void merge() {
+		Sphere3D_F64 sphere = new Sphere3D_F64(1, 2, 3, 4);
+		List<Point3D_F64> points = createPoints(sphere, 1.0, 0.05, 300);
+
+		FitSphereAlgebraic_F64 all = new FitSphereAlgebraic_F64();
+		all.addAll(points);
+
+		FitSphereAlgebraic_F64 merged = new FitSphereAlgebraic_F64();
+		FitSphereAlgebraic_F64 partial = new FitSphereAlgebraic_F64();
+		// the first partial goes into an empty accumulator and empty ones are skipped
+		merged.merge(partial);
+		for (int start = 0; start < points.size(); start += 100) {
+			partial.reset();
+			partial.addAll(points.subList(start, start + 100));
+			merged.merge(partial);
+		}
+		assertEquals(all.size(), merged.size());
+
+		// the sums are relative to different origins so compare after moving them to the same origin
+		merged.moveOrigin(all.originX, all.originY, all.originZ);
+		assertEquals(all.sx, merged.sx, GrlConstants.TEST_SQ_F64);
+		assertEquals(all.syz, merged.syz, GrlConstants.TEST_SQ_F64);
+		assertEquals(all.rz, merged.rz, GrlConstants.TEST_SQ_F64);
+		assertEquals(all.w, merged.w, Math.abs(all.w)*GrlConstants.TEST_F64);
+
+		Sphere3D_F64 expected = new Sphere3D_F64();
+		Sphere3D_F64 found = new Sphere3D_F64();
+		assertTrue(all.process(expected));
+		assertTrue(merged.process(found));
+		assertEquals(0, expected.center.distance(found.center), GrlConstants.TEST_SQ_F64);
+		assertEquals(expected.radius, found.radius, GrlConstants.TEST_SQ_F64);
+	}
+
+	/**
+	 * Moving the origin back and forth should not change the sums
+	 */
+	@Test
+	void moveOrigin() {
+		Sphere3D_F64 sphere = new Sphere3D_F64(1, 2, 3, 4);
+		List<Point3D_F64> points = createPoints(sphere, 1.0, 0.05, 100);
+
+		FitSphereAlgebraic_F64 alg = new FitSphereAlgebraic_F64();
+		alg.addAll(points);
+		FitSphereAlgebraic_F64 original = new FitSphereAlgebraic_F64();
+		original.setTo(alg);
+
+		alg.moveOrigin(-2, 5, 1);
+		// compare against sums computed directly
+		double w = 0, ry = 0;
+		for (Point3D_F64 p : points) {
+			double x = p.x + 2, y = p.y - 5, z = p.z - 1;
+			double r2 = x*x + y*y + z*z;
+			ry += r2*y;
+			w += r2*r2;
+		}
+		assertEquals(ry, alg.ry, Math.abs(ry)*GrlConstants.TEST_F64);
+		assertEquals(w, alg.w, Math.abs(w)*GrlConstants.TEST_F64);
+
+		alg.moveOrigin(original.originX, original.originY, original.originZ);
+		assertEquals(original.sxy, alg.sxy, GrlConstants.TEST_SQ_F64);
+		assertEquals(original.rx, alg.rx, GrlConstants.TEST_SQ_F64);
+		assertEquals(original.w, alg.w, Math.abs(original.w)*GrlConstants.TEST_F64);
+	}
+
+	@Test
+	void cloud_vs_list() {
+		Sphere3D_F64 sphere = new Sphere3D_F64(1, 2, 3, 4);
+		List<Point3D_F64> points = createPoints(sphere, 1.0, 0.05, 100);
+		PointCloud3D_F64 cloud = new PointCloud3D_F64();
+		cloud.setTo(points);
+
+		FitSphereAlgebraic_F64 alg = new FitSphereAlgebraic_F64(Method.PRATT);
+		Sphere3D_F64 expected = new Sphere3D_F64();
+		Sphere3D_F64 found = new Sphere3D_F64();
+		assertTrue(alg.process(points, expected));
+		assertTrue(alg.process(cloud, found));
+
+		assertEquals(0, expected.center.distance(found.center), GrlConstants.TEST_F64);
+		assertEquals(expected.radius, found.radius, GrlConstants.TEST_F64);
+	}
+
+	/**
+	 * Fitting should be able to continue after a fit
+	 */
+	@Test
+	void addAfterProcess() {
+		Sphere3D_F64 sphere = new Sphere3D_F64(1, 2, 3, 4);
+		List<Point3D_F64> points = createPoints(sphere, 1.0, 0.05, 100);
+
+		FitSphereAlgebraic_F64 alg = new FitSphereAlgebraic_F64();
+		Sphere3D_F64 expected = new Sphere3D_F64();
+		Sphere3D_F64 found = new Sphere3D_F64();
+		assertTrue(alg.process(points, expected));
+
+		alg.reset();
+		alg.addAll(points.subList(0, 50));
+		assertTrue(alg.process(found));
+		alg.addAll(points.subList(50, 100));
+		assertTrue(alg.process(found));
+
+		assertEquals(0, expected.center.distance(found.center), GrlConstants.TEST_F64);
+		assertEquals(expected.radius, found.radius, GrlConstants.TEST_F64);
+	}
+
+	@Test
+	void degenerate() {
+		for (Method method : Method.values()) {
+			FitSphereAlgebraic_F64 alg = new FitSphereAlgebraic_F64(method);
+			Sphere3D_F64 found = new Sphere3D_F64();
+
+			// too few points
+			alg.add(1, 0, 0);
+			alg.add(0, 1, 0);
+			alg.add(0, 0, 1);
+			assertFalse(alg.process(found));
+
+			// all the points lie on a plane
+			alg.reset();
+			for (int i = 0; i < 20; i++) {
+				alg.add(rand.nextGaussian(), rand.nextGaussian(), 2);
+			}
+			assertFalse(alg.process(found));
+
+			// identical points
+			alg.reset();
+			for (int i = 0; i < 5; i++) {
+				alg.add(1, 2, 3);
+			}
+			assertFalse(alg.process(found));
+		}
+	}
+}
@@ -33,6 +33,8 @@ import java.util.List;
 import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * @author Peter Abeles
@@ -88,6 +90,36 @@ public class TestFitSphereToPoints_F64 {
 		assertEquals(sphere.radius, found.radius, GrlConstants.TEST_F64);
 	}
 
+	/**
+	 * No initial model is provided so the algebraic fit is used instead
+	 */
+	@Test
+	void noInitialModel() {
+		Sphere3D_F64 sphere = new Sphere3D_F64(1,2,3,4);
+
+		List<Point3D_F64> points = new ArrayList<Point3D_F64>();
+		for( int i = 0; i < 50; i++ ) {
+
+			double phi = rand.nextDouble()*GrlConstants.PI2;
+			double theta = rand.nextDouble()*GrlConstants.PI2;
+
+			Point3D_F64 p = createPt(sphere,phi,theta);
+			p.x += rand.nextGaussian()*0.01;
+			points.add(p);
+		}
+
+		FitSphereToPoints_F64 alg = new FitSphereToPoints_F64(200);
+
+		Sphere3D_F64 found = new Sphere3D_F64();
+		assertTrue(alg.fitModel(points, null, found));
+
+		assertEquals(0,sphere.center.distance(found.center),0.01);
+		assertEquals(sphere.radius, found.radius, 0.01);
+
+		// too few points for the algebraic fit
+		assertFalse(alg.fitModel(points.subList(0,3), null, found));
+	}
+
 	public static Point3D_F64 createPt( Sphere3D_F64 sphere , double phi , double theta ) {
 		Point3D_F64 p = new Point3D_F64();
 		p.set(0,0,sphere.radius);
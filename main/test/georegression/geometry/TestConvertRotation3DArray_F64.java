@@ -0,0 +1,252 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.geometry;
+
+import georegression.misc.GrlConstants;
+import georegression.struct.EulerType;
+import georegression.struct.so.Quaternion_F64;
+import georegression.struct.so.Rodrigues_F64;
+import org.ejml.data.DMatrixRMaj;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestConvertRotation3DArray_F64 {
+
+	Random rand = new Random(234);
+
+	int N = 40;
+
+	@Test
+	void quaternionToMatrix() {
+		double[] quats = randomQuaternions();
+		double[] found = new double[N*9];
+		ConvertRotation3DArray_F64.quaternionToMatrix(quats, N, found);
+
+		for (int i = 0; i < N; i++) {
+			DMatrixRMaj expected = ConvertRotation3D_F64.quaternionToMatrix(
+					quats[i*4], quats[i*4 + 1], quats[i*4 + 2], quats[i*4 + 3], null);
+			assertMatrix(expected, found, i);
+		}
+	}
+
+	@Test
+	void matrixToQuaternion() {
+		double[] matrices = new double[N*9];
+		ConvertRotation3DArray_F64.quaternionToMatrix(randomQuaternions(), N, matrices);
+
+		double[] found = new double[N*4];
+		ConvertRotation3DArray_F64.matrixToQuaternion(matrices, N, found);
+
+		for (int i = 0; i < N; i++) {
+			Quaternion_F64 expected = ConvertRotation3D_F64.matrixToQuaternion(toMatrix(matrices, i), null);
+			double sign = expected.w < 0 ? -1 : 1;
+			assertEquals(sign*expected.w, found[i*4], GrlConstants.TEST_F64);
+			assertEquals(sign*expected.x, found[i*4 + 1], GrlConstants.TEST_F64);
+			assertEquals(sign*expected.y, found[i*4 + 2], GrlConstants.TEST_F64);
+			assertEquals(sign*expected.z, found[i*4 + 3], GrlConstants.TEST_F64);
+			assertEquals(true, found[i*4] >= 0);
+		}
+	}
+
+	@Test
+	void eulerToMatrix() {
+		for (EulerType type : EulerType.values()) {
+			double[] euler = randomEuler();
+			double[] found = new double[N*9];
+			ConvertRotation3DArray_F64.eulerToMatrix(type, euler, N, found);
+
+			for (int i = 0; i < N; i++) {
+				DMatrixRMaj expected = ConvertRotation3D_F64.eulerToMatrix(
+						type, euler[i*3], euler[i*3 + 1], euler[i*3 + 2], null);
+				assertMatrix(expected, found, i);
+			}
+		}
+	}
+
+	@Test
+	void eulerToQuaternion() {
+		for (EulerType type : EulerType.values()) {
+			double[] euler = randomEuler();
+			double[] found = new double[N*4];
+			ConvertRotation3DArray_F64.eulerToQuaternion(type, euler, N, found);
+
+			for (int i = 0; i < N; i++) {
+				Quaternion_F64 expected = ConvertRotation3D_F64.eulerToQuaternion(
+						type, euler[i*3], euler[i*3 + 1], euler[i*3 + 2], null);
+				assertEquals(expected.w, found[i*4], GrlConstants.TEST_F64);
+				assertEquals(expected.x, found[i*4 + 1], GrlConstants.TEST_F64);
+				assertEquals(expected.y, found[i*4 + 2], GrlConstants.TEST_F64);
+				assertEquals(expected.z, found[i*4 + 3], GrlConstants.TEST_F64);
+			}
+		}
+	}
+
+	/**
+	 * Includes rotations where the middle angle is singular
+	 */
+	@Test
+	void matrixToEuler() {
+		for (EulerType type : EulerType.values()) {
+			boolean properEuler = type.getAxisA() == type.getAxisC();
+			double[] euler = randomEuler();
+			for (int i = 0; i < N; i += 5) {
+				if( properEuler ) {
+					euler[i*3 + 1] = i%2 == 0 ? 0 : Math.PI;
+				} else {
+					euler[i*3 + 1] = i%2 == 0 ? Math.PI/2 : -Math.PI/2;
+				}
+			}
+			double[] matrices = new double[N*9];
+			ConvertRotation3DArray_F64.eulerToMatrix(type, euler, N, matrices);
+
+			double[] found = new double[N*3];
+			ConvertRotation3DArray_F64.matrixToEuler(matrices, N, type, found);
+
+			for (int i = 0; i < N; i++) {
+				double[] expected = ConvertRotation3D_F64.matrixToEuler(toMatrix(matrices, i), type, null);
+				for (int j = 0; j < 3; j++) {
+					assertEquals(expected[j], found[i*3 + j], GrlConstants.TEST_F64);
+				}
+			}
+		}
+	}
+
+	@Test
+	void rodriguesToMatrix() {
+		double[] rodrigues = randomRodrigues();
+		double[] found = new double[N*9];
+		ConvertRotation3DArray_F64.rodriguesToMatrix(rodrigues, N, found);
+
+		for (int i = 0; i < N; i++) {
+			DMatrixRMaj expected = ConvertRotation3D_F64.rodriguesToMatrix(toRodrigues(rodrigues, i), null);
+			assertMatrix(expected, found, i);
+		}
+	}
+
+	@Test
+	void matrixToRodrigues() {
+		double[] rodrigues = randomRodrigues();
+		double[] matrices = new double[N*9];
+		ConvertRotation3DArray_F64.rodriguesToMatrix(rodrigues, N, matrices);
+
+		double[] found = new double[N*3];
+		ConvertRotation3DArray_F64.matrixToRodrigues(matrices, N, found);
+
+		for (int i = 0; i < N*3; i++) {
+			assertEquals(rodrigues[i], found[i], GrlConstants.TEST_F64);
+		}
+	}
+
+	@Test
+	void quaternionToRodrigues() {
+		double[] quats = randomQuaternions();
+		// include the identity
+		quats[0] = 1; quats[1] = 0; quats[2] = 0; quats[3] = 0;
+
+		double[] found = new double[N*3];
+		ConvertRotation3DArray_F64.quaternionToRodrigues(quats, N, found);
+
+		double[] expected = new double[N*9];
+		double[] foundR = new double[N*9];
+		ConvertRotation3DArray_F64.quaternionToMatrix(quats, N, expected);
+		ConvertRotation3DArray_F64.rodriguesToMatrix(found, N, foundR);
+
+		for (int i = 0; i < N*9; i++) {
+			assertEquals(expected[i], foundR[i], GrlConstants.TEST_F64);
+		}
+	}
+
+	@Test
+	void rodriguesToQuaternion() {
+		double[] rodrigues = randomRodrigues();
+		// include the identity and a small angle
+		rodrigues[0] = 0; rodrigues[1] = 0; rodrigues[2] = 0;
+		rodrigues[3] = 0.001; rodrigues[4] = 0; rodrigues[5] = 0;
+
+		double[] found = new double[N*4];
+		ConvertRotation3DArray_F64.rodriguesToQuaternion(rodrigues, N, found);
+
+		for (int i = 0; i < N; i++) {
+			Rodrigues_F64 rod = toRodrigues(rodrigues, i);
+			Quaternion_F64 expected = rod.theta == 0 ? new Quaternion_F64() :
+					ConvertRotation3D_F64.rodriguesToQuaternion(rod, null);
+			assertEquals(expected.w, found[i*4], GrlConstants.TEST_F64);
+			assertEquals(expected.x, found[i*4 + 1], GrlConstants.TEST_F64);
+			assertEquals(expected.y, found[i*4 + 2], GrlConstants.TEST_F64);
+			assertEquals(expected.z, found[i*4 + 3], GrlConstants.TEST_F64);
+		}
+	}
+
+	private double[] randomQuaternions() {
+		double[] quats = new double[N*4];
+		for (int i = 0; i < N; i++) {
+			Quaternion_F64 q = new Quaternion_F64(rand.nextGaussian(), rand.nextGaussian(),
+					rand.nextGaussian(), rand.nextGaussian());
+			q.normalize();
+			quats[i*4] = q.w; quats[i*4 + 1] = q.x; quats[i*4 + 2] = q.y; quats[i*4 + 3] = q.z;
+		}
+		return quats;
+	}
+
+	private double[] randomEuler() {
+		double[] euler = new double[N*3];
+		for (int i = 0; i < euler.length; i++) {
+			euler[i] = (rand.nextDouble() - 0.5)*6;
+		}
+		return euler;
+	}
+
+	private double[] randomRodrigues() {
+		double[] rodrigues = new double[N*3];
+		for (int i = 0; i < N; i++) {
+			double x = rand.nextGaussian(), y = rand.nextGaussian(), z = rand.nextGaussian();
+			double norm = Math.sqrt(x*x + y*y + z*z);
+			double scale = rand.nextDouble()*3/norm;
+			rodrigues[i*3] = x*scale; rodrigues[i*3 + 1] = y*scale; rodrigues[i*3 + 2] = z*scale;
+		}
+		return rodrigues;
+	}
+
+	private static Rodrigues_F64 toRodrigues( double[] rodrigues, int i ) {
+		double x = rodrigues[i*3], y = rodrigues[i*3 + 1], z = rodrigues[i*3 + 2];
+		double theta = Math.sqrt(x*x + y*y + z*z);
+		if( theta == 0 )
+			return new Rodrigues_F64(0, 1, 0, 0);
+		return new Rodrigues_F64(theta, x/theta, y/theta, z/theta);
+	}
+
+	private static DMatrixRMaj toMatrix( double[] matrices, int i ) {
+		DMatrixRMaj R = new DMatrixRMaj(3, 3);
+		System.arraycopy(matrices, i*9, R.data, 0, 9);
+		return R;
+	}
+
+	private static void assertMatrix( DMatrixRMaj expected, double[] matrices, int i ) {
+		for (int j = 0; j < 9; j++) {
+			assertEquals(expected.data[j], matrices[i*9 + j], GrlConstants.TEST_F64);
+		}
+	}
+}
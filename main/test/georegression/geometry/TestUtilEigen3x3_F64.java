@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.geometry;
+
+import georegression.misc.GrlConstants;
+import georegression.struct.EulerType;
+import georegression.struct.point.Vector3D_F64;
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.dense.row.CommonOps_DDRM;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestUtilEigen3x3_F64 {
+	Random rand = new Random(234);
+
+	@Test
+	void random() {
+		for (int trial = 0; trial < 50; trial++) {
+			double[] expected = new double[]{rand.nextDouble()*0.1, 0.5 + rand.nextDouble(), 2 + rand.nextDouble()*3};
+			check(expected, 1.0);
+		}
+	}
+
+	/**
+	 * Very large and very small matrices
+	 */
+	@Test
+	void scale() {
+		double[] expected = new double[]{0.2, 1.5, 3.0};
+		check(expected, Math.pow(10, 20));
+		check(expected, Math.pow(10, -20));
+	}
+
+	/**
+	 * Eigenvalues which have different signs
+	 */
+	@Test
+	void negative() {
+		check(new double[]{-3.0, -0.5, 2.0}, 1.0);
+	}
+
+	@Test
+	void diagonal() {
+		double[] values = new double[3];
+		UtilEigen3x3_F64.eigenvaluesSymmetric(3, 0, 0, 1, 0, 2, values);
+		assertEquals(1, values[0], GrlConstants.TEST_F64);
+		assertEquals(2, values[1], GrlConstants.TEST_F64);
+		assertEquals(3, values[2], GrlConstants.TEST_F64);
+
+		Vector3D_F64 v = new Vector3D_F64();
+		assertTrue(UtilEigen3x3_F64.eigenvectorSymmetric(3, 0, 0, 1, 0, 2, values[0], v));
+		assertEquals(1.0, Math.abs(v.y), GrlConstants.TEST_F64);
+	}
+
+	@Test
+	void zero() {
+		double[] values = new double[]{1, 2, 3};
+		UtilEigen3x3_F64.eigenvaluesSymmetric(0, 0, 0, 0, 0, 0, values);
+		for (int i = 0; i < 3; i++) {
+			assertEquals(0, values[i]);
+		}
+		assertFalse(UtilEigen3x3_F64.eigenvectorSymmetric(0, 0, 0, 0, 0, 0, 0, new Vector3D_F64()));
+	}
+
+	/**
+	 * Two of the eigenvalues are the same. The eigenvector of the distinct eigenvalue is unique.
+	 */
+	@Test
+	void repeated() {
+		DMatrixRMaj R = ConvertRotation3D_F64.eulerToMatrix(EulerType.XYZ, 0.2, -0.5, 1.2, null);
+		DMatrixRMaj A = compose(R, new double[]{0.5, 2.0, 2.0});
+
+		double[] values = new double[3];
+		eigenvalues(A, values);
+		assertEquals(0.5, values[0], GrlConstants.TEST_F64);
+		assertEquals(2.0, values[1], GrlConstants.TEST_SQ_F64);
+		assertEquals(2.0, values[2], GrlConstants.TEST_SQ_F64);
+
+		Vector3D_F64 v = new Vector3D_F64();
+		assertTrue(eigenvector(A, values[0], v));
+		checkColumn(R, 0, v);
+		assertFalse(eigenvector(A, 2.0, v));
+	}
+
+	private void check( double[] expected, double scale ) {
+		DMatrixRMaj R = ConvertRotation3D_F64.eulerToMatrix(EulerType.XYZ,
+				rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian(), null);
+		DMatrixRMaj A = compose(R, expected);
+		CommonOps_DDRM.scale(scale, A);
+
+		double[] found = new double[3];
+		eigenvalues(A, found);
+		Vector3D_F64 v = new Vector3D_F64();
+		for (int i = 0; i < 3; i++) {
+			assertEquals(expected[i], found[i]/scale, GrlConstants.TEST_F64*expected[2]);
+			assertTrue(eigenvector(A, found[i], v));
+			checkColumn(R, i, v);
+		}
+	}
+
+	/**
+	 * The vector should be the same as the column up to a sign ambiguity
+	 */
+	private static void checkColumn( DMatrixRMaj R, int col, Vector3D_F64 v ) {
+		assertEquals(1.0, v.norm(), GrlConstants.TEST_F64);
+		double dot = R.get(0, col)*v.x + R.get(1, col)*v.y + R.get(2, col)*v.z;
+		assertEquals(1.0, Math.abs(dot), GrlConstants.TEST_SQ_F64);
+	}
+
+	/**
+	 * A = R*diag(values)*R'
+	 */
+	private static DMatrixRMaj compose( DMatrixRMaj R, double[] values ) {
+		DMatrixRMaj D = CommonOps_DDRM.diag(values);
+		DMatrixRMaj tmp = new DMatrixRMaj(3, 3);
+		DMatrixRMaj A = new DMatrixRMaj(3, 3);
+		CommonOps_DDRM.mult(R, D, tmp);
+		CommonOps_DDRM.multTransB(tmp, R, A);
+		return A;
+	}
+
+	private static void eigenvalues( DMatrixRMaj A, double[] values ) {
+		UtilEigen3x3_F64.eigenvaluesSymmetric(A.get(0, 0), A.get(0, 1), A.get(0, 2),
+				A.get(1, 1), A.get(1, 2), A.get(2, 2), values);
+	}
+
+	private static boolean eigenvector( DMatrixRMaj A, double lambda, Vector3D_F64 v ) {
+		return UtilEigen3x3_F64.eigenvectorSymmetric(A.get(0, 0), A.get(0, 1), A.get(0, 2),
+				A.get(1, 1), A.get(1, 2), A.get(2, 2), lambda, v);
+	}
+}
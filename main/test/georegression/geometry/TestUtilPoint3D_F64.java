@@ -20,6 +20,7 @@ package georegression.geometry;
 
 import georegression.misc.GrlConstants;
 import georegression.struct.point.Point3D_F64;
+import georegression.struct.point.PointCloud3D_F64;
 import georegression.struct.shapes.Box3D_F64;
 import org.junit.jupiter.api.Test;
 
@@ -96,4 +97,31 @@ public class TestUtilPoint3D_F64 {
 		assertEquals(0,cube.getP0().distance(list.get(0)),GrlConstants.TEST_F64);
 		assertEquals(0,cube.getP1().distance(new Point3D_F64(2,3,5)),1e-8);
 	}
+
+	@Test
+	void mean_cloud() {
+		List<Point3D_F64> list = UtilPoint3D_F64.random(-1,2,30,rand);
+		PointCloud3D_F64 cloud = new PointCloud3D_F64();
+		cloud.setTo(list);
+
+		Point3D_F64 expected = UtilPoint3D_F64.mean(list,null);
+		Point3D_F64 found = UtilPoint3D_F64.mean(cloud,null);
+
+		assertEquals(0,expected.distance(found),GrlConstants.TEST_F64);
+	}
+
+	@Test
+	void boundingBox_cloud() {
+		List<Point3D_F64> list = UtilPoint3D_F64.random(-1,2,30,rand);
+		PointCloud3D_F64 cloud = new PointCloud3D_F64();
+		cloud.setTo(list);
+
+		Box3D_F64 expected = new Box3D_F64();
+		Box3D_F64 found = new Box3D_F64();
+		UtilPoint3D_F64.boundingBox(list, expected);
+		UtilPoint3D_F64.boundingBox(cloud, found);
+
+		assertEquals(0,expected.p0.distance(found.p0),GrlConstants.TEST_F64);
+		assertEquals(0,expected.p1.distance(found.p1),GrlConstants.TEST_F64);
+	}
 }
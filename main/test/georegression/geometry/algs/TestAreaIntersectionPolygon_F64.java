@@ -21,14 +21,22 @@ package georegression.geometry.algs;
 import georegression.geometry.UtilPolygons2D_F64;
 import georegression.misc.GrlConstants;
 import georegression.struct.shapes.Polygon2D_F64;
+import org.ejml.data.DMatrixRMaj;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * @author Peter Abeles
  */
 public class TestAreaIntersectionPolygon_F64 {
+	Random rand = new Random(234);
+
 	/**
 	 * Unit tests provided by the original author
 	 */
@@ -114,4 +122,153 @@ public class TestAreaIntersectionPolygon_F64 {
 		assertEquals( -2*4, found2, GrlConstants.TEST_SQ_F64);
 
 	}
-}
\ No newline at end of file
+
+	/**
+	 * The same instance is used with polygons of different sizes. Internal storage should be correctly reused.
+	 */
+	@Test
+	void computeArea_reuse() {
+		AreaIntersectionPolygon2D_F64 alg = new AreaIntersectionPolygon2D_F64();
+
+		for (int trial = 0; trial < 20; trial++) {
+			double ax = rand.nextDouble()*2, ay = rand.nextDouble()*2;
+			double bx = rand.nextDouble()*2, by = rand.nextDouble()*2;
+			double aw = 1 + rand.nextDouble()*2, ah = 1 + rand.nextDouble()*2;
+			double bw = 1 + rand.nextDouble()*2, bh = 1 + rand.nextDouble()*2;
+
+			// extra vertices along the sides change the polygon's size without changing its shape
+			Polygon2D_F64 a = rectangle(ax, ay, ax + aw, ay + ah, 1 + rand.nextInt(6));
+			Polygon2D_F64 b = rectangle(bx, by, bx + bw, by + bh, 1 + rand.nextInt(6));
+
+			double expected = overlap(ax, ax + aw, bx, bx + bw)*overlap(ay, ay + ah, by, by + bh);
+			assertEquals(expected, Math.abs(alg.computeArea(a, b)), GrlConstants.TEST_SQ_F64);
+		}
+	}
+
+	/**
+	 * Polygon 'a' extends far beyond the bounds of 'b' and the other way around
+	 */
+	@Test
+	void computeArea_differentExtents() {
+		AreaIntersectionPolygon2D_F64 alg = new AreaIntersectionPolygon2D_F64();
+
+		Polygon2D_F64 a = rectangle(-1000, 0, 1000, 1, 1);
+		Polygon2D_F64 b = rectangle(0, -0.5, 2, 2, 1);
+
+		assertEquals(2, Math.abs(alg.computeArea(a, b)), GrlConstants.TEST_SQ_F64);
+		assertEquals(2, Math.abs(alg.computeArea(b, a)), GrlConstants.TEST_SQ_F64);
+
+		// 'b' is entirely inside of 'a'
+		a = rectangle(-500, -500, 500, 500, 1);
+		b = rectangle(10, 10, 10.5, 10.25, 1);
+		assertEquals(0.125, Math.abs(alg.computeArea(a, b)), GrlConstants.TEST_SQ_F64);
+		assertEquals(0.125, Math.abs(alg.computeArea(b, a)), GrlConstants.TEST_SQ_F64);
+	}
+
+	/**
+	 * IoU of axis aligned squares where the answer can be computed by hand
+	 */
+	@Test
+	void computeIoU_known() {
+		List<Polygon2D_F64> setA = new ArrayList<>();
+		List<Polygon2D_F64> setB = new ArrayList<>();
+		setA.add(rectangle(0, 0, 2, 2, 1));
+		setA.add(rectangle(10, 10, 12, 12, 2));
+		setB.add(rectangle(1, 1, 3, 3, 1));       // overlaps a quarter of A[0]
+		setB.add(rectangle(0.5, 0.5, 1.5, 1.5, 3)); // inside of A[0]
+		setB.add(rectangle(2, 0, 4, 2, 1));       // touches A[0] along an edge
+		setB.add(rectangle(10, 10, 12, 12, 1));   // same as A[1]
+
+		AreaIntersectionPolygon2D_F64 alg = new AreaIntersectionPolygon2D_F64();
+		DMatrixRMaj found = new DMatrixRMaj(1, 1);
+		alg.computeIoU(setA, setB, found);
+
+		double tol = GrlConstants.TEST_SQ_F64;
+		assertEquals(1.0/7.0, found.get(0, 0), tol); // intersection = 1, union = 4 + 4 - 1
+		assertEquals(1.0/4.0, found.get(0, 1), tol); // contained, so the ratio of the areas
+		assertEquals(0.0, found.get(0, 2), tol);
+		assertEquals(0.0, found.get(0, 3), tol);
+		for (int j = 0; j < 3; j++) {
+			assertEquals(0.0, found.get(1, j), tol);
+		}
+		assertEquals(1.0, found.get(1, 3), tol);
+	}
+
+	@Test
+	void computeIoU() {
+		List<Polygon2D_F64> setA = new ArrayList<>();
+		List<Polygon2D_F64> setB = new ArrayList<>();
+		for (int i = 0; i < 15; i++) {
+			setA.add(randomConvex(4 + rand.nextInt(5), rand.nextDouble()*20, rand.nextDouble()*20));
+		}
+		for (int i = 0; i < 12; i++) {
+			setB.add(randomConvex(4 + rand.nextInt(5), rand.nextDouble()*20, rand.nextDouble()*20));
+		}
+		// make sure there are some which are identical
+		setB.set(3, setA.get(5).copy());
+
+		AreaIntersectionPolygon2D_F64 alg = new AreaIntersectionPolygon2D_F64();
+		DMatrixRMaj found = new DMatrixRMaj(1, 1);
+		DMatrixRMaj foundParallel = new DMatrixRMaj(1, 1);
+		alg.computeIoU(setA, setB, found);
+		alg.computeIoUParallel(setA, setB, foundParallel);
+
+		assertEquals(setA.size(), found.numRows);
+		assertEquals(setB.size(), found.numCols);
+
+		int overlapping = 0;
+		for (int i = 0; i < setA.size(); i++) {
+			for (int j = 0; j < setB.size(); j++) {
+				Polygon2D_F64 a = setA.get(i), b = setB.get(j);
+				double intersection = Math.abs(new AreaIntersectionPolygon2D_F64().computeArea(a, b));
+				double expected = intersection/(a.areaSimple() + b.areaSimple() - intersection);
+
+				assertEquals(expected, found.get(i, j), GrlConstants.TEST_SQ_F64);
+				assertEquals(found.get(i, j), foundParallel.get(i, j));
+				if( expected > 0 )
+					overlapping++;
+			}
+		}
+		assertTrue(overlapping > 5);
+		assertEquals(1.0, found.get(5, 3), GrlConstants.TEST_SQ_F64);
+	}
+
+	/**
+	 * Creates a counter-clockwise axis aligned rectangle with each side split into 'splits' segments
+	 */
+	private static Polygon2D_F64 rectangle( double x0, double y0, double x1, double y1, int splits ) {
+		Polygon2D_F64 p = new Polygon2D_F64(4*splits);
+		int idx = 0;
+		for (int i = 0; i < splits; i++)
+			p.set(idx++, x0 + (x1 - x0)*i/splits, y0);
+		for (int i = 0; i < splits; i++)
+			p.set(idx++, x1, y0 + (y1 - y0)*i/splits);
+		for (int i = 0; i < splits; i++)
+			p.set(idx++, x1 - (x1 - x0)*i/splits, y1);
+		for (int i = 0; i < splits; i++)
+			p.set(idx++, x0, y1 - (y1 - y0)*i/splits);
+		return p;
+	}
+
+	/**
+	 * Length of the overlap between two intervals
+	 */
+	private static double overlap( double a0, double a1, double b0, double b1 ) {
+		return Math.max(0, Math.min(a1, b1) - Math.max(a0, b0));
+	}
+
+	/**
+	 * Creates a random convex polygon by sampling points around a circle
+	 */
+	private Polygon2D_F64 randomConvex( int N, double cx, double cy ) {
+		double r = 2 + rand.nextDouble()*3;
+		Polygon2D_F64 p = new Polygon2D_F64(N);
+		for (int i = 0; i < N; i++) {
+			double theta = GrlConstants.PI2*(i + rand.nextDouble()*0.5)/N;
+			double c = Math.cos(theta);
+			double s = Math.sin(theta);
+			p.set(i, cx + r*c, cy + r*s);
+		}
+		return p;
+	}
+}
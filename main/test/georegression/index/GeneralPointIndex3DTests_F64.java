@@ -0,0 +1,333 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.index;
+
+import georegression.metric.Intersection3D_F64;
+import georegression.misc.GrlConcurrency;
+import georegression.misc.GrlConstants;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.point.PointCloud3D_F64;
+import georegression.struct.shapes.Box3D_F64;
+import org.ddogleg.struct.GrowQueue_F64;
+import org.ddogleg.struct.GrowQueue_I32;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the results of a {@link PointIndex3D_F64} against a brute force search
+ *
+ * @author Peter Abeles
+ */
+public abstract class GeneralPointIndex3DTests_F64 {
+	Random rand = new Random(234);
+
+	public abstract PointIndex3D_F64 createIndex();
+
+	PointCloud3D_F64 createCloud( int N ) {
+		PointCloud3D_F64 cloud = new PointCloud3D_F64();
+		for (int i = 0; i < N; i++) {
+			cloud.add(rand.nextDouble()*200 - 100, rand.nextDouble()*100 - 50, rand.nextDouble()*50 - 25);
+		}
+		return cloud;
+	}
+
+	double[] bruteDistances( PointCloud3D_F64 cloud, double x, double y, double z ) {
+		double[] distances = new double[cloud.size];
+		for (int i = 0; i < cloud.size; i++) {
+			double dx = cloud.getX(i) - x, dy = cloud.getY(i) - y, dz = cloud.getZ(i) - z;
+			distances[i] = dx*dx + dy*dy + dz*dz;
+		}
+		return distances;
+	}
+
+	@Test
+	void findNearest() {
+		PointCloud3D_F64 cloud = createCloud(500);
+		PointIndex3D_F64 alg = createIndex();
+		alg.setPoints(cloud);
+		PointIndex3D_F64.Search search = alg.createSearch();
+
+		for (int trial = 0; trial < 200; trial++) {
+			// some of the points will be outside of the cloud's bounds
+			double x = rand.nextDouble()*300 - 150;
+			double y = rand.nextDouble()*200 - 100;
+			double z = rand.nextDouble()*100 - 50;
+			double[] distances = bruteDistances(cloud, x, y, z);
+			double best = Double.MAX_VALUE;
+			for (double d : distances) {
+				best = Math.min(best, d);
+			}
+
+			int found = search.findNearest(x, y, z, Double.MAX_VALUE);
+			assertEquals(best, distances[found], GrlConstants.TEST_F64);
+			assertEquals(best, search.getDistanceSq(), GrlConstants.TEST_F64);
+
+			// nothing should be found if it's outside the max distance
+			double maxDistance = Math.sqrt(best)*0.99;
+			assertEquals(-1, search.findNearest(x, y, z, maxDistance));
+			maxDistance = Math.sqrt(best)*1.01;
+			assertEquals(best, distances[search.findNearest(x, y, z, maxDistance)], GrlConstants.TEST_F64);
+		}
+	}
+
+	@Test
+	void findNearest_K() {
+		PointCloud3D_F64 cloud = createCloud(500);
+		PointIndex3D_F64 alg = createIndex();
+		alg.setPoints(cloud);
+		PointIndex3D_F64.Search search = alg.createSearch();
+
+		GrowQueue_I32 indexes = new GrowQueue_I32();
+		GrowQueue_F64 distancesSq = new GrowQueue_F64();
+
+		for (int trial = 0; trial < 200; trial++) {
+			double x = rand.nextDouble()*300 - 150;
+			double y = rand.nextDouble()*200 - 100;
+			double z = rand.nextDouble()*100 - 50;
+			int k = 1 + rand.nextInt(20);
+			double[] distances = bruteDistances(cloud, x, y, z);
+			double[] sorted = distances.clone();
+			Arrays.sort(sorted);
+
+			search.findNearest(x, y, z, Double.MAX_VALUE, k, indexes, distancesSq);
+			assertEquals(k, indexes.size);
+			assertEquals(k, distancesSq.size);
+			for (int i = 0; i < k; i++) {
+				assertEquals(sorted[i], distancesSq.get(i), GrlConstants.TEST_F64);
+				assertEquals(sorted[i], distances[indexes.get(i)], GrlConstants.TEST_F64);
+				for (int j = 0; j < i; j++) {
+					assertTrue(indexes.get(i) != indexes.get(j));
+				}
+			}
+
+			// limit the distance so that fewer than k are found
+			double maxDistance = Math.sqrt(sorted[k/2])*1.0001;
+			search.findNearest(x, y, z, maxDistance, k, indexes, distancesSq);
+			int expected = 0;
+			while( expected < k && sorted[expected] < maxDistance*maxDistance )
+				expected++;
+			assertEquals(expected, indexes.size);
+		}
+	}
+
+	@Test
+	void findWithinRadius() {
+		PointCloud3D_F64 cloud = createCloud(500);
+		PointIndex3D_F64 alg = createIndex();
+		alg.setPoints(cloud);
+		PointIndex3D_F64.Search search = alg.createSearch();
+
+		GrowQueue_I32 indexes = new GrowQueue_I32();
+
+		for (int trial = 0; trial < 200; trial++) {
+			double x = rand.nextDouble()*300 - 150;
+			double y = rand.nextDouble()*200 - 100;
+			double z = rand.nextDouble()*100 - 50;
+			double radius = rand.nextDouble()*40;
+			double[] distances = bruteDistances(cloud, x, y, z);
+
+			search.findWithinRadius(x, y, z, radius, indexes);
+
+			int expected = 0;
+			for (double d : distances) {
+				if( d <= radius*radius )
+					expected++;
+			}
+			assertEquals(expected, indexes.size);
+			boolean[] marked = new boolean[cloud.size];
+			for (int i = 0; i < indexes.size; i++) {
+				int index = indexes.get(i);
+				assertTrue(distances[index] <= radius*radius);
+				assertTrue(!marked[index]);
+				marked[index] = true;
+			}
+		}
+	}
+
+	@Test
+	void findInsideBox() {
+		PointCloud3D_F64 cloud = createCloud(500);
+		// points on the box's boundary
+		cloud.add(-10, 0, 0);
+		cloud.add(10, 0, 0);
+		PointIndex3D_F64 alg = createIndex();
+		alg.setPoints(cloud);
+		PointIndex3D_F64.Search search = alg.createSearch();
+
+		GrowQueue_I32 indexes = new GrowQueue_I32();
+		Box3D_F64 box = new Box3D_F64(-10, -20, -5, 10, 20, 5);
+		search.findInsideBox(box, indexes);
+		checkInsideBox(cloud, box, indexes);
+		assertTrue(indexes.contains(cloud.size - 2));
+		assertFalse(indexes.contains(cloud.size - 1));
+
+		for (int trial = 0; trial < 100; trial++) {
+			double x = rand.nextDouble()*300 - 150;
+			double y = rand.nextDouble()*200 - 100;
+			double z = rand.nextDouble()*100 - 50;
+			box.set(x, y, z, x + rand.nextDouble()*80, y + rand.nextDouble()*80, z + rand.nextDouble()*80);
+			search.findInsideBox(box, indexes);
+			checkInsideBox(cloud, box, indexes);
+		}
+
+		// contains everything
+		box.set(-1000, -1000, -1000, 1000, 1000, 1000);
+		search.findInsideBox(box, indexes);
+		assertEquals(cloud.size, indexes.size);
+	}
+
+	private void checkInsideBox( PointCloud3D_F64 cloud, Box3D_F64 box, GrowQueue_I32 indexes ) {
+		int expected = 0;
+		boolean[] marked = new boolean[cloud.size];
+		for (int i = 0; i < cloud.size; i++) {
+			if( Intersection3D_F64.contained(box, cloud.get(i, null)) ) {
+				expected++;
+				marked[i] = true;
+			}
+		}
+		assertEquals(expected, indexes.size);
+		for (int i = 0; i < indexes.size; i++) {
+			assertTrue(marked[indexes.get(i)]);
+			marked[indexes.get(i)] = false;
+		}
+	}
+
+	@Test
+	void setPoints_list() {
+		PointCloud3D_F64 cloud = createCloud(200);
+		List<Point3D_F64> list = cloud.toList(null);
+		PointIndex3D_F64 alg = createIndex();
+		alg.setPoints(list);
+		assertEquals(200, alg.getPoints().size);
+		assertTrue(cloud != alg.getPoints());
+
+		PointIndex3D_F64.Search search = alg.createSearch();
+		for (int i = 0; i < list.size(); i++) {
+			Point3D_F64 p = list.get(i);
+			assertEquals(i, search.findNearest(p.x, p.y, p.z, Double.MAX_VALUE));
+		}
+	}
+
+	/**
+	 * The tree built in parallel should be the same as the one built by a single thread
+	 */
+	@Test
+	void setPointsParallel() {
+		ForkJoinPool original = GrlConcurrency.getPool();
+		GrlConcurrency.setMaxThreads(4);
+		try {
+			PointCloud3D_F64 cloud = createCloud(GrlConcurrency.MIN_PARALLEL_LENGTH*4 + 13);
+			PointIndex3D_F64 expected = createIndex();
+			PointIndex3D_F64 found = createIndex();
+			expected.setPoints(cloud);
+			found.setPointsParallel(cloud);
+
+			for (int i = 0; i < cloud.size; i++) {
+				assertEquals(expected.getOrder()[i], found.getOrder()[i]);
+			}
+
+			PointIndex3D_F64.Search searchE = expected.createSearch();
+			PointIndex3D_F64.Search searchF = found.createSearch();
+			GrowQueue_I32 indexesE = new GrowQueue_I32();
+			GrowQueue_I32 indexesF = new GrowQueue_I32();
+			for (int trial = 0; trial < 50; trial++) {
+				double x = rand.nextDouble()*200 - 100, y = rand.nextDouble()*100 - 50, z = rand.nextDouble()*50 - 25;
+				assertEquals(searchE.findNearest(x, y, z, Double.MAX_VALUE), searchF.findNearest(x, y, z, Double.MAX_VALUE));
+				searchE.findWithinRadius(x, y, z, 5, indexesE);
+				searchF.findWithinRadius(x, y, z, 5, indexesF);
+				assertEquals(indexesE.size, indexesF.size);
+				for (int i = 0; i < indexesE.size; i++) {
+					assertEquals(indexesE.get(i), indexesF.get(i));
+				}
+			}
+		} finally {
+			GrlConcurrency.setPool(original);
+		}
+	}
+
+	/**
+	 * All the points are at the same location
+	 */
+	@Test
+	void identicalPoints() {
+		PointCloud3D_F64 cloud = new PointCloud3D_F64();
+		for (int i = 0; i < 50; i++) {
+			cloud.add(2, 3, 4);
+		}
+		PointIndex3D_F64 alg = createIndex();
+		alg.setPoints(cloud);
+		PointIndex3D_F64.Search search = alg.createSearch();
+
+		int found = search.findNearest(1, 1, 1, Double.MAX_VALUE);
+		assertTrue(found >= 0);
+
+		GrowQueue_I32 indexes = new GrowQueue_I32();
+		GrowQueue_F64 distancesSq = new GrowQueue_F64();
+		search.findNearest(1, 1, 1, Double.MAX_VALUE, 5, indexes, distancesSq);
+		assertEquals(5, indexes.size);
+
+		search.findWithinRadius(1, 1, 1, 1000, indexes);
+		assertEquals(50, indexes.size);
+	}
+
+	@Test
+	void empty() {
+		PointIndex3D_F64 alg = createIndex();
+		alg.setPoints(new PointCloud3D_F64());
+		PointIndex3D_F64.Search search = alg.createSearch();
+
+		GrowQueue_I32 indexes = new GrowQueue_I32();
+		GrowQueue_F64 distancesSq = new GrowQueue_F64();
+
+		assertEquals(-1, search.findNearest(1, 2, 3, Double.MAX_VALUE));
+		search.findNearest(1, 2, 3, Double.MAX_VALUE, 4, indexes, distancesSq);
+		assertEquals(0, indexes.size);
+		search.findWithinRadius(1, 2, 3, 100, indexes);
+		assertEquals(0, indexes.size);
+	}
+
+	/**
+	 * Build the index multiple times with different clouds and see if it gets confused
+	 */
+	@Test
+	void multipleCalls() {
+		PointIndex3D_F64 alg = createIndex();
+		PointIndex3D_F64.Search search = alg.createSearch();
+
+		for (int trial = 0; trial < 3; trial++) {
+			PointCloud3D_F64 cloud = createCloud(300 - trial*100);
+			alg.setPoints(cloud);
+			assertTrue(cloud == alg.getPoints());
+
+			for (int i = 0; i < cloud.size; i += 7) {
+				int found = search.findNearest(cloud.getX(i), cloud.getY(i), cloud.getZ(i), Double.MAX_VALUE);
+				assertEquals(i, found);
+			}
+		}
+	}
+}
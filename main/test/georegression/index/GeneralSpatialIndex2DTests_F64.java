@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.index;
+
+import georegression.misc.GrlConstants;
+import org.ddogleg.struct.GrowQueue_F64;
+import org.ddogleg.struct.GrowQueue_I32;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the results of a {@link SpatialIndex2D_F64} against a brute force search
+ *
+ * @author Peter Abeles
+ */
+public abstract class GeneralSpatialIndex2DTests_F64 <T> {
+	Random rand = new Random(234);
+
+	public abstract SpatialIndex2D_F64<T> createIndex();
+
+	public abstract T createRandomItem( double x, double y );
+
+	public abstract double distanceSq( T item, double x, double y );
+
+	List<T> createItems( int N ) {
+		List<T> items = new ArrayList<>();
+		for (int i = 0; i < N; i++) {
+			items.add(createRandomItem(rand.nextDouble()*200 - 100, rand.nextDouble()*100 - 50));
+		}
+		return items;
+	}
+
+	double[] bruteDistances( List<T> items, double x, double y ) {
+		double[] distances = new double[items.size()];
+		for (int i = 0; i < items.size(); i++) {
+			distances[i] = distanceSq(items.get(i), x, y);
+		}
+		return distances;
+	}
+
+	@Test
+	void findNearest() {
+		List<T> items = createItems(500);
+		SpatialIndex2D_F64<T> alg = createIndex();
+		alg.setItems(items);
+		SpatialIndex2D_F64.Search search = alg.createSearch();
+
+		for (int trial = 0; trial < 200; trial++) {
+			// some of the points will be outside of the items' bounds
+			double x = rand.nextDouble()*300 - 150;
+			double y = rand.nextDouble()*200 - 100;
+			double[] distances = bruteDistances(items, x, y);
+			double best = Double.MAX_VALUE;
+			for (double d : distances) {
+				best = Math.min(best, d);
+			}
+
+			int found = search.findNearest(x, y, Double.MAX_VALUE);
+			assertEquals(best, distances[found], GrlConstants.TEST_F64);
+			assertEquals(best, search.getDistanceSq(), GrlConstants.TEST_F64);
+
+			// nothing should be found if it's outside the max distance
+			double maxDistance = Math.sqrt(best)*0.99;
+			assertEquals(-1, search.findNearest(x, y, maxDistance));
+			maxDistance = Math.sqrt(best)*1.01;
+			assertEquals(best, distances[search.findNearest(x, y, maxDistance)], GrlConstants.TEST_F64);
+		}
+	}
+
+	@Test
+	void findNearest_K() {
+		List<T> items = createItems(500);
+		SpatialIndex2D_F64<T> alg = createIndex();
+		alg.setItems(items);
+		SpatialIndex2D_F64.Search search = alg.createSearch();
+
+		GrowQueue_I32 indexes = new GrowQueue_I32();
+		GrowQueue_F64 distancesSq = new GrowQueue_F64();
+
+		for (int trial = 0; trial < 200; trial++) {
+			double x = rand.nextDouble()*300 - 150;
+			double y = rand.nextDouble()*200 - 100;
+			int k = 1 + rand.nextInt(20);
+			double[] distances = bruteDistances(items, x, y);
+			double[] sorted = distances.clone();
+			Arrays.sort(sorted);
+
+			search.findNearest(x, y, Double.MAX_VALUE, k, indexes, distancesSq);
+			assertEquals(k, indexes.size);
+			assertEquals(k, distancesSq.size);
+			for (int i = 0; i < k; i++) {
+				assertEquals(sorted[i], distancesSq.get(i), GrlConstants.TEST_F64);
+				assertEquals(sorted[i], distances[indexes.get(i)], GrlConstants.TEST_F64);
+				for (int j = 0; j < i; j++) {
+					assertTrue(indexes.get(i) != indexes.get(j));
+				}
+			}
+
+			// limit the distance so that fewer than k are found
+			double maxDistance = Math.sqrt(sorted[k/2])*1.0001;
+			search.findNearest(x, y, maxDistance, k, indexes, distancesSq);
+			int expected = 0;
+			while( expected < k && sorted[expected] < maxDistance*maxDistance )
+				expected++;
+			assertEquals(expected, indexes.size);
+		}
+	}
+
+	@Test
+	void findWithinRadius() {
+		List<T> items = createItems(500);
+		SpatialIndex2D_F64<T> alg = createIndex();
+		alg.setItems(items);
+		SpatialIndex2D_F64.Search search = alg.createSearch();
+
+		GrowQueue_I32 indexes = new GrowQueue_I32();
+
+		for (int trial = 0; trial < 200; trial++) {
+			double x = rand.nextDouble()*300 - 150;
+			double y = rand.nextDouble()*200 - 100;
+			double radius = rand.nextDouble()*30;
+			double[] distances = bruteDistances(items, x, y);
+
+			search.findWithinRadius(x, y, radius, indexes);
+
+			int expected = 0;
+			for (double d : distances) {
+				if( d <= radius*radius )
+					expected++;
+			}
+			assertEquals(expected, indexes.size);
+			boolean[] marked = new boolean[items.size()];
+			for (int i = 0; i < indexes.size; i++) {
+				int index = indexes.get(i);
+				assertTrue(distances[index] <= radius*radius);
+				assertTrue(!marked[index]);
+				marked[index] = true;
+			}
+		}
+	}
+
+	/**
+	 * All the items are at the same location
+	 */
+	@Test
+	void identicalItems() {
+		List<T> items = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			items.add(createRandomItem(2, 3));
+		}
+		SpatialIndex2D_F64<T> alg = createIndex();
+		alg.setItems(items);
+		SpatialIndex2D_F64.Search search = alg.createSearch();
+
+		int found = search.findNearest(1, 1, Double.MAX_VALUE);
+		assertTrue(found >= 0);
+
+		GrowQueue_I32 indexes = new GrowQueue_I32();
+		GrowQueue_F64 distancesSq = new GrowQueue_F64();
+		search.findNearest(1, 1, Double.MAX_VALUE, 5, indexes, distancesSq);
+		assertEquals(5, indexes.size);
+
+		search.findWithinRadius(1, 1, 1000, indexes);
+		assertEquals(50, indexes.size);
+	}
+
+	@Test
+	void empty() {
+		SpatialIndex2D_F64<T> alg = createIndex();
+		alg.setItems(new ArrayList<>());
+		SpatialIndex2D_F64.Search search = alg.createSearch();
+
+		GrowQueue_I32 indexes = new GrowQueue_I32();
+		GrowQueue_F64 distancesSq = new GrowQueue_F64();
+
+		assertEquals(-1, search.findNearest(1, 2, Double.MAX_VALUE));
+		search.findNearest(1, 2, Double.MAX_VALUE, 3, indexes, distancesSq);
+		assertEquals(0, indexes.size);
+		search.findWithinRadius(1, 2, 100, indexes);
+		assertEquals(0, indexes.size);
+	}
+
+	/**
+	 * Rebuild the index with a smaller set of items and see if there's any left over state
+	 */
+	@Test
+	void setItems_rebuild() {
+		SpatialIndex2D_F64<T> alg = createIndex();
+		alg.setItems(createItems(300));
+
+		List<T> items = createItems(20);
+		alg.setItems(items);
+		SpatialIndex2D_F64.Search search = alg.createSearch();
+
+		GrowQueue_I32 indexes = new GrowQueue_I32();
+		search.findWithinRadius(0, 0, 1000, indexes);
+		assertEquals(20, indexes.size);
+
+		double[] distances = bruteDistances(items, 5, -2);
+		double best = Double.MAX_VALUE;
+		for (double d : distances) {
+			best = Math.min(best, d);
+		}
+		assertEquals(best, distances[search.findNearest(5, -2, Double.MAX_VALUE)], GrlConstants.TEST_F64);
+	}
+}
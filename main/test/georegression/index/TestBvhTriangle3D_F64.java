@@ -0,0 +1,284 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.index;
+
+import georegression.metric.Intersection3D_F64;
+import georegression.metric.alg.DistancePointTriangle3D_F64;
+import georegression.misc.GrlConstants;
+import georegression.struct.line.LineParametric3D_F64;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.shapes.Triangle3D_F64;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestBvhTriangle3D_F64 {
+	Random rand = new Random(234);
+
+	List<Triangle3D_F64> createMesh( int N ) {
+		List<Triangle3D_F64> mesh = new ArrayList<>();
+		for (int i = 0; i < N; i++) {
+			double x = rand.nextDouble()*20 - 10;
+			double y = rand.nextDouble()*20 - 10;
+			double z = rand.nextDouble()*20 - 10;
+			mesh.add(new Triangle3D_F64(
+					x, y, z,
+					x + rand.nextDouble()*4 - 2, y + rand.nextDouble()*4 - 2, z + rand.nextDouble()*4 - 2,
+					x + rand.nextDouble()*4 - 2, y + rand.nextDouble()*4 - 2, z + rand.nextDouble()*4 - 2));
+		}
+		return mesh;
+	}
+
+	LineParametric3D_F64 randomRay() {
+		LineParametric3D_F64 ray = new LineParametric3D_F64();
+		ray.p.set(rand.nextDouble()*30 - 15, rand.nextDouble()*30 - 15, rand.nextDouble()*30 - 15);
+		// point it towards the mesh so that most rays will hit something
+		ray.slope.set(rand.nextDouble()*20 - 10 - ray.p.x, rand.nextDouble()*20 - 10 - ray.p.y, rand.nextDouble()*20 - 10 - ray.p.z);
+		return ray;
+	}
+
+	/**
+	 * Finds the first triangle hit by the ray using brute force. Returns the line parameter
+	 */
+	double bruteForceRay( List<Triangle3D_F64> mesh, LineParametric3D_F64 ray, int[] index ) {
+		Point3D_F64 hit = new Point3D_F64();
+		double bestT = Double.MAX_VALUE;
+		index[0] = -1;
+		for (int i = 0; i < mesh.size(); i++) {
+			if( Intersection3D_F64.intersect(mesh.get(i), ray, hit) != 1 )
+				continue;
+			double t = (hit.x - ray.p.x)*ray.slope.x + (hit.y - ray.p.y)*ray.slope.y + (hit.z - ray.p.z)*ray.slope.z;
+			t /= ray.slope.normSq();
+			if( t < bestT ) {
+				bestT = t;
+				index[0] = i;
+			}
+		}
+		return bestT;
+	}
+
+	@Test
+	void castRay() {
+		List<Triangle3D_F64> mesh = createMesh(400);
+		BvhTriangle3D_F64 alg = new BvhTriangle3D_F64();
+		alg.setTriangles(mesh);
+		BvhTriangle3D_F64.Search search = alg.createSearch();
+
+		int[] expected = new int[1];
+		int totalHits = 0;
+		for (int trial = 0; trial < 300; trial++) {
+			LineParametric3D_F64 ray = randomRay();
+			double expectedT = bruteForceRay(mesh, ray, expected);
+
+			int found = search.castRay(ray, Double.MAX_VALUE);
+			assertEquals(expected[0], found);
+			if( found >= 0 )
+				assertEquals(expectedT, search.getHitT(), GrlConstants.TEST_F64*Math.max(1, expectedT));
+			assertEquals(found >= 0, search.anyHit(ray, Double.MAX_VALUE));
+			if( found < 0 )
+				continue;
+			totalHits++;
+
+			// it should miss if the max distance is before the hit
+			assertEquals(-1, search.castRay(ray, expectedT*0.999));
+			assertFalse(search.anyHit(ray, expectedT*0.999));
+		}
+		// sanity check to make sure the test isn't trivial
+		assertTrue(totalHits > 100);
+	}
+
+	/**
+	 * Rays which are parallel to the axes create infinities when inverted
+	 */
+	@Test
+	void castRay_axisAligned() {
+		BvhTriangle3D_F64 alg = new BvhTriangle3D_F64(1);
+		List<Triangle3D_F64> mesh = new ArrayList<>();
+		mesh.add(new Triangle3D_F64(0, 0, 5, 1, 0, 5, 0, 1, 5));
+		mesh.add(new Triangle3D_F64(0, 0, 2, 1, 0, 2, 0, 1, 2));
+		mesh.add(new Triangle3D_F64(4, 0, 3, 5, 0, 3, 4, 1, 3));
+		alg.setTriangles(mesh);
+		BvhTriangle3D_F64.Search search = alg.createSearch();
+
+		assertEquals(1, search.castRay(0.2, 0.2, 0, 0, 0, 1, Double.MAX_VALUE));
+		assertEquals(2, search.getHitT(), GrlConstants.TEST_F64);
+		assertEquals(0, search.castRay(0.2, 0.2, 10, 0, 0, -1, Double.MAX_VALUE));
+		assertEquals(5, search.getHitT(), GrlConstants.TEST_F64);
+		assertEquals(2, search.castRay(4.2, 0.2, 0, 0, 0, 1, Double.MAX_VALUE));
+		assertEquals(-1, search.castRay(2, 0.2, 0, 0, 0, 1, Double.MAX_VALUE));
+		// pointing away
+		assertEquals(-1, search.castRay(0.2, 0.2, 0, 0, 0, -1, Double.MAX_VALUE));
+	}
+
+	/**
+	 * Axis aligned rays which pass through shared edges and vertices of a watertight mesh. The ray's origin lies on
+	 * the bounds of many nodes, which is where 0*infinity can happen in the slab test
+	 */
+	@Test
+	void castRay_axisAlignedSharedEdges() {
+		// 4x4 grid of unit squares in the z=0 plane, each split into two triangles
+		List<Triangle3D_F64> mesh = new ArrayList<>();
+		for (int y = 0; y < 4; y++) {
+			for (int x = 0; x < 4; x++) {
+				mesh.add(new Triangle3D_F64(x, y, 0, x + 1, y, 0, x + 1, y + 1, 0));
+				mesh.add(new Triangle3D_F64(x, y, 0, x + 1, y + 1, 0, x, y + 1, 0));
+			}
+		}
+		BvhTriangle3D_F64 alg = new BvhTriangle3D_F64(1);
+		alg.setTriangles(mesh);
+		BvhTriangle3D_F64.Search search = alg.createSearch();
+
+		int[] expected = new int[1];
+		for (int i = 0; i <= 16; i++) {
+			for (int j = 0; j <= 16; j++) {
+				double x = i*0.25, y = j*0.25;
+				for (int sign : new int[]{-1, 1}) {
+					LineParametric3D_F64 ray = new LineParametric3D_F64(x, y, -sign*5, 0, 0, sign);
+					double expectedT = bruteForceRay(mesh, ray, expected);
+					assertTrue(expected[0] >= 0);
+
+					// the brute force and BVH can pick different triangles when they share an edge
+					int found = search.castRay(ray, Double.MAX_VALUE);
+					assertTrue(found >= 0, "x=" + x + " y=" + y);
+					assertEquals(expectedT, search.getHitT(), GrlConstants.TEST_F64);
+					assertEquals(5, search.getHitT(), GrlConstants.TEST_F64);
+					assertTrue(search.anyHit(ray, Double.MAX_VALUE));
+				}
+			}
+		}
+
+		// just outside the mesh should miss
+		assertEquals(-1, search.castRay(4.001, 2, 5, 0, 0, -1, Double.MAX_VALUE));
+		assertFalse(search.anyHit(-0.001, 2, 5, 0, 0, -1, Double.MAX_VALUE));
+	}
+
+	@Test
+	void closestPoint() {
+		List<Triangle3D_F64> mesh = createMesh(400);
+		BvhTriangle3D_F64 alg = new BvhTriangle3D_F64();
+		alg.setTriangles(mesh);
+		BvhTriangle3D_F64.Search search = alg.createSearch();
+
+		DistancePointTriangle3D_F64 distance = new DistancePointTriangle3D_F64();
+		Point3D_F64 closest = new Point3D_F64();
+		Point3D_F64 found = new Point3D_F64();
+		for (int trial = 0; trial < 200; trial++) {
+			Point3D_F64 p = new Point3D_F64(rand.nextDouble()*30 - 15, rand.nextDouble()*30 - 15, rand.nextDouble()*30 - 15);
+
+			double best = Double.MAX_VALUE;
+			for (Triangle3D_F64 t : mesh) {
+				distance.setTriangle(t.v0, t.v1, t.v2);
+				distance.closestPoint(p, closest);
+				best = Math.min(best, closest.distance2(p));
+			}
+
+			int index = search.closestPoint(p, Double.MAX_VALUE, found);
+			assertTrue(index >= 0);
+			assertEquals(best, search.getDistanceSq(), GrlConstants.TEST_F64*Math.max(1, best));
+			assertEquals(best, found.distance2(p), GrlConstants.TEST_F64*Math.max(1, best));
+
+			// the closest point should be on the returned triangle
+			Triangle3D_F64 t = mesh.get(index);
+			distance.setTriangle(t.v0, t.v1, t.v2);
+			distance.closestPoint(p, closest);
+			assertEquals(0, closest.distance(found), GrlConstants.TEST_SQ_F64);
+
+			assertEquals(-1, search.closestPoint(p, Math.sqrt(best)*0.99, found));
+		}
+	}
+
+	@Test
+	void castRays_batch() {
+		List<Triangle3D_F64> mesh = createMesh(400);
+		BvhTriangle3D_F64 alg = new BvhTriangle3D_F64();
+		alg.setTriangles(mesh);
+		BvhTriangle3D_F64.Search search = alg.createSearch();
+
+		int numRays = 3000;
+		double[] rays = new double[numRays*6];
+		for (int i = 0; i < rays.length; i++) {
+			rays[i] = rand.nextDouble()*30 - 15;
+		}
+
+		int[] indexes = new int[numRays];
+		int[] indexesParallel = new int[numRays];
+		double[] hitT = new double[numRays];
+		double[] hitTParallel = new double[numRays];
+		boolean[] hits = new boolean[numRays];
+		boolean[] hitsParallel = new boolean[numRays];
+
+		alg.castRays(rays, numRays, 10, indexes, hitT);
+		alg.castRaysParallel(rays, numRays, 10, indexesParallel, hitTParallel);
+		alg.anyHits(rays, numRays, 10, hits);
+		alg.anyHitsParallel(rays, numRays, 10, hitsParallel);
+
+		for (int i = 0; i < numRays; i++) {
+			int idx = i*6;
+			int expected = search.castRay(rays[idx], rays[idx + 1], rays[idx + 2], rays[idx + 3], rays[idx + 4], rays[idx + 5], 10);
+			assertEquals(expected, indexes[i]);
+			assertEquals(expected, indexesParallel[i]);
+			assertEquals(expected >= 0, hits[i]);
+			assertEquals(expected >= 0, hitsParallel[i]);
+			if( expected >= 0 ) {
+				assertEquals(search.getHitT(), hitT[i]);
+				assertEquals(search.getHitT(), hitTParallel[i]);
+			}
+		}
+	}
+
+	@Test
+	void empty() {
+		BvhTriangle3D_F64 alg = new BvhTriangle3D_F64();
+		alg.setTriangles(new ArrayList<>());
+		BvhTriangle3D_F64.Search search = alg.createSearch();
+
+		assertEquals(0, alg.size());
+		assertEquals(-1, search.castRay(0, 0, 0, 1, 0, 0, Double.MAX_VALUE));
+		assertFalse(search.anyHit(0, 0, 0, 1, 0, 0, Double.MAX_VALUE));
+		assertEquals(-1, search.closestPoint(new Point3D_F64(), Double.MAX_VALUE, new Point3D_F64()));
+	}
+
+	/**
+	 * All the triangles have the same centroid and the tree can't be split
+	 */
+	@Test
+	void identicalCentroids() {
+		List<Triangle3D_F64> mesh = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			double s = 1 + i;
+			mesh.add(new Triangle3D_F64(-s, -s, 0, s, -s, 0, 0, 2*s, 0));
+		}
+		// the hit would be ambiguous if they were all in the same plane
+		mesh.get(7).set(-1, -1, -1, 1, -1, -1, 0, 2, -1);
+		BvhTriangle3D_F64 alg = new BvhTriangle3D_F64(2);
+		alg.setTriangles(mesh);
+		BvhTriangle3D_F64.Search search = alg.createSearch();
+
+		assertEquals(7, search.castRay(0, 0, -5, 0, 0, 1, Double.MAX_VALUE));
+		assertEquals(4, search.getHitT(), GrlConstants.TEST_F64);
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.index;
+
+import georegression.misc.GrlConstants;
+import georegression.struct.point.Point2D_F64;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Peter Abeles
+ */
+class TestGridIndexPoint2D_F64 extends GeneralSpatialIndex2DTests_F64<Point2D_F64> {
+	@Override
+	public SpatialIndex2D_F64<Point2D_F64> createIndex() {
+		return new GridIndexPoint2D_F64();
+	}
+
+	@Override
+	public Point2D_F64 createRandomItem( double x, double y ) {
+		return new Point2D_F64(x, y);
+	}
+
+	@Override
+	public double distanceSq( Point2D_F64 item, double x, double y ) {
+		return item.distance2(x, y);
+	}
+
+	/**
+	 * Points along a thin strip have almost no area. The number of cells should still be reasonable.
+	 */
+	@Test
+	void nearlyCollinear() {
+		List<Point2D_F64> items = new ArrayList<>();
+		for (int i = 0; i < 10_000; i++) {
+			items.add(new Point2D_F64(rand.nextDouble()*10_000, rand.nextDouble()*(double)1e-12));
+		}
+
+		var alg = new GridIndexPoint2D_F64();
+		alg.setItems(items);
+		assertTrue((long)alg.cols*alg.rows <= 3*items.size());
+
+		SpatialIndex2D_F64.Search search = alg.createSearch();
+		for (int trial = 0; trial < 50; trial++) {
+			double x = rand.nextDouble()*12_000 - 1_000;
+			double y = rand.nextDouble()*2 - 1;
+			double[] distances = bruteDistances(items, x, y);
+			double best = Double.MAX_VALUE;
+			for (double d : distances) {
+				best = Math.min(best, d);
+			}
+			assertEquals(best, distances[search.findNearest(x, y, Double.MAX_VALUE)], GrlConstants.TEST_F64);
+		}
+	}
+
+	/**
+	 * A user specified cell size which would create too many cells should be rejected instead of overflowing
+	 */
+	@Test
+	void cellSizeTooSmall() {
+		List<Point2D_F64> items = new ArrayList<>();
+		items.add(new Point2D_F64(0, 0));
+		items.add(new Point2D_F64(10_000, 10_000));
+
+		var alg = new GridIndexPoint2D_F64((double)1e-6);
+		assertThrows(IllegalArgumentException.class, () -> alg.setItems(items));
+	}
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.index;
+
+import georegression.struct.point.Point2D_F64;
+
+/**
+ * @author Peter Abeles
+ */
+class TestKdTreePoint2D_F64 extends GeneralSpatialIndex2DTests_F64<Point2D_F64> {
+	@Override
+	public SpatialIndex2D_F64<Point2D_F64> createIndex() {
+		return new KdTreePoint2D_F64(4);
+	}
+
+	@Override
+	public Point2D_F64 createRandomItem( double x, double y ) {
+		return new Point2D_F64(x, y);
+	}
+
+	@Override
+	public double distanceSq( Point2D_F64 item, double x, double y ) {
+		return item.distance2(x, y);
+	}
+}
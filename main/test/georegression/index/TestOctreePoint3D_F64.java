@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.index;
+
+import georegression.misc.GrlConstants;
+import georegression.struct.point.PointCloud3D_F64;
+import org.ddogleg.struct.GrowQueue_I32;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Peter Abeles
+ */
+class TestOctreePoint3D_F64 extends GeneralPointIndex3DTests_F64 {
+	@Override
+	public PointIndex3D_F64 createIndex() {
+		return new OctreePoint3D_F64(4, 20);
+	}
+
+	/**
+	 * Duplicate points can't be split. The depth should be limited
+	 */
+	@Test
+	void maxDepth() {
+		PointCloud3D_F64 cloud = new PointCloud3D_F64();
+		cloud.add(-1, -1, -1);
+		for (int i = 0; i < 30; i++) {
+			cloud.add(1, 2, 3);
+		}
+		OctreePoint3D_F64 alg = new OctreePoint3D_F64(4, 5);
+		alg.setPoints(cloud);
+
+		// root, the two octants at depth 1, and one node at every depth after that
+		assertEquals(2 + 5, alg.nodes.next.size);
+
+		GrowQueue_I32 indexes = new GrowQueue_I32();
+		alg.createSearch().findWithinRadius(1, 2, 3, 0.1, indexes);
+		assertEquals(30, indexes.size);
+	}
+
+	/**
+	 * Each node's subtree should only contain nodes inside its cube
+	 */
+	@Test
+	void structure() {
+		OctreePoint3D_F64 alg = new OctreePoint3D_F64(4, 20);
+		alg.setPoints(createCloud(1000));
+
+		OctreePoint3D_F64.Nodes nodes = alg.nodes;
+		for (int node = 0; node < nodes.next.size; node++) {
+			double half = nodes.cells.get(node*4 + 3);
+			for (int i = nodes.start.get(node); i < nodes.end.get(node); i++) {
+				for (int axis = 0; axis < 3; axis++) {
+					double d = Math.abs(alg.points[i*3 + axis] - nodes.cells.get(node*4 + axis));
+					assertTrue(d <= half + GrlConstants.TEST_F64);
+				}
+			}
+			// children partition the parent's points
+			int end = nodes.next.get(node);
+			if( end == node + 1 ) {
+				assertTrue(nodes.end.get(node) - nodes.start.get(node) <= 4);
+				continue;
+			}
+			int expectedStart = nodes.start.get(node);
+			for (int child = node + 1; child < end; child = nodes.next.get(child)) {
+				assertEquals(expectedStart, nodes.start.get(child));
+				assertEquals(half/2, nodes.cells.get(child*4 + 3));
+				expectedStart = nodes.end.get(child);
+			}
+			assertEquals(nodes.end.get(node), expectedStart);
+		}
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.index;
+
+import georegression.misc.GrlConcurrency;
+import georegression.struct.point.PointCloud3D_F64;
+import org.ddogleg.struct.FastQueue;
+import org.ddogleg.struct.GrowQueue_F64;
+import org.ddogleg.struct.GrowQueue_I32;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestPointIndex3DOps_F64 {
+	Random rand = new Random(234);
+
+	PointCloud3D_F64 cloud = randomCloud(2000);
+	PointCloud3D_F64 queries = randomCloud(GrlConcurrency.MIN_PARALLEL_LENGTH/4);
+	PointIndex3D_F64 index = new KdTreePoint3D_F64();
+	PointIndex3D_F64.Search search;
+
+	public TestPointIndex3DOps_F64() {
+		index.setPoints(cloud);
+		search = index.createSearch();
+	}
+
+	@Test
+	void findNearest() {
+		GrowQueue_I32 matches = new GrowQueue_I32();
+		GrowQueue_F64 distances = new GrowQueue_F64();
+		double maxDistance = 0.5;
+
+		PointIndex3DOps_F64.findNearest(index, queries, maxDistance, matches, distances);
+		assertEquals(queries.size, matches.size);
+		assertEquals(queries.size, distances.size);
+		int numMissing = 0;
+		for (int i = 0; i < queries.size; i++) {
+			int expected = search.findNearest(queries.getX(i), queries.getY(i), queries.getZ(i), maxDistance);
+			assertEquals(expected, matches.get(i));
+			if( expected < 0 ) {
+				numMissing++;
+				assertTrue(Double.isNaN(distances.get(i)));
+			} else {
+				assertEquals(search.getDistanceSq(), distances.get(i));
+			}
+		}
+		// make sure both cases are tested
+		assertTrue(numMissing > 0 && numMissing < queries.size);
+
+		// optional distances
+		PointIndex3DOps_F64.findNearest(index, queries, maxDistance, matches, null);
+		assertEquals(queries.size, matches.size);
+	}
+
+	@Test
+	void findNearest_K() {
+		GrowQueue_I32 neighbors = new GrowQueue_I32();
+		GrowQueue_F64 distances = new GrowQueue_F64();
+		GrowQueue_I32 expectedN = new GrowQueue_I32();
+		GrowQueue_F64 expectedD = new GrowQueue_F64();
+		int k = 5;
+		double maxDistance = 1.0;
+
+		PointIndex3DOps_F64.findNearest(index, queries, maxDistance, k, neighbors, distances);
+		assertEquals(queries.size*k, neighbors.size);
+		assertEquals(queries.size*k, distances.size);
+		for (int i = 0; i < queries.size; i++) {
+			search.findNearest(queries.getX(i), queries.getY(i), queries.getZ(i), maxDistance, k, expectedN, expectedD);
+			for (int j = 0; j < k; j++) {
+				if( j < expectedN.size ) {
+					assertEquals(expectedN.get(j), neighbors.get(i*k + j));
+					assertEquals(expectedD.get(j), distances.get(i*k + j));
+				} else {
+					assertEquals(-1, neighbors.get(i*k + j));
+					assertTrue(Double.isNaN(distances.get(i*k + j)));
+				}
+			}
+		}
+	}
+
+	@Test
+	void findWithinRadius() {
+		FastQueue<GrowQueue_I32> neighbors = new FastQueue<>(GrowQueue_I32::new);
+		GrowQueue_I32 expected = new GrowQueue_I32();
+
+		PointIndex3DOps_F64.findWithinRadius(index, queries, 0.7, neighbors);
+		assertEquals(queries.size, neighbors.size);
+		for (int i = 0; i < queries.size; i++) {
+			search.findWithinRadius(queries.getX(i), queries.getY(i), queries.getZ(i), 0.7, expected);
+			checkEquals(expected, neighbors.get(i));
+		}
+	}
+
+	/**
+	 * The concurrent implementations should produce identical results
+	 */
+	@Test
+	void parallel() {
+		ForkJoinPool original = GrlConcurrency.getPool();
+		GrlConcurrency.setMaxThreads(4);
+		try {
+			GrowQueue_I32 expectedI = new GrowQueue_I32();
+			GrowQueue_F64 expectedD = new GrowQueue_F64();
+			GrowQueue_I32 foundI = new GrowQueue_I32();
+			GrowQueue_F64 foundD = new GrowQueue_F64();
+
+			PointIndex3DOps_F64.findNearest(index, queries, 0.5, expectedI, expectedD);
+			PointIndex3DOps_F64.findNearestParallel(index, queries, 0.5, foundI, foundD);
+			checkEquals(expectedI, foundI);
+			checkEquals(expectedD, foundD);
+
+			PointIndex3DOps_F64.findNearest(index, queries, 1.0, 4, expectedI, expectedD);
+			PointIndex3DOps_F64.findNearestParallel(index, queries, 1.0, 4, foundI, foundD);
+			checkEquals(expectedI, foundI);
+			checkEquals(expectedD, foundD);
+
+			FastQueue<GrowQueue_I32> expectedR = new FastQueue<>(GrowQueue_I32::new);
+			FastQueue<GrowQueue_I32> foundR = new FastQueue<>(GrowQueue_I32::new);
+			PointIndex3DOps_F64.findWithinRadius(index, queries, 0.7, expectedR);
+			PointIndex3DOps_F64.findWithinRadiusParallel(index, queries, 0.7, foundR);
+			assertEquals(expectedR.size, foundR.size);
+			for (int i = 0; i < expectedR.size; i++) {
+				checkEquals(expectedR.get(i), foundR.get(i));
+			}
+		} finally {
+			GrlConcurrency.setPool(original);
+		}
+	}
+
+	private static void checkEquals( GrowQueue_I32 expected, GrowQueue_I32 found ) {
+		assertEquals(expected.size, found.size);
+		for (int i = 0; i < expected.size; i++) {
+			assertEquals(expected.get(i), found.get(i));
+		}
+	}
+
+	private static void checkEquals( GrowQueue_F64 expected, GrowQueue_F64 found ) {
+		assertEquals(expected.size, found.size);
+		for (int i = 0; i < expected.size; i++) {
+			assertEquals(expected.get(i), found.get(i), 0.0);
+		}
+	}
+
+	private PointCloud3D_F64 randomCloud( int N ) {
+		PointCloud3D_F64 cloud = new PointCloud3D_F64();
+		for (int i = 0; i < N; i++) {
+			cloud.add(rand.nextDouble()*10 - 5, rand.nextDouble()*10 - 5, rand.nextDouble()*10 - 5);
+		}
+		return cloud;
+	}
+}
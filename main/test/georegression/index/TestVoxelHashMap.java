@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestVoxelHashMap {
+	Random rand = new Random(234);
+
+	@Test
+	void key() {
+		int max = VoxelHashMap.MAX_COORDINATE - 1;
+		assertEquals(0, VoxelHashMap.key(0, 0, 0));
+		assertEquals(Long.MAX_VALUE, VoxelHashMap.key(max, max, max));
+
+		// every coordinate should produce a unique key
+		assertEquals(1, VoxelHashMap.key(0, 0, 1));
+		assertEquals(1L << 21, VoxelHashMap.key(0, 1, 0));
+		assertEquals(1L << 42, VoxelHashMap.key(1, 0, 0));
+	}
+
+	/**
+	 * Add a lot of elements, forcing it to grow, and compare against a HashMap
+	 */
+	@Test
+	void compareToHashMap() {
+		VoxelHashMap alg = new VoxelHashMap(4);
+		Map<Long, Integer> expected = new HashMap<>();
+
+		for (int i = 0; i < 5000; i++) {
+			// small range so that there are duplicates
+			long key = VoxelHashMap.key(rand.nextInt(20), rand.nextInt(20), rand.nextInt(20));
+			Integer previous = expected.putIfAbsent(key, i);
+			assertEquals(previous == null ? -1 : previous, alg.putIfAbsent(key, i));
+			assertEquals(expected.size(), alg.size());
+		}
+
+		for (int x = 0; x < 21; x++) {
+			for (int y = 0; y < 21; y++) {
+				for (int z = 0; z < 21; z++) {
+					long key = VoxelHashMap.key(x, y, z);
+					assertEquals(expected.getOrDefault(key, -1), alg.get(key));
+				}
+			}
+		}
+	}
+
+	@Test
+	void reset() {
+		VoxelHashMap alg = new VoxelHashMap();
+		for (int i = 0; i < 100; i++) {
+			alg.putIfAbsent(VoxelHashMap.key(i, 2, 3), i);
+		}
+		int length = alg.keys.length;
+		alg.reset();
+		assertEquals(0, alg.size());
+		assertEquals(length, alg.keys.length);
+		for (int i = 0; i < 100; i++) {
+			assertEquals(-1, alg.get(VoxelHashMap.key(i, 2, 3)));
+		}
+		assertEquals(-1, alg.putIfAbsent(VoxelHashMap.key(5, 2, 3), 7));
+		assertEquals(7, alg.get(VoxelHashMap.key(5, 2, 3)));
+	}
+
+	@Test
+	void reserve() {
+		VoxelHashMap alg = new VoxelHashMap();
+		alg.putIfAbsent(10, 2);
+		alg.reserve(1000);
+		int length = alg.keys.length;
+		assertEquals(2, alg.get(10));
+		for (int i = 1; i < 1000; i++) {
+			alg.putIfAbsent(10 + i, i);
+		}
+		assertEquals(length, alg.keys.length);
+		assertEquals(1000, alg.size());
+	}
+
+	@Test
+	void tableLength() {
+		assertEquals(16, VoxelHashMap.tableLength(0));
+		assertEquals(16, VoxelHashMap.tableLength(8));
+		assertEquals(32, VoxelHashMap.tableLength(9));
+		assertEquals(VoxelHashMap.MAX_TABLE_LENGTH, VoxelHashMap.tableLength(VoxelHashMap.MAX_TABLE_LENGTH/2));
+
+		// these used to overflow and loop forever
+		assertThrows(IllegalArgumentException.class,
+				() -> VoxelHashMap.tableLength(VoxelHashMap.MAX_TABLE_LENGTH/2 + 1));
+		assertThrows(IllegalArgumentException.class, () -> VoxelHashMap.tableLength(Integer.MAX_VALUE));
+		assertThrows(IllegalArgumentException.class, () -> new VoxelHashMap().reserve(Integer.MAX_VALUE));
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.metric;
+
+import georegression.misc.GrlConstants;
+import georegression.struct.point.Point2D_F64;
+import georegression.struct.shapes.Polygon2D_F64;
+import georegression.struct.shapes.Rectangle2D_F64;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestPreparedPolygon2D_F64 {
+	Random rand = new Random(234);
+
+	/**
+	 * Random star shaped polygon, which will be concave
+	 */
+	Polygon2D_F64 createConcave( int N ) {
+		Polygon2D_F64 polygon = new Polygon2D_F64(N);
+		for (int i = 0; i < N; i++) {
+			double theta = GrlConstants.PI2*i/N;
+			double r = 1 + rand.nextDouble()*9;
+			double c = Math.cos(theta);
+			double s = Math.sin(theta);
+			polygon.set(i, 2 + r*c, -1 + r*s);
+		}
+		return polygon;
+	}
+
+	/**
+	 * Compare against the brute force solution
+	 */
+	@Test
+	void contains_compare() {
+		for (int size : new int[]{3, 4, 10, 100, 500}) {
+			Polygon2D_F64 polygon = createConcave(size);
+			PreparedPolygon2D_F64 alg = new PreparedPolygon2D_F64(polygon);
+
+			int inside = 0;
+			for (int i = 0; i < 2000; i++) {
+				Point2D_F64 p = new Point2D_F64(rand.nextDouble()*24 - 10, rand.nextDouble()*24 - 13);
+				boolean expected = Intersection2D_F64.containConvex(polygon, p);
+				assertEquals(expected, alg.contains(p));
+				assertEquals(expected, alg.contains(p.x, p.y));
+				if( expected )
+					inside++;
+			}
+			assertTrue(inside > 0);
+
+			// points on the vertexes should have the same results too
+			for (int i = 0; i < size; i++) {
+				Point2D_F64 p = polygon.get(i);
+				assertEquals(Intersection2D_F64.containConvex(polygon, p), alg.contains(p));
+			}
+		}
+	}
+
+	/**
+	 * Polygon with horizontal and vertical edges, including ones along the slab boundaries
+	 */
+	@Test
+	void contains_axisAligned() {
+		// U shaped polygon
+		Polygon2D_F64 polygon = new Polygon2D_F64(0, 0, 3, 0, 3, 3, 2, 3, 2, 1, 1, 1, 1, 3, 0, 3);
+		PreparedPolygon2D_F64 alg = new PreparedPolygon2D_F64(polygon);
+
+		assertTrue(alg.contains(0.5, 0.5));
+		assertTrue(alg.contains(0.5, 2.5));
+		assertTrue(alg.contains(2.5, 2.5));
+		assertFalse(alg.contains(1.5, 2.0));
+		assertFalse(alg.contains(-0.5, 0.5));
+		assertFalse(alg.contains(0.5, 3.5));
+
+		for (int i = 0; i < 2000; i++) {
+			// sample on a grid so that points lie on edges and vertexes
+			Point2D_F64 p = new Point2D_F64(rand.nextInt(17)*0.25 - 0.5, rand.nextInt(17)*0.25 - 0.5);
+			assertEquals(Intersection2D_F64.containConvex(polygon, p), alg.contains(p));
+		}
+	}
+
+	@Test
+	void contains_batch() {
+		Polygon2D_F64 polygon = createConcave(200);
+		PreparedPolygon2D_F64 alg = new PreparedPolygon2D_F64(polygon);
+
+		int numPoints = 30_000;
+		double[] xy = new double[numPoints*2];
+		for (int i = 0; i < numPoints; i++) {
+			xy[i*2  ] = rand.nextDouble()*24 - 10;
+			xy[i*2+1] = rand.nextDouble()*24 - 13;
+		}
+
+		boolean[] found = new boolean[numPoints];
+		boolean[] foundParallel = new boolean[numPoints];
+		alg.contains(xy, found);
+		alg.containsParallel(xy, foundParallel);
+
+		for (int i = 0; i < numPoints; i++) {
+			boolean expected = alg.contains(xy[i*2], xy[i*2+1]);
+			assertEquals(expected, found[i]);
+			assertEquals(expected, foundParallel[i]);
+		}
+	}
+
+	/**
+	 * Call setPolygon multiple times and see if the results change
+	 */
+	@Test
+	void setPolygon_reuse() {
+		PreparedPolygon2D_F64 alg = new PreparedPolygon2D_F64();
+		alg.setPolygon(createConcave(300));
+
+		Polygon2D_F64 polygon = createConcave(20);
+		alg.setPolygon(polygon);
+
+		for (int i = 0; i < 1000; i++) {
+			Point2D_F64 p = new Point2D_F64(rand.nextDouble()*24 - 10, rand.nextDouble()*24 - 13);
+			assertEquals(Intersection2D_F64.containConvex(polygon, p), alg.contains(p));
+		}
+
+		Rectangle2D_F64 bounds = alg.getBounds(null);
+		for (int i = 0; i < polygon.size(); i++) {
+			Point2D_F64 p = polygon.get(i);
+			assertTrue(p.x >= bounds.p0.x && p.x <= bounds.p1.x);
+			assertTrue(p.y >= bounds.p0.y && p.y <= bounds.p1.y);
+		}
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package georegression.misc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestGrlConcurrency {
+
+	ForkJoinPool original;
+
+	@BeforeEach
+	void before() {
+		original = GrlConcurrency.getPool();
+		// make sure it's concurrent even if the test machine has a single core
+		GrlConcurrency.setMaxThreads(4);
+	}
+
+	@AfterEach
+	void after() {
+		GrlConcurrency.setPool(original);
+	}
+
+	/**
+	 * Every index should be processed exactly once and the blocks should be no smaller than the minimum
+	 */
+	@Test
+	void loopBlocks() {
+		int start = 5, end = 1005;
+		AtomicIntegerArray counts = new AtomicIntegerArray(end);
+		AtomicInteger numBlocks = new AtomicInteger();
+
+		GrlConcurrency.loopBlocks(start, end, 50, ( idx0, idx1 ) -> {
+			assertTrue(idx1 - idx0 >= 50);
+			numBlocks.incrementAndGet();
+			for (int i = idx0; i < idx1; i++) {
+				counts.incrementAndGet(i);
+			}
+		});
+
+		assertTrue(numBlocks.get() > 1);
+		for (int i = 0; i < end; i++) {
+			assertEquals(i < start ? 0 : 1, counts.get(i));
+		}
+	}
+
+	/**
+	 * If the range is too small it should be processed in a single block
+	 */
+	@Test
+	void loopBlocks_small() {
+		AtomicInteger numBlocks = new AtomicInteger();
+		GrlConcurrency.loopBlocks(0, 90, 50, ( idx0, idx1 ) -> {
+			assertEquals(0, idx0);
+			assertEquals(90, idx1);
+			numBlocks.incrementAndGet();
+		});
+		assertEquals(1, numBlocks.get());
+
+		// nothing to process
+		GrlConcurrency.loopBlocks(10, 10, 50, ( idx0, idx1 ) -> numBlocks.incrementAndGet());
+		assertEquals(1, numBlocks.get());
+	}
+
+	/**
+	 * A workspace should never be used by two blocks at the same time and workspaces should be recycled
+	 */
+	@Test
+	void loopBlocks_workspace() {
+		GrlConcurrency.WorkspacePool<AtomicInteger> pool = new GrlConcurrency.WorkspacePool<>(AtomicInteger::new);
+		AtomicIntegerArray counts = new AtomicIntegerArray(1000);
+
+		for (int trial = 0; trial < 2; trial++) {
+			GrlConcurrency.loopBlocks(0, 1000, 50, pool, ( inUse, idx0, idx1 ) -> {
+				assertEquals(1, inUse.incrementAndGet());
+				for (int i = idx0; i < idx1; i++) {
+					counts.incrementAndGet(i);
+				}
+				assertEquals(0, inUse.decrementAndGet());
+			});
+		}
+
+		for (int i = 0; i < counts.length(); i++) {
+			assertEquals(2, counts.get(i));
+		}
+		// there can't be more workspaces than blocks
+		int created = pool.getAll().size();
+		assertTrue(created >= 1 && created <= 20);
+
+		// everything was returned to the pool so no new workspace should be created
+		AtomicInteger w = pool.acquire();
+		assertTrue(pool.getAll().contains(w));
+		pool.release(w);
+		assertEquals(created, pool.getAll().size());
+
+		pool.clear();
+		assertEquals(0, pool.getAll().size());
+	}
+
+	/**
+	 * Pools created by setMaxThreads() should be shut down when replaced, but not pools provided by the user
+	 */
+	@Test
+	void replacePool() {
+		ForkJoinPool created = GrlConcurrency.getPool();
+		GrlConcurrency.setMaxThreads(2);
+		assertTrue(created.isShutdown());
+
+		created = GrlConcurrency.getPool();
+		ForkJoinPool user = new ForkJoinPool(2);
+		try {
+			GrlConcurrency.setPool(user);
+			assertSame(user, GrlConcurrency.getPool());
+			assertTrue(created.isShutdown());
+
+			// the user's pool should not be shut down
+			GrlConcurrency.setMaxThreads(3);
+			assertFalse(user.isShutdown());
+
+			GrlConcurrency.setPool(ForkJoinPool.commonPool());
+			GrlConcurrency.setMaxThreads(2);
+			assertFalse(ForkJoinPool.commonPool().isShutdown());
+		} finally {
+			user.shutdown();
+		}
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package georegression.struct.point;
+
+import georegression.misc.GrlConstants;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestPointCloud3D_F64 {
+	@Test
+	void add_get() {
+		PointCloud3D_F64 alg = new PointCloud3D_F64(2);
+
+		// add enough points that it will need to grow
+		for (int i = 0; i < 25; i++) {
+			alg.add(i,i+1,i+2);
+		}
+		assertEquals(25,alg.size());
+
+		for (int i = 0; i < 25; i++) {
+			Point3D_F64 p = alg.get(i,null);
+			assertEquals(i,p.x,GrlConstants.TEST_F64);
+			assertEquals(i+1,p.y,GrlConstants.TEST_F64);
+			assertEquals(i+2,p.z,GrlConstants.TEST_F64);
+			assertEquals(i,alg.getX(i),GrlConstants.TEST_F64);
+			assertEquals(i+1,alg.getY(i),GrlConstants.TEST_F64);
+			assertEquals(i+2,alg.getZ(i),GrlConstants.TEST_F64);
+		}
+	}
+
+	@Test
+	void resize_keeps_values() {
+		PointCloud3D_F64 alg = new PointCloud3D_F64(2);
+		alg.add(1,2,3);
+		alg.resize(100);
+		assertEquals(100,alg.size);
+		assertTrue(alg.data.length >= 300);
+		assertEquals(0,alg.get(0,null).distance(1,2,3),GrlConstants.TEST_F64);
+	}
+
+	@Test
+	void setTo_list_toList() {
+		List<Point3D_F64> list = new ArrayList<>();
+		for (int i = 0; i < 12; i++) {
+			list.add(new Point3D_F64(i,-i,2*i));
+		}
+
+		PointCloud3D_F64 alg = new PointCloud3D_F64();
+		alg.setTo(list);
+		assertEquals(12,alg.size);
+
+		// the storage has extra elements which need to be removed
+		List<Point3D_F64> storage = new ArrayList<>();
+		for (int i = 0; i < 15; i++) {
+			storage.add(new Point3D_F64());
+		}
+		List<Point3D_F64> found = alg.toList(storage);
+		assertEquals(12,found.size());
+		for (int i = 0; i < list.size(); i++) {
+			assertEquals(0,list.get(i).distance(found.get(i)),GrlConstants.TEST_F64);
+		}
+	}
+
+	@Test
+	void setTo_copy() {
+		PointCloud3D_F64 a = new PointCloud3D_F64();
+		for (int i = 0; i < 12; i++) {
+			a.add(i,-i,2*i);
+		}
+
+		PointCloud3D_F64 b = a.copy();
+		assertEquals(a.size,b.size);
+		for (int i = 0; i < a.size*3; i++) {
+			assertEquals(a.data[i],b.data[i]);
+		}
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.struct.se;
+
+import georegression.misc.GrlConstants;
+import georegression.struct.EulerType;
+import org.ejml.dense.row.MatrixFeatures_DDRM;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestSe3Array_F64 {
+	Random rand = new Random(234);
+
+	@Test
+	void add_get() {
+		Se3Array_F64 alg = new Se3Array_F64(2);
+
+		// add enough poses that it will need to grow
+		List<Se3_F64> expected = new ArrayList<>();
+		for (int i = 0; i < 25; i++) {
+			expected.add(randomSe3());
+			if( i%2 == 0 )
+				alg.add(expected.get(i));
+			else
+				alg.add(new Se3Compact_F64(expected.get(i)));
+		}
+		assertEquals(25, alg.size());
+
+		for (int i = 0; i < 25; i++) {
+			checkEquals(expected.get(i), alg.get(i, (Se3_F64)null));
+			checkEquals(expected.get(i), alg.get(i, (Se3Compact_F64)null));
+		}
+	}
+
+	@Test
+	void resize_keeps_values() {
+		Se3Array_F64 alg = new Se3Array_F64(2);
+		Se3_F64 a = randomSe3();
+		alg.add(a);
+		alg.resize(100);
+		assertEquals(100, alg.size);
+		assertTrue(alg.data.length >= 100*Se3Array_F64.LENGTH);
+		checkEquals(a, alg.get(0, (Se3_F64)null));
+	}
+
+	@Test
+	void setTo_list_toList() {
+		List<Se3_F64> list = new ArrayList<>();
+		for (int i = 0; i < 12; i++) {
+			list.add(randomSe3());
+		}
+
+		Se3Array_F64 alg = new Se3Array_F64();
+		alg.setTo(list);
+		assertEquals(12, alg.size);
+
+		// the storage has extra elements which need to be removed
+		List<Se3_F64> storage = new ArrayList<>();
+		for (int i = 0; i < 15; i++) {
+			storage.add(new Se3_F64());
+		}
+		List<Se3_F64> found = alg.toList(storage);
+		assertEquals(12, found.size());
+		for (int i = 0; i < list.size(); i++) {
+			checkEquals(list.get(i), found.get(i));
+		}
+	}
+
+	@Test
+	void setTo_copy() {
+		Se3Array_F64 a = new Se3Array_F64();
+		for (int i = 0; i < 12; i++) {
+			a.add(randomSe3());
+		}
+
+		Se3Array_F64 b = a.copy();
+		assertEquals(a.size, b.size);
+		for (int i = 0; i < a.size*Se3Array_F64.LENGTH; i++) {
+			assertEquals(a.data[i], b.data[i]);
+		}
+	}
+
+	private void checkEquals( Se3_F64 expected, Se3_F64 found ) {
+		assertTrue(MatrixFeatures_DDRM.isIdentical(expected.R, found.R, GrlConstants.TEST_F64));
+		assertEquals(0, expected.T.distance(found.T), GrlConstants.TEST_F64);
+	}
+
+	private void checkEquals( Se3_F64 expected, Se3Compact_F64 found ) {
+		checkEquals(expected, toSe3(found));
+	}
+
+	private Se3_F64 toSe3( Se3Compact_F64 found ) {
+		Se3_F64 ret = new Se3_F64();
+		found.getRotation(ret.R);
+		found.getTranslation(ret.T);
+		return ret;
+	}
+
+	private Se3_F64 randomSe3() {
+		Se3_F64 se = new Se3_F64();
+		se.set(rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian(), EulerType.XYZ,
+				rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian());
+		return se;
+	}
+}
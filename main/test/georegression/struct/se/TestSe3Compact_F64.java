@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.struct.se;
+
+import georegression.misc.GrlConstants;
+import georegression.struct.EulerType;
+import georegression.struct.GenericInvertibleTransformTests_F64;
+import georegression.struct.InvertibleTransform;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.point.Vector3D_F64;
+import georegression.transform.se.SePointOps_F64;
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.dense.row.MatrixFeatures_DDRM;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestSe3Compact_F64 extends GenericInvertibleTransformTests_F64<Point3D_F64> {
+
+	Random rand = new Random(234);
+
+	@Test
+	void set_Se3() {
+		Se3_F64 se = randomSe3();
+		Se3Compact_F64 alg = new Se3Compact_F64();
+		alg.set(se);
+
+		DMatrixRMaj R = alg.getRotation(null);
+		Vector3D_F64 T = alg.getTranslation(null);
+		assertTrue(MatrixFeatures_DDRM.isIdentical(se.R, R, 0.0));
+		assertEquals(0, se.T.distance(T), 0.0);
+	}
+
+	@Test
+	void concat_compare() {
+		Se3_F64 a = randomSe3();
+		Se3_F64 b = randomSe3();
+		Se3_F64 expected = a.concat(b, null);
+
+		Se3Compact_F64 found = new Se3Compact_F64(a).concat(new Se3Compact_F64(b), null);
+		checkEquals(expected, found);
+	}
+
+	/**
+	 * The output can be the same instance as one of the inputs
+	 */
+	@Test
+	void concat_inplace() {
+		Se3_F64 a = randomSe3();
+		Se3_F64 b = randomSe3();
+		Se3_F64 expected = a.concat(b, null);
+
+		Se3Compact_F64 ca = new Se3Compact_F64(a);
+		ca.concat(new Se3Compact_F64(b), ca);
+		checkEquals(expected, ca);
+
+		Se3Compact_F64 cb = new Se3Compact_F64(b);
+		new Se3Compact_F64(a).concat(cb, cb);
+		checkEquals(expected, cb);
+	}
+
+	@Test
+	void invert_compare() {
+		Se3_F64 a = randomSe3();
+		Se3_F64 expected = a.invert(null);
+
+		Se3Compact_F64 ca = new Se3Compact_F64(a);
+		checkEquals(expected, ca.invert(null));
+
+		// in place
+		ca.invert(ca);
+		checkEquals(expected, ca);
+	}
+
+	private void checkEquals( Se3_F64 expected, Se3Compact_F64 found ) {
+		assertTrue(MatrixFeatures_DDRM.isIdentical(expected.R, found.getRotation(null), GrlConstants.TEST_F64));
+		assertEquals(0, expected.T.distance(found.getTranslation(null)), GrlConstants.TEST_F64);
+	}
+
+	private Se3_F64 randomSe3() {
+		Se3_F64 se = new Se3_F64();
+		se.set(rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian(), EulerType.XYZ,
+				rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian());
+		return se;
+	}
+
+	@Override
+	public Point3D_F64 createRandomPoint() {
+		return new Point3D_F64(rand.nextGaussian()*3, rand.nextGaussian()*3, rand.nextGaussian()*3);
+	}
+
+	@Override
+	public InvertibleTransform createRandomTransform() {
+		return new Se3Compact_F64(randomSe3());
+	}
+
+	@Override
+	public Point3D_F64 apply( InvertibleTransform se, Point3D_F64 point, Point3D_F64 result ) {
+		return SePointOps_F64.transform((Se3Compact_F64)se, point, result);
+	}
+}
@@ -22,8 +22,13 @@ import georegression.misc.GrlConstants;
 import georegression.misc.test.GeometryUnitTest;
 import georegression.struct.affine.Affine2D_F64;
 import georegression.struct.homography.Homography2D_F64;
+import georegression.struct.EulerType;
+import georegression.struct.InvertibleTransform;
 import georegression.struct.point.Point2D_F64;
+import georegression.struct.point.Point3D_F64;
 import georegression.struct.se.Se2_F64;
+import georegression.struct.se.Se3Compact_F64;
+import georegression.struct.se.Se3_F64;
 import georegression.transform.affine.AffinePointOps_F64;
 import georegression.transform.homography.HomographyPointOps_F64;
 import georegression.transform.se.SePointOps_F64;
@@ -69,4 +74,27 @@ public class TestConvertTransform_F64 {
 
 		GeometryUnitTest.assertEquals(expected, found, GrlConstants.TEST_F64);
 	}
+
+	@Test
+	void Se3_To_Compact() {
+		Se3_F64 a = new Se3_F64();
+		a.set(1,-2,0.5, EulerType.XYZ,0.1,-0.5,1.2);
+		Se3Compact_F64 b = ConvertTransform_F64.convert(a,new Se3Compact_F64());
+
+		Point3D_F64 pt = new Point3D_F64(3,4,-1);
+		Point3D_F64 expected = SePointOps_F64.transform(a,pt,null);
+		Point3D_F64 found = SePointOps_F64.transform(b,pt,null);
+
+		GeometryUnitTest.assertEquals(expected, found, GrlConstants.TEST_F64);
+
+		// and back again
+		Se3_F64 c = ConvertTransform_F64.convert(b,(Se3_F64)null);
+		found = SePointOps_F64.transform(c,pt,null);
+		GeometryUnitTest.assertEquals(expected, found, GrlConstants.TEST_F64);
+
+		// the generic version
+		InvertibleTransform d = ConvertTransform_F64.convert((InvertibleTransform)b,(InvertibleTransform)new Se3_F64());
+		found = SePointOps_F64.transform((Se3_F64)d,pt,null);
+		GeometryUnitTest.assertEquals(expected, found, GrlConstants.TEST_F64);
+	}
 }
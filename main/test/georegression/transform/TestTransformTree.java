@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.transform;
+
+import georegression.misc.GrlConstants;
+import georegression.struct.InvertibleTransform;
+import georegression.struct.affine.Affine2D_F64;
+import georegression.struct.homography.Homography2D_F64;
+import georegression.struct.se.Se2_F64;
+import georegression.struct.se.Se3_F64;
+import georegression.struct.se.SpecialEuclideanOps_F64;
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.dense.row.MatrixFeatures_DDRM;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestTransformTree {
+
+	Random rand = new Random(234);
+
+	@Test
+	void lookup_Se3() {
+		checkLookup(() -> SpecialEuclideanOps_F64.eulerXyz(
+				rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian(),
+				rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian(), null));
+	}
+
+	@Test
+	void lookup_Se2() {
+		checkLookup(() -> new Se2_F64(rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian()));
+	}
+
+	@Test
+	void lookup_Affine() {
+		checkLookup(() -> new Affine2D_F64(1 + rand.nextGaussian()*0.1, rand.nextGaussian()*0.1,
+				rand.nextGaussian()*0.1, 1 + rand.nextGaussian()*0.1, rand.nextGaussian(), rand.nextGaussian()));
+	}
+
+	@Test
+	void lookup_Homography() {
+		checkLookup(() -> new Homography2D_F64(
+				1 + rand.nextGaussian()*0.1, rand.nextGaussian()*0.1, rand.nextGaussian(),
+				rand.nextGaussian()*0.1, 1 + rand.nextGaussian()*0.1, rand.nextGaussian(),
+				rand.nextGaussian()*0.01, rand.nextGaussian()*0.01, 1));
+	}
+
+	/**
+	 * Creates the tree below and compares every lookup against the manually computed transform
+	 *
+	 * world <- base <- arm <- hand
+	 * world <- camera
+	 */
+	<T extends InvertibleTransform<T>> void checkLookup( Supplier<T> random ) {
+		T base = random.get();
+		T arm = random.get();
+		T hand = random.get();
+		T camera = random.get();
+
+		TransformTree<T> alg = new TransformTree<>();
+		alg.setTransform("base", "world", base);
+		alg.setTransform("arm", "base", arm);
+		alg.setTransform("hand", "arm", hand);
+		alg.setTransform("camera", "world", camera);
+
+		T handToWorld = hand.concat(arm.concat(base, null), null);
+		T cameraToWorld = camera.createInstance();
+		cameraToWorld.set(camera);
+
+		// hand -> world -> camera
+		T expected = handToWorld.concat(cameraToWorld.invert(null), null);
+		assertSame(expected, alg.lookup("hand", "camera", null));
+		// inverse direction
+		assertSame(expected.invert(null), alg.lookup("camera", "hand", null));
+		// directly to the root
+		assertSame(handToWorld, alg.lookup("hand", "world", null));
+		// arm -> base
+		assertSame(arm, alg.lookup("arm", "base", null));
+		// frame to itself
+		T identity = arm.createInstance();
+		identity.reset();
+		assertSame(identity, alg.lookup("hand", "hand", null));
+		assertSame(identity, alg.lookup("world", "world", null));
+
+		// change a transform in the middle of the chain and see if the cache is invalidated
+		T arm2 = random.get();
+		alg.setTransform("arm", "base", arm2);
+		handToWorld = hand.concat(arm2.concat(base, null), null);
+		expected = handToWorld.concat(cameraToWorld.invert(null), null);
+		T found = arm.createInstance();
+		assertSame(expected, alg.lookup("hand", "camera", found));
+		// frames outside the modified sub tree are not affected
+		assertSame(base.concat(cameraToWorld.invert(null), null), alg.lookup("base", "camera", null));
+	}
+
+	/**
+	 * Compares two transforms by converting them into a matrix
+	 */
+	private static void assertSame( InvertibleTransform a, InvertibleTransform b ) {
+		DMatrixRMaj A = toMatrix(a);
+		DMatrixRMaj B = toMatrix(b);
+		assertTrue(MatrixFeatures_DDRM.isIdentical(A, B, GrlConstants.TEST_F64));
+	}
+
+	private static DMatrixRMaj toMatrix( InvertibleTransform a ) {
+		if( a instanceof Se3_F64 ) {
+			return SpecialEuclideanOps_F64.toHomogeneous((Se3_F64)a, null);
+		} else if( a instanceof Se2_F64 ) {
+			return SpecialEuclideanOps_F64.toHomogeneous((Se2_F64)a, null);
+		} else if( a instanceof Affine2D_F64 ) {
+			Affine2D_F64 f = (Affine2D_F64)a;
+			return new DMatrixRMaj(3, 3, true, f.a11, f.a12, f.tx, f.a21, f.a22, f.ty, 0, 0, 1);
+		} else {
+			Homography2D_F64 h = (Homography2D_F64)a;
+			return new DMatrixRMaj(3, 3, true, h.a11, h.a12, h.a13, h.a21, h.a22, h.a23, h.a31, h.a32, h.a33);
+		}
+	}
+
+	@Test
+	void setTransform_changeParent() {
+		TransformTree<Se2_F64> alg = new TransformTree<>();
+		alg.setTransform("a", "root", new Se2_F64(1, 0, 0));
+		alg.setTransform("b", "root", new Se2_F64(0, 2, 0));
+		alg.setTransform("c", "a", new Se2_F64(0, 0, 0.5));
+
+		assertEquals(1, alg.lookup("c", "root", null).getX(), GrlConstants.TEST_F64);
+		assertEquals("a", alg.getParent("c"));
+
+		// move 'c' under 'b'. The cache of 'c' must be updated
+		alg.setTransform("c", "b", new Se2_F64(0, 0, 0.5));
+		assertEquals("b", alg.getParent("c"));
+		Se2_F64 found = alg.lookup("c", "root", null);
+		assertEquals(0, found.getX(), GrlConstants.TEST_F64);
+		assertEquals(2, found.getY(), GrlConstants.TEST_F64);
+		assertEquals(0.5, found.getYaw(), GrlConstants.TEST_F64);
+		assertNull(alg.getParent("root"));
+		assertEquals(4, alg.size());
+	}
+
+	/**
+	 * Moving the only child of a root leaves the root without any children. It should still be possible to look up
+	 * transforms involving it
+	 */
+	@Test
+	void setTransform_childlessRoot() {
+		TransformTree<Se2_F64> alg = new TransformTree<>();
+		alg.setTransform("a", "root1", new Se2_F64(1, 0, 0));
+		alg.setTransform("a", "root2", new Se2_F64(0, 2, 0));
+
+		Se2_F64 found = alg.lookup("root1", "root1", null);
+		assertEquals(0, found.getX(), GrlConstants.TEST_F64);
+		assertEquals(0, found.getY(), GrlConstants.TEST_F64);
+		assertEquals(0, found.getYaw(), GrlConstants.TEST_F64);
+		assertEquals(2, alg.lookup("a", "root2", null).getY(), GrlConstants.TEST_F64);
+
+		// same thing but the type is provided to the constructor
+		TransformTree<Se2_F64> alg2 = new TransformTree<>(new Se2_F64());
+		alg2.setTransform("a", "root1", new Se2_F64(1, 0, 0));
+		alg2.setTransform("a", "root2", new Se2_F64(0, 2, 0));
+		assertEquals(0, alg2.lookup("root1", "root1", null).getX(), GrlConstants.TEST_F64);
+	}
+
+	@Test
+	void setTransform_cycle() {
+		TransformTree<Se2_F64> alg = new TransformTree<>();
+		alg.setTransform("a", "root", new Se2_F64());
+		alg.setTransform("b", "a", new Se2_F64());
+
+		assertThrows(IllegalArgumentException.class, () -> alg.setTransform("root", "b", new Se2_F64()));
+		assertThrows(IllegalArgumentException.class, () -> alg.setTransform("a", "a", new Se2_F64()));
+
+		// the tree should not have been modified
+		assertNull(alg.getParent("root"));
+		assertEquals("root", alg.getParent("a"));
+	}
+
+	@Test
+	void lookup_errors() {
+		TransformTree<Se2_F64> alg = new TransformTree<>();
+		alg.setTransform("a", "root0", new Se2_F64());
+		alg.setTransform("b", "root1", new Se2_F64());
+
+		// unknown frame
+		assertThrows(IllegalArgumentException.class, () -> alg.lookup("a", "moo", null));
+		// different trees
+		assertThrows(IllegalArgumentException.class, () -> alg.lookup("a", "b", null));
+
+		// connect the trees and it should work now
+		alg.setTransform("root1", "a", new Se2_F64(2, 0, 0));
+		assertEquals(2, alg.lookup("b", "root0", null).getX(), GrlConstants.TEST_F64);
+	}
+
+	@Test
+	void clear() {
+		TransformTree<Se2_F64> alg = new TransformTree<>();
+		alg.setTransform("a", "root", new Se2_F64());
+		alg.clear();
+		assertEquals(0, alg.size());
+		assertFalse(alg.hasFrame("a"));
+		assertThrows(IllegalArgumentException.class, () -> alg.lookup("a", "root", null));
+	}
+
+	/**
+	 * Readers look up transforms while a writer modifies the tree. The transforms are always selected
+	 * so that the readers know what the correct solution is.
+	 */
+	@Test
+	void concurrentReaders() throws InterruptedException {
+		TransformTree<Se2_F64> alg = new TransformTree<>();
+		alg.setTransform("a", "root", new Se2_F64(0, 0, 0));
+		alg.setTransform("b", "a", new Se2_F64(0, 0, 0));
+		alg.setTransform("c", "b", new Se2_F64(0, 0, 0));
+
+		AtomicReference<String> failure = new AtomicReference<>();
+		Thread[] readers = new Thread[3];
+		for (int i = 0; i < readers.length; i++) {
+			readers[i] = new Thread(() -> {
+				Se2_F64 found = new Se2_F64();
+				for (int trial = 0; trial < 20000; trial++) {
+					alg.lookup("c", "root", found);
+					// only translation along x is ever set and each edge is an integer
+					double x = found.getX();
+					if( found.getY() != 0.0 || x != Math.rint(x) || found.getYaw() != 0.0 ) {
+						failure.set("Bad transform "+found);
+						return;
+					}
+				}
+			});
+			readers[i].start();
+		}
+
+		for (int trial = 0; trial < 5000; trial++) {
+			String frame = "abc".substring(trial%3, trial%3 + 1);
+			String parent = trial%3 == 0 ? "root" : "abc".substring(trial%3 - 1, trial%3);
+			alg.setTransform(frame, parent, new Se2_F64(trial%7, 0, 0));
+		}
+
+		for (Thread t : readers) {
+			t.join();
+		}
+		assertNull(failure.get());
+	}
+}
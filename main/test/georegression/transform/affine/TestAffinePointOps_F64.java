@@ -18,12 +18,15 @@
 
 package georegression.transform.affine;
 
+import georegression.misc.GrlConcurrency;
 import georegression.misc.GrlConstants;
 import georegression.struct.affine.Affine2D_F64;
 import georegression.struct.point.Point2D_F64;
 import georegression.struct.point.Vector2D_F64;
 import org.junit.jupiter.api.Test;
 
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 
@@ -73,4 +76,87 @@ public class TestAffinePointOps_F64 {
 		assertEquals(expectedX,found.x, GrlConstants.TEST_F64);
 		assertEquals(expectedY, found.y, GrlConstants.TEST_F64);
 	}
+
+	@Test
+	void transform_array() {
+		Affine2D_F64 tran = new Affine2D_F64(1,2,3,4,5,6);
+		Random rand = new Random(234);
+		Point2D_F64[] points = new Point2D_F64[20];
+		Point2D_F64[] original = new Point2D_F64[20];
+		for (int i = 0; i < points.length; i++) {
+			points[i] = new Point2D_F64(rand.nextGaussian(),rand.nextGaussian());
+			original[i] = points[i].copy();
+		}
+
+		AffinePointOps_F64.transform(tran,points,2,15);
+
+		for (int i = 0; i < points.length; i++) {
+			if( i >= 2 && i < 17 ) {
+				Point2D_F64 expected = AffinePointOps_F64.transform(tran,original[i],(Point2D_F64)null);
+				assertEquals(0,expected.distance(points[i]),GrlConstants.TEST_F64);
+			} else {
+				assertEquals(0,original[i].distance(points[i]),GrlConstants.TEST_F64);
+			}
+		}
+	}
+
+	@Test
+	void transform_packed() {
+		Affine2D_F64 tran = new Affine2D_F64(1,2,3,4,5,6);
+		Random rand = new Random(234);
+		double[] src = new double[3+2*10];
+		double[] dst = new double[1+2*10];
+		for (int i = 0; i < src.length; i++) {
+			src[i] = rand.nextGaussian();
+		}
+
+		AffinePointOps_F64.transform(tran,src,3,dst,1,10);
+
+		Point2D_F64 expected = new Point2D_F64();
+		for (int i = 0; i < 10; i++) {
+			AffinePointOps_F64.transform(tran,src[3+i*2],src[3+i*2+1],expected);
+			assertEquals(expected.x,dst[1+i*2  ],GrlConstants.TEST_F64);
+			assertEquals(expected.y,dst[1+i*2+1],GrlConstants.TEST_F64);
+		}
+	}
+
+	@Test
+	void transformParallel_array() {
+		Affine2D_F64 tran = new Affine2D_F64(1,2,3,4,5,6);
+		Random rand = new Random(234);
+		int N = GrlConcurrency.MIN_PARALLEL_LENGTH*2 + 13;
+		Point2D_F64[] expected = new Point2D_F64[N];
+		Point2D_F64[] found = new Point2D_F64[N];
+		for (int i = 0; i < N; i++) {
+			expected[i] = new Point2D_F64(rand.nextGaussian(),rand.nextGaussian());
+			found[i] = expected[i].copy();
+		}
+
+		AffinePointOps_F64.transform(tran,expected,0,N);
+		AffinePointOps_F64.transformParallel(tran,found,0,N);
+
+		for (int i = 0; i < N; i++) {
+			assertEquals(0,expected[i].distance(found[i]),GrlConstants.TEST_F64);
+		}
+	}
+
+	@Test
+	void transformParallel_packed() {
+		Affine2D_F64 tran = new Affine2D_F64(1,2,3,4,5,6);
+		Random rand = new Random(234);
+		int N = GrlConcurrency.MIN_PARALLEL_LENGTH*2 + 13;
+		double[] src = new double[N*2];
+		for (int i = 0; i < src.length; i++) {
+			src[i] = rand.nextGaussian();
+		}
+		double[] expected = new double[N*2];
+		double[] found = new double[N*2];
+
+		AffinePointOps_F64.transform(tran,src,0,expected,0,N);
+		AffinePointOps_F64.transformParallel(tran,src,0,found,0,N);
+
+		for (int i = 0; i < src.length; i++) {
+			assertEquals(expected[i],found[i],GrlConstants.TEST_F64);
+		}
+	}
 }
@@ -19,6 +19,7 @@
 package georegression.transform.homography;
 
 import georegression.geometry.GeometryMath_F64;
+import georegression.misc.GrlConcurrency;
 import georegression.misc.GrlConstants;
 import georegression.struct.homography.Homography2D_F64;
 import georegression.struct.homography.UtilHomography_F64;
@@ -82,4 +83,83 @@ public class TestHomographyPointOps_F64 {
 		assertEquals(expected.x,dst.x, GrlConstants.TEST_F64);
 		assertEquals(expected.y,dst.y, GrlConstants.TEST_F64);
 	}
+
+	@Test
+	void transform_array() {
+		Random rand = new Random(234);
+		Point2D_F64[] points = new Point2D_F64[20];
+		Point2D_F64[] original = new Point2D_F64[20];
+		for (int i = 0; i < points.length; i++) {
+			points[i] = new Point2D_F64(rand.nextGaussian(),rand.nextGaussian());
+			original[i] = points[i].copy();
+		}
+
+		HomographyPointOps_F64.transform(tran,points,2,15);
+
+		for (int i = 0; i < points.length; i++) {
+			if( i >= 2 && i < 17 ) {
+				Point2D_F64 expected = HomographyPointOps_F64.transform(tran,original[i],(Point2D_F64)null);
+				assertEquals(0,expected.distance(points[i]),GrlConstants.TEST_F64);
+			} else {
+				assertEquals(0,original[i].distance(points[i]),GrlConstants.TEST_F64);
+			}
+		}
+	}
+
+	@Test
+	void transform_packed() {
+		Random rand = new Random(234);
+		double[] src = new double[3+2*10];
+		double[] dst = new double[1+2*10];
+		for (int i = 0; i < src.length; i++) {
+			src[i] = rand.nextGaussian();
+		}
+
+		HomographyPointOps_F64.transform(tran,src,3,dst,1,10);
+
+		Point2D_F64 expected = new Point2D_F64();
+		for (int i = 0; i < 10; i++) {
+			HomographyPointOps_F64.transform(tran,src[3+i*2],src[3+i*2+1],expected);
+			assertEquals(expected.x,dst[1+i*2  ],GrlConstants.TEST_F64);
+			assertEquals(expected.y,dst[1+i*2+1],GrlConstants.TEST_F64);
+		}
+	}
+
+	@Test
+	void transformParallel_array() {
+		Random rand = new Random(234);
+		int N = GrlConcurrency.MIN_PARALLEL_LENGTH*2 + 13;
+		Point2D_F64[] expected = new Point2D_F64[N];
+		Point2D_F64[] found = new Point2D_F64[N];
+		for (int i = 0; i < N; i++) {
+			expected[i] = new Point2D_F64(rand.nextGaussian(),rand.nextGaussian());
+			found[i] = expected[i].copy();
+		}
+
+		HomographyPointOps_F64.transform(tran,expected,0,N);
+		HomographyPointOps_F64.transformParallel(tran,found,0,N);
+
+		for (int i = 0; i < N; i++) {
+			assertEquals(0,expected[i].distance(found[i]),GrlConstants.TEST_F64);
+		}
+	}
+
+	@Test
+	void transformParallel_packed() {
+		Random rand = new Random(234);
+		int N = GrlConcurrency.MIN_PARALLEL_LENGTH*2 + 13;
+		double[] src = new double[N*2];
+		for (int i = 0; i < src.length; i++) {
+			src[i] = rand.nextGaussian();
+		}
+		double[] expected = new double[N*2];
+		double[] found = new double[N*2];
+
+		HomographyPointOps_F64.transform(tran,src,0,expected,0,N);
+		HomographyPointOps_F64.transformParallel(tran,src,0,found,0,N);
+
+		for (int i = 0; i < src.length; i++) {
+			assertEquals(expected[i],found[i],GrlConstants.TEST_F64);
+		}
+	}
 }
@@ -0,0 +1,262 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.transform.se;
+
+import georegression.geometry.ConvertRotation3D_F64;
+import georegression.misc.GrlConstants;
+import georegression.struct.EulerType;
+import georegression.struct.so.Quaternion_F64;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestIncrementalAverageQuaternion_F64 {
+
+	Random rand = new Random(234);
+
+	/**
+	 * Compare against the batch algorithm
+	 */
+	@Test
+	void compareToBatch() {
+		List<Quaternion_F64> list = createNoisy(50);
+
+		Quaternion_F64 expected = new Quaternion_F64();
+		assertTrue(new AverageQuaternion_F64().process(list, expected));
+
+		IncrementalAverageQuaternion_F64 alg = new IncrementalAverageQuaternion_F64();
+		for (Quaternion_F64 q : list) {
+			alg.add(q);
+		}
+		assertEquals(50, alg.getCount());
+		assertEquals(50, alg.getTotalWeight(), GrlConstants.TEST_F64);
+
+		Quaternion_F64 found = new Quaternion_F64();
+		assertTrue(alg.computeAverage(found));
+		checkEquals(expected, found, GrlConstants.TEST_F64);
+	}
+
+	/**
+	 * The sign of a quaternion should not matter
+	 */
+	@Test
+	void signInvariant() {
+		List<Quaternion_F64> list = createNoisy(20);
+
+		IncrementalAverageQuaternion_F64 alg = new IncrementalAverageQuaternion_F64();
+		alg.addAll(list);
+		Quaternion_F64 expected = new Quaternion_F64();
+		assertTrue(alg.computeAverage(expected));
+
+		alg.reset();
+		for (int i = 0; i < list.size(); i++) {
+			Quaternion_F64 q = new Quaternion_F64();
+			q.set(list.get(i));
+			if( i%2 == 0 )
+				q.set(-q.w, -q.x, -q.y, -q.z);
+			alg.add(q);
+		}
+		Quaternion_F64 found = new Quaternion_F64();
+		assertTrue(alg.computeAverage(found));
+		checkEquals(expected, found, GrlConstants.TEST_F64);
+	}
+
+	/**
+	 * Adding with a weight of 2 is the same as adding twice
+	 */
+	@Test
+	void weights() {
+		List<Quaternion_F64> list = createNoisy(10);
+
+		IncrementalAverageQuaternion_F64 a = new IncrementalAverageQuaternion_F64();
+		IncrementalAverageQuaternion_F64 b = new IncrementalAverageQuaternion_F64();
+		for (int i = 0; i < list.size(); i++) {
+			a.add(list.get(i), i + 1);
+			for (int j = 0; j <= i; j++) {
+				b.add(list.get(i));
+			}
+		}
+
+		Quaternion_F64 expected = new Quaternion_F64();
+		Quaternion_F64 found = new Quaternion_F64();
+		assertTrue(b.computeAverage(expected));
+		assertTrue(a.computeAverage(found));
+		checkEquals(expected, found, GrlConstants.TEST_F64);
+		assertEquals(b.getTotalWeight(), a.getTotalWeight(), GrlConstants.TEST_F64);
+	}
+
+	/**
+	 * Sliding window. Removing old quaternions should produce the same result as only adding the new ones
+	 */
+	@Test
+	void remove() {
+		List<Quaternion_F64> list = createNoisy(40);
+		int window = 10;
+
+		IncrementalAverageQuaternion_F64 alg = new IncrementalAverageQuaternion_F64();
+		IncrementalAverageQuaternion_F64 check = new IncrementalAverageQuaternion_F64();
+		Quaternion_F64 expected = new Quaternion_F64();
+		Quaternion_F64 found = new Quaternion_F64();
+
+		for (int i = 0; i < list.size(); i++) {
+			alg.add(list.get(i), 0.5);
+			if( i >= window )
+				alg.remove(list.get(i - window), 0.5);
+
+			check.reset();
+			for (int j = i < window ? 0 : i - window + 1; j <= i; j++) {
+				check.add(list.get(j));
+			}
+			assertEquals(check.getCount(), alg.getCount());
+			assertTrue(check.computeAverage(expected));
+			assertTrue(alg.computeAverage(found));
+			checkEquals(expected, found, GrlConstants.TEST_F64);
+		}
+	}
+
+	@Test
+	void merge() {
+		List<Quaternion_F64> list = createNoisy(30);
+
+		IncrementalAverageQuaternion_F64 all = new IncrementalAverageQuaternion_F64();
+		IncrementalAverageQuaternion_F64 a = new IncrementalAverageQuaternion_F64();
+		IncrementalAverageQuaternion_F64 b = new IncrementalAverageQuaternion_F64();
+		all.addAll(list);
+		a.addAll(list.subList(0, 12));
+		b.addAll(list.subList(12, 30));
+		a.merge(b);
+
+		assertEquals(all.getCount(), a.getCount());
+		Quaternion_F64 expected = new Quaternion_F64();
+		Quaternion_F64 found = new Quaternion_F64();
+		assertTrue(all.computeAverage(expected));
+		assertTrue(a.computeAverage(found));
+		checkEquals(expected, found, GrlConstants.TEST_F64);
+
+		IncrementalAverageQuaternion_F64 c = new IncrementalAverageQuaternion_F64();
+		c.setTo(a);
+		assertTrue(c.computeAverage(found));
+		checkEquals(expected, found, GrlConstants.TEST_F64);
+	}
+
+	@Test
+	void addAllParallel() {
+		List<Quaternion_F64> list = createNoisy(30_000);
+
+		IncrementalAverageQuaternion_F64 a = new IncrementalAverageQuaternion_F64();
+		IncrementalAverageQuaternion_F64 b = new IncrementalAverageQuaternion_F64();
+		a.addAll(list);
+		b.addAllParallel(list);
+		assertEquals(a.getCount(), b.getCount());
+
+		Quaternion_F64 expected = new Quaternion_F64();
+		Quaternion_F64 found = new Quaternion_F64();
+		assertTrue(a.computeAverage(expected));
+		assertTrue(b.computeAverage(found));
+		checkEquals(expected, found, GrlConstants.TEST_F64);
+	}
+
+	/**
+	 * Quaternions which are spread out and don't have a dominant eigenvalue
+	 */
+	@Test
+	void diffuse() {
+		List<Quaternion_F64> list = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			Quaternion_F64 q = new Quaternion_F64(rand.nextGaussian(), rand.nextGaussian(),
+					rand.nextGaussian(), rand.nextGaussian());
+			q.normalize();
+			list.add(q);
+		}
+
+		Quaternion_F64 expected = new Quaternion_F64();
+		assertTrue(new AverageQuaternion_F64().process(list, expected));
+
+		IncrementalAverageQuaternion_F64 alg = new IncrementalAverageQuaternion_F64();
+		alg.addAll(list);
+		Quaternion_F64 found = new Quaternion_F64();
+		assertTrue(alg.computeAverage(found));
+		checkEquals(expected, found, GrlConstants.TEST_F64);
+	}
+
+	/**
+	 * The previous solution is used as the initial guess. Make sure it still works when the new solution
+	 * is almost orthogonal to the previous one.
+	 */
+	@Test
+	void solutionJumps() {
+		IncrementalAverageQuaternion_F64 alg = new IncrementalAverageQuaternion_F64();
+		List<Quaternion_F64> listA = createNoisy(20);
+		alg.addAll(listA);
+		Quaternion_F64 found = new Quaternion_F64();
+		assertTrue(alg.computeAverage(found));
+
+		// rotate everything by 180 degrees so the quaternions are orthogonal
+		List<Quaternion_F64> listB = new ArrayList<>();
+		for (Quaternion_F64 q : listA) {
+			listB.add(new Quaternion_F64(-q.x, q.w, -q.z, q.y));
+			alg.remove(q);
+		}
+		alg.addAll(listB);
+
+		Quaternion_F64 expected = new Quaternion_F64();
+		assertTrue(new AverageQuaternion_F64().process(listB, expected));
+		assertTrue(alg.computeAverage(found));
+		checkEquals(expected, found, GrlConstants.TEST_SQ_F64);
+	}
+
+	@Test
+	void empty() {
+		IncrementalAverageQuaternion_F64 alg = new IncrementalAverageQuaternion_F64();
+		assertFalse(alg.computeAverage(new Quaternion_F64()));
+
+		Quaternion_F64 q = new Quaternion_F64();
+		alg.add(q);
+		alg.remove(q);
+		assertFalse(alg.computeAverage(new Quaternion_F64()));
+	}
+
+	private List<Quaternion_F64> createNoisy( int N ) {
+		List<Quaternion_F64> list = new ArrayList<>();
+		for (int i = 0; i < N; i++) {
+			double rotX = 0.1 + rand.nextGaussian()*0.1;
+			double rotY = -0.5 + rand.nextGaussian()*0.1;
+			double rotZ = 1.5 + rand.nextGaussian()*0.1;
+			list.add(ConvertRotation3D_F64.eulerToQuaternion(EulerType.XYZ, rotX, rotY, rotZ, null));
+		}
+		return list;
+	}
+
+	private static void checkEquals( Quaternion_F64 expected, Quaternion_F64 found, double tol ) {
+		// q and -q are the same rotation
+		double sign = expected.w*found.w + expected.x*found.x + expected.y*found.y + expected.z*found.z < 0 ? -1 : 1;
+		assertEquals(expected.w, sign*found.w, tol);
+		assertEquals(expected.x, sign*found.x, tol);
+		assertEquals(expected.y, sign*found.y, tol);
+		assertEquals(expected.z, sign*found.z, tol);
+	}
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.transform.se;
+
+import georegression.geometry.ConvertRotation3D_F64;
+import georegression.misc.GrlConstants;
+import georegression.struct.EulerType;
+import org.ejml.data.DMatrix3x3;
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.dense.row.CommonOps_DDRM;
+import org.ejml.dense.row.MatrixFeatures_DDRM;
+import org.ejml.ops.ConvertDMatrixStruct;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestIncrementalAverageRotationMatrix_F64 {
+
+	Random rand = new Random(234);
+
+	/**
+	 * Compare against the batch algorithm
+	 */
+	@Test
+	void compareToBatch() {
+		List<DMatrixRMaj> list = createNoisy(50);
+
+		DMatrixRMaj expected = new DMatrixRMaj(3, 3);
+		assertTrue(new AverageRotationMatrix_F64().process(list, expected));
+
+		IncrementalAverageRotationMatrix_F64 alg = new IncrementalAverageRotationMatrix_F64();
+		for (DMatrixRMaj R : list) {
+			alg.add(R);
+		}
+		assertEquals(50, alg.getCount());
+
+		DMatrixRMaj found = new DMatrixRMaj(3, 3);
+		assertTrue(alg.computeAverage(found));
+		assertTrue(MatrixFeatures_DDRM.isIdentical(expected, found, GrlConstants.TEST_F64));
+		assertEquals(1, CommonOps_DDRM.det(found), GrlConstants.TEST_F64);
+
+		DMatrix3x3 found3 = new DMatrix3x3();
+		assertTrue(alg.computeAverage(found3));
+		DMatrixRMaj tmp = new DMatrixRMaj(3, 3);
+		ConvertDMatrixStruct.convert(found3, tmp);
+		assertTrue(MatrixFeatures_DDRM.isIdentical(expected, tmp, GrlConstants.TEST_F64));
+	}
+
+	/**
+	 * Adding with a weight of 2 is the same as adding twice
+	 */
+	@Test
+	void weights() {
+		List<DMatrixRMaj> list = createNoisy(10);
+
+		IncrementalAverageRotationMatrix_F64 a = new IncrementalAverageRotationMatrix_F64();
+		IncrementalAverageRotationMatrix_F64 b = new IncrementalAverageRotationMatrix_F64();
+		DMatrix3x3 R3 = new DMatrix3x3();
+		for (int i = 0; i < list.size(); i++) {
+			ConvertDMatrixStruct.convert(list.get(i), R3);
+			a.add(R3, i + 1);
+			for (int j = 0; j <= i; j++) {
+				b.add(list.get(i));
+			}
+		}
+
+		checkSame(b, a);
+	}
+
+	/**
+	 * Sliding window. Removing old matrices should produce the same result as only adding the new ones
+	 */
+	@Test
+	void remove() {
+		List<DMatrixRMaj> list = createNoisy(40);
+		int window = 10;
+
+		IncrementalAverageRotationMatrix_F64 alg = new IncrementalAverageRotationMatrix_F64();
+		IncrementalAverageRotationMatrix_F64 check = new IncrementalAverageRotationMatrix_F64();
+		DMatrix3x3 R3 = new DMatrix3x3();
+
+		for (int i = 0; i < list.size(); i++) {
+			alg.add(list.get(i), 2.0);
+			if( i >= window ) {
+				if( i%2 == 0 ) {
+					alg.remove(list.get(i - window), 2.0);
+				} else {
+					ConvertDMatrixStruct.convert(list.get(i - window), R3);
+					alg.remove(R3, 2.0);
+				}
+			}
+
+			check.reset();
+			for (int j = i < window ? 0 : i - window + 1; j <= i; j++) {
+				check.add(list.get(j));
+			}
+			assertEquals(check.getCount(), alg.getCount());
+			checkSame(check, alg);
+		}
+	}
+
+	@Test
+	void merge() {
+		List<DMatrixRMaj> list = createNoisy(30);
+
+		IncrementalAverageRotationMatrix_F64 all = new IncrementalAverageRotationMatrix_F64();
+		IncrementalAverageRotationMatrix_F64 a = new IncrementalAverageRotationMatrix_F64();
+		IncrementalAverageRotationMatrix_F64 b = new IncrementalAverageRotationMatrix_F64();
+		all.addAll(list);
+		a.addAll(list.subList(0, 12));
+		b.addAll(list.subList(12, 30));
+		a.merge(b);
+		checkSame(all, a);
+
+		IncrementalAverageRotationMatrix_F64 c = new IncrementalAverageRotationMatrix_F64();
+		c.setTo(a);
+		checkSame(all, c);
+	}
+
+	@Test
+	void addAllParallel() {
+		List<DMatrixRMaj> list = createNoisy(30_000);
+
+		IncrementalAverageRotationMatrix_F64 a = new IncrementalAverageRotationMatrix_F64();
+		IncrementalAverageRotationMatrix_F64 b = new IncrementalAverageRotationMatrix_F64();
+		a.addAll(list);
+		b.addAllParallel(list);
+		assertEquals(a.getCount(), b.getCount());
+		checkSame(a, b);
+	}
+
+	@Test
+	void empty() {
+		IncrementalAverageRotationMatrix_F64 alg = new IncrementalAverageRotationMatrix_F64();
+		assertFalse(alg.computeAverage(new DMatrixRMaj(3, 3)));
+	}
+
+	private static void checkSame( IncrementalAverageRotationMatrix_F64 expected,
+								   IncrementalAverageRotationMatrix_F64 found ) {
+		DMatrixRMaj A = new DMatrixRMaj(3, 3);
+		DMatrixRMaj B = new DMatrixRMaj(3, 3);
+		assertTrue(expected.computeAverage(A));
+		assertTrue(found.computeAverage(B));
+		assertTrue(MatrixFeatures_DDRM.isIdentical(A, B, GrlConstants.TEST_F64));
+	}
+
+	private List<DMatrixRMaj> createNoisy( int N ) {
+		List<DMatrixRMaj> list = new ArrayList<>();
+		for (int i = 0; i < N; i++) {
+			double rotX = 0.1 + rand.nextGaussian()*0.1;
+			double rotY = -0.5 + rand.nextGaussian()*0.1;
+			double rotZ = 1.5 + rand.nextGaussian()*0.1;
+			list.add(ConvertRotation3D_F64.eulerToMatrix(EulerType.XYZ, rotX, rotY, rotZ, null));
+		}
+		return list;
+	}
+}
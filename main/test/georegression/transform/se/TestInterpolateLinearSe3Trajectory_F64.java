@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.transform.se;
+
+import georegression.misc.GrlConstants;
+import georegression.misc.test.GeometryUnitTest;
+import georegression.struct.EulerType;
+import georegression.struct.se.Se3Array_F64;
+import georegression.struct.se.Se3_F64;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestInterpolateLinearSe3Trajectory_F64 {
+	Random rand = new Random(234);
+
+	List<Se3_F64> poses = new ArrayList<>();
+	List<Double> times = new ArrayList<>();
+
+	/**
+	 * Creates a trajectory with uneven time steps and small motions between poses
+	 */
+	private InterpolateLinearSe3Trajectory_F64 createTrajectory( int N ) {
+		poses.clear();
+		times.clear();
+		InterpolateLinearSe3Trajectory_F64 alg = new InterpolateLinearSe3Trajectory_F64();
+		double time = 1.5;
+		Se3_F64 pose = new Se3_F64();
+		for (int i = 0; i < N; i++) {
+			Se3_F64 motion = new Se3_F64();
+			motion.set(rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian(), EulerType.XYZ,
+					rand.nextGaussian()*0.3, rand.nextGaussian()*0.3, rand.nextGaussian()*0.3);
+			pose = pose.concat(motion, null);
+			poses.add(pose);
+			times.add(time);
+			alg.add(time, pose);
+			time += 0.1 + rand.nextDouble();
+		}
+		return alg;
+	}
+
+	/**
+	 * Compare against the results from interpolating between two poses
+	 */
+	private Se3_F64 expected( double time ) {
+		int k = 0;
+		while( k+2 < times.size() && times.get(k+1) < time )
+			k++;
+		InterpolateLinearSe3_F64 interp = new InterpolateLinearSe3_F64();
+		interp.setTransforms(poses.get(k), poses.get(k+1));
+		Se3_F64 output = new Se3_F64();
+		interp.interpolate((time - times.get(k))/(times.get(k+1) - times.get(k)), output);
+		return output;
+	}
+
+	private double randomTime() {
+		double t0 = times.get(0);
+		double t1 = times.get(times.size()-1);
+		return t0 + rand.nextDouble()*(t1 - t0);
+	}
+
+	@Test
+	void interpolate_single() {
+		InterpolateLinearSe3Trajectory_F64 alg = createTrajectory(20);
+
+		Se3_F64 found = new Se3_F64();
+		for (int i = 0; i < 200; i++) {
+			double time = randomTime();
+			assertTrue(alg.interpolate(time, found));
+			GeometryUnitTest.assertEquals(expected(time), found, GrlConstants.TEST_F64, GrlConstants.TEST_F64);
+		}
+	}
+
+	@Test
+	void interpolate_knots() {
+		InterpolateLinearSe3Trajectory_F64 alg = createTrajectory(20);
+
+		Se3_F64 found = new Se3_F64();
+		for (int i = 0; i < poses.size(); i++) {
+			assertTrue(alg.interpolate(times.get(i), found));
+			GeometryUnitTest.assertEquals(poses.get(i), found, GrlConstants.TEST_F64, GrlConstants.TEST_F64);
+		}
+	}
+
+	@Test
+	void interpolate_outside() {
+		InterpolateLinearSe3Trajectory_F64 alg = createTrajectory(5);
+
+		Se3_F64 found = new Se3_F64();
+		assertFalse(alg.interpolate(times.get(0) - 0.1, found));
+		GeometryUnitTest.assertEquals(poses.get(0), found, 0.0, 0.0);
+		assertFalse(alg.interpolate(times.get(4) + 0.1, found));
+		GeometryUnitTest.assertEquals(poses.get(4), found, 0.0, 0.0);
+		assertFalse(alg.interpolate(Double.NaN, found));
+	}
+
+	@Test
+	void interpolate_onePose() {
+		InterpolateLinearSe3Trajectory_F64 alg = createTrajectory(1);
+
+		Se3_F64 found = new Se3_F64();
+		assertTrue(alg.interpolate(times.get(0), found));
+		GeometryUnitTest.assertEquals(poses.get(0), found, 0.0, 0.0);
+		assertFalse(alg.interpolate(times.get(0) + 0.1, found));
+
+		Se3Array_F64 array = new Se3Array_F64();
+		alg.interpolate(new double[]{times.get(0) - 1, times.get(0), times.get(0) + 1}, 3, array);
+		for (int i = 0; i < 3; i++) {
+			GeometryUnitTest.assertEquals(poses.get(0), array.get(i, (Se3_F64)null), 0.0, 0.0);
+		}
+	}
+
+	@Test
+	void interpolate_batch() {
+		InterpolateLinearSe3Trajectory_F64 alg = createTrajectory(20);
+
+		// sorted times followed by random times which will need to jump around
+		int N = 300;
+		double[] queries = new double[N];
+		double t0 = times.get(0) - 0.5;
+		double t1 = times.get(times.size()-1) + 0.5;
+		for (int i = 0; i < N/2; i++) {
+			queries[i] = t0 + i*(t1 - t0)/(N/2 - 1);
+		}
+		for (int i = N/2; i < N; i++) {
+			queries[i] = randomTime();
+		}
+
+		Se3Array_F64 found = new Se3Array_F64();
+		Se3Array_F64 foundParallel = new Se3Array_F64();
+		alg.interpolate(queries, N, found);
+		alg.interpolateParallel(queries, N, foundParallel);
+		assertEquals(N, found.size);
+		assertEquals(N, foundParallel.size);
+
+		Se3_F64 expected = new Se3_F64();
+		for (int i = 0; i < N; i++) {
+			alg.interpolate(queries[i], expected);
+			GeometryUnitTest.assertEquals(expected, found.get(i, (Se3_F64)null), GrlConstants.TEST_F64, GrlConstants.TEST_F64);
+			GeometryUnitTest.assertEquals(expected, foundParallel.get(i, (Se3_F64)null), GrlConstants.TEST_F64, GrlConstants.TEST_F64);
+		}
+	}
+
+	@Test
+	void findInterval() {
+		InterpolateLinearSe3Trajectory_F64 alg = createTrajectory(10);
+
+		for (int i = 0; i < 9; i++) {
+			double middle = (times.get(i) + times.get(i+1))/2;
+			assertEquals(i, alg.findInterval(middle));
+			assertEquals(i, alg.findInterval(times.get(i)));
+		}
+		assertEquals(8, alg.findInterval(times.get(9)));
+	}
+
+	@Test
+	void add_notIncreasing() {
+		InterpolateLinearSe3Trajectory_F64 alg = createTrajectory(3);
+		assertThrows(IllegalArgumentException.class, () -> alg.add(times.get(2), new Se3_F64()));
+		assertThrows(IllegalArgumentException.class, () -> alg.add(times.get(1), new Se3_F64()));
+	}
+
+	@Test
+	void empty() {
+		InterpolateLinearSe3Trajectory_F64 alg = createTrajectory(3);
+		alg.reset();
+		assertEquals(0, alg.size());
+		assertThrows(IllegalArgumentException.class, () -> alg.interpolate(1.0, new Se3_F64()));
+	}
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.transform.se;
+
+import georegression.misc.GrlConstants;
+import georegression.struct.EulerType;
+import georegression.struct.point.Vector3D_F64;
+import georegression.struct.se.Se3Array_F64;
+import georegression.struct.se.Se3_F64;
+import georegression.struct.so.Quaternion_F64;
+import org.ddogleg.struct.FastQueue;
+import org.ejml.dense.row.MatrixFeatures_DDRM;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestSe3ArrayOps_F64 {
+	Random rand = new Random(234);
+
+	@Test
+	void concat_first() {
+		Se3_F64 first = randomSe3();
+		Se3Array_F64 src = randomArray(15);
+		Se3Array_F64 dst = new Se3Array_F64();
+
+		Se3ArrayOps_F64.concat(first, src, dst);
+		assertEquals(src.size, dst.size);
+		for (int i = 0; i < src.size; i++) {
+			Se3_F64 expected = first.concat(src.get(i, (Se3_F64)null), null);
+			checkEquals(expected, dst.get(i, (Se3_F64)null));
+		}
+
+		// in place
+		Se3ArrayOps_F64.concat(first, src, src);
+		checkIdentical(dst, src);
+	}
+
+	@Test
+	void concat_second() {
+		Se3_F64 second = randomSe3();
+		Se3Array_F64 src = randomArray(15);
+		Se3Array_F64 dst = new Se3Array_F64();
+
+		Se3ArrayOps_F64.concat(src, second, dst);
+		assertEquals(src.size, dst.size);
+		for (int i = 0; i < src.size; i++) {
+			Se3_F64 expected = src.get(i, (Se3_F64)null).concat(second, null);
+			checkEquals(expected, dst.get(i, (Se3_F64)null));
+		}
+
+		// in place
+		Se3ArrayOps_F64.concat(src, second, src);
+		checkIdentical(dst, src);
+	}
+
+	@Test
+	void invert() {
+		Se3Array_F64 src = randomArray(15);
+		Se3Array_F64 dst = new Se3Array_F64();
+
+		Se3ArrayOps_F64.invert(src, dst);
+		assertEquals(src.size, dst.size);
+		for (int i = 0; i < src.size; i++) {
+			Se3_F64 expected = src.get(i, (Se3_F64)null).invert(null);
+			checkEquals(expected, dst.get(i, (Se3_F64)null));
+		}
+
+		// in place
+		Se3ArrayOps_F64.invert(src, src);
+		checkIdentical(dst, src);
+	}
+
+	@Test
+	void relative() {
+		Se3Array_F64 src = randomArray(15);
+		Se3Array_F64 dst = new Se3Array_F64();
+
+		Se3ArrayOps_F64.relative(src, dst);
+		assertEquals(src.size - 1, dst.size);
+		for (int i = 0; i < dst.size; i++) {
+			Se3_F64 a = src.get(i, (Se3_F64)null);
+			Se3_F64 expected = src.get(i + 1, (Se3_F64)null);
+			Se3_F64 found = a.concat(dst.get(i, (Se3_F64)null), null);
+			checkEquals(expected, found);
+		}
+
+		// in place
+		Se3ArrayOps_F64.relative(src, src);
+		checkIdentical(dst, src);
+
+		// degenerate cases
+		Se3ArrayOps_F64.relative(new Se3Array_F64(), dst);
+		assertEquals(0, dst.size);
+		Se3ArrayOps_F64.relative(randomArray(1), dst);
+		assertEquals(0, dst.size);
+	}
+
+	@Test
+	void accumulate() {
+		Se3Array_F64 poses = randomArray(15);
+		Se3Array_F64 motions = new Se3Array_F64();
+		Se3Array_F64 found = new Se3Array_F64();
+
+		Se3ArrayOps_F64.relative(poses, motions);
+		Se3ArrayOps_F64.accumulate(poses.get(0, (Se3_F64)null), motions, found);
+
+		assertEquals(poses.size, found.size);
+		for (int i = 0; i < poses.size; i++) {
+			checkEquals(poses.get(i, (Se3_F64)null), found.get(i, (Se3_F64)null));
+		}
+
+		assertThrows(IllegalArgumentException.class, () -> Se3ArrayOps_F64.accumulate(new Se3_F64(), motions, motions));
+	}
+
+	@Test
+	void convert_quaternion() {
+		Se3Array_F64 poses = randomArray(15);
+
+		FastQueue<Quaternion_F64> rotations = new FastQueue<>(Quaternion_F64::new);
+		FastQueue<Vector3D_F64> translations = new FastQueue<>(Vector3D_F64::new);
+		Se3ArrayOps_F64.convert(poses, rotations, translations);
+		assertEquals(poses.size, rotations.size);
+		assertEquals(poses.size, translations.size);
+
+		List<Quaternion_F64> listR = new ArrayList<>(rotations.toList());
+		List<Vector3D_F64> listT = new ArrayList<>(translations.toList());
+		Se3Array_F64 found = new Se3Array_F64();
+		Se3ArrayOps_F64.convert(listR, listT, found);
+
+		assertEquals(poses.size, found.size);
+		for (int i = 0; i < poses.size; i++) {
+			checkEquals(poses.get(i, (Se3_F64)null), found.get(i, (Se3_F64)null));
+		}
+
+		listT.remove(0);
+		assertThrows(IllegalArgumentException.class, () -> Se3ArrayOps_F64.convert(listR, listT, found));
+	}
+
+	private void checkIdentical( Se3Array_F64 a, Se3Array_F64 b ) {
+		assertEquals(a.size, b.size);
+		for (int i = 0; i < a.size*Se3Array_F64.LENGTH; i++) {
+			assertEquals(a.data[i], b.data[i], GrlConstants.TEST_F64);
+		}
+	}
+
+	private void checkEquals( Se3_F64 expected, Se3_F64 found ) {
+		assertTrue(MatrixFeatures_DDRM.isIdentical(expected.R, found.R, GrlConstants.TEST_F64));
+		assertEquals(0, expected.T.distance(found.T), GrlConstants.TEST_F64);
+	}
+
+	private Se3Array_F64 randomArray( int N ) {
+		Se3Array_F64 array = new Se3Array_F64();
+		for (int i = 0; i < N; i++) {
+			array.add(randomSe3());
+		}
+		return array;
+	}
+
+	private Se3_F64 randomSe3() {
+		Se3_F64 se = new Se3_F64();
+		se.set(rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian(), EulerType.XYZ,
+				rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian());
+		return se;
+	}
+}
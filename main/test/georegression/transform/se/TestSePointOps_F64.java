@@ -19,19 +19,23 @@
 package georegression.transform.se;
 
 import georegression.geometry.ConvertRotation3D_F64;
+import georegression.misc.GrlConcurrency;
 import georegression.misc.GrlConstants;
 import georegression.struct.EulerType;
 import georegression.struct.point.Point2D_F64;
 import georegression.struct.point.Point3D_F64;
 import georegression.struct.point.Point4D_F64;
+import georegression.struct.point.PointCloud3D_F64;
 import georegression.struct.point.Vector3D_F64;
 import georegression.struct.se.Se2_F64;
+import georegression.struct.se.Se3Compact_F64;
 import georegression.struct.se.Se3_F64;
 import org.ejml.data.DMatrixRMaj;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -40,6 +44,8 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
  */
 public class TestSePointOps_F64 {
 
+	Random rand = new Random(234);
+
 	@Test
 	void transform_2d_single() {
 		Se2_F64 tran = new Se2_F64( -2, 3, Math.PI );
@@ -225,4 +231,203 @@ public class TestSePointOps_F64 {
 		assertEquals( 7, Pt.getY(), GrlConstants.TEST_F64);
 		assertEquals( 9, Pt.getZ(), GrlConstants.TEST_F64);
 	}
+
+	@Test
+	void transform_3d_packed() {
+		Se3_F64 se = new Se3_F64();
+		se.set(1,-2,0.5, EulerType.XYZ,0.1,-0.5,1.2);
+
+		// offsets are used to make sure they are handled correctly
+		double[] src = new double[2+3*10];
+		double[] dst = new double[1+3*10];
+		for (int i = 0; i < src.length; i++) {
+			src[i] = rand.nextGaussian();
+		}
+
+		SePointOps_F64.transform(se,src,2,dst,1,10);
+
+		Point3D_F64 expected = new Point3D_F64();
+		for (int i = 0; i < 10; i++) {
+			SePointOps_F64.transform(se,src[2+i*3],src[2+i*3+1],src[2+i*3+2],expected);
+			assertEquals(expected.x, dst[1+i*3  ], GrlConstants.TEST_F64);
+			assertEquals(expected.y, dst[1+i*3+1], GrlConstants.TEST_F64);
+			assertEquals(expected.z, dst[1+i*3+2], GrlConstants.TEST_F64);
+		}
+	}
+
+	@Test
+	void transform_3d_cloud() {
+		Se3_F64 se = new Se3_F64();
+		se.set(1,-2,0.5, EulerType.XYZ,0.1,-0.5,1.2);
+
+		PointCloud3D_F64 src = randomCloud(20);
+		PointCloud3D_F64 dst = new PointCloud3D_F64();
+
+		SePointOps_F64.transform(se,src,dst);
+		assertEquals(src.size,dst.size);
+
+		Point3D_F64 p = new Point3D_F64();
+		for (int i = 0; i < src.size; i++) {
+			SePointOps_F64.transform(se,src.get(i,null),p);
+			assertEquals(0,p.distance(dst.get(i,null)),GrlConstants.TEST_F64);
+		}
+
+		// in place
+		SePointOps_F64.transform(se,src,src);
+		for (int i = 0; i < src.size; i++) {
+			assertEquals(0,src.get(i,null).distance(dst.get(i,null)),GrlConstants.TEST_F64);
+		}
+	}
+
+	@Test
+	void transform_3d_cloud_concat() {
+		Se3_F64 a = new Se3_F64();
+		Se3_F64 b = new Se3_F64();
+		a.set(1,-2,0.5, EulerType.XYZ,0.1,-0.5,1.2);
+		b.set(-0.5,0.2,3, EulerType.XYZ,-0.3,0.25,0.2);
+
+		PointCloud3D_F64 src = randomCloud(20);
+		PointCloud3D_F64 dst = new PointCloud3D_F64();
+
+		SePointOps_F64.transform(a,b,src,dst);
+
+		Se3_F64 a_to_b = a.concat(b,null);
+		Point3D_F64 p = new Point3D_F64();
+		for (int i = 0; i < src.size; i++) {
+			SePointOps_F64.transform(a_to_b,src.get(i,null),p);
+			assertEquals(0,p.distance(dst.get(i,null)),GrlConstants.TEST_F64);
+		}
+	}
+
+	@Test
+	void transformReverse_3d_cloud() {
+		Se3_F64 se = new Se3_F64();
+		se.set(1,-2,0.5, EulerType.XYZ,0.1,-0.5,1.2);
+
+		PointCloud3D_F64 src = randomCloud(20);
+		PointCloud3D_F64 dst = new PointCloud3D_F64();
+
+		SePointOps_F64.transformReverse(se,src,dst);
+
+		Point3D_F64 p = new Point3D_F64();
+		for (int i = 0; i < src.size; i++) {
+			SePointOps_F64.transformReverse(se,src.get(i,null),p);
+			assertEquals(0,p.distance(dst.get(i,null)),GrlConstants.TEST_F64);
+		}
+	}
+
+	@Test
+	void transform_compact_single() {
+		Se3_F64 se = new Se3_F64();
+		se.set(1,-2,0.5, EulerType.XYZ,0.1,-0.5,1.2);
+		Se3Compact_F64 compact = new Se3Compact_F64(se);
+
+		Point3D_F64 P = new Point3D_F64(0.5,-3,2);
+		Point3D_F64 expected = SePointOps_F64.transform(se,P,null);
+		Point3D_F64 found = SePointOps_F64.transform(compact,P,null);
+		assertEquals(0,expected.distance(found),GrlConstants.TEST_F64);
+
+		expected = SePointOps_F64.transformReverse(se,P,null);
+		found = SePointOps_F64.transformReverse(compact,P,null);
+		assertEquals(0,expected.distance(found),GrlConstants.TEST_F64);
+
+		// in place
+		found.set(P);
+		SePointOps_F64.transformReverse(compact,found,found);
+		assertEquals(0,expected.distance(found),GrlConstants.TEST_F64);
+		SePointOps_F64.transform(compact,found,found);
+		assertEquals(0,P.distance(found),GrlConstants.TEST_F64);
+	}
+
+	@Test
+	void transform_compact_packed() {
+		Se3_F64 se = new Se3_F64();
+		se.set(1,-2,0.5, EulerType.XYZ,0.1,-0.5,1.2);
+		Se3Compact_F64 compact = new Se3Compact_F64(se);
+
+		PointCloud3D_F64 src = randomCloud(20);
+		PointCloud3D_F64 expected = new PointCloud3D_F64();
+		PointCloud3D_F64 found = new PointCloud3D_F64();
+
+		SePointOps_F64.transform(se,src,expected);
+		SePointOps_F64.transform(compact,src,found);
+		assertEquals(src.size,found.size);
+		for (int i = 0; i < src.size*3; i++) {
+			assertEquals(expected.data[i],found.data[i],GrlConstants.TEST_F64);
+		}
+
+		SePointOps_F64.transformReverse(se,src,expected);
+		SePointOps_F64.transformReverse(compact,src.data,0,found.data,0,src.size);
+		for (int i = 0; i < src.size*3; i++) {
+			assertEquals(expected.data[i],found.data[i],GrlConstants.TEST_F64);
+		}
+	}
+
+	@Test
+	void transformParallel_3d_array() {
+		Se3_F64 se = new Se3_F64();
+		se.set(1,-2,0.5, EulerType.XYZ,0.1,-0.5,1.2);
+
+		int N = GrlConcurrency.MIN_PARALLEL_LENGTH*2 + 13;
+		Point3D_F64[] expected = new Point3D_F64[N+2];
+		Point3D_F64[] found = new Point3D_F64[N+2];
+		for (int i = 0; i < expected.length; i++) {
+			expected[i] = new Point3D_F64(rand.nextGaussian(),rand.nextGaussian(),rand.nextGaussian());
+			found[i] = expected[i].copy();
+		}
+
+		SePointOps_F64.transform(se,expected,1,N);
+		SePointOps_F64.transformParallel(se,found,1,N);
+
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(0,expected[i].distance(found[i]),GrlConstants.TEST_F64);
+		}
+	}
+
+	@Test
+	void transformParallel_3d_list() {
+		Se3_F64 se = new Se3_F64();
+		se.set(1,-2,0.5, EulerType.XYZ,0.1,-0.5,1.2);
+
+		int N = GrlConcurrency.MIN_PARALLEL_LENGTH*2 + 13;
+		List<Point3D_F64> expected = new ArrayList<>();
+		List<Point3D_F64> found = new ArrayList<>();
+		for (int i = 0; i < N; i++) {
+			expected.add(new Point3D_F64(rand.nextGaussian(),rand.nextGaussian(),rand.nextGaussian()));
+			found.add(expected.get(i).copy());
+		}
+
+		SePointOps_F64.transform(se,expected);
+		SePointOps_F64.transformParallel(se,found);
+
+		for (int i = 0; i < N; i++) {
+			assertEquals(0,expected.get(i).distance(found.get(i)),GrlConstants.TEST_F64);
+		}
+	}
+
+	@Test
+	void transformParallel_3d_cloud() {
+		Se3_F64 se = new Se3_F64();
+		se.set(1,-2,0.5, EulerType.XYZ,0.1,-0.5,1.2);
+
+		PointCloud3D_F64 src = randomCloud(GrlConcurrency.MIN_PARALLEL_LENGTH*2 + 13);
+		PointCloud3D_F64 expected = new PointCloud3D_F64();
+		PointCloud3D_F64 found = new PointCloud3D_F64();
+
+		SePointOps_F64.transform(se,src,expected);
+		SePointOps_F64.transformParallel(se,src,found);
+
+		assertEquals(expected.size,found.size);
+		for (int i = 0; i < expected.size*3; i++) {
+			assertEquals(expected.data[i],found.data[i],GrlConstants.TEST_F64);
+		}
+	}
+
+	private PointCloud3D_F64 randomCloud( int N ) {
+		PointCloud3D_F64 cloud = new PointCloud3D_F64();
+		for (int i = 0; i < N; i++) {
+			cloud.add(rand.nextGaussian(),rand.nextGaussian(),rand.nextGaussian());
+		}
+		return cloud;
+	}
 }
@@ -0,0 +1,401 @@
+/*
+ * Copyright (C) 2011-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of Geometric Regression Library (GeoRegression).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package georegression.transform.twist;
+
+import georegression.geometry.ConvertRotation3D_F64;
+import georegression.misc.GrlConstants;
+import georegression.struct.point.Vector3D_F64;
+import georegression.struct.se.Se3Array_F64;
+import georegression.struct.se.Se3_F64;
+import org.ejml.data.DMatrix3x3;
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.dense.fixed.CommonOps_DDF3;
+import org.ejml.dense.row.CommonOps_DDRM;
+import org.ejml.dense.row.MatrixFeatures_DDRM;
+import org.ejml.ops.ConvertDMatrixStruct;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestLieGroupOps_F64 {
+
+	Random rand = new Random(234);
+
+	// step size used for numerical derivatives
+	double delta = 0.0001;
+	// tolerance for numerical derivatives
+	double tolDeriv = GrlConstants.TEST_SQ_F64;
+
+	// magnitudes of rotation which are tested. Includes values inside the small angle branch
+	double[] magnitudes = new double[]{0, 0.0000001, 0.001, 0.009, 0.011, 0.5, 2.0, 3.0};
+
+	@Test
+	void expSO3() {
+		for (double m : magnitudes) {
+			Vector3D_F64 w = randomVector(m);
+
+			DMatrix3x3 found = LieGroupOps_F64.expSO3(w.x, w.y, w.z, null);
+
+			DMatrixRMaj expected = CommonOps_DDRM.identity(3);
+			if( m != 0 )
+				ConvertRotation3D_F64.rodriguesToMatrix(w.x/m, w.y/m, w.z/m, m, expected);
+
+			assertIdentical(expected, found, GrlConstants.TEST_F64);
+		}
+	}
+
+	@Test
+	void logSO3() {
+		double[] angles = new double[]{0, 0.0000001, 0.001, 0.009, 0.011, 0.5, 1.5, 2.0, 3.0, Math.PI - 0.0000001, Math.PI};
+		for (double m : angles) {
+			for (int trial = 0; trial < 5; trial++) {
+				Vector3D_F64 w = randomVector(m);
+				DMatrix3x3 R = LieGroupOps_F64.expSO3(w.x, w.y, w.z, null);
+
+				Vector3D_F64 found = LieGroupOps_F64.logSO3(R, null);
+
+				// at pi the sign of the axis is ambiguous
+				if( found.dot(w) < 0 && m > 3 )
+					found.scale(-1);
+				assertTrue(found.isIdentical(w, GrlConstants.TEST_SQ_F64), "angle = "+m);
+			}
+		}
+	}
+
+	@Test
+	void hat() {
+		DMatrix3x3 H = LieGroupOps_F64.hat(1, 2, 3, null);
+		Vector3D_F64 a = new Vector3D_F64(0.5, -1, 2);
+		Vector3D_F64 expected = new Vector3D_F64(1, 2, 3).cross(a);
+
+		assertEquals(expected.x, H.a11*a.x + H.a12*a.y + H.a13*a.z, GrlConstants.TEST_F64);
+		assertEquals(expected.y, H.a21*a.x + H.a22*a.y + H.a23*a.z, GrlConstants.TEST_F64);
+		assertEquals(expected.z, H.a31*a.x + H.a32*a.y + H.a33*a.z, GrlConstants.TEST_F64);
+	}
+
+	/**
+	 * Compares the left Jacobian against a numerical derivative. exp(w + d) = exp(J*d)*exp(w)
+	 */
+	@Test
+	void jacobianLeftSO3() {
+		for (double m : magnitudes) {
+			Vector3D_F64 w = randomVector(m);
+			DMatrix3x3 found = LieGroupOps_F64.jacobianLeftSO3(w.x, w.y, w.z, null);
+			assertIdentical(numericalSO3(w, true), found, tolDeriv);
+		}
+	}
+
+	/**
+	 * Compares the right Jacobian against a numerical derivative. exp(w + d) = exp(w)*exp(J*d)
+	 */
+	@Test
+	void jacobianRightSO3() {
+		for (double m : magnitudes) {
+			Vector3D_F64 w = randomVector(m);
+			DMatrix3x3 found = LieGroupOps_F64.jacobianRightSO3(w.x, w.y, w.z, null);
+			assertIdentical(numericalSO3(w, false), found, tolDeriv);
+		}
+	}
+
+	@Test
+	void jacobianInvSO3() {
+		for (double m : magnitudes) {
+			Vector3D_F64 w = randomVector(m);
+
+			DMatrix3x3 J = LieGroupOps_F64.jacobianLeftSO3(w.x, w.y, w.z, null);
+			DMatrix3x3 Jinv = LieGroupOps_F64.jacobianLeftInvSO3(w.x, w.y, w.z, null);
+			DMatrix3x3 I = new DMatrix3x3();
+			CommonOps_DDF3.mult(J, Jinv, I);
+			assertIdentity(I);
+
+			LieGroupOps_F64.jacobianRightSO3(w.x, w.y, w.z, J);
+			LieGroupOps_F64.jacobianRightInvSO3(w.x, w.y, w.z, Jinv);
+			CommonOps_DDF3.mult(J, Jinv, I);
+			assertIdentity(I);
+		}
+	}
+
+	@Test
+	void expSE3() {
+		for (double m : magnitudes) {
+			TwistCoordinate_F64 twist = randomTwist(m);
+
+			Se3_F64 found = LieGroupOps_F64.expSE3(twist, null);
+
+			Se3_F64 expected = new Se3_F64();
+			if( m == 0 ) {
+				expected.T.set(twist.v);
+			} else {
+				TwistOps_F64.exponential(twist, 1, expected);
+			}
+
+			assertTrue(MatrixFeatures_DDRM.isIdentical(expected.R, found.R, GrlConstants.TEST_F64));
+			assertTrue(found.T.isIdentical(expected.T, GrlConstants.TEST_SQ_F64), "m = "+m);
+		}
+	}
+
+	@Test
+	void logSE3() {
+		for (double m : magnitudes) {
+			TwistCoordinate_F64 twist = randomTwist(m);
+			Se3_F64 motion = LieGroupOps_F64.expSE3(twist, null);
+
+			TwistCoordinate_F64 found = LieGroupOps_F64.logSE3(motion, null);
+			assertTrue(found.w.isIdentical(twist.w, GrlConstants.TEST_SQ_F64));
+			assertTrue(found.v.isIdentical(twist.v, GrlConstants.TEST_SQ_F64));
+		}
+	}
+
+	/**
+	 * T*exp(xi)*inv(T) = exp(Ad(T)*xi)
+	 */
+	@Test
+	void adjointSE3() {
+		Se3_F64 T = LieGroupOps_F64.expSE3(randomTwist(1.2), null);
+		TwistCoordinate_F64 xi = randomTwist(0.4);
+
+		DMatrixRMaj Ad = LieGroupOps_F64.adjointSE3(T, null);
+		TwistCoordinate_F64 found = toTwist(mult(Ad, toArray(xi)));
+
+		// matrix order is T*exp(xi)*inv(T), so inv(T) is applied first
+		Se3_F64 tmp = LieGroupOps_F64.expSE3(xi, null).concat(T, null);
+		Se3_F64 expected = T.invert(null).concat(tmp, null);
+
+		Se3_F64 foundMotion = LieGroupOps_F64.expSE3(found, null);
+		assertTrue(MatrixFeatures_DDRM.isIdentical(expected.R, foundMotion.R, GrlConstants.TEST_F64));
+		assertTrue(expected.T.isIdentical(foundMotion.T, GrlConstants.TEST_SQ_F64));
+	}
+
+	@Test
+	void jacobianLeftSE3() {
+		for (double m : magnitudes) {
+			TwistCoordinate_F64 twist = randomTwist(m);
+			DMatrixRMaj found = LieGroupOps_F64.jacobianLeftSE3(twist, null);
+			assertTrue(MatrixFeatures_DDRM.isIdentical(numericalSE3(twist, true), found, tolDeriv), "m = "+m);
+		}
+	}
+
+	@Test
+	void jacobianRightSE3() {
+		for (double m : magnitudes) {
+			TwistCoordinate_F64 twist = randomTwist(m);
+			DMatrixRMaj found = LieGroupOps_F64.jacobianRightSE3(twist, null);
+			assertTrue(MatrixFeatures_DDRM.isIdentical(numericalSE3(twist, false), found, tolDeriv), "m = "+m);
+		}
+	}
+
+	@Test
+	void jacobianInvSE3() {
+		for (double m : magnitudes) {
+			TwistCoordinate_F64 twist = randomTwist(m);
+			DMatrixRMaj I = new DMatrixRMaj(6, 6);
+
+			CommonOps_DDRM.mult(LieGroupOps_F64.jacobianLeftSE3(twist, null),
+					LieGroupOps_F64.jacobianLeftInvSE3(twist, null), I);
+			assertTrue(MatrixFeatures_DDRM.isIdentity(I, GrlConstants.TEST_F64));
+
+			CommonOps_DDRM.mult(LieGroupOps_F64.jacobianRightSE3(twist, null),
+					LieGroupOps_F64.jacobianRightInvSE3(twist, null), I);
+			assertTrue(MatrixFeatures_DDRM.isIdentity(I, GrlConstants.TEST_F64));
+		}
+	}
+
+	@Test
+	void batchSO3() {
+		int N = 30;
+		double[] vectors = new double[N*3];
+		for (int i = 0; i < N; i++) {
+			Vector3D_F64 w = randomVector(magnitudes[i%magnitudes.length]);
+			vectors[i*3] = w.x; vectors[i*3 + 1] = w.y; vectors[i*3 + 2] = w.z;
+		}
+
+		double[] rotations = new double[N*9];
+		LieGroupOps_F64.expSO3(vectors, N, rotations);
+		double[] found = new double[N*3];
+		LieGroupOps_F64.logSO3(rotations, N, found);
+
+		for (int i = 0; i < N; i++) {
+			DMatrix3x3 expected = LieGroupOps_F64.expSO3(vectors[i*3], vectors[i*3 + 1], vectors[i*3 + 2], null);
+			for (int j = 0; j < 9; j++) {
+				assertEquals(expected.get(j/3, j%3), rotations[i*9 + j], GrlConstants.TEST_F64);
+			}
+			for (int j = 0; j < 3; j++) {
+				assertEquals(vectors[i*3 + j], found[i*3 + j], GrlConstants.TEST_SQ_F64);
+			}
+		}
+	}
+
+	@Test
+	void batchSE3() {
+		for (boolean concurrent : new boolean[]{false, true}) {
+			int N = 30;
+			double[] twists = new double[N*6];
+			for (int i = 0; i < N; i++) {
+				double[] a = toArray(randomTwist(magnitudes[i%magnitudes.length]));
+				System.arraycopy(a, 0, twists, i*6, 6);
+			}
+
+			Se3Array_F64 motions = new Se3Array_F64();
+			double[] found = new double[N*6];
+			if( concurrent ) {
+				LieGroupOps_F64.expSE3Parallel(twists, N, motions);
+				LieGroupOps_F64.logSE3Parallel(motions, found);
+			} else {
+				LieGroupOps_F64.expSE3(twists, N, motions);
+				LieGroupOps_F64.logSE3(motions, found);
+			}
+			assertEquals(N, motions.size);
+
+			Se3_F64 m = new Se3_F64();
+			for (int i = 0; i < N; i++) {
+				double[] a = new double[6];
+				System.arraycopy(twists, i*6, a, 0, 6);
+				Se3_F64 expected = LieGroupOps_F64.expSE3(toTwist(a), null);
+				motions.get(i, m);
+				assertTrue(MatrixFeatures_DDRM.isIdentical(expected.R, m.R, GrlConstants.TEST_F64));
+				assertTrue(expected.T.isIdentical(m.T, GrlConstants.TEST_F64));
+				for (int j = 0; j < 6; j++) {
+					assertEquals(twists[i*6 + j], found[i*6 + j], GrlConstants.TEST_SQ_F64);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Computes the Jacobian using central differences
+	 */
+	private DMatrix3x3 numericalSO3( Vector3D_F64 w, boolean left ) {
+		DMatrix3x3 R = LieGroupOps_F64.expSO3(w.x, w.y, w.z, null);
+		DMatrix3x3 Rp = new DMatrix3x3();
+		DMatrix3x3 Rm = new DMatrix3x3();
+		DMatrix3x3 D = new DMatrix3x3();
+		Vector3D_F64 lp = new Vector3D_F64();
+		Vector3D_F64 lm = new Vector3D_F64();
+
+		DMatrix3x3 J = new DMatrix3x3();
+		for (int k = 0; k < 3; k++) {
+			double dx = k == 0 ? delta : 0, dy = k == 1 ? delta : 0, dz = k == 2 ? delta : 0;
+			LieGroupOps_F64.expSO3(w.x + dx, w.y + dy, w.z + dz, Rp);
+			LieGroupOps_F64.expSO3(w.x - dx, w.y - dy, w.z - dz, Rm);
+
+			if( left ) {
+				CommonOps_DDF3.multTransB(Rp, R, D);
+				LieGroupOps_F64.logSO3(D, lp);
+				CommonOps_DDF3.multTransB(Rm, R, D);
+				LieGroupOps_F64.logSO3(D, lm);
+			} else {
+				CommonOps_DDF3.multTransA(R, Rp, D);
+				LieGroupOps_F64.logSO3(D, lp);
+				CommonOps_DDF3.multTransA(R, Rm, D);
+				LieGroupOps_F64.logSO3(D, lm);
+			}
+			J.set(0, k, (lp.x - lm.x)/(2*delta));
+			J.set(1, k, (lp.y - lm.y)/(2*delta));
+			J.set(2, k, (lp.z - lm.z)/(2*delta));
+		}
+		return J;
+	}
+
+	/**
+	 * Computes the Jacobian using central differences
+	 */
+	private DMatrixRMaj numericalSE3( TwistCoordinate_F64 twist, boolean left ) {
+		Se3_F64 T = LieGroupOps_F64.expSE3(twist, null);
+		Se3_F64 Tinv = T.invert(null);
+		double[] a = toArray(twist);
+
+		DMatrixRMaj J = new DMatrixRMaj(6, 6);
+		for (int k = 0; k < 6; k++) {
+			double[] b = a.clone();
+			b[k] += delta;
+			double[] lp = toArray(LieGroupOps_F64.logSE3(difference(Tinv, b, left), null));
+			b[k] -= 2*delta;
+			double[] lm = toArray(LieGroupOps_F64.logSE3(difference(Tinv, b, left), null));
+			for (int i = 0; i < 6; i++) {
+				J.set(i, k, (lp[i] - lm[i])/(2*delta));
+			}
+		}
+		return J;
+	}
+
+	/**
+	 * left = exp(b)*inv(T), right = inv(T)*exp(b), in matrix notation
+	 */
+	private static Se3_F64 difference( Se3_F64 Tinv, double[] b, boolean left ) {
+		Se3_F64 E = LieGroupOps_F64.expSE3(toTwist(b), null);
+		return left ? Tinv.concat(E, null) : E.concat(Tinv, null);
+	}
+
+	private Vector3D_F64 randomVector( double magnitude ) {
+		Vector3D_F64 w = new Vector3D_F64(rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian());
+		w.normalize();
+		w.scale(magnitude);
+		return w;
+	}
+
+	private TwistCoordinate_F64 randomTwist( double magnitude ) {
+		TwistCoordinate_F64 twist = new TwistCoordinate_F64();
+		twist.w.set(randomVector(magnitude));
+		twist.v.set(rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian());
+		return twist;
+	}
+
+	private static double[] toArray( TwistCoordinate_F64 twist ) {
+		return new double[]{twist.v.x, twist.v.y, twist.v.z, twist.w.x, twist.w.y, twist.w.z};
+	}
+
+	private static TwistCoordinate_F64 toTwist( double[] a ) {
+		return new TwistCoordinate_F64(a[3], a[4], a[5], a[0], a[1], a[2]);
+	}
+
+	private static double[] mult( DMatrixRMaj A, double[] x ) {
+		double[] y = new double[6];
+		for (int i = 0; i < 6; i++) {
+			for (int j = 0; j < 6; j++) {
+				y[i] += A.get(i, j)*x[j];
+			}
+		}
+		return y;
+	}
+
+	private static void assertIdentical( DMatrixRMaj expected, DMatrix3x3 found, double tol ) {
+		DMatrixRMaj a = new DMatrixRMaj(3, 3);
+		ConvertDMatrixStruct.convert(found, a);
+		assertTrue(MatrixFeatures_DDRM.isIdentical(expected, a, tol));
+	}
+
+	private static void assertIdentical( DMatrix3x3 expected, DMatrix3x3 found, double tol ) {
+		for (int i = 0; i < 9; i++) {
+			assertEquals(expected.get(i/3, i%3), found.get(i/3, i%3), tol);
+		}
+	}
+
+	private static void assertIdentity( DMatrix3x3 M ) {
+		DMatrix3x3 I = new DMatrix3x3();
+		CommonOps_DDF3.setIdentity(I);
+		assertIdentical(I, M, GrlConstants.TEST_F64);
+	}
+}